@@ -2,6 +2,10 @@ package com.climatemonitoring.client;
 
 import com.climatemonitoring.client.controller.LoginController;
 import com.climatemonitoring.client.controller.MainController;
+import com.climatemonitoring.client.service.ElencoAree;
+import com.climatemonitoring.client.service.NotificheModifiche;
+import com.climatemonitoring.client.service.ServizioAsincrono;
+import com.climatemonitoring.client.service.ServizioConCache;
 import com.climatemonitoring.common.service.ClimateMonitoringService;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
@@ -37,6 +41,22 @@ public class ClientCM extends Application {
      */
     private static ClimateMonitoringService service;
 
+    /**
+     * Esecutore delle chiamate al servizio fuori dal thread dell'interfaccia,
+     * condiviso da tutte le viste.
+     */
+    private ServizioAsincrono servizioAsincrono;
+
+    /**
+     * Notifiche delle modifiche inviate dal server alle viste aperte.
+     */
+    private NotificheModifiche notifiche;
+
+    /**
+     * Copia locale dell'elenco delle coordinate, conservata tra un accesso e l'altro.
+     */
+    private final ElencoAree elencoAree = new ElencoAree();
+
     /**
      * Finestra principale dell'applicazione JavaFX.
      * Funge da finestra principale dell'applicazione.
@@ -97,6 +117,10 @@ public class ClientCM extends Application {
                 throw new Exception("Servizio RMI non trovato nel registry");
             }
 
+            // le ricerche ripetute a ogni apertura di schede e finestre sono servite dalla cache
+            service = ServizioConCache.proxy(service);
+            servizioAsincrono = new ServizioAsincrono(service);
+            notifiche = new NotificheModifiche(servizioAsincrono);
             System.out.println("Connessione RMI stabilita con successo");
         } catch (Exception e) {
             System.err.println("Errore durante l'inizializzazione del servizio RMI: " + e.getMessage());
@@ -143,7 +167,7 @@ public class ClientCM extends Application {
 
             LoginController controller = loader.getController();
             controller.setMainApp(this);
-            controller.setService(service);
+            controller.setService(servizioAsincrono);
 
             if (!primaryStage.getScene().getStylesheets().contains(getClass().getResource("/fxml/styles.css").toExternalForm())) {
                 primaryStage.getScene().getStylesheets().add(getClass().getResource("/fxml/styles.css").toExternalForm());
@@ -174,7 +198,9 @@ public class ClientCM extends Application {
 
             MainController controller = loader.getController();
             controller.setMainApp(this);
-            controller.setService(service);
+            controller.setService(servizioAsincrono);
+            controller.setNotifiche(notifiche);
+            controller.setElencoAree(elencoAree);
 
             return controller;
         } catch (IOException e) {
@@ -185,6 +211,20 @@ public class ClientCM extends Application {
         }
     }
 
+    /**
+     * Annulla la sottoscrizione alle modifiche e le chiamate al servizio ancora
+     * in corso alla chiusura dell'applicazione.
+     */
+    @Override
+    public void stop() {
+        if (notifiche != null) {
+            notifiche.chiudi();
+        }
+        if (servizioAsincrono != null) {
+            servizioAsincrono.chiudi();
+        }
+    }
+
     /**
      * Visualizza una finestra di dialogo con informazioni dettagliate sull'errore.
      *
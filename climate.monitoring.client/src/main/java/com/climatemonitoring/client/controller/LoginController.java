@@ -2,13 +2,11 @@ package com.climatemonitoring.client.controller;
 
 import com.climatemonitoring.client.ClientCM;
 import com.climatemonitoring.common.model.OperatoriRegistrati;
-import com.climatemonitoring.common.service.ClimateMonitoringService;
+import com.climatemonitoring.client.service.ServizioAsincrono;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 
-import java.rmi.RemoteException;
-import java.sql.SQLException;
 
 
 /**
@@ -54,6 +52,11 @@ public class LoginController {
      */
     @FXML private Button guestButton;
 
+    /**
+     * Indicatore visibile mentre una richiesta al server è in corso.
+     */
+    @FXML private ProgressIndicator attivitaIndicator;
+
     /**
      * Riferimento all'applicazione principale client.
      * Utilizzato per gestire la navigazione tra diverse schermate.
@@ -62,9 +65,10 @@ public class LoginController {
 
     /**
      * Servizio per le operazioni remote di Climate Monitoring.
-     * Gestisce le chiamate al server per autenticazione e registrazione.
+     * Gestisce le chiamate al server per autenticazione e registrazione,
+     * eseguite fuori dal thread dell'interfaccia.
      */
-    private  ClimateMonitoringService service;
+    private ServizioAsincrono service;
 
 
     /**
@@ -80,11 +84,13 @@ public class LoginController {
      * @param service Servizio da utilizzare per le operazioni remote
      * @throws IllegalArgumentException se il servizio fornito è nullo
      */
-    public void setService(ClimateMonitoringService service) {
+    public void setService(ServizioAsincrono service) {
         if (service == null) {
             throw new IllegalArgumentException("ClimateMonitoringService cannot be null");
         }
         this.service = service;
+        attivitaIndicator.visibleProperty().bind(service.occupatoProperty());
+        loginButton.disableProperty().bind(service.occupatoProperty());
     }
 
     /**
@@ -142,22 +148,29 @@ public class LoginController {
             return;
         }
 
-        try {
-            boolean autentica = service.autenticaOperatore(userId, password);
+        service.esegui("login", s -> s.autenticaOperatore(userId, password), autentica -> {
             if (autentica) {
-                OperatoriRegistrati user = service.getUserById(userId);
-                if (user != null) {
-                    MainController mainController = mainApp.mainView();
-                    mainController.setCurrentUser(user);
-                } else {
-                    showAlert(Alert.AlertType.ERROR, "Errore di Login", "Utente non trovato", "Impossibile recuperare i dati dell'utente.");
-                }
+                service.esegui("login", s -> s.getUserById(userId), user -> {
+                    if (user != null) {
+                        MainController mainController = mainApp.mainView();
+                        mainController.setCurrentUser(user);
+                    } else {
+                        showAlert(Alert.AlertType.ERROR, "Errore di Login", "Utente non trovato", "Impossibile recuperare i dati dell'utente.");
+                    }
+                }, this::erroreLogin);
             } else {
                 showAlert(Alert.AlertType.ERROR, "Errore di Login", "Credenziali non valide", "Username o password non corretti.");
             }
-        } catch (RemoteException e) {
-            showAlert(Alert.AlertType.ERROR, "Errore di Connessione", "Errore del Server", "Si è verificato un errore durante il login: " + e.getMessage());
-        }
+        }, this::erroreLogin);
+    }
+
+    /**
+     * Mostra l'errore di una chiamata di login non riuscita.
+     *
+     * @param e Errore della chiamata remota o scadenza
+     */
+    private void erroreLogin(Throwable e) {
+        showAlert(Alert.AlertType.ERROR, "Errore di Connessione", "Errore del Server", "Si è verificato un errore durante il login: " + e.getMessage());
     }
 
     /**
@@ -216,57 +229,55 @@ public class LoginController {
 
         dialog.setResultConverter(dialogButton -> {
             if (dialogButton == registraBtn) {
-                try {
-                    String nome = nomeField.getText();
-                    String cognome = cognomeField.getText();
-                    String codiceFiscale = codiceFiscaleField.getText();
-                    String email = emailField.getText();
-                    String userId = newUserIdField.getText();
-                    String password = newPasswordField.getText();
-
-
-                    if (!isValidNome(nome)) {
-                        showAlert(Alert.AlertType.ERROR, "Errore Registrazione", "Nome non valido", "Il nome deve contenere almeno 2 caratteri e solo lettere.");
-                        return null;
-                    }
+                String nome = nomeField.getText();
+                String cognome = cognomeField.getText();
+                String codiceFiscale = codiceFiscaleField.getText();
+                String email = emailField.getText();
+                String userId = newUserIdField.getText();
+                String password = newPasswordField.getText();
 
-                    if (!isValidCognome(cognome)) {
-                        showAlert(Alert.AlertType.ERROR, "Errore Registrazione", "Cognome non valido", "Il cognome deve contenere almeno 2 caratteri e solo lettere.");
-                        return null;
-                    }
 
-                    if (!isValidCF(codiceFiscale)) {
-                        showAlert(Alert.AlertType.ERROR, "Errore Registrazione", "Codice Fiscale non valido", "Inserisci un codice fiscale valido.");
-                        return null;
-                    }
+                if (!isValidNome(nome)) {
+                    showAlert(Alert.AlertType.ERROR, "Errore Registrazione", "Nome non valido", "Il nome deve contenere almeno 2 caratteri e solo lettere.");
+                    return null;
+                }
 
-                    if (!isValidEmail(email)) {
-                        showAlert(Alert.AlertType.ERROR, "Errore Registrazione", "Email non valida", "Inserisci un'email valida.");
-                        return null;
-                    }
+                if (!isValidCognome(cognome)) {
+                    showAlert(Alert.AlertType.ERROR, "Errore Registrazione", "Cognome non valido", "Il cognome deve contenere almeno 2 caratteri e solo lettere.");
+                    return null;
+                }
 
-                    if (!isValidUserId(userId)) {
-                        showAlert(Alert.AlertType.ERROR, "Errore Registrazione", "User ID non valido", "L'User ID deve contenere almeno 5 caratteri alfanumerici.");
-                        return null;
-                    }
+                if (!isValidCF(codiceFiscale)) {
+                    showAlert(Alert.AlertType.ERROR, "Errore Registrazione", "Codice Fiscale non valido", "Inserisci un codice fiscale valido.");
+                    return null;
+                }
 
-                    if (!isValidPassword(password)) {
-                        showAlert(Alert.AlertType.ERROR, "Errore Registrazione", "Password non valida", "La password deve essere lunga almeno 8 caratteri e contenere lettere, numeri e un carattere speciale.");
-                        return null;
-                    }
+                if (!isValidEmail(email)) {
+                    showAlert(Alert.AlertType.ERROR, "Errore Registrazione", "Email non valida", "Inserisci un'email valida.");
+                    return null;
+                }
 
-                    boolean registrazioneSucc = service.registrazione(nome, cognome, codiceFiscale, email, userId, password);
-                    if (registrazioneSucc) {
-                        showAlert(Alert.AlertType.INFORMATION, "Registrazione Completata", "Registrazione avvenuta con successo.", "Puoi ora effettuare il login con le tue credenziali.");
-                        return new OperatoriRegistrati(0, nome, cognome, codiceFiscale, email, userId, password);
-                    } else {
-                        showAlert(Alert.AlertType.ERROR, "Errore Registrazione", "Registrazione fallita", "Si è verificato un errore durante la registrazione.");
-                        return null;
-                    }
-                } catch (SQLException | RemoteException e) {
-                    showAlert(Alert.AlertType.ERROR, "Errore di Connessione", "Errore del Server", "Si è verificato un errore durante la registrazione: " + e.getMessage());
+                if (!isValidUserId(userId)) {
+                    showAlert(Alert.AlertType.ERROR, "Errore Registrazione", "User ID non valido", "L'User ID deve contenere almeno 5 caratteri alfanumerici.");
                     return null;
                 }
+
+                if (!isValidPassword(password)) {
+                    showAlert(Alert.AlertType.ERROR, "Errore Registrazione", "Password non valida", "La password deve essere lunga almeno 8 caratteri e contenere lettere, numeri e un carattere speciale.");
+                    return null;
+                }
+
+                service.esegui(null, s -> s.registrazione(nome, cognome, codiceFiscale, email, userId, password),
+                        registrazioneSucc -> {
+                            if (registrazioneSucc) {
+                                showAlert(Alert.AlertType.INFORMATION, "Registrazione Completata", "Registrazione avvenuta con successo.", "Puoi ora effettuare il login con le tue credenziali.");
+                            } else {
+                                showAlert(Alert.AlertType.ERROR, "Errore Registrazione", "Registrazione fallita", "Si è verificato un errore durante la registrazione.");
+                            }
+                        },
+                        e -> showAlert(Alert.AlertType.ERROR, "Errore di Connessione", "Errore del Server", "Si è verificato un errore durante la registrazione: " + e.getMessage()));
+                // l'esito arriva in seguito, con la risposta del server
+                return null;
             }
             return null;
         });
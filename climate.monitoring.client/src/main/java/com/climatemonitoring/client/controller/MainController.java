@@ -1,15 +1,28 @@
 package com.climatemonitoring.client.controller;
 
 import com.climatemonitoring.client.ClientCM;
+import com.climatemonitoring.client.service.ElencoAree;
+import com.climatemonitoring.client.service.NotificheModifiche;
+import com.climatemonitoring.client.service.ServizioAsincrono;
 import com.climatemonitoring.common.model.CoordinateMonitoraggio;
+import com.climatemonitoring.common.model.CursoreRilevazioni;
 import com.climatemonitoring.common.service.ClimateMonitoringService;
+import com.climatemonitoring.common.service.ServizioOccupatoException;
 import com.climatemonitoring.common.model.OperatoriRegistrati;
+import com.climatemonitoring.common.model.ParametriClimatici;
+import com.climatemonitoring.common.model.ReportArea;
+import com.climatemonitoring.common.util.FormattatoreReport;
+import com.climatemonitoring.common.util.LettoreRilevazioni;
+import javafx.animation.PauseTransition;
 import javafx.fxml.FXML;
 import javafx.geometry.Insets;
+import javafx.geometry.Side;
 import javafx.scene.control.*;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.VBox;
+import javafx.util.Duration;
 import java.rmi.RemoteException;
+import java.rmi.ServerException;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -60,21 +73,23 @@ public class MainController {
     @FXML private Button searchButton;
 
     /**
-     * Area di testo per visualizzare i risultati delle ricerche
-     * per nome di città e stato.
+     * Tabella dei risultati delle ricerche per nome di città e stato.
      * Mostra le informazioni dettagliate delle aree geografiche
      * trovate durante la ricerca.
      */
-    @FXML private TextArea resultArea;
+    @FXML private TableView<CoordinateMonitoraggio> resultTable;
 
     /**
-     * Area di testo per visualizzare i risultati delle ricerche
-     * per coordinate geografiche.
-     * Presenta informazioni dettagliate delle aree vicine
-     * alle coordinate specificate, inclusi dettagli come
-     * distanza e informazioni geografiche.
+     * Tabella dei risultati delle ricerche per coordinate geografiche.
+     * Presenta le aree vicine alle coordinate specificate,
+     * con la distanza dal punto di ricerca.
      */
-    @FXML private TextArea coordinateResultArea;
+    @FXML private TableView<CoordinateMonitoraggio> coordinateResultTable;
+
+    /**
+     * Etichetta che descrive i risultati della ricerca per coordinate.
+     */
+    @FXML private Label coordinateInfoLabel;
 
     /**
      * Pulsante per effettuare il logout dall'applicazione.
@@ -99,11 +114,11 @@ public class MainController {
     @FXML private TextField paeseField;
 
     /**
-     * Area di testo per visualizzare i risultati della ricerca per paese.
+     * Tabella dei risultati della ricerca per paese.
      * Mostra le informazioni dettagliate delle aree geografiche
      * trovate nel paese specificato.
      */
-    @FXML private TextArea paeseResultArea;
+    @FXML private TableView<CoordinateMonitoraggio> paeseResultTable;
 
     /**
      * Area di testo per visualizzare informazioni e risultati
@@ -155,6 +170,12 @@ public class MainController {
      */
     @FXML private TextArea climateDataResultArea;
 
+    /**
+     * Pulsante per caricare le rilevazioni meno recenti
+     * dell'area geografica visualizzata.
+     */
+    @FXML private Button altreRilevazioniButton;
+
     /**
      * Campo di testo per inserire il nome di un'area
      * di monitoraggio durante la visualizzazione dei dettagli.
@@ -177,6 +198,12 @@ public class MainController {
      */
     @FXML private TextArea monitoringAreaResultArea;
 
+    /**
+     * Pulsante per caricare le rilevazioni meno recenti
+     * dell'area di interesse visualizzata.
+     */
+    @FXML private Button altreRilevazioniAreaButton;
+
     /**
      * Pulsante per attivare la visualizzazione dei dettagli
      * di un'area di monitoraggio.
@@ -193,6 +220,11 @@ public class MainController {
      */
     @FXML private Tab visualizzaAreaCentroTab;
 
+    /**
+     * Indicatore visibile mentre una richiesta al server è in corso.
+     */
+    @FXML private ProgressIndicator attivitaIndicator;
+
 
     /**
      * Riferimento all'utente operatore attualmente connesso.
@@ -212,6 +244,105 @@ public class MainController {
      */
     private ClimateMonitoringService service;
 
+    /**
+     * Esegue le chiamate a {@link #service} fuori dal thread dell'interfaccia:
+     * tutti i gestori di eventi passano da qui, così un server lento non blocca la finestra.
+     */
+    private ServizioAsincrono asincrono;
+
+    /**
+     * Notifiche delle nuove rilevazioni delle aree visualizzate, null se non disponibili.
+     */
+    private NotificheModifiche notifiche;
+
+    /**
+     * Copia locale dell'elenco delle coordinate mostrato nelle finestre di inserimento.
+     */
+    private ElencoAree elencoAree = new ElencoAree();
+
+    /**
+     * Raggio (km) della ricerca per coordinate.
+     */
+    private static final double RAGGIO_RICERCA_KM = 50;
+
+    /**
+     * Numero massimo di aree mostrate dalla ricerca per coordinate.
+     */
+    private static final int MAX_RISULTATI_COORDINATE = 100;
+
+    /**
+     * Numero di aree più vicine proposte quando nessuna cade nel raggio di ricerca.
+     */
+    private static final int VICINI_ALTERNATIVI = 5;
+
+    /**
+     * Numero massimo di suggerimenti mostrati durante la digitazione.
+     */
+    private static final int MAX_SUGGERIMENTI = 10;
+
+    /**
+     * Lunghezza minima del testo per richiedere suggerimenti.
+     */
+    private static final int MIN_CARATTERI_SUGGERIMENTI = 2;
+
+    /**
+     * Attesa dopo l'ultimo tasto prima di interrogare il server, così che
+     * una parola digitata velocemente produca una sola richiesta.
+     */
+    private final PauseTransition attesaSuggerimenti = new PauseTransition(Duration.millis(250));
+
+    /**
+     * Menu a tendina con i suggerimenti per il campo città.
+     */
+    private final ContextMenu menuSuggerimenti = new ContextMenu();
+
+    /**
+     * Indica che il testo del campo città è stato impostato da un suggerimento
+     * e non deve generare una nuova richiesta.
+     */
+    private boolean compilazioneDaSuggerimento = false;
+
+    /**
+     * Risultati della ricerca per nome, caricati a pagine durante lo scorrimento.
+     */
+    private TabellaAree risultatiNome;
+
+    /**
+     * Risultati della ricerca per paese, caricati a pagine durante lo scorrimento.
+     */
+    private TabellaAree risultatiPaese;
+
+    /**
+     * Risultati della ricerca per coordinate, con la distanza dal punto cercato.
+     */
+    private TabellaAree risultatiCoordinate;
+
+    /**
+     * Numero di rilevazioni richieste a ogni pressione di "Carica altre rilevazioni".
+     */
+    private static final int DIMENSIONE_PAGINA_RILEVAZIONI = 200;
+
+    /**
+     * Lettore delle rilevazioni non ancora mostrate dell'area geografica visualizzata.
+     */
+    private LettoreRilevazioni lettoreAreaGeografica;
+
+    /**
+     * Lettore delle rilevazioni non ancora mostrate dell'area di interesse visualizzata.
+     */
+    private LettoreRilevazioni lettoreAreaInteresse;
+
+    /**
+     * Numero massimo di tentativi di inserimento di una rilevazione
+     * quando la comunicazione con il server si interrompe.
+     */
+    private static final int TENTATIVI_INSERIMENTO = 3;
+
+    /**
+     * Attesa (ms) prima del primo nuovo tentativo, raddoppiata ai successivi.
+     */
+    private static final long ATTESA_TENTATIVO_MS = 250;
+
     /**
      * Costruttore predefinito.
      * Inizializza un'istanza vuota del controller.
@@ -222,14 +353,36 @@ public class MainController {
     /**
      * Imposta il servizio RMI per le operazioni di monitoraggio climatico.
      *
-     * @param service Servizio RMI da utilizzare per le comunicazioni con il server
+     * @param asincrono Esecutore delle chiamate al servizio da utilizzare per le comunicazioni con il server
      */
-    public void setService(ClimateMonitoringService service) {
-        this.service = service;
+    public void setService(ServizioAsincrono asincrono) {
+        this.asincrono = asincrono;
+        this.service = asincrono.getServizio();
+        attivitaIndicator.visibleProperty().bind(asincrono.occupatoProperty());
     }
 
 
 
+    /**
+     * Imposta le notifiche con cui i report visualizzati si aggiornano
+     * all'arrivo di nuove rilevazioni, senza interrogare ripetutamente il server.
+     *
+     * @param notifiche Notifiche delle modifiche condivise dall'applicazione
+     */
+    public void setNotifiche(NotificheModifiche notifiche) {
+        this.notifiche = notifiche;
+    }
+
+    /**
+     * Imposta la copia locale dell'elenco delle coordinate, condivisa tra gli
+     * accessi, così ogni aggiornamento scarica solo le coordinate cambiate.
+     *
+     * @param elencoAree Copia dell'elenco delle coordinate
+     */
+    public void setElencoAree(ElencoAree elencoAree) {
+        this.elencoAree = elencoAree;
+    }
+
     /**
      * Imposta il riferimento all'applicazione principale.
      *
@@ -250,6 +403,22 @@ public class MainController {
         searchButton.setOnAction(event -> handlecercaAreaGeograficaNome());
         logoutButton.setOnAction(event -> handleLogout());
 
+        risultatiNome = new TabellaAree(resultTable, false);
+        risultatiPaese = new TabellaAree(paeseResultTable, false);
+        risultatiCoordinate = new TabellaAree(coordinateResultTable, true);
+
+        attesaSuggerimenti.setOnFinished(event -> richiediSuggerimenti(searchField.getText()));
+        searchField.textProperty().addListener((obs, vecchio, nuovo) -> {
+            if (!compilazioneDaSuggerimento) {
+                attesaSuggerimenti.playFromStart();
+            }
+        });
+        searchField.focusedProperty().addListener((obs, prima, ora) -> {
+            if (!ora) {
+                menuSuggerimenti.hide();
+            }
+        });
+
         if (operatorTab != null) {
             operatorTab.setDisable(true);
         }
@@ -276,7 +445,8 @@ public class MainController {
      * Gestisce la ricerca di un'area geografica per nome di città e stato.
      *
      * Convalida l'input, esegue la ricerca tramite il servizio RMI
-     * e visualizza i risultati nell'area di testo dedicata.
+     * e visualizza i risultati nella tabella dedicata, caricandoli a pagine
+     * mentre l'utente scorre.
      */
     @FXML
     private void handlecercaAreaGeograficaNome() {
@@ -288,31 +458,74 @@ public class MainController {
             return;
         }
 
-        try {
-            List<CoordinateMonitoraggio> results = service.cercaAreaGeograficaNome(nomeCitta, nomeStato);
+        risultatiNome.cerca(asincrono, "ricerca-nome",
+                (s, dopoId) -> s.cercaAreaGeograficaNome(nomeCitta, nomeStato, dopoId, TabellaAree.DIMENSIONE_PAGINA),
+                "Nessun risultato trovato. Inserisci il nome di una Città e Stato valido",
+                e -> showAlert(Alert.AlertType.ERROR, "Errore di Connessione", "Errore del Server", "Si è verificato un errore durante la ricerca: " + e.getMessage()));
+    }
 
-            if (results.isEmpty()) {
-                resultArea.setText("Nessun risultato trovato\nInserisci il nome di una Città e Stato valido");
-            } else {
-                StringBuilder sb = new StringBuilder();
-                for (CoordinateMonitoraggio area : results) {
-                    sb.append("Città: ").append(area.getNomeCitta())
-                            .append("\nStato: ").append(area.getStato())
-                            .append("\nPaese: ").append(area.getPaese())
-                            .append("\nLatitudine: ").append(area.getLatitudine())
-                            .append("\nLongitudine: ").append(area.getLongitudine())
-                            .append("\n\n");
-                }
-                resultArea.setText(sb.toString());
+    /**
+     * Richiede al server i suggerimenti per il testo digitato nel campo città.
+     *
+     * La chiamata remota avviene in un thread separato per non bloccare
+     * l'interfaccia; una nuova richiesta annulla quella precedente, la cui
+     * risposta viene scartata.
+     *
+     * @param testo Testo corrente del campo città
+     */
+    private void richiediSuggerimenti(String testo) {
+        String prefisso = testo == null ? "" : testo.trim();
+        if (asincrono == null || prefisso.length() < MIN_CARATTERI_SUGGERIMENTI) {
+            if (asincrono != null) {
+                asincrono.annulla("suggerimenti");
             }
-        } catch (RemoteException e) {
-            showAlert(Alert.AlertType.ERROR, "Errore di Connessione", "Errore del Server", "Si è verificato un errore durante la ricerca: " + e.getMessage());
+            menuSuggerimenti.hide();
+            return;
+        }
+
+        asincrono.esegui("suggerimenti", s -> s.suggerisciAree(prefisso, MAX_SUGGERIMENTI),
+                this::mostraSuggerimenti, e -> {
+                    // i suggerimenti sono facoltativi: in caso di errore si nasconde solo il menu
+                    System.err.println("Errore nel recupero dei suggerimenti: " + e.getMessage());
+                    menuSuggerimenti.hide();
+                });
+    }
+
+    /**
+     * Mostra i suggerimenti sotto il campo città.
+     * La scelta di un suggerimento compila città e stato.
+     *
+     * @param suggerimenti Aree suggerite dal server
+     */
+    private void mostraSuggerimenti(List<CoordinateMonitoraggio> suggerimenti) {
+        if (suggerimenti.isEmpty() || !searchField.isFocused()) {
+            menuSuggerimenti.hide();
+            return;
+        }
+
+        menuSuggerimenti.getItems().clear();
+        for (CoordinateMonitoraggio area : suggerimenti) {
+            MenuItem voce = new MenuItem(area.getNomeCitta() + ", " + area.getStato()
+                    + (area.getPaese() != null ? " (" + area.getPaese() + ")" : ""));
+            voce.setOnAction(event -> {
+                compilazioneDaSuggerimento = true;
+                searchField.setText(area.getNomeCitta());
+                stateField.setText(area.getStato());
+                compilazioneDaSuggerimento = false;
+                attesaSuggerimenti.stop();
+                menuSuggerimenti.hide();
+            });
+            menuSuggerimenti.getItems().add(voce);
+        }
+        if (!menuSuggerimenti.isShowing()) {
+            menuSuggerimenti.show(searchField, Side.BOTTOM, 0, 0);
         }
     }
 
     /**
      * Gestisce la ricerca di un'area geografica tramite coordinate geografiche.
-     * Converte le coordinate di input, verifica la loro validità e cerca le aree geografiche vicine.
+     * Converte le coordinate di input, verifica la loro validità e cerca le aree geografiche
+     * entro {@value #RAGGIO_RICERCA_KM} km; se non ce ne sono, mostra le più vicine.
      * Visualizza i risultati con informazioni dettagliate come città, stato, coordinate e distanza.
      *
      * @throws RemoteException se si verifica un errore durante la comunicazione con il servizio remoto
@@ -328,27 +541,40 @@ public class MainController {
             return;
         }
 
+        double latitudine;
+        double longitudine;
         try {
-
-            double latitudine = parseCoordinate(latStr);
-            double longitudine = parseCoordinate(lonStr);
-
-
-            if (!isValidLatitude(latitudine) || !isValidLongitude(longitudine)) {
-                showAlert(Alert.AlertType.ERROR, "Errore di input", "Coordinate non valide", "La latitudine deve essere tra -90 e 90, la longitudine tra -180 e 180.");
-                return;
-            }
-
-            List<CoordinateMonitoraggio> results = service.cercaAreaGeograficaCoordinate(latitudine, longitudine);
-
-            displayResCoordinate(results, latitudine, longitudine);
+            latitudine = parseCoordinate(latStr);
+            longitudine = parseCoordinate(lonStr);
         } catch (NumberFormatException e) {
             showAlert(Alert.AlertType.ERROR, "Errore di input", "Formato non valido", "Inserisci le coordinate nel formato corretto (es: 15.03201 o 45.82832).");
-        } catch (RemoteException e) {
-            showAlert(Alert.AlertType.ERROR, "Errore di Connessione", "Errore del Server", "Si è verificato un errore durante la ricerca: " + e.getMessage());
+            return;
         }
+
+        if (!isValidLatitude(latitudine) || !isValidLongitude(longitudine)) {
+            showAlert(Alert.AlertType.ERROR, "Errore di input", "Coordinate non valide", "La latitudine deve essere tra -90 e 90, la longitudine tra -180 e 180.");
+            return;
+        }
+
+        asincrono.esegui("ricerca-coordinate", s -> {
+            List<CoordinateMonitoraggio> vicine = s.cercaAreeEntroRaggio(
+                    latitudine, longitudine, RAGGIO_RICERCA_KM, MAX_RISULTATI_COORDINATE);
+            if (!vicine.isEmpty()) {
+                return new RisultatoCoordinate(vicine, false);
+            }
+            return new RisultatoCoordinate(s.cercaAreePiuVicine(latitudine, longitudine, VICINI_ALTERNATIVI), true);
+        }, esito -> displayResCoordinate(esito.aree(), latitudine, longitudine, esito.alternativi()),
+                e -> showAlert(Alert.AlertType.ERROR, "Errore di Connessione", "Errore del Server", "Si è verificato un errore durante la ricerca: " + e.getMessage()));
     }
 
+    /**
+     * Esito della ricerca per coordinate.
+     *
+     * @param aree Aree trovate
+     * @param alternativi true se sono le aree più vicine fuori dal raggio di ricerca
+     */
+    private record RisultatoCoordinate(List<CoordinateMonitoraggio> aree, boolean alternativi) { }
+
     /**
      * Converte una stringa di coordinate in un valore numerico.
      * Gestisce diversi formati di input, inclusi valori con virgola o punto decimale.
@@ -390,27 +616,26 @@ public class MainController {
      * @param results Lista delle aree geografiche trovate
      * @param searchLat Latitudine delle coordinate di ricerca
      * @param searchLon Longitudine delle coordinate di ricerca
+     * @param alternativi true se i risultati sono le aree più vicine fuori dal raggio di ricerca
      */
-    private void displayResCoordinate(List<CoordinateMonitoraggio> results, double searchLat, double searchLon) {
+    private void displayResCoordinate(List<CoordinateMonitoraggio> results, double searchLat, double searchLon,
+                                      boolean alternativi) {
         if (results.isEmpty()) {
-            coordinateResultArea.setText("Nessun risultato trovato nelle vicinanze delle coordinate specificate.");
+            coordinateInfoLabel.setText("");
+        } else if (alternativi) {
+            coordinateInfoLabel.setText(String.format("Nessuna area entro %.0f km. Aree più vicine a Lat: %.5f, Lon: %.5f",
+                    RAGGIO_RICERCA_KM, searchLat, searchLon));
         } else {
-            StringBuilder sb = new StringBuilder();
-            sb.append(String.format("Risultati vicini a Lat: %.5f, Lon: %.5f\n\n", searchLat, searchLon));
-
-            for (CoordinateMonitoraggio area : results) {
-                double distanza = calcolaDistanzaKm(searchLat, searchLon,
-                        area.getLatitudine(), area.getLongitudine());
-
-                sb.append(String.format("Città: %s\n", area.getNomeCitta()))
-                        .append(String.format("Stato: %s\n", area.getStato()))
-                        .append(String.format("Paese: %s\n", area.getPaese()))
-                        .append(String.format("Coordinate: %.5f, %.5f\n",
-                                area.getLatitudine(), area.getLongitudine()))
-                        .append(String.format("Distanza: %.1f km\n\n", distanza));
+            coordinateInfoLabel.setText(String.format("Risultati vicini a Lat: %.5f, Lon: %.5f", searchLat, searchLon));
+        }
+
+        for (CoordinateMonitoraggio area : results) {
+            // la distanza arriva di norma già calcolata dal server
+            if (area.getDistanzaKm() == null) {
+                area.setDistanzaKm(calcolaDistanzaKm(searchLat, searchLon, area.getLatitudine(), area.getLongitudine()));
             }
-            coordinateResultArea.setText(sb.toString());
         }
+        risultatiCoordinate.mostra(results, "Nessun risultato trovato nelle vicinanze delle coordinate specificate.");
     }
 
     /**
@@ -453,26 +678,11 @@ public class MainController {
             return;
         }
 
-        try {
-            List<CoordinateMonitoraggio> ris = service.cercaAreaGeograficaPerPaese(paese);
-            if (ris.isEmpty()) {
-                paeseResultArea.setText("Nessun risultato trovato.");
-            } else {
-                StringBuilder sb = new StringBuilder();
-                for (CoordinateMonitoraggio area : ris) {
-                    sb.append("Città: ").append(area.getNomeCitta())
-                            .append("\nStato: ").append(area.getStato())
-                            .append("\nPaese: ").append(area.getPaese())
-                            .append("\nLatitudine: ").append(area.getLatitudine())
-                            .append("\nLongitudine: ").append(area.getLongitudine())
-                            .append("\n\n");
-                }
-                paeseResultArea.setText(sb.toString());
-            }
-        } catch (RemoteException e) {
-            showAlert(Alert.AlertType.ERROR, "Errore di Connessione", "Errore del Server",
-                    "Si è verificato un errore durante la ricerca: " + e.getMessage());
-        }
+        risultatiPaese.cerca(asincrono, "ricerca-paese",
+                (s, dopoId) -> s.cercaAreaGeograficaPerPaese(paese, dopoId, TabellaAree.DIMENSIONE_PAGINA),
+                "Nessun risultato trovato.",
+                e -> showAlert(Alert.AlertType.ERROR, "Errore di Connessione", "Errore del Server",
+                "Si è verificato un errore durante la ricerca: " + e.getMessage()));
     }
 
     /**
@@ -491,23 +701,39 @@ public class MainController {
             showAlert(Alert.AlertType.ERROR, "Errore di ricerca", "Campi vuoti", "Inserisci sia il nome dell'area che lo stato");
             return;
         }
-        try {
-            String ris = service.visualizzaAreaGeografica(nome, stato);
+        mostraReportAreaGeografica(nome, stato);
+    }
 
-            if (ris.equals("Area non trovata.")) {
+    /**
+     * Richiede e visualizza il report di un'area geografica, e lo ricarica
+     * quando il server notifica nuove rilevazioni dell'area.
+     *
+     * @param nome Nome dell'area
+     * @param stato Stato dell'area
+     */
+    private void mostraReportAreaGeografica(String nome, String stato) {
+        // la pagina di un report precedente non va accodata a quello nuovo
+        asincrono.annulla("pagina-area-geografica");
+        asincrono.esegui("report-area-geografica", s -> s.reportAreaGeografica(nome, stato), report -> {
+            if (!report.isTrovata()) {
                 climateDataResultArea.setText("Nessuna area geografica trovata con i parametri specificati");
             } else {
-                climateDataResultArea.setText(ris);
+                climateDataResultArea.setText(FormattatoreReport.formatta(report));
             }
-        } catch (IllegalArgumentException e) {
-            showAlert(Alert.AlertType.ERROR, "Errore di validazione",
-                    "Parametri non validi", e.getMessage());
-        } catch (RemoteException e) {
-            showAlert(Alert.AlertType.ERROR, "Errore di connessione",
-                    "Errore del server",
-                    "Si è verificato un errore durante la ricerca: " + e.getMessage());
-            e.printStackTrace();
-        }
+            lettoreAreaGeografica = creaLettore(report);
+            altreRilevazioniButton.setDisable(lettoreAreaGeografica == null);
+            osservaReport("report-area-geografica", report, () -> mostraReportAreaGeografica(nome, stato));
+        }, e -> {
+            if (e instanceof IllegalArgumentException) {
+                showAlert(Alert.AlertType.ERROR, "Errore di validazione",
+                        "Parametri non validi", e.getMessage());
+            } else {
+                showAlert(Alert.AlertType.ERROR, "Errore di connessione",
+                        "Errore del server",
+                        "Si è verificato un errore durante la ricerca: " + e.getMessage());
+                e.printStackTrace();
+            }
+        });
     }
 
     /**
@@ -572,24 +798,19 @@ public class MainController {
                     showAlert(Alert.AlertType.ERROR, "Errore", "Campo obbligatorio", "Il nome è obbligatorio");
                     return null;
                 }
-                try {
-                    boolean success = service.creaCentroMonitoraggio(
-                            currentUser.getId(),
-                            nomeField.getText().trim(),
-                            indirizzoField.getText().trim(),
-                            capField.getText().trim(),
-                            comuneField.getText().trim(),
-                            provinciaField.getText().trim()
-                    );
-
+                int operatore = currentUser.getId();
+                String nome = nomeField.getText().trim();
+                String indirizzo = indirizzoField.getText().trim();
+                String cap = capField.getText().trim();
+                String comune = comuneField.getText().trim();
+                String provincia = provinciaField.getText().trim();
+                asincrono.esegui(null, s -> s.creaCentroMonitoraggio(operatore, nome, indirizzo, cap, comune, provincia), success -> {
                     if (success) {
                         showAlert(Alert.AlertType.INFORMATION, "Successo", "Centro creato", "Il centro è stato creato con successo");
                     } else {
                         showAlert(Alert.AlertType.ERROR, "Errore", "Creazione fallita", "Non è stato possibile creare il centro");
                     }
-                } catch (RemoteException e) {
-                    showAlert(Alert.AlertType.ERROR, "Errore creazione centro di monitoraggio", "Creazione fallita", "L'utente ha già un centro di monitoraggio");
-                }
+                }, e -> showAlert(Alert.AlertType.ERROR, "Errore creazione centro di monitoraggio", "Creazione fallita", "L'utente ha già un centro di monitoraggio"));
             }
             return null;
         });
@@ -659,33 +880,33 @@ public class MainController {
                     return null;
                 }
 
+                double latitudine;
+                double longitudine;
                 try {
-                    double latitudine = Double.parseDouble(latitudineField.getText().trim());
-                    double longitudine = Double.parseDouble(longitudineField.getText().trim());
-
-                    boolean success = service.creaAreaInteresse(
-                            currentUser.getId(),
-                            cittaField.getText().trim(),
-                            statoField.getText().trim(),
-                            latitudine,
-                            longitudine
-                    );
+                    latitudine = Double.parseDouble(latitudineField.getText().trim());
+                    longitudine = Double.parseDouble(longitudineField.getText().trim());
+                } catch (NumberFormatException e) {
+                    showAlert(Alert.AlertType.ERROR, "Errore", "Formato non valido", "Inserisci coordinate numeriche valide");
+                    return null;
+                }
 
+                int operatore = currentUser.getId();
+                String citta = cittaField.getText().trim();
+                String stato = statoField.getText().trim();
+                asincrono.esegui(null, s -> s.creaAreaInteresse(operatore, citta, stato, latitudine, longitudine), success -> {
                     if (success) {
                         showAlert(Alert.AlertType.INFORMATION, "Successo", "Area creata", "L'area è stata creata con successo");
                         aggiornaAree();
                     } else {
                         showAlert(Alert.AlertType.ERROR, "Errore", "Creazione fallita", "Non è stato possibile creare l'area");
                     }
-                } catch (NumberFormatException e) {
-                    showAlert(Alert.AlertType.ERROR, "Errore", "Formato non valido", "Inserisci coordinate numeriche valide");
-                } catch (RemoteException e) {
-                    if (e.getMessage().contains("non ha un centro di monitoraggio")) {
+                }, e -> {
+                    if (e.getMessage() != null && e.getMessage().contains("non ha un centro di monitoraggio")) {
                         showAlert(Alert.AlertType.ERROR, "Errore", "Centro mancante", "Crea prima un centro di monitoraggio");
                     } else {
                         showAlert(Alert.AlertType.ERROR, "Errore", "Errore di connessione", "Errore durante la creazione: " + e.getMessage());
                     }
-                }
+                });
             }
             return null;
         });
@@ -694,20 +915,17 @@ public class MainController {
     }
 
     /**
-     * Aggiorna la lista delle aree geografiche associate al centro di monitoraggio dell'utente corrente.
-     * Utilizzato per mantenere aggiornata la ComboBox delle aree.
+     * Aggiorna la lista delle aree geografiche mostrata nella ComboBox delle aree.
+     * Dal server arrivano solo le aree cambiate dall'aggiornamento precedente.
      *
      * @throws RemoteException se si verifica un errore durante il recupero delle aree
      */
     private void aggiornaAree() {
-        if (areaComboBox != null && currentUser != null) {
-            try {
-                List<CoordinateMonitoraggio> aree = service.getAreePerCentroMonitoraggio(currentUser.getId());
+        if (areaComboBox != null && currentUser != null && asincrono != null) {
+            asincrono.esegui("aree-centro", elencoAree::aggiorna, aree -> {
                 areaComboBox.getItems().clear();
                 areaComboBox.getItems().addAll(aree);
-            } catch (RemoteException e) {
-                showAlert(Alert.AlertType.ERROR, "Errore", "Aggiornamento fallito", "Impossibile aggiornare le aree: " + e.getMessage());
-            }
+            }, e -> showAlert(Alert.AlertType.ERROR, "Errore", "Aggiornamento fallito", "Impossibile aggiornare le aree: " + e.getMessage()));
         }
     }
 
@@ -801,12 +1019,9 @@ public class MainController {
         dialog.getDialogPane().setContent(grid);
 
 
-        try {
-            List<CoordinateMonitoraggio> aree = service.getAreePerCentroMonitoraggio(currentUser.getId());
-            areaComboBox.getItems().addAll(aree);
-        } catch (RemoteException e) {
-            showAlert(Alert.AlertType.ERROR, "Errore di caricamento", "Impossibile caricare le aree", "Si è verificato un errore nel caricamento delle aree: " + e.getMessage());
-        }
+        // la finestra si apre subito, le aree compaiono quando arrivano dal server
+        asincrono.esegui(null, elencoAree::aggiorna, areaComboBox.getItems()::addAll,
+                e -> showAlert(Alert.AlertType.ERROR, "Errore di caricamento", "Impossibile caricare le aree", "Si è verificato un errore nel caricamento delle aree: " + e.getMessage()));
 
         dialog.setResultConverter(dialogButton -> {
             if (dialogButton == ins) {
@@ -827,34 +1042,18 @@ public class MainController {
                 }
 
 
-                try {
-                    boolean success = service.inserisciParametriClimatici(
-                            currentUser.getId(),
-                            null,
-                            selArea.getId(),
-                            java.sql.Date.valueOf(data.getValue()),
-                            ventoSpinner.getValue(),
-                            umiditaSpinner.getValue(),
-                            pressioneSpinner.getValue(),
-                            temperaturaSpinner.getValue(),
-                            precipitazioniSpinner.getValue(),
-                            altitudineSpinner.getValue(),
-                            massaGhiacciaiSpinner.getValue(),
-                            noteArea.getText()
-                    );
-
-
-                    if (success) {
-                        showAlert(Alert.AlertType.INFORMATION, "Successo", "Dati inseriti", "I parametri climatici sono stati inseriti con successo.");
-                    } else {
-                        showAlert(Alert.AlertType.ERROR, "Errore", "Inserimento fallito", "Non è stato possibile inserire i parametri climatici.");
-                    }
-                } catch (RemoteException e) {
-                    showAlert(Alert.AlertType.ERROR, "Errore di connessione", "Errore del server", "Si è verificato un errore durante l'inserimento dei dati: " + e.getMessage());
-                } catch (Exception e) {
-                    showAlert(Alert.AlertType.ERROR, "Errore imprevisto", "Si è verificato un errore inaspettato", "Dettagli: " + e.getMessage());
-                    e.printStackTrace();
-                }
+                inserisci(new ParametriClimatici(
+                        0,
+                        java.sql.Date.valueOf(data.getValue()),
+                        ventoSpinner.getValue(),
+                        umiditaSpinner.getValue(),
+                        pressioneSpinner.getValue(),
+                        temperaturaSpinner.getValue(),
+                        precipitazioniSpinner.getValue(),
+                        altitudineSpinner.getValue(),
+                        massaGhiacciaiSpinner.getValue(),
+                        noteArea.getText()
+                ).riferitaA(currentUser.getId(), null, selArea.getId()));
             }
             return null;
         });
@@ -862,6 +1061,71 @@ public class MainController {
         dialog.showAndWait();
     }
 
+    /**
+     * Invia una rilevazione in background e mostra l'esito dell'inserimento.
+     *
+     * @param rilevazione Rilevazione da inserire
+     */
+    private void inserisci(ParametriClimatici rilevazione) {
+        asincrono.esegui(null, s -> inserisciConRitentativi(s, rilevazione), success -> {
+            if (success) {
+                showAlert(Alert.AlertType.INFORMATION, "Successo", "Dati inseriti", "I parametri climatici sono stati inseriti con successo.");
+            } else {
+                showAlert(Alert.AlertType.ERROR, "Errore", "Inserimento fallito", "Non è stato possibile inserire i parametri climatici.");
+            }
+        }, e -> {
+            if (e instanceof RemoteException || e instanceof java.util.concurrent.TimeoutException) {
+                showAlert(Alert.AlertType.ERROR, "Errore di connessione", "Errore del server", "Si è verificato un errore durante l'inserimento dei dati: " + e.getMessage());
+            } else {
+                showAlert(Alert.AlertType.ERROR, "Errore imprevisto", "Si è verificato un errore inaspettato", "Dettagli: " + e.getMessage());
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Inserisce una rilevazione ripetendo la chiamata se la comunicazione
+     * con il server si interrompe, ad esempio per un timeout su una rete lenta,
+     * o se il server la rifiuta perché sovraccarico.
+     *
+     * Alla rilevazione viene assegnata una chiave di idempotenza, quindi se la
+     * risposta a un tentativo è andata persa dopo l'inserimento, il tentativo
+     * successivo non crea un duplicato.
+     *
+     * Va eseguito fuori dal thread dell'interfaccia, perché attende tra i tentativi.
+     *
+     * @param service Servizio remoto
+     * @param rilevazione Rilevazione da inserire
+     * @return true se la rilevazione è stata inserita
+     * @throws RemoteException Se il server segnala un errore o tutti i tentativi falliscono
+     */
+    private static boolean inserisciConRitentativi(ClimateMonitoringService service, ParametriClimatici rilevazione)
+            throws RemoteException {
+        rilevazione.conNuovaChiave();
+        long attesa = ATTESA_TENTATIVO_MS;
+        for (int tentativo = 1; ; tentativo++) {
+            try {
+                return service.inserisciRilevazione(rilevazione);
+            } catch (RemoteException e) {
+                if (e instanceof ServerException && ServizioOccupatoException.causaDi(e) == null) {
+                    // errore sollevato dal server: ripetere la chiamata non cambierebbe l'esito
+                    throw e;
+                }
+                if (tentativo >= TENTATIVI_INSERIMENTO) {
+                    throw e;
+                }
+                System.err.println("Inserimento non confermato (tentativo " + tentativo + "): " + e.getMessage());
+                try {
+                    Thread.sleep(attesa);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+                attesa *= 2;
+            }
+        }
+    }
+
     /**
      * Convalida i parametri climatici inseriti per garantire che siano entro intervalli accettabili.
      *
@@ -913,6 +1177,22 @@ public class MainController {
             return;
         }
 
+        int operatore = currentUser.getId();
+        asincrono.esegui("aree-interesse", s -> s.getAreeInteresseOperatore(operatore), areeInteresse -> {
+            if (areeInteresse.isEmpty()) {
+                showAlert(Alert.AlertType.WARNING, "Nessuna Area Trovata", "Non ci sono aree di interesse associate al tuo ID operatore.", "Crea delle aree all'interno del tuo centro di monitoraggio");
+            } else {
+                mostraDialogParametriArea(areeInteresse);
+            }
+        }, e -> showAlert(Alert.AlertType.ERROR, "Errore di connessione", "Impossibile recuperare le aree", e.getMessage()));
+    }
+
+    /**
+     * Mostra la finestra di inserimento dei parametri climatici per un'area di interesse.
+     *
+     * @param areeInteresse Aree di interesse dell'operatore, non vuote
+     */
+    private void mostraDialogParametriArea(List<CoordinateMonitoraggio> areeInteresse) {
         Dialog<Void> dialog = new Dialog<>();
         dialog.setTitle("Inserisci Dati Climatici per Area");
         dialog.setHeaderText("Inserisci i parametri climatici per un'area specifica");
@@ -926,21 +1206,7 @@ public class MainController {
         grid.setPadding(new Insets(20, 150, 10, 10));
 
         ComboBox<CoordinateMonitoraggio> areaComboBox = new ComboBox<>();
-        List<CoordinateMonitoraggio> areeInteresse;
-
-        try {
-            areeInteresse = service.getAreeInteresseOperatore(currentUser.getId());
-
-            if (areeInteresse.isEmpty()) {
-                showAlert(Alert.AlertType.WARNING, "Nessuna Area Trovata", "Non ci sono aree di interesse associate al tuo ID operatore.", "Crea delle aree all'interno del tuo centro di monitoraggio");
-                return;
-            }
-
-            areaComboBox.getItems().addAll(areeInteresse);
-        } catch (RemoteException e) {
-            showAlert(Alert.AlertType.ERROR, "Errore di connessione", "Impossibile recuperare le aree", e.getMessage());
-            return;
-        }
+        areaComboBox.getItems().addAll(areeInteresse);
 
         DatePicker dataPicker = new DatePicker(LocalDate.now());
         Spinner<Integer> ventoSpinner = new Spinner<>(0, 300, 0);
@@ -989,34 +1255,18 @@ public class MainController {
                     return null;
                 }
 
-                try {
-
-                    boolean success = service.inserisciParametriClimaticiArea(
-                            selectedArea.getCentroMonitoraggioId(),
-                            selectedArea.getId(),
-                            java.sql.Date.valueOf(selectedDate),
-                            ventoSpinner.getValue(),
-                            umiditaSpinner.getValue(),
-                            pressioneSpinner.getValue(),
-                            temperaturaSpinner.getValue(),
-                            precipitazioniSpinner.getValue(),
-                            altitudineSpinner.getValue(),
-                            massaGhiacciaiSpinner.getValue(),
-                            noteArea.getText().trim()
-                    );
-
-                    if (success) {
-                        showAlert(Alert.AlertType.INFORMATION, "Successo", "Dati inseriti", "I parametri climatici sono stati inseriti con successo.");
-                    } else {
-                        showAlert(Alert.AlertType.ERROR, "Errore", "Inserimento fallito", "Non è stato possibile inserire i parametri climatici.");
-                    }
-                } catch (RemoteException e) {
-                    showAlert(Alert.AlertType.ERROR, "Errore di connessione", "Errore del server", "Si è verificato un errore durante l'inserimento dei dati: " + e.getMessage());
-                    e.printStackTrace();
-                } catch (Exception e) {
-                    showAlert(Alert.AlertType.ERROR, "Errore imprevisto", "Si è verificato un errore inaspettato", "Dettagli: " + e.getMessage());
-                    e.printStackTrace();
-                }
+                inserisci(new ParametriClimatici(
+                        0,
+                        java.sql.Date.valueOf(selectedDate),
+                        ventoSpinner.getValue(),
+                        umiditaSpinner.getValue(),
+                        pressioneSpinner.getValue(),
+                        temperaturaSpinner.getValue(),
+                        precipitazioniSpinner.getValue(),
+                        altitudineSpinner.getValue(),
+                        massaGhiacciaiSpinner.getValue(),
+                        noteArea.getText().trim()
+                ).riferitaA(selectedArea.getCentroMonitoraggioId(), selectedArea.getId(), null));
             }
             return null;
         });
@@ -1040,6 +1290,10 @@ public class MainController {
      * e rappresenta un punto critico per la gestione della sicurezza dell'applicazione.
      */
     private void handleLogout() {
+        if (notifiche != null) {
+            notifiche.smetti("report-area-geografica");
+            notifiche.smetti("report-area-interesse");
+        }
         mainApp.loginView();
         setCurrentUser(null);
     }
@@ -1086,29 +1340,121 @@ public class MainController {
             showAlert(Alert.AlertType.ERROR, "Errore di ricerca", "Campi vuoti", "Inserisci sia il nome che lo stato dell'area di interesse.");
             return;
         }
+        mostraReportAreaInteresse(nomeArea, nomeStato);
+    }
 
-        try {
-
-            String risultato = service.visualizzaAreaCentroMonitoraggio(nomeArea, nomeStato);
-
-            if (risultato.equals("Area di interesse non trovata.")) {
+    /**
+     * Richiede e visualizza il report di un'area di interesse, e lo ricarica
+     * quando il server notifica nuove rilevazioni dell'area.
+     *
+     * @param nomeArea Nome dell'area di interesse
+     * @param nomeStato Stato dell'area
+     */
+    private void mostraReportAreaInteresse(String nomeArea, String nomeStato) {
+        asincrono.annulla("pagina-area-interesse");
+        asincrono.esegui("report-area-interesse", s -> s.reportAreaCentroMonitoraggio(nomeArea, nomeStato), report -> {
+            if (!report.isTrovata()) {
                 monitoringAreaResultArea.setText("Nessuna area di interesse trovata con i criteri specificati.");
             } else {
-                monitoringAreaResultArea.setText(risultato);
+                monitoringAreaResultArea.setText(FormattatoreReport.formatta(report));
             }
-        } catch (RemoteException e) {
-            handleRemoteException(e, "ricerca dell'area di interesse");
+            lettoreAreaInteresse = creaLettore(report);
+            altreRilevazioniAreaButton.setDisable(lettoreAreaInteresse == null);
+            osservaReport("report-area-interesse", report, () -> mostraReportAreaInteresse(nomeArea, nomeStato));
+        }, e -> handleRemoteException(e, "ricerca dell'area di interesse"));
+    }
+
+    /**
+     * Osserva l'area del report visualizzato, sostituendo l'area osservata in precedenza dalla vista.
+     *
+     * @param vista Nome della vista del report
+     * @param report Report visualizzato
+     * @param aggiornamento Ricarica il report
+     */
+    private void osservaReport(String vista, ReportArea report, Runnable aggiornamento) {
+        if (notifiche == null) {
+            return;
+        }
+        if (!report.isTrovata()) {
+            notifiche.smetti(vista);
+        } else if (report.isAreaInteresse()) {
+            notifiche.osserva(vista, null, report.getId(), aggiornamento);
+        } else {
+            notifiche.osserva(vista, report.getId(), null, aggiornamento);
         }
     }
 
+    /**
+     * Accoda al report dell'area geografica la pagina successiva di rilevazioni.
+     */
+    @FXML
+    private void handleAltreRilevazioni() {
+        accodaPagina("pagina-area-geografica", lettoreAreaGeografica, climateDataResultArea, altreRilevazioniButton,
+                () -> lettoreAreaGeografica = null);
+    }
+
+    /**
+     * Accoda al report dell'area di interesse la pagina successiva di rilevazioni.
+     */
+    @FXML
+    private void handleAltreRilevazioniArea() {
+        accodaPagina("pagina-area-interesse", lettoreAreaInteresse, monitoringAreaResultArea, altreRilevazioniAreaButton,
+                () -> lettoreAreaInteresse = null);
+    }
+
+    /**
+     * Crea il lettore per le rilevazioni successive alla prima pagina del report.
+     *
+     * @param report Report ricevuto dal server
+     * @return Lettore posizionato dopo la prima pagina, o null se il report contiene già tutte le rilevazioni
+     */
+    private LettoreRilevazioni creaLettore(ReportArea report) {
+        CursoreRilevazioni successiva = report.getSerie().getSuccessiva();
+        if (!report.isTrovata() || successiva == null) {
+            return null;
+        }
+        return new LettoreRilevazioni(service, report.getId(), report.isAreaInteresse(),
+                DIMENSIONE_PAGINA_RILEVAZIONI, successiva);
+    }
+
+    /**
+     * Richiede in background una pagina al lettore e la accoda all'area di testo.
+     * Il pulsante resta disabilitato durante la richiesta, così il lettore
+     * non viene mai usato da due thread insieme.
+     *
+     * @param canale Canale della richiesta, annullato quando si apre un nuovo report
+     * @param lettore Lettore dell'area visualizzata
+     * @param area Area di testo del report
+     * @param pulsante Pulsante da disabilitare quando le rilevazioni sono finite
+     * @param esaurito Eseguito quando non ci sono altre rilevazioni
+     */
+    private void accodaPagina(String canale, LettoreRilevazioni lettore, TextArea area, Button pulsante,
+                              Runnable esaurito) {
+        pulsante.setDisable(true);
+        if (lettore == null) {
+            return;
+        }
+        asincrono.esegui(canale, s -> lettore.prossima(), pagina -> {
+            area.appendText(FormattatoreReport.formattaPagina(pagina));
+            if (lettore.haAltre()) {
+                pulsante.setDisable(false);
+            } else {
+                esaurito.run();
+            }
+        }, e -> {
+            pulsante.setDisable(false);
+            handleRemoteException(e, "caricamento delle rilevazioni");
+        });
+    }
+
 
     /**
-     * Gestisce l'eccezione RemoteException con un messaggio di errore standard.
+     * Gestisce l'errore di una chiamata remota con un messaggio di errore standard.
      *
-     * @param e L'eccezione RemoteException originale
+     * @param e L'errore originale (RemoteException o scadenza della chiamata)
      * @param operation Descrizione dell'operazione che ha causato l'eccezione
      */
-    private void handleRemoteException(RemoteException e, String operation) {
+    private void handleRemoteException(Throwable e, String operation) {
         showAlert(Alert.AlertType.ERROR, "Errore di connessione", "Errore del server", "Si è verificato un errore durante la " + operation + ": " + e.getMessage());
         e.printStackTrace();
     }
@@ -0,0 +1,207 @@
+package com.climatemonitoring.client.controller;
+
+import com.climatemonitoring.client.service.ServizioAsincrono;
+import com.climatemonitoring.common.model.CoordinateMonitoraggio;
+import com.climatemonitoring.common.model.PaginaAree;
+import com.climatemonitoring.common.service.ClimateMonitoringService;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.SortedList;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableRow;
+import javafx.scene.control.TableView;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Tabella dei risultati di una ricerca di aree geografiche.
+ *
+ * La {@link TableView} crea celle solo per le righe visibili, quindi anche
+ * decine di migliaia di risultati non costruiscono un testo enorme né
+ * rallentano il ridisegno. Le righe arrivano a pagine: la prima alla
+ * ricerca, le successive quando l'utente scorre fino a
+ * {@link #SOGLIA_CARICAMENTO} righe dalla fine. Le colonne si possono
+ * ordinare; le righe caricate in seguito vengono inserite al loro posto
+ * nell'ordinamento scelto.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+final class TabellaAree {
+
+    /**
+     * Numero di aree richieste per pagina.
+     */
+    static final int DIMENSIONE_PAGINA = 200;
+
+    /**
+     * Righe dalla fine oltre le quali viene richiesta la pagina successiva.
+     */
+    private static final int SOGLIA_CARICAMENTO = 20;
+
+    /**
+     * Richiesta di una pagina dei risultati.
+     */
+    @FunctionalInterface
+    interface RichiestaPagina {
+        /**
+         * @param servizio Servizio remoto
+         * @param dopoId Identificatore da cui riprendere, 0 per la prima pagina
+         * @return Pagina di risultati
+         * @throws Exception Se la chiamata fallisce
+         */
+        PaginaAree richiedi(ClimateMonitoringService servizio, int dopoId) throws Exception;
+    }
+
+    private final TableView<CoordinateMonitoraggio> tabella;
+    private final ObservableList<CoordinateMonitoraggio> righe = FXCollections.observableArrayList();
+
+    private ServizioAsincrono asincrono;
+    private String canale;
+    private RichiestaPagina richiesta;
+    private Consumer<Throwable> errore;
+
+    /** Identificatore da cui riprendere, nullo se le pagine sono finite. */
+    private Integer successiva;
+    private boolean inCaricamento;
+
+    /**
+     * Configura la tabella con le colonne città, stato, paese e coordinate.
+     *
+     * @param tabella Tabella definita nella vista
+     * @param conDistanza true per aggiungere la colonna della distanza dal punto di ricerca
+     */
+    TabellaAree(TableView<CoordinateMonitoraggio> tabella, boolean conDistanza) {
+        this.tabella = tabella;
+
+        tabella.getColumns().setAll(List.of(
+                colonnaTesto("Città", CoordinateMonitoraggio::getNomeCitta),
+                colonnaTesto("Stato", CoordinateMonitoraggio::getStato),
+                colonnaTesto("Paese", CoordinateMonitoraggio::getPaese),
+                colonnaNumero("Latitudine", CoordinateMonitoraggio::getLatitudine, "%.5f"),
+                colonnaNumero("Longitudine", CoordinateMonitoraggio::getLongitudine, "%.5f")));
+        if (conDistanza) {
+            tabella.getColumns().add(colonnaNumero("Distanza (km)", CoordinateMonitoraggio::getDistanzaKm, "%.1f"));
+        }
+        tabella.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+
+        SortedList<CoordinateMonitoraggio> ordinate = new SortedList<>(righe);
+        ordinate.comparatorProperty().bind(tabella.comparatorProperty());
+        tabella.setItems(ordinate);
+
+        tabella.setRowFactory(t -> new TableRow<>() {
+            @Override
+            protected void updateItem(CoordinateMonitoraggio area, boolean vuota) {
+                super.updateItem(area, vuota);
+                if (!vuota && getIndex() >= righe.size() - SOGLIA_CARICAMENTO) {
+                    caricaSuccessiva();
+                }
+            }
+        });
+        tabella.setPlaceholder(new Label(""));
+    }
+
+    /**
+     * Mostra un elenco di aree già completo.
+     *
+     * @param aree Aree da mostrare
+     * @param messaggioVuoto Testo mostrato se l'elenco è vuoto
+     */
+    void mostra(List<CoordinateMonitoraggio> aree, String messaggioVuoto) {
+        interrompi();
+        tabella.setPlaceholder(new Label(messaggioVuoto));
+        righe.setAll(aree);
+        tabella.scrollTo(0);
+    }
+
+    /**
+     * Svuota la tabella e avvia il caricamento a pagine di una nuova ricerca.
+     *
+     * @param asincrono Esecutore delle chiamate al servizio
+     * @param canale Canale delle richieste: una nuova ricerca annulla le pagine ancora in arrivo
+     * @param richiesta Richiede al servizio la pagina che segue l'identificatore ricevuto
+     * @param messaggioVuoto Testo mostrato se la ricerca non trova nulla
+     * @param errore Riceve l'errore di una richiesta sul thread JavaFX
+     */
+    void cerca(ServizioAsincrono asincrono, String canale, RichiestaPagina richiesta, String messaggioVuoto,
+               Consumer<Throwable> errore) {
+        interrompi();
+        this.asincrono = asincrono;
+        this.canale = canale;
+        this.richiesta = richiesta;
+        this.errore = errore;
+        this.successiva = 0;
+
+        tabella.setPlaceholder(new Label("Ricerca in corso..."));
+        righe.clear();
+        tabella.scrollTo(0);
+
+        caricaSuccessiva(() -> tabella.setPlaceholder(new Label(messaggioVuoto)));
+    }
+
+    private void caricaSuccessiva() {
+        caricaSuccessiva(() -> { });
+    }
+
+    /**
+     * Richiede la pagina successiva, se esiste e non è già in arrivo.
+     */
+    private void caricaSuccessiva(Runnable completata) {
+        if (inCaricamento || successiva == null || asincrono == null) {
+            return;
+        }
+        inCaricamento = true;
+        int dopoId = successiva;
+        RichiestaPagina r = richiesta;
+        asincrono.esegui(canale, s -> r.richiedi(s, dopoId), pagina -> {
+            inCaricamento = false;
+            successiva = pagina.getSuccessiva();
+            righe.addAll(pagina.getAree());
+            completata.run();
+        }, e -> {
+            // la pagina verrà richiesta di nuovo al prossimo scorrimento
+            inCaricamento = false;
+            tabella.setPlaceholder(new Label(""));
+            errore.accept(e);
+        });
+    }
+
+    /**
+     * Annulla la ricerca a pagine in corso.
+     */
+    private void interrompi() {
+        if (asincrono != null) {
+            asincrono.annulla(canale);
+        }
+        asincrono = null;
+        successiva = null;
+        inCaricamento = false;
+    }
+
+    private static TableColumn<CoordinateMonitoraggio, String> colonnaTesto(
+            String titolo, Function<CoordinateMonitoraggio, String> valore) {
+        TableColumn<CoordinateMonitoraggio, String> colonna = new TableColumn<>(titolo);
+        colonna.setCellValueFactory(c -> new ReadOnlyObjectWrapper<>(valore.apply(c.getValue())));
+        return colonna;
+    }
+
+    private static TableColumn<CoordinateMonitoraggio, Double> colonnaNumero(
+            String titolo, Function<CoordinateMonitoraggio, Double> valore, String formato) {
+        TableColumn<CoordinateMonitoraggio, Double> colonna = new TableColumn<>(titolo);
+        colonna.setCellValueFactory(c -> new ReadOnlyObjectWrapper<>(valore.apply(c.getValue())));
+        colonna.setCellFactory(c -> new TableCell<>() {
+            @Override
+            protected void updateItem(Double numero, boolean vuota) {
+                super.updateItem(numero, vuota);
+                setText(vuota || numero == null ? null : String.format(formato, numero));
+            }
+        });
+        return colonna;
+    }
+}
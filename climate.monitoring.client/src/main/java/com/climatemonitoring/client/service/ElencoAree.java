@@ -0,0 +1,60 @@
+package com.climatemonitoring.client.service;
+
+import com.climatemonitoring.common.model.AggiornamentoAree;
+import com.climatemonitoring.common.model.CoordinateMonitoraggio;
+import com.climatemonitoring.common.service.ClimateMonitoringService;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Copia locale dell'elenco delle coordinate di monitoraggio.
+ *
+ * Le finestre di inserimento mostrano l'intero elenco in una ComboBox;
+ * invece di scaricarlo a ogni apertura, il client ne conserva una copia e
+ * con {@link ClimateMonitoringService#sincronizzaAree(long)} riceve solo le
+ * coordinate cambiate dall'ultima sincronizzazione. L'elenco completo
+ * arriva solo la prima volta o quando il server non può fornire le modifiche.
+ *
+ * È condivisa da tutte le viste e può essere usata da più thread.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class ElencoAree {
+
+    /** Coordinate per identificatore, nell'ordine restituito dal server. */
+    private final TreeMap<Integer, CoordinateMonitoraggio> aree = new TreeMap<>();
+
+    /** Versione della copia, 0 se non è mai stata sincronizzata. */
+    private long versione;
+
+    /**
+     * Allinea la copia al server e la restituisce.
+     *
+     * @param servizio Servizio remoto
+     * @return Elenco aggiornato delle coordinate, ordinato per identificatore
+     * @throws RemoteException Se la sincronizzazione fallisce; la copia resta quella precedente
+     */
+    public synchronized List<CoordinateMonitoraggio> aggiorna(ClimateMonitoringService servizio) throws RemoteException {
+        AggiornamentoAree aggiornamento = servizio.sincronizzaAree(versione);
+
+        if (aggiornamento.isCompleto()) {
+            aree.clear();
+        } else {
+            // prima le eliminazioni: una coordinata eliminata e reinserita è tra le modificate
+            for (int id : aggiornamento.getEliminate()) {
+                aree.remove(id);
+            }
+        }
+        for (CoordinateMonitoraggio area : aggiornamento.getModificate()) {
+            aree.put(area.getId(), area);
+        }
+        versione = aggiornamento.getVersione();
+
+        return new ArrayList<>(aree.values());
+    }
+}
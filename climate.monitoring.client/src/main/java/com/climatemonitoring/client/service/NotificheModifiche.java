@@ -0,0 +1,178 @@
+package com.climatemonitoring.client.service;
+
+import com.climatemonitoring.common.model.EventoModifica;
+import com.climatemonitoring.common.rmi.AttesaLimitataSocketFactory;
+import com.climatemonitoring.common.service.AscoltatoreModifiche;
+import javafx.application.Platform;
+
+import java.rmi.NoSuchObjectException;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Riceve dal server le modifiche dei dati mostrati, al posto di ripetere le ricerche.
+ *
+ * Ogni vista che mostra i dati di un'area si registra con
+ * {@link #osserva(String, Integer, Integer, Runnable)} indicando l'area e
+ * l'azione con cui si aggiorna. Tutte le osservazioni sono unite in un'unica
+ * sottoscrizione sul server, con un solo oggetto remoto esportato per
+ * client; quando arrivano modifiche che riguardano un'area osservata,
+ * l'azione corrispondente viene eseguita sul thread JavaFX, una volta per
+ * notifica anche se questa riporta più modifiche.
+ *
+ * L'oggetto è esportato con {@link AttesaLimitataSocketFactory}, così un
+ * client bloccato non trattiene a lungo i thread di invio del server.
+ *
+ * Se l'oggetto non può essere esportato, ad esempio perché il server non
+ * può raggiungere il client, le viste restano semplicemente senza
+ * aggiornamenti automatici.
+ *
+ * Tutti i metodi, tranne quello remoto, vanno chiamati dal thread JavaFX.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class NotificheModifiche implements AscoltatoreModifiche {
+
+    /**
+     * Area osservata da una vista.
+     */
+    private record Osservazione(Integer coordinateId, Integer areaInteresseId, Runnable aggiornamento) {
+
+        boolean interessata(EventoModifica e) {
+            return e.getTipo() == EventoModifica.Tipo.RISINCRONIZZA
+                    || (coordinateId != null && coordinateId.equals(e.getCoordinateMonitoraggioId()))
+                    || (areaInteresseId != null && areaInteresseId.equals(e.getAreaInteresseId()));
+        }
+    }
+
+    private final ServizioAsincrono asincrono;
+
+    /** Osservazioni per nome della vista. */
+    private final Map<String, Osservazione> osservazioni = new HashMap<>();
+
+    /** Insiemi inviati con l'ultima sottoscrizione. */
+    private Set<Integer> coordinateInviate = Set.of();
+    private Set<Integer> areeInviate = Set.of();
+
+    private boolean esportato;
+    private boolean disattivato;
+
+    /**
+     * @param asincrono Esecutore delle chiamate al servizio remoto
+     */
+    public NotificheModifiche(ServizioAsincrono asincrono) {
+        this.asincrono = asincrono;
+    }
+
+    /**
+     * Osserva le nuove rilevazioni di un'area, sostituendo l'osservazione precedente della vista.
+     *
+     * @param vista Nome della vista che osserva
+     * @param coordinateId Coordinata di monitoraggio osservata, o null
+     * @param areaInteresseId Area di interesse osservata, o null
+     * @param aggiornamento Eseguito sul thread JavaFX quando l'area cambia
+     */
+    public void osserva(String vista, Integer coordinateId, Integer areaInteresseId, Runnable aggiornamento) {
+        osservazioni.put(vista, new Osservazione(coordinateId, areaInteresseId, aggiornamento));
+        sincronizza();
+    }
+
+    /**
+     * Smette di osservare per conto della vista indicata.
+     *
+     * @param vista Nome della vista
+     */
+    public void smetti(String vista) {
+        if (osservazioni.remove(vista) != null) {
+            sincronizza();
+        }
+    }
+
+    /**
+     * Annulla la sottoscrizione e ritira l'oggetto remoto.
+     */
+    public void chiudi() {
+        osservazioni.clear();
+        if (!esportato) {
+            return;
+        }
+        esportato = false;
+        try {
+            asincrono.getServizio().annullaSottoscrizione(this);
+        } catch (RemoteException e) {
+            System.err.println("Impossibile annullare la sottoscrizione alle modifiche: " + e.getMessage());
+        }
+        try {
+            UnicastRemoteObject.unexportObject(this, true);
+        } catch (NoSuchObjectException e) {
+            // già ritirato
+        }
+    }
+
+    @Override
+    public void modificheAvvenute(List<EventoModifica> eventi) {
+        Platform.runLater(() -> {
+            // copia: un aggiornamento può sostituire la propria osservazione
+            for (Osservazione o : List.copyOf(osservazioni.values())) {
+                for (EventoModifica e : eventi) {
+                    if (o.interessata(e)) {
+                        o.aggiornamento().run();
+                        break;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Invia al server gli insiemi osservati da tutte le viste.
+     */
+    private void sincronizza() {
+        if (disattivato || (!esportato && !esporta())) {
+            return;
+        }
+        Set<Integer> coordinate = new HashSet<>();
+        Set<Integer> aree = new HashSet<>();
+        for (Osservazione o : osservazioni.values()) {
+            if (o.coordinateId() != null) {
+                coordinate.add(o.coordinateId());
+            }
+            if (o.areaInteresseId() != null) {
+                aree.add(o.areaInteresseId());
+            }
+        }
+        if (coordinate.equals(coordinateInviate) && aree.equals(areeInviate)) {
+            return;
+        }
+        coordinateInviate = coordinate;
+        areeInviate = aree;
+
+        asincrono.esegui("sottoscrizione-modifiche", s -> {
+            s.sottoscriviModifiche(this, Set.of(), aree, coordinate);
+            return null;
+        }, esito -> { }, e -> {
+            // al prossimo cambiamento la sottoscrizione verrà inviata di nuovo
+            coordinateInviate = Set.of();
+            areeInviate = Set.of();
+            System.err.println("Sottoscrizione alle modifiche non riuscita: " + e.getMessage());
+        });
+    }
+
+    private boolean esporta() {
+        try {
+            UnicastRemoteObject.exportObject(this, 0, new AttesaLimitataSocketFactory(), null);
+            esportato = true;
+        } catch (RemoteException e) {
+            System.err.println("Aggiornamenti automatici non disponibili: " + e.getMessage());
+            disattivato = true;
+        }
+        return esportato;
+    }
+}
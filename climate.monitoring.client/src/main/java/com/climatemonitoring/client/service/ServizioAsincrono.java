@@ -0,0 +1,206 @@
+package com.climatemonitoring.client.service;
+
+import com.climatemonitoring.common.service.ClimateMonitoringService;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.concurrent.Task;
+import javafx.util.Duration;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Esegue le chiamate al servizio remoto fuori dal JavaFX Application Thread.
+ *
+ * Una chiamata RMI può durare secondi su un collegamento lento: eseguita in un
+ * gestore di eventi bloccherebbe l'intera interfaccia. Ogni chiamata passata a
+ * {@link #esegui} gira invece in un {@link Task} su un thread di sfondo, e il
+ * risultato o l'errore vengono consegnati sul thread JavaFX, dove si possono
+ * aggiornare i controlli.
+ *
+ * Inoltre:
+ * - Le chiamate con lo stesso canale si sostituiscono: una nuova ricerca
+ *   annulla la precedente ancora in corso, la cui risposta viene scartata
+ * - Ogni chiamata ha una scadenza, oltre la quale viene annullata e
+ *   segnalata con una {@link TimeoutException}
+ * - {@link #occupatoProperty()} indica se ci sono chiamate in corso, per
+ *   collegarvi un indicatore di avanzamento
+ *
+ * Tutti i metodi vanno chiamati dal thread JavaFX.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class ServizioAsincrono {
+
+    /**
+     * Scadenza predefinita (ms) delle chiamate, modificabile con la proprietà
+     * di sistema {@code climatemonitoring.client.timeoutMs}.
+     */
+    public static final long TIMEOUT_PREDEFINITO_MS = Long.getLong("climatemonitoring.client.timeoutMs", 30_000);
+
+    /**
+     * Operazione da eseguire sul servizio remoto.
+     *
+     * @param <T> Tipo del risultato
+     */
+    @FunctionalInterface
+    public interface Chiamata<T> {
+        /**
+         * @param servizio Servizio remoto
+         * @return Risultato della chiamata
+         * @throws Exception Se la chiamata fallisce
+         */
+        T esegui(ClimateMonitoringService servizio) throws Exception;
+    }
+
+    private final ClimateMonitoringService servizio;
+    private final ExecutorService esecutore;
+
+    /** Ultima chiamata di ogni canale. */
+    private final Map<String, Task<?>> ultime = new HashMap<>();
+
+    private int inCorso;
+    private final ReadOnlyBooleanWrapper occupato = new ReadOnlyBooleanWrapper(false);
+
+    /**
+     * @param servizio Servizio remoto da usare
+     */
+    public ServizioAsincrono(ClimateMonitoringService servizio) {
+        this.servizio = servizio;
+        AtomicInteger numero = new AtomicInteger();
+        // thread creati su richiesta: una chiamata bloccata su una rete lenta non ferma le altre
+        this.esecutore = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "chiamata-servizio-" + numero.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * @return Servizio remoto, per le chiamate già eseguite fuori dal thread JavaFX
+     */
+    public ClimateMonitoringService getServizio() {
+        return servizio;
+    }
+
+    /**
+     * Esegue una chiamata con la scadenza predefinita.
+     *
+     * @see #esegui(String, long, Chiamata, Consumer, Consumer)
+     */
+    public <T> Task<T> esegui(String canale, Chiamata<T> chiamata,
+                              Consumer<? super T> esito, Consumer<? super Throwable> errore) {
+        return esegui(canale, TIMEOUT_PREDEFINITO_MS, chiamata, esito, errore);
+    }
+
+    /**
+     * Esegue una chiamata su un thread di sfondo.
+     *
+     * @param canale Canale della chiamata: annulla la precedente dello stesso canale; null per nessuno
+     * @param timeoutMs Scadenza in millisecondi
+     * @param chiamata Operazione da eseguire
+     * @param esito Riceve il risultato sul thread JavaFX
+     * @param errore Riceve l'errore sul thread JavaFX, anche alla scadenza
+     * @param <T> Tipo del risultato
+     * @return Task della chiamata
+     */
+    public <T> Task<T> esegui(String canale, long timeoutMs, Chiamata<T> chiamata,
+                              Consumer<? super T> esito, Consumer<? super Throwable> errore) {
+        if (canale != null) {
+            annulla(canale);
+        }
+
+        Task<T> task = new Task<>() {
+            @Override
+            protected T call() throws Exception {
+                return chiamata.esegui(servizio);
+            }
+        };
+
+        PauseTransition scadenza = new PauseTransition(Duration.millis(timeoutMs));
+        boolean[] scaduta = {false};
+        scadenza.setOnFinished(event -> {
+            if (!task.isDone()) {
+                scaduta[0] = true;
+                task.cancel(true);
+            }
+        });
+
+        task.setOnSucceeded(event -> {
+            termina(canale, task, scadenza);
+            esito.accept(task.getValue());
+        });
+        task.setOnFailed(event -> {
+            termina(canale, task, scadenza);
+            errore.accept(task.getException());
+        });
+        task.setOnCancelled(event -> {
+            termina(canale, task, scadenza);
+            if (scaduta[0]) {
+                errore.accept(new TimeoutException("Il server non ha risposto entro "
+                        + timeoutMs / 1000 + " secondi"));
+            }
+        });
+
+        if (canale != null) {
+            ultime.put(canale, task);
+        }
+        aggiornaInCorso(1);
+        scadenza.play();
+        esecutore.execute(task);
+        return task;
+    }
+
+    /**
+     * Annulla la chiamata in corso sul canale, se presente. La sua risposta verrà scartata.
+     *
+     * @param canale Canale da annullare
+     */
+    public void annulla(String canale) {
+        Task<?> precedente = ultime.remove(canale);
+        if (precedente != null) {
+            precedente.cancel(true);
+        }
+    }
+
+    /**
+     * @return Proprietà vera mentre almeno una chiamata è in corso
+     */
+    public ReadOnlyBooleanProperty occupatoProperty() {
+        return occupato.getReadOnlyProperty();
+    }
+
+    /**
+     * Annulla le chiamate in corso e libera i thread.
+     */
+    public void chiudi() {
+        for (Task<?> task : ultime.values()) {
+            task.cancel(true);
+        }
+        ultime.clear();
+        esecutore.shutdownNow();
+    }
+
+    private void termina(String canale, Task<?> task, PauseTransition scadenza) {
+        scadenza.stop();
+        if (canale != null) {
+            ultime.remove(canale, task);
+        }
+        aggiornaInCorso(-1);
+    }
+
+    private void aggiornaInCorso(int variazione) {
+        assert Platform.isFxApplicationThread();
+        inCorso += variazione;
+        occupato.set(inCorso > 0);
+    }
+}
@@ -0,0 +1,180 @@
+package com.climatemonitoring.client.service;
+
+import com.climatemonitoring.common.service.ClimateMonitoringService;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cache lato client dei risultati delle ricerche geografiche.
+ *
+ * Ogni apertura di una scheda o di una finestra di inserimento ripete le
+ * stesse ricerche, che cambiano solo quando un operatore crea un centro o
+ * un'area. Il proxy restituito da {@link #proxy(ClimateMonitoringService)}
+ * implementa il servizio e:
+ * - Per i metodi in {@link #METODI_IN_CACHE} conserva il risultato, con chiave
+ *   metodo e argomenti, per {@link #DURATA_MS} millisecondi
+ * - Dopo una scrittura del client che cambia le aree (i metodi in
+ *   {@link #METODI_CHE_INVALIDANO}) svuota la cache
+ * - Inoltra al server tutti gli altri metodi
+ *
+ * Le voci sono al massimo {@link #MASSIMO_VOCI}: oltre, si scarta quella
+ * usata meno di recente. Durata e dimensione si possono modificare con le
+ * proprietà di sistema {@code climatemonitoring.client.cache.durataMs} e
+ * {@code climatemonitoring.client.cache.voci}; una durata di 0 disattiva la cache.
+ *
+ * Le modifiche fatte da altri client diventano visibili al più dopo la
+ * durata delle voci.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class ServizioConCache implements InvocationHandler {
+
+    /** Durata (ms) di una voce. */
+    public static final long DURATA_MS = Long.getLong("climatemonitoring.client.cache.durataMs", 60_000);
+
+    /** Numero massimo di voci. */
+    public static final int MASSIMO_VOCI = Integer.getInteger("climatemonitoring.client.cache.voci", 256);
+
+    /** Metodi di sola lettura i cui risultati vengono conservati. */
+    static final Set<String> METODI_IN_CACHE = Set.of(
+            "cercaAreaGeograficaNome",
+            "cercaAreaGeograficaPerPaese",
+            "getAreePerCentroMonitoraggio",
+            "getAreeInteresseOperatore");
+
+    /** Scritture del client dopo le quali i risultati conservati non sono più validi. */
+    static final Set<String> METODI_CHE_INVALIDANO = Set.of(
+            "creaAreaInteresse",
+            "creaCentroMonitoraggio");
+
+    /**
+     * Risultato conservato con il momento della scadenza.
+     */
+    private static final class Voce {
+        final Object valore;
+        final long scadenza;
+
+        Voce(Object valore, long scadenza) {
+            this.valore = valore;
+            this.scadenza = scadenza;
+        }
+    }
+
+    private final ClimateMonitoringService servizio;
+
+    /** Voci in ordine di accesso, protette dal monitor della mappa. */
+    private final Map<List<Object>, Voce> voci = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Object>, Voce> piuVecchia) {
+            return size() > MASSIMO_VOCI;
+        }
+    };
+
+    /**
+     * Incrementata a ogni svuotamento: un risultato richiesto prima di una
+     * scrittura e arrivato dopo non viene conservato.
+     */
+    private long generazione;
+
+    private ServizioConCache(ClimateMonitoringService servizio) {
+        this.servizio = servizio;
+    }
+
+    /**
+     * Crea il servizio con cache.
+     *
+     * @param servizio Stub del servizio remoto
+     * @return Servizio che risponde dalla cache quando possibile, o lo stub stesso se la cache è disattivata
+     */
+    public static ClimateMonitoringService proxy(ClimateMonitoringService servizio) {
+        if (DURATA_MS <= 0 || MASSIMO_VOCI <= 0) {
+            return servizio;
+        }
+        return (ClimateMonitoringService) Proxy.newProxyInstance(ClimateMonitoringService.class.getClassLoader(),
+                new Class<?>[]{ClimateMonitoringService.class}, new ServizioConCache(servizio));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method metodo, Object[] argomenti) throws Throwable {
+        if (metodo.getDeclaringClass() == Object.class) {
+            switch (metodo.getName()) {
+                case "equals":
+                    return proxy == argomenti[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return "Proxy[" + servizio + "]";
+            }
+        }
+
+        String nome = metodo.getName();
+        if (!METODI_IN_CACHE.contains(nome)) {
+            Object risultato = inoltra(metodo, argomenti);
+            if (METODI_CHE_INVALIDANO.contains(nome)) {
+                svuota();
+            }
+            return risultato;
+        }
+
+        List<Object> chiave = new ArrayList<>();
+        chiave.add(nome);
+        if (argomenti != null) {
+            chiave.addAll(Arrays.asList(argomenti));
+        }
+
+        long adesso = System.currentTimeMillis();
+        long richiesta;
+        synchronized (voci) {
+            Voce voce = voci.get(chiave);
+            if (voce != null && voce.scadenza > adesso) {
+                return copia(voce.valore);
+            }
+            richiesta = generazione;
+        }
+
+        Object risultato = inoltra(metodo, argomenti);
+        synchronized (voci) {
+            if (richiesta == generazione) {
+                voci.put(chiave, new Voce(risultato, adesso + DURATA_MS));
+            }
+        }
+        return copia(risultato);
+    }
+
+    /**
+     * Scarta tutti i risultati conservati.
+     */
+    public void svuota() {
+        synchronized (voci) {
+            voci.clear();
+            generazione++;
+        }
+    }
+
+    private Object inoltra(Method metodo, Object[] argomenti) throws Throwable {
+        try {
+            return metodo.invoke(servizio, argomenti);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Le liste conservate non vengono mai consegnate direttamente, così un
+     * chiamante che le modifica non altera la cache.
+     */
+    private static Object copia(Object valore) {
+        return valore instanceof List ? new ArrayList<>((List<?>) valore) : valore;
+    }
+}
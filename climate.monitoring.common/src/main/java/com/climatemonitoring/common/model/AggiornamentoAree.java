@@ -0,0 +1,69 @@
+package com.climatemonitoring.common.model;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Risposta alla sincronizzazione dell'elenco delle coordinate di monitoraggio.
+ *
+ * Se {@link #isCompleto()} è vero contiene l'intero elenco e sostituisce la
+ * copia del client; altrimenti contiene solo le coordinate inserite o
+ * modificate e gli identificatori di quelle eliminate dopo la versione
+ * indicata dal client. In entrambi i casi {@link #getVersione()} è la
+ * versione da inviare alla sincronizzazione successiva.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class AggiornamentoAree implements Serializable {
+    /** Identificatore univoco per la serializzazione delle istanze di questa classe. */
+    private static final long serialVersionUID = 1L;
+
+    /** Indica se la risposta contiene l'intero elenco. */
+    private final boolean completo;
+
+    /** Coordinate inserite o modificate, o tutte se la risposta è completa. */
+    private final List<CoordinateMonitoraggio> modificate;
+
+    /** Identificatori delle coordinate eliminate, vuoto se la risposta è completa. */
+    private final int[] eliminate;
+
+    /** Versione dell'elenco raggiunta con questa risposta. */
+    private final long versione;
+
+    /**
+     * Costruisce una risposta.
+     *
+     * @param completo true se {@code modificate} contiene l'intero elenco
+     * @param modificate Coordinate inserite o modificate
+     * @param eliminate Identificatori delle coordinate eliminate
+     * @param versione Versione raggiunta
+     */
+    public AggiornamentoAree(boolean completo, List<CoordinateMonitoraggio> modificate, int[] eliminate, long versione) {
+        this.completo = completo;
+        this.modificate = modificate;
+        this.eliminate = eliminate;
+        this.versione = versione;
+    }
+
+    public boolean isCompleto() {
+        return completo;
+    }
+
+    /**
+     * @return Coordinate inserite o modificate, non modificabili
+     */
+    public List<CoordinateMonitoraggio> getModificate() {
+        return Collections.unmodifiableList(modificate);
+    }
+
+    public int[] getEliminate() {
+        return eliminate;
+    }
+
+    public long getVersione() {
+        return versione;
+    }
+}
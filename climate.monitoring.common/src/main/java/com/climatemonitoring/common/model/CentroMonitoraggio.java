@@ -1,6 +1,9 @@
 package com.climatemonitoring.common.model;
 
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 
 
 /**
@@ -9,16 +12,17 @@ import java.io.Serializable;
  * Questa classe contiene le informazioni relative ai dettagli di un centro di monitoraggio,
  * inclusi i suoi identificativi e le informazioni sulla posizione.
  *
- * Implementa l'interfaccia Serializable per consentire la trasmissione dell'oggetto attraverso le reti.
+ * Implementa {@link Externalizable} con una codifica compatta per la trasmissione attraverso le reti;
+ * comune e provincia, condivisi da più centri, sono scritti per intero una sola volta per risposta.
  *
  *
  * @author Fusè Lorenzo 753168
  * @author Ciminella Alessandro 753369
  * @author Dragan Cosmin 754427
  */
-public class CentroMonitoraggio implements Serializable {
+public class CentroMonitoraggio implements Externalizable {
     /** Identificatore univoco per la serializzazione. */
-    private static final long serialVersionUID=1l;
+    private static final long serialVersionUID=2l;
 
     /** Identificatore univoco del centro di monitoraggio. */
     private int id;
@@ -38,6 +42,12 @@ public class CentroMonitoraggio implements Serializable {
     /** Provincia in cui è ubicato il centro di monitoraggio. */
     private String provincia;
 
+    /**
+     * Costruttore senza parametri, richiesto dalla deserializzazione.
+     */
+    public CentroMonitoraggio() {
+    }
+
     /**
      * Costruisce un nuovo Centro di Monitoraggio con tutti i dettagli.
      *
@@ -142,4 +152,24 @@ public class CentroMonitoraggio implements Serializable {
      * @param provincia La nuova provincia da assegnare al centro di monitoraggio
      */
     public void setProvincia(String provincia) { this.provincia = provincia; }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        CodificaCompatta.scriviIntero(out, id);
+        CodificaCompatta.scriviTesto(out, nome);
+        CodificaCompatta.scriviTesto(out, indirizzo);
+        CodificaCompatta.scriviTesto(out, cap);
+        CodificaCompatta.scriviCondiviso(out, comune);
+        CodificaCompatta.scriviCondiviso(out, provincia);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        id = CodificaCompatta.leggiIntero(in);
+        nome = CodificaCompatta.leggiTesto(in);
+        indirizzo = CodificaCompatta.leggiTesto(in);
+        cap = CodificaCompatta.leggiTesto(in);
+        comune = CodificaCompatta.leggiCondiviso(in);
+        provincia = CodificaCompatta.leggiCondiviso(in);
+    }
 }
@@ -0,0 +1,89 @@
+package com.climatemonitoring.common.model;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Primitive di codifica usate dai modelli {@link java.io.Externalizable}.
+ *
+ * - Gli interi sono scritti come varint zig-zag: gli identificativi e i
+ *   punteggi climatici occupano uno o due byte invece di quattro
+ * - I testi propri di ogni oggetto (nomi, note) sono scritti in UTF-8 con
+ *   un byte che distingue il valore nullo
+ * - I testi ripetuti tra gli oggetti di una risposta (stato, paese, comune)
+ *   sono internati e scritti come oggetti: lo stream di serializzazione
+ *   scrive per intero solo la prima occorrenza e per le successive un
+ *   riferimento di pochi byte; in lettura tutti gli oggetti condividono
+ *   la stessa istanza
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+final class CodificaCompatta {
+
+    private static final byte NULLO = 0;
+    private static final byte UTF = 1;
+    private static final byte OGGETTO = 2;
+
+    /** Oltre questa lunghezza writeUTF potrebbe superare il limite di 65535 byte. */
+    private static final int LUNGHEZZA_MASSIMA_UTF = 65535 / 3;
+
+    private CodificaCompatta() {
+    }
+
+    static void scriviIntero(ObjectOutput out, int valore) throws IOException {
+        int v = (valore << 1) ^ (valore >> 31);
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    static int leggiIntero(ObjectInput in) throws IOException {
+        int v = 0;
+        for (int spostamento = 0; spostamento < 35; spostamento += 7) {
+            int b = in.readUnsignedByte();
+            v |= (b & 0x7F) << spostamento;
+            if ((b & 0x80) == 0) {
+                return (v >>> 1) ^ -(v & 1);
+            }
+        }
+        throw new IOException("Intero codificato non valido");
+    }
+
+    static void scriviTesto(ObjectOutput out, String testo) throws IOException {
+        if (testo == null) {
+            out.writeByte(NULLO);
+        } else if (testo.length() <= LUNGHEZZA_MASSIMA_UTF) {
+            out.writeByte(UTF);
+            out.writeUTF(testo);
+        } else {
+            out.writeByte(OGGETTO);
+            out.writeObject(testo);
+        }
+    }
+
+    static String leggiTesto(ObjectInput in) throws IOException, ClassNotFoundException {
+        switch (in.readByte()) {
+            case NULLO:
+                return null;
+            case UTF:
+                return in.readUTF();
+            case OGGETTO:
+                return (String) in.readObject();
+            default:
+                throw new IOException("Testo codificato non valido");
+        }
+    }
+
+    static void scriviCondiviso(ObjectOutput out, String testo) throws IOException {
+        out.writeObject(testo == null ? null : testo.intern());
+    }
+
+    static String leggiCondiviso(ObjectInput in) throws IOException, ClassNotFoundException {
+        return (String) in.readObject();
+    }
+}
@@ -1,6 +1,9 @@
 package com.climatemonitoring.common.model;
 
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 
 /**
  * Rappresenta le coordinate geografiche di un sito di monitoraggio nel sistema di Monitoraggio Climatico.
@@ -8,8 +11,10 @@ import java.io.Serializable;
  * Questa classe incapsula le informazioni dettagliate relative alla posizione geografica,
  * inclusi attributi come città, stato, paese, latitudine, longitudine e altri metadati.
  *
- * La classe supporta la serializzazione per consentire la trasmissione di oggetti
- * CoordinateMonitoraggio attraverso reti o per la persistenza dei dati.
+ * La classe implementa {@link Externalizable} con una codifica compatta per
+ * la trasmissione via RMI: le liste di coordinate sono le risposte più grandi
+ * del servizio, e stato e paese, ripetuti in molte righe, vengono scritti
+ * per intero una sola volta per risposta.
  *
  * Gli oggetti di questa classe possono rappresentare sia aree di interesse specifiche
  * per il monitoraggio climatico che posizioni geografiche generiche.
@@ -18,9 +23,9 @@ import java.io.Serializable;
  * @author Ciminella Alessandro 753369
  * @author Dragan Cosmin 754427
  */
-public class CoordinateMonitoraggio implements Serializable {
+public class CoordinateMonitoraggio implements Externalizable {
     /** Identificatore univoco per la serializzazione delle istanze di questa classe. */
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 2L;
 
     /** Identificatore univoco delle coordinate di monitoraggio. */
     private int id;
@@ -58,9 +63,21 @@ public class CoordinateMonitoraggio implements Serializable {
      */
     private String tipo;
 
+    /**
+     * Distanza in chilometri dal punto di una ricerca per prossimità.
+     * Valorizzata solo nei risultati di tali ricerche, altrimenti nulla.
+     */
+    private Double distanzaKm;
+
+    /** Bit dei flag della codifica compatta. */
+    private static final int AREA_INTERESSE = 1;
+    private static final int CON_CENTRO = 2;
+    private static final int CON_DISTANZA = 4;
+
     /**
      * Costruttore predefinito senza parametri.
-     * Crea un'istanza di CoordinateMonitoraggio con valori predefiniti.
+     * Crea un'istanza di CoordinateMonitoraggio con valori predefiniti,
+     * ed è usato anche dalla deserializzazione.
      */
     public CoordinateMonitoraggio() {}
 
@@ -336,4 +353,58 @@ public class CoordinateMonitoraggio implements Serializable {
     public void setAreaInteresse(boolean areaInteresse) {
         isAreaInteresse = areaInteresse;
     }
-}
\ No newline at end of file
+
+    /**
+     * Recupera la distanza dal punto di ricerca calcolata dal server.
+     *
+     * @return Distanza in chilometri, o null se le coordinate non provengono da una ricerca per prossimità
+     */
+    public Double getDistanzaKm() {
+        return distanzaKm;
+    }
+
+    /**
+     * Imposta la distanza dal punto di ricerca.
+     *
+     * @param distanzaKm Distanza in chilometri
+     */
+    public void setDistanzaKm(Double distanzaKm) {
+        this.distanzaKm = distanzaKm;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        int flag = (isAreaInteresse ? AREA_INTERESSE : 0)
+                | (centroMonitoraggioId != null ? CON_CENTRO : 0)
+                | (distanzaKm != null ? CON_DISTANZA : 0);
+        out.writeByte(flag);
+        CodificaCompatta.scriviIntero(out, id);
+        CodificaCompatta.scriviTesto(out, nomeCitta);
+        CodificaCompatta.scriviCondiviso(out, stato);
+        CodificaCompatta.scriviCondiviso(out, paese);
+        out.writeDouble(latitudine);
+        out.writeDouble(longitudine);
+        if (centroMonitoraggioId != null) {
+            CodificaCompatta.scriviIntero(out, centroMonitoraggioId);
+        }
+        CodificaCompatta.scriviCondiviso(out, tipo);
+        if (distanzaKm != null) {
+            out.writeDouble(distanzaKm);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        int flag = in.readUnsignedByte();
+        isAreaInteresse = (flag & AREA_INTERESSE) != 0;
+        id = CodificaCompatta.leggiIntero(in);
+        nomeCitta = CodificaCompatta.leggiTesto(in);
+        stato = CodificaCompatta.leggiCondiviso(in);
+        paese = CodificaCompatta.leggiCondiviso(in);
+        latitudine = in.readDouble();
+        longitudine = in.readDouble();
+        centroMonitoraggioId = (flag & CON_CENTRO) != 0 ? CodificaCompatta.leggiIntero(in) : null;
+        tipo = CodificaCompatta.leggiCondiviso(in);
+        distanzaKm = (flag & CON_DISTANZA) != 0 ? in.readDouble() : null;
+    }
+}
@@ -0,0 +1,46 @@
+package com.climatemonitoring.common.model;
+
+import java.io.Serializable;
+
+/**
+ * Posizione nella serie storica delle rilevazioni di un'area.
+ *
+ * Le rilevazioni sono ordinate per data e identificatore decrescenti;
+ * il cursore indica l'ultima rilevazione già letta e la pagina successiva
+ * parte dalla prima che la segue in quest'ordine. A differenza di un
+ * offset numerico, il cursore resta valido anche se nel frattempo vengono
+ * inserite nuove rilevazioni.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public final class CursoreRilevazioni implements Serializable {
+    /** Identificatore univoco per la serializzazione delle istanze di questa classe. */
+    private static final long serialVersionUID = 1L;
+
+    /** Data dell'ultima rilevazione letta, in giorni dall'epoca. */
+    private final int giorno;
+
+    /** Identificatore dell'ultima rilevazione letta. */
+    private final int id;
+
+    /**
+     * Costruisce un cursore posizionato dopo la rilevazione indicata.
+     *
+     * @param giorno Data della rilevazione in giorni dall'epoca
+     * @param id Identificatore della rilevazione
+     */
+    public CursoreRilevazioni(int giorno, int id) {
+        this.giorno = giorno;
+        this.id = id;
+    }
+
+    public int getGiorno() {
+        return giorno;
+    }
+
+    public int getId() {
+        return id;
+    }
+}
@@ -0,0 +1,111 @@
+package com.climatemonitoring.common.model;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Modifica dei dati notificata dal server ai client sottoscritti.
+ *
+ * Le modifiche uguali avvenute tra due notifiche vengono unite in un solo
+ * evento, con {@link #getConteggio()} pari al numero di modifiche unite.
+ * Un evento {@link Tipo#RISINCRONIZZA} indica che le modifiche erano troppe
+ * per essere elencate: il client deve rileggere tutti i dati che osserva.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public final class EventoModifica implements Serializable {
+    /** Identificatore univoco per la serializzazione delle istanze di questa classe. */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Tipo di modifica.
+     */
+    public enum Tipo {
+        /** Nuove rilevazioni climatiche. */
+        RILEVAZIONE,
+        /** Nuova area di interesse di un centro. */
+        AREA_INTERESSE,
+        /** Modifiche non elencate: rileggere tutti i dati osservati. */
+        RISINCRONIZZA
+    }
+
+    private final Tipo tipo;
+    private final Integer centroMonitoraggioId;
+    private final Integer areaInteresseId;
+    private final Integer coordinateMonitoraggioId;
+    private final int conteggio;
+
+    /**
+     * Costruisce un evento.
+     *
+     * @param tipo Tipo di modifica
+     * @param centroMonitoraggioId Centro interessato, o null
+     * @param areaInteresseId Area di interesse interessata, o null
+     * @param coordinateMonitoraggioId Coordinata interessata, o null
+     * @param conteggio Numero di modifiche unite nell'evento
+     */
+    public EventoModifica(Tipo tipo, Integer centroMonitoraggioId, Integer areaInteresseId,
+                          Integer coordinateMonitoraggioId, int conteggio) {
+        this.tipo = Objects.requireNonNull(tipo);
+        this.centroMonitoraggioId = centroMonitoraggioId;
+        this.areaInteresseId = areaInteresseId;
+        this.coordinateMonitoraggioId = coordinateMonitoraggioId;
+        this.conteggio = conteggio;
+    }
+
+    /**
+     * @param conteggio Numero di modifiche unite
+     * @return Lo stesso evento con il conteggio indicato
+     */
+    public EventoModifica conConteggio(int conteggio) {
+        return new EventoModifica(tipo, centroMonitoraggioId, areaInteresseId, coordinateMonitoraggioId, conteggio);
+    }
+
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    public Integer getCentroMonitoraggioId() {
+        return centroMonitoraggioId;
+    }
+
+    public Integer getAreaInteresseId() {
+        return areaInteresseId;
+    }
+
+    public Integer getCoordinateMonitoraggioId() {
+        return coordinateMonitoraggioId;
+    }
+
+    public int getConteggio() {
+        return conteggio;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof EventoModifica)) {
+            return false;
+        }
+        EventoModifica altro = (EventoModifica) o;
+        return tipo == altro.tipo && conteggio == altro.conteggio
+                && Objects.equals(centroMonitoraggioId, altro.centroMonitoraggioId)
+                && Objects.equals(areaInteresseId, altro.areaInteresseId)
+                && Objects.equals(coordinateMonitoraggioId, altro.coordinateMonitoraggioId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(tipo, centroMonitoraggioId, areaInteresseId, coordinateMonitoraggioId, conteggio);
+    }
+
+    @Override
+    public String toString() {
+        return tipo + "[centro=" + centroMonitoraggioId + ", area=" + areaInteresseId
+                + ", coordinata=" + coordinateMonitoraggioId + ", conteggio=" + conteggio + "]";
+    }
+}
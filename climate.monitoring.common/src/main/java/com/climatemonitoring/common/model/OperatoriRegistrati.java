@@ -1,25 +1,28 @@
 package com.climatemonitoring.common.model;
 
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 
 /**
  * Rappresenta un operatore registrato nel sistema di monitoraggio climatico.
  *
  * Questa classe modella le informazioni di un operatore che ha completato la registrazione,
- * contenendo i suoi dati personali e di accesso. Implementa l'interfaccia Serializable
- * per consentire la serializzazione e deserializzazione degli oggetti.
+ * contenendo i suoi dati personali e di accesso. Implementa {@link Externalizable}
+ * con una codifica compatta che evita descrittori e nomi dei campi.
  *
  * @author Fusè Lorenzo 753168
  * @author Ciminella Alessandro 753369
  * @author Dragan Cosmin 754427
  */
-public class OperatoriRegistrati implements Serializable {
+public class OperatoriRegistrati implements Externalizable {
 
     /**
      * Identificatore di versione per la serializzazione.
      * Garantisce la compatibilità durante la deserializzazione degli oggetti.
      */
-    private static final long serialVersionUID=1l;
+    private static final long serialVersionUID=2l;
 
     /**
      * Identificatore univoco dell'operatore registrato.
@@ -58,6 +61,12 @@ public class OperatoriRegistrati implements Serializable {
      */
     private String password;
 
+    /**
+     * Costruttore senza parametri, richiesto dalla deserializzazione.
+     */
+    public OperatoriRegistrati() {
+    }
+
     /**
      * Costruttore completo per creare un'istanza di OperatoriRegistrati.
      *
@@ -136,5 +145,26 @@ public class OperatoriRegistrati implements Serializable {
     public void setPassword(String password) {
         this.password = password;
     }
-}
 
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        CodificaCompatta.scriviIntero(out, id);
+        CodificaCompatta.scriviTesto(out, nome);
+        CodificaCompatta.scriviTesto(out, cognome);
+        CodificaCompatta.scriviTesto(out, codice_fiscale);
+        CodificaCompatta.scriviTesto(out, email);
+        CodificaCompatta.scriviTesto(out, userid);
+        CodificaCompatta.scriviTesto(out, password);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        id = CodificaCompatta.leggiIntero(in);
+        nome = CodificaCompatta.leggiTesto(in);
+        cognome = CodificaCompatta.leggiTesto(in);
+        codice_fiscale = CodificaCompatta.leggiTesto(in);
+        email = CodificaCompatta.leggiTesto(in);
+        userid = CodificaCompatta.leggiTesto(in);
+        password = CodificaCompatta.leggiTesto(in);
+    }
+}
@@ -0,0 +1,53 @@
+package com.climatemonitoring.common.model;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Pagina dei risultati di una ricerca di aree geografiche.
+ *
+ * Le aree sono ordinate per identificatore; la pagina successiva si ottiene
+ * ripetendo la ricerca con {@link #getSuccessiva()} come identificatore di
+ * partenza, quindi le pagine restano coerenti anche se nel frattempo vengono
+ * aggiunte nuove aree.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class PaginaAree implements Serializable {
+    /** Identificatore univoco per la serializzazione delle istanze di questa classe. */
+    private static final long serialVersionUID = 1L;
+
+    /** Aree della pagina, in ordine di identificatore. */
+    private final List<CoordinateMonitoraggio> aree;
+
+    /** Identificatore da cui riprendere la ricerca, nullo se questa è l'ultima pagina. */
+    private final Integer successiva;
+
+    /**
+     * Costruisce una pagina.
+     *
+     * @param aree Aree della pagina, in ordine di identificatore
+     * @param successiva Identificatore da cui riprendere la ricerca, o null
+     */
+    public PaginaAree(List<CoordinateMonitoraggio> aree, Integer successiva) {
+        this.aree = aree;
+        this.successiva = successiva;
+    }
+
+    /**
+     * @return Aree della pagina, non modificabili
+     */
+    public List<CoordinateMonitoraggio> getAree() {
+        return Collections.unmodifiableList(aree);
+    }
+
+    /**
+     * @return Identificatore da passare alla ricerca per la pagina successiva, o null se non ci sono altre aree
+     */
+    public Integer getSuccessiva() {
+        return successiva;
+    }
+}
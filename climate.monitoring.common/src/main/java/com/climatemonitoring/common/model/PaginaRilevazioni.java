@@ -0,0 +1,90 @@
+package com.climatemonitoring.common.model;
+
+import java.io.Serializable;
+
+/**
+ * Pagina della serie storica delle rilevazioni di un'area.
+ *
+ * Le righe sono memorizzate in array primitivi paralleli, dalla più recente:
+ * la riga {@code i} ha identificatore {@code ids[i]}, data {@code giorni[i]}
+ * (in giorni dall'epoca), nota {@code note[i]} e valore del parametro
+ * {@code p} in {@code valori[p.ordinal()][i]}.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class PaginaRilevazioni implements Serializable {
+    /** Identificatore univoco per la serializzazione delle istanze di questa classe. */
+    private static final long serialVersionUID = 1L;
+
+    /** Identificatori delle rilevazioni. */
+    private final int[] ids;
+
+    /** Date delle rilevazioni in giorni dall'epoca. */
+    private final int[] giorni;
+
+    /** Valori per parametro: {@code valori[parametro][riga]}. */
+    private final int[][] valori;
+
+    /** Note delle rilevazioni, nulle se assenti. */
+    private final String[] note;
+
+    /** Cursore per la pagina successiva, nullo se questa è l'ultima. */
+    private final CursoreRilevazioni successiva;
+
+    /**
+     * Costruisce una pagina.
+     *
+     * @param ids Identificatori delle rilevazioni
+     * @param giorni Date delle rilevazioni, lungo quanto {@code ids}
+     * @param valori Valori per parametro, ciascuno lungo quanto {@code ids}
+     * @param note Note delle rilevazioni, lungo quanto {@code ids}
+     * @param successiva Cursore per la pagina successiva, o null
+     */
+    public PaginaRilevazioni(int[] ids, int[] giorni, int[][] valori, String[] note, CursoreRilevazioni successiva) {
+        this.ids = ids;
+        this.giorni = giorni;
+        this.valori = valori;
+        this.note = note;
+        this.successiva = successiva;
+    }
+
+    /**
+     * @return Una pagina senza righe e senza seguito
+     */
+    public static PaginaRilevazioni vuota() {
+        return new PaginaRilevazioni(new int[0], new int[0],
+                new int[ParametroClimatico.values().length][0], new String[0], null);
+    }
+
+    /**
+     * @return Numero di righe della pagina
+     */
+    public int dimensione() {
+        return ids.length;
+    }
+
+    public int[] getIds() {
+        return ids;
+    }
+
+    public int[] getGiorni() {
+        return giorni;
+    }
+
+    public int[][] getValori() {
+        return valori;
+    }
+
+    public String[] getNote() {
+        return note;
+    }
+
+    /**
+     * @return Cursore per richiedere la pagina successiva, o null se non ci sono altre righe
+     */
+    public CursoreRilevazioni getSuccessiva() {
+        return successiva;
+    }
+}
@@ -1,14 +1,18 @@
 package com.climatemonitoring.common.model;
 
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.Date;
+import java.util.UUID;
 
 /**
  * Rappresenta un insieme di parametri climatici rilevati in un determinato momento e luogo.
  *
  * Questa classe modella le misurazioni ambientali e climatiche raccolte durante un'attività
- * di monitoraggio. Implementa l'interfaccia Serializable per consentire la serializzazione
- * e deserializzazione degli oggetti, facilitando la memorizzazione e il trasferimento dei dati.
+ * di monitoraggio. Implementa {@link Externalizable} con una codifica compatta, in cui
+ * i punteggi occupano un byte ciascuno, per ridurre il traffico degli inserimenti a lotti.
  *
  * I parametri includono diverse metriche fondamentali per comprendere le condizioni
  * climatiche e ambientali di un determinato sito di rilevazione.
@@ -17,12 +21,23 @@ import java.util.Date;
  * @author Ciminella Alessandro 753369
  * @author Dragan Cosmin 754427
  */
-public class ParametriClimatici implements Serializable {
+public class ParametriClimatici implements Externalizable {
     /**
      * Identificatore di versione per la serializzazione.
      * Garantisce la compatibilità durante la deserializzazione degli oggetti.
      */
-    private static final long serialVersionUID=1l;
+    private static final long serialVersionUID=2l;
+
+    /** Bit dei flag della codifica compatta. */
+    private static final int CON_AREA = 1;
+    private static final int CON_COORDINATE = 2;
+    private static final int CON_CHIAVE = 4;
+
+    /** Tipo della data nella codifica compatta. */
+    private static final int DATA_NULLA = 0;
+    private static final int DATA_UTIL = 1;
+    private static final int DATA_SQL = 2;
+
     /**
      * Identificatore univoco della rilevazione dei parametri climatici.
      */
@@ -66,6 +81,28 @@ public class ParametriClimatici implements Serializable {
      * Può contenere informazioni contestuali o osservazioni specifiche.
      */
     private String note;
+    /**
+     * Identificatore del centro di monitoraggio che ha effettuato la rilevazione.
+     */
+    private int centroMonitoraggioId;
+    /**
+     * Identificatore dell'area di interesse della rilevazione, nullo se assente.
+     */
+    private Integer areaInteresseId;
+    /**
+     * Identificatore delle coordinate di monitoraggio della rilevazione, nullo se assente.
+     */
+    private Integer coordinateMonitoraggioId;
+    /**
+     * Chiave generata dal client per rendere sicura la ripetizione dell'inserimento, nulla se assente.
+     */
+    private UUID chiaveIdempotenza;
+
+    /**
+     * Costruttore senza parametri, richiesto dalla deserializzazione.
+     */
+    public ParametriClimatici() {
+    }
 
     /**
      * Costruttore completo per creare un'istanza di ParametriClimatici.
@@ -173,4 +210,133 @@ public class ParametriClimatici implements Serializable {
     public void setNote(String note) {
         this.note = note;
     }
+
+    public int getCentroMonitoraggioId() {
+        return centroMonitoraggioId;
+    }
+
+    public void setCentroMonitoraggioId(int centroMonitoraggioId) {
+        this.centroMonitoraggioId = centroMonitoraggioId;
+    }
+
+    public Integer getAreaInteresseId() {
+        return areaInteresseId;
+    }
+
+    public void setAreaInteresseId(Integer areaInteresseId) {
+        this.areaInteresseId = areaInteresseId;
+    }
+
+    public Integer getCoordinateMonitoraggioId() {
+        return coordinateMonitoraggioId;
+    }
+
+    public void setCoordinateMonitoraggioId(Integer coordinateMonitoraggioId) {
+        this.coordinateMonitoraggioId = coordinateMonitoraggioId;
+    }
+
+    public UUID getChiaveIdempotenza() {
+        return chiaveIdempotenza;
+    }
+
+    public void setChiaveIdempotenza(UUID chiaveIdempotenza) {
+        this.chiaveIdempotenza = chiaveIdempotenza;
+    }
+
+    /**
+     * Assegna alla rilevazione una nuova chiave di idempotenza casuale: un
+     * inserimento ripetuto con la stessa chiave, ad esempio dopo un timeout,
+     * non crea una seconda riga.
+     *
+     * @return Questa istanza, per concatenare le chiamate
+     */
+    public ParametriClimatici conNuovaChiave() {
+        this.chiaveIdempotenza = UUID.randomUUID();
+        return this;
+    }
+
+    /**
+     * Imposta il luogo della rilevazione.
+     *
+     * @param centroMonitoraggioId Centro di monitoraggio
+     * @param areaInteresseId Area di interesse, o null
+     * @param coordinateMonitoraggioId Coordinate di monitoraggio, o null
+     * @return Questa istanza, per concatenare le chiamate
+     */
+    public ParametriClimatici riferitaA(int centroMonitoraggioId, Integer areaInteresseId, Integer coordinateMonitoraggioId) {
+        this.centroMonitoraggioId = centroMonitoraggioId;
+        this.areaInteresseId = areaInteresseId;
+        this.coordinateMonitoraggioId = coordinateMonitoraggioId;
+        return this;
+    }
+
+    /**
+     * @return Valori dei parametri nell'ordine di {@link ParametroClimatico}
+     */
+    public int[] valori() {
+        return new int[]{vento, umidita, pressione, temperatura, precipitazioni, altitudine, massa_ghiacciai};
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        int flag = (areaInteresseId != null ? CON_AREA : 0)
+                | (coordinateMonitoraggioId != null ? CON_COORDINATE : 0)
+                | (chiaveIdempotenza != null ? CON_CHIAVE : 0);
+        out.writeByte(flag);
+        CodificaCompatta.scriviIntero(out, id);
+        if (data_rilevazione == null) {
+            out.writeByte(DATA_NULLA);
+        } else {
+            // il client invia java.sql.Date: il tipo viene conservato
+            out.writeByte(data_rilevazione instanceof java.sql.Date ? DATA_SQL : DATA_UTIL);
+            out.writeLong(data_rilevazione.getTime());
+        }
+        for (int valore : valori()) {
+            CodificaCompatta.scriviIntero(out, valore);
+        }
+        CodificaCompatta.scriviTesto(out, note);
+        CodificaCompatta.scriviIntero(out, centroMonitoraggioId);
+        if (areaInteresseId != null) {
+            CodificaCompatta.scriviIntero(out, areaInteresseId);
+        }
+        if (coordinateMonitoraggioId != null) {
+            CodificaCompatta.scriviIntero(out, coordinateMonitoraggioId);
+        }
+        if (chiaveIdempotenza != null) {
+            out.writeLong(chiaveIdempotenza.getMostSignificantBits());
+            out.writeLong(chiaveIdempotenza.getLeastSignificantBits());
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        int flag = in.readUnsignedByte();
+        id = CodificaCompatta.leggiIntero(in);
+        int tipoData = in.readUnsignedByte();
+        switch (tipoData) {
+            case DATA_NULLA:
+                data_rilevazione = null;
+                break;
+            case DATA_UTIL:
+                data_rilevazione = new Date(in.readLong());
+                break;
+            case DATA_SQL:
+                data_rilevazione = new java.sql.Date(in.readLong());
+                break;
+            default:
+                throw new IOException("Tipo di data non valido: " + tipoData);
+        }
+        vento = CodificaCompatta.leggiIntero(in);
+        umidita = CodificaCompatta.leggiIntero(in);
+        pressione = CodificaCompatta.leggiIntero(in);
+        temperatura = CodificaCompatta.leggiIntero(in);
+        precipitazioni = CodificaCompatta.leggiIntero(in);
+        altitudine = CodificaCompatta.leggiIntero(in);
+        massa_ghiacciai = CodificaCompatta.leggiIntero(in);
+        note = CodificaCompatta.leggiTesto(in);
+        centroMonitoraggioId = CodificaCompatta.leggiIntero(in);
+        areaInteresseId = (flag & CON_AREA) != 0 ? CodificaCompatta.leggiIntero(in) : null;
+        coordinateMonitoraggioId = (flag & CON_COORDINATE) != 0 ? CodificaCompatta.leggiIntero(in) : null;
+        chiaveIdempotenza = (flag & CON_CHIAVE) != 0 ? new UUID(in.readLong(), in.readLong()) : null;
+    }
 }
@@ -0,0 +1,58 @@
+package com.climatemonitoring.common.model;
+
+/**
+ * Elenco dei parametri climatici rilevati dai centri di monitoraggio.
+ *
+ * L'ordine delle costanti è quello usato negli array dei report
+ * ({@link ReportArea#getMedie()}, {@link PaginaRilevazioni#getValori()}):
+ * l'indice di un parametro è il suo {@link #ordinal()}.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public enum ParametroClimatico {
+    VENTO("vento", "Vento", " m/s"),
+    UMIDITA("umidita", "Umidità", "%"),
+    PRESSIONE("pressione", "Pressione", " hPa"),
+    TEMPERATURA("temperatura", "Temperatura", " °C"),
+    PRECIPITAZIONI("precipitazioni", "Precipitazioni", " mm"),
+    ALTITUDINE("altitudine", "Altitudine", " m"),
+    MASSA_GHIACCIAI("massa_ghiacciai", "Massa ghiacciai", " kg/m³");
+
+    /** Nome della colonna nella tabella parametriclimatici. */
+    private final String colonna;
+
+    /** Etichetta mostrata all'utente. */
+    private final String etichetta;
+
+    /** Unità di misura, già preceduta dall'eventuale spazio. */
+    private final String unita;
+
+    ParametroClimatico(String colonna, String etichetta, String unita) {
+        this.colonna = colonna;
+        this.etichetta = etichetta;
+        this.unita = unita;
+    }
+
+    /**
+     * @return Nome della colonna nel database
+     */
+    public String getColonna() {
+        return colonna;
+    }
+
+    /**
+     * @return Etichetta leggibile del parametro
+     */
+    public String getEtichetta() {
+        return etichetta;
+    }
+
+    /**
+     * @return Unità di misura da accodare al valore
+     */
+    public String getUnita() {
+        return unita;
+    }
+}
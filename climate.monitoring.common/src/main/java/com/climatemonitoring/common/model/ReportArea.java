@@ -0,0 +1,200 @@
+package com.climatemonitoring.common.model;
+
+import java.io.Serializable;
+
+/**
+ * Report strutturato di un'area geografica o di un'area di interesse.
+ *
+ * Sostituisce il testo già formattato restituito dai metodi di visualizzazione:
+ * il server trasmette solo i dati e la formattazione avviene sul client.
+ *
+ * Il report contiene solo la prima pagina della serie storica, cioè le
+ * rilevazioni più recenti; le successive si richiedono con il cursore
+ * della pagina tramite
+ * {@link com.climatemonitoring.common.service.ClimateMonitoringService#rilevazioniArea}.
+ *
+ * Le date sono espresse in giorni dall'epoca (vedi {@link java.time.LocalDate#toEpochDay()}).
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class ReportArea implements Serializable {
+    /** Identificatore univoco per la serializzazione delle istanze di questa classe. */
+    private static final long serialVersionUID = 1L;
+
+    private static final int[] VUOTO = new int[0];
+
+    /** Indica se l'area richiesta esiste. */
+    private boolean trovata;
+
+    /** Indica se il report riguarda un'area di interesse anziché una coordinata. */
+    private boolean areaInteresse;
+
+    /** Identificatore dell'area. */
+    private int id;
+
+    /** Nome della città o dell'area di interesse (quello richiesto se l'area non esiste). */
+    private String nome;
+
+    /** Stato dell'area (quello richiesto se l'area non esiste). */
+    private String stato;
+
+    /** Paese dell'area, presente solo per le coordinate di monitoraggio. */
+    private String paese;
+
+    /** Nome del centro di monitoraggio, presente solo per le aree di interesse. */
+    private String centroMonitoraggio;
+
+    /** Identificatore del centro di monitoraggio, presente solo per le aree di interesse. */
+    private Integer centroMonitoraggioId;
+
+    /** Latitudine dell'area. */
+    private double latitudine;
+
+    /** Longitudine dell'area. */
+    private double longitudine;
+
+    /** Numero totale di rilevazioni dell'area. */
+    private int numeroRilevazioni;
+
+    /** Media di ogni parametro, indicizzata per {@link ParametroClimatico#ordinal()}. */
+    private double[] medie = new double[0];
+
+    /** Prima pagina della serie storica, dalla rilevazione più recente. */
+    private PaginaRilevazioni serie = PaginaRilevazioni.vuota();
+
+    /** Date dei commenti recenti degli operatori. */
+    private int[] giorniCommenti = VUOTO;
+
+    /** Testi dei commenti recenti degli operatori. */
+    private String[] commenti = new String[0];
+
+    /**
+     * Costruttore predefinito senza parametri.
+     */
+    public ReportArea() {}
+
+    public boolean isTrovata() {
+        return trovata;
+    }
+
+    public void setTrovata(boolean trovata) {
+        this.trovata = trovata;
+    }
+
+    public boolean isAreaInteresse() {
+        return areaInteresse;
+    }
+
+    public void setAreaInteresse(boolean areaInteresse) {
+        this.areaInteresse = areaInteresse;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    public void setNome(String nome) {
+        this.nome = nome;
+    }
+
+    public String getStato() {
+        return stato;
+    }
+
+    public void setStato(String stato) {
+        this.stato = stato;
+    }
+
+    public String getPaese() {
+        return paese;
+    }
+
+    public void setPaese(String paese) {
+        this.paese = paese;
+    }
+
+    public String getCentroMonitoraggio() {
+        return centroMonitoraggio;
+    }
+
+    public void setCentroMonitoraggio(String centroMonitoraggio) {
+        this.centroMonitoraggio = centroMonitoraggio;
+    }
+
+    public Integer getCentroMonitoraggioId() {
+        return centroMonitoraggioId;
+    }
+
+    public void setCentroMonitoraggioId(Integer centroMonitoraggioId) {
+        this.centroMonitoraggioId = centroMonitoraggioId;
+    }
+
+    public double getLatitudine() {
+        return latitudine;
+    }
+
+    public void setLatitudine(double latitudine) {
+        this.latitudine = latitudine;
+    }
+
+    public double getLongitudine() {
+        return longitudine;
+    }
+
+    public void setLongitudine(double longitudine) {
+        this.longitudine = longitudine;
+    }
+
+    public int getNumeroRilevazioni() {
+        return numeroRilevazioni;
+    }
+
+    public void setNumeroRilevazioni(int numeroRilevazioni) {
+        this.numeroRilevazioni = numeroRilevazioni;
+    }
+
+    public double[] getMedie() {
+        return medie;
+    }
+
+    public void setMedie(double[] medie) {
+        this.medie = medie;
+    }
+
+    public PaginaRilevazioni getSerie() {
+        return serie;
+    }
+
+    public void setSerie(PaginaRilevazioni serie) {
+        this.serie = serie;
+    }
+
+    public int[] getGiorniCommenti() {
+        return giorniCommenti;
+    }
+
+    public String[] getCommenti() {
+        return commenti;
+    }
+
+    /**
+     * Imposta i commenti recenti degli operatori.
+     *
+     * @param giorni Date dei commenti in giorni dall'epoca
+     * @param commenti Testi dei commenti, lungo quanto {@code giorni}
+     */
+    public void setCommenti(int[] giorni, String[] commenti) {
+        this.giorniCommenti = giorni;
+        this.commenti = commenti;
+    }
+}
@@ -0,0 +1,61 @@
+package com.climatemonitoring.common.rmi;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.rmi.server.RMIClientSocketFactory;
+
+/**
+ * Fabbrica di socket RMI lato client con attesa limitata di connessione e risposta.
+ *
+ * Serve agli oggetti che il client esporta per ricevere chiamate dal
+ * server, come l'ascoltatore delle modifiche: la fabbrica viaggia nello
+ * stub e il server la usa per collegarsi al client. Ogni socket ha un
+ * timeout di connessione e un {@code SO_TIMEOUT}, quindi una chiamata verso
+ * un client bloccato o irraggiungibile fallisce con un'eccezione invece di
+ * occupare per sempre il thread che la esegue.
+ *
+ * L'attesa è letta nella JVM che apre la connessione, cioè sul server, dalla
+ * proprietà di sistema {@code climatemonitoring.notifiche.timeoutMs}
+ * (predefinito {@value #ATTESA_PREDEFINITA_MS} ms): decide il server, non il client.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class AttesaLimitataSocketFactory implements RMIClientSocketFactory, Serializable {
+    /** Identificatore univoco per la serializzazione delle istanze di questa classe. */
+    private static final long serialVersionUID = 1L;
+
+    /** Attesa predefinita (ms) di connessione e di risposta. */
+    public static final int ATTESA_PREDEFINITA_MS = 10_000;
+
+    @Override
+    public Socket createSocket(String host, int porta) throws IOException {
+        int attesaMs = Math.max(1, Integer.getInteger("climatemonitoring.notifiche.timeoutMs", ATTESA_PREDEFINITA_MS));
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, porta), attesaMs);
+            socket.setSoTimeout(attesaMs);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        return socket;
+    }
+
+    /**
+     * Le istanze non hanno stato: RMI può riusare le connessioni tra tutti
+     * gli oggetti esportati con questa fabbrica.
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o != null && o.getClass() == getClass();
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+}
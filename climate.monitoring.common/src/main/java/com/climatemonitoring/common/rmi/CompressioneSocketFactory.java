@@ -0,0 +1,89 @@
+package com.climatemonitoring.common.rmi;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.rmi.server.RMIClientSocketFactory;
+import java.rmi.server.RMIServerSocketFactory;
+import java.util.zip.Deflater;
+
+/**
+ * Fabbrica di socket RMI con compressione deflate dei dati trasmessi.
+ *
+ * Il server esporta il servizio con questa fabbrica sia come fabbrica
+ * lato server sia come fabbrica lato client: essendo serializzabile,
+ * quest'ultima viaggia nello stub ottenuto dal registry, quindi il client
+ * usa la compressione senza alcuna configurazione propria. Il registry
+ * continua a usare socket normali.
+ *
+ * I report testuali e le liste di coordinate si riducono di diverse volte;
+ * la compressione conviene sui collegamenti lenti e costa un po' di CPU su
+ * entrambi i lati, per questo il livello predefinito è {@link Deflater#BEST_SPEED}.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class CompressioneSocketFactory implements RMIClientSocketFactory, RMIServerSocketFactory, Serializable {
+    /** Identificatore univoco per la serializzazione delle istanze di questa classe. */
+    private static final long serialVersionUID = 1L;
+
+    private final int livello;
+
+    /**
+     * Fabbrica con il livello di compressione più veloce.
+     */
+    public CompressioneSocketFactory() {
+        this(Deflater.BEST_SPEED);
+    }
+
+    /**
+     * @param livello Livello di compressione, da {@link Deflater#BEST_SPEED} a {@link Deflater#BEST_COMPRESSION}
+     * @throws IllegalArgumentException Se il livello non è valido
+     */
+    public CompressioneSocketFactory(int livello) {
+        if (livello < Deflater.BEST_SPEED || livello > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Livello di compressione non valido: " + livello);
+        }
+        this.livello = livello;
+    }
+
+    /**
+     * @return Livello di compressione
+     */
+    public int getLivello() {
+        return livello;
+    }
+
+    @Override
+    public Socket createSocket(String host, int porta) throws IOException {
+        return new SocketCompresso(host, porta, livello);
+    }
+
+    @Override
+    public ServerSocket createServerSocket(int porta) throws IOException {
+        return new ServerSocket(porta) {
+            @Override
+            public Socket accept() throws IOException {
+                Socket s = new SocketCompresso(livello);
+                implAccept(s);
+                return s;
+            }
+        };
+    }
+
+    /**
+     * RMI riusa endpoint e connessioni tra oggetti esportati con fabbriche
+     * uguali, quindi l'uguaglianza dipende dal solo livello.
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o != null && o.getClass() == getClass() && ((CompressioneSocketFactory) o).livello == livello;
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode() * 31 + livello;
+    }
+}
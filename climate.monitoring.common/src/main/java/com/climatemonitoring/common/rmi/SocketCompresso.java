@@ -0,0 +1,159 @@
+package com.climatemonitoring.common.rmi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Socket TCP i cui flussi sono compressi con deflate.
+ *
+ * Il flusso in uscita usa il flush sincrono: ogni {@code flush()} di RMI,
+ * che chiude una chiamata o una risposta, invia subito tutti i dati
+ * compressi fino a quel punto, così l'altro capo può decomprimerli senza
+ * attendere la chiusura della connessione.
+ *
+ * {@link Deflater} e {@link Inflater} sono creati qui, quindi i flussi non li
+ * chiudono; RMI inoltre chiude il socket e non i flussi. Per questo
+ * {@link #close()} libera subito la memoria nativa di zlib di entrambi,
+ * invece di lasciarla al Cleaner.
+ *
+ * La chiusura non attende le letture e scritture in corso, che possono
+ * restare bloccate sul socket: se {@code end()} arriva durante una di esse,
+ * il compressore lancia {@link NullPointerException}, che i flussi
+ * trasformano in {@link SocketException} come per un socket chiuso.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+class SocketCompresso extends Socket {
+
+    private static final int DIMENSIONE_BUFFER = 8192;
+
+    private final int livello;
+    private Inflater inflater;
+    private Deflater deflater;
+    private InputStream in;
+    private OutputStream out;
+
+    /**
+     * Socket non connesso, per {@link java.net.ServerSocket#implAccept(Socket)}.
+     *
+     * @param livello Livello di compressione di {@link Deflater}
+     */
+    SocketCompresso(int livello) {
+        this.livello = livello;
+    }
+
+    /**
+     * Socket connesso all'indirizzo indicato.
+     *
+     * @param host Host remoto
+     * @param porta Porta remota
+     * @param livello Livello di compressione di {@link Deflater}
+     * @throws IOException Se la connessione non riesce
+     */
+    SocketCompresso(String host, int porta, int livello) throws IOException {
+        super(host, porta);
+        this.livello = livello;
+    }
+
+    @Override
+    public synchronized InputStream getInputStream() throws IOException {
+        if (in == null) {
+            InputStream grezzo = super.getInputStream();
+            inflater = new Inflater(true);
+            in = new InflaterInputStream(grezzo, inflater, DIMENSIONE_BUFFER) {
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    verificaAperto();
+                    try {
+                        return super.read(b, off, len);
+                    } catch (NullPointerException e) {
+                        throw chiusoDurante(e);
+                    }
+                }
+            };
+        }
+        return in;
+    }
+
+    @Override
+    public synchronized OutputStream getOutputStream() throws IOException {
+        if (out == null) {
+            OutputStream grezzo = super.getOutputStream();
+            deflater = new Deflater(livello, true);
+            out = new DeflaterOutputStream(grezzo, deflater, DIMENSIONE_BUFFER, true) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    verificaAperto();
+                    try {
+                        super.write(b, off, len);
+                    } catch (NullPointerException e) {
+                        throw chiusoDurante(e);
+                    }
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    verificaAperto();
+                    try {
+                        super.flush();
+                    } catch (NullPointerException e) {
+                        throw chiusoDurante(e);
+                    }
+                }
+            };
+        }
+        return out;
+    }
+
+    /**
+     * Chiude il socket e libera la memoria nativa del compressore e del decompressore.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            if (inflater != null) {
+                inflater.end();
+            }
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Dopo la chiusura i flussi segnalano un errore di I/O, come quelli di un
+     * socket normale, invece di usare un compressore già liberato.
+     */
+    private void verificaAperto() throws SocketException {
+        if (isClosed()) {
+            throw new SocketException("Socket closed");
+        }
+    }
+
+    /**
+     * Errore da lanciare quando il compressore di un flusso è stato liberato
+     * da {@link #close()} mentre l'operazione era in corso.
+     *
+     * @param e Eccezione lanciata da {@link Inflater} o {@link Deflater}
+     * @return {@link SocketException} se il socket è chiuso
+     */
+    private SocketException chiusoDurante(NullPointerException e) {
+        if (!isClosed()) {
+            throw e;
+        }
+        SocketException chiuso = new SocketException("Socket closed");
+        chiuso.initCause(e);
+        return chiuso;
+    }
+}
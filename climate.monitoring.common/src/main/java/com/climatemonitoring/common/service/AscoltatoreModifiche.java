@@ -0,0 +1,29 @@
+package com.climatemonitoring.common.service;
+
+import com.climatemonitoring.common.model.EventoModifica;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.List;
+
+/**
+ * Oggetto remoto esportato dal client per ricevere le notifiche delle modifiche.
+ *
+ * Viene registrato con {@link ClimateMonitoringService#sottoscriviModifiche};
+ * il server lo chiama da un proprio thread, mai durante una richiesta del client,
+ * e non invia una nuova notifica allo stesso ascoltatore finché la precedente
+ * non è terminata.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public interface AscoltatoreModifiche extends Remote {
+    /**
+     * Riceve le modifiche avvenute dall'ultima notifica.
+     *
+     * @param eventi Modifiche, ciascuna già unita alle altre uguali
+     * @throws RemoteException In caso di errori durante la comunicazione remota
+     */
+    void modificheAvvenute(List<EventoModifica> eventi) throws RemoteException;
+}
@@ -1,13 +1,21 @@
 package com.climatemonitoring.common.service;
 
+import com.climatemonitoring.common.model.AggiornamentoAree;
 import com.climatemonitoring.common.model.CoordinateMonitoraggio;
+import com.climatemonitoring.common.model.CursoreRilevazioni;
 import com.climatemonitoring.common.model.OperatoriRegistrati;
+import com.climatemonitoring.common.model.PaginaAree;
+import com.climatemonitoring.common.model.PaginaRilevazioni;
+import com.climatemonitoring.common.model.ParametriClimatici;
+import com.climatemonitoring.common.model.ReportArea;
 
 import java.rmi.Remote;
 import java.rmi.RemoteException;
 import java.sql.SQLException;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 /**
  * Interfaccia del servizio per il monitoraggio climatico.
@@ -37,6 +45,21 @@ public interface ClimateMonitoringService extends Remote {
      */
     List<CoordinateMonitoraggio> cercaAreaGeograficaNome(String nome, String stato) throws RemoteException;
 
+    /**
+     * Restituisce una pagina dei risultati della ricerca per nome e stato.
+     *
+     * Le aree sono ordinate per identificatore e la pagina contiene solo
+     * quelle con identificatore maggiore di {@code dopoId}.
+     *
+     * @param nome Nome dell'area geografica
+     * @param stato Stato in cui si trova l'area
+     * @param dopoId Valore di {@link PaginaAree#getSuccessiva()} della pagina precedente, o 0 per la prima pagina
+     * @param dimensionePagina Numero massimo di aree della pagina
+     * @return Pagina di aree con l'identificatore da cui riprendere
+     * @throws RemoteException In caso di errori durante la comunicazione remota
+     */
+    PaginaAree cercaAreaGeograficaNome(String nome, String stato, int dopoId, int dimensionePagina) throws RemoteException;
+
     /**
      * Cerca aree geografiche all'interno di un determinato paese.
      *
@@ -49,6 +72,18 @@ public interface ClimateMonitoringService extends Remote {
      */
     List<CoordinateMonitoraggio> cercaAreaGeograficaPerPaese(String paese) throws RemoteException;
 
+    /**
+     * Restituisce una pagina dei risultati della ricerca per paese.
+     *
+     * @param paese Nome del paese da esplorare
+     * @param dopoId Valore di {@link PaginaAree#getSuccessiva()} della pagina precedente, o 0 per la prima pagina
+     * @param dimensionePagina Numero massimo di aree della pagina
+     * @return Pagina di aree con l'identificatore da cui riprendere
+     * @throws RemoteException In caso di errori durante la comunicazione remota
+     * @see #cercaAreaGeograficaNome(String, String, int, int)
+     */
+    PaginaAree cercaAreaGeograficaPerPaese(String paese, int dopoId, int dimensionePagina) throws RemoteException;
+
     /**
      * Cerca un'area geografica tramite coordinate geografiche.
      *
@@ -62,6 +97,47 @@ public interface ClimateMonitoringService extends Remote {
      */
     List<CoordinateMonitoraggio> cercaAreaGeograficaCoordinate(Double latitudine, Double longitudine) throws RemoteException;
 
+    /**
+     * Cerca le aree geografiche entro un raggio dal punto indicato.
+     *
+     * La distanza è quella ortodromica esatta, quindi la ricerca funziona
+     * anche vicino ai poli e all'antimeridiano. I risultati sono ordinati
+     * dal più vicino e ognuno riporta la propria distanza.
+     *
+     * @param latitudine Latitudine del punto di ricerca
+     * @param longitudine Longitudine del punto di ricerca
+     * @param raggioKm Raggio di ricerca in chilometri
+     * @param limite Numero massimo di risultati restituiti
+     * @return Lista delle aree entro il raggio, ordinate per distanza
+     * @throws RemoteException In caso di errori durante la comunicazione remota
+     */
+    List<CoordinateMonitoraggio> cercaAreeEntroRaggio(double latitudine, double longitudine, double raggioKm, int limite) throws RemoteException;
+
+    /**
+     * Cerca le k aree geografiche più vicine al punto indicato.
+     *
+     * @param latitudine Latitudine del punto di ricerca
+     * @param longitudine Longitudine del punto di ricerca
+     * @param k Numero di aree richieste
+     * @return Lista delle k aree più vicine, ordinate per distanza
+     * @throws RemoteException In caso di errori durante la comunicazione remota
+     */
+    List<CoordinateMonitoraggio> cercaAreePiuVicine(double latitudine, double longitudine, int k) throws RemoteException;
+
+    /**
+     * Suggerisce le aree geografiche per il completamento automatico.
+     *
+     * Restituisce le aree la cui città, stato o paese inizia con il prefisso
+     * indicato, senza distinzione di maiuscole e accenti, ordinate dalle più
+     * consultate.
+     *
+     * @param prefisso Testo digitato dall'utente
+     * @param limite Numero massimo di suggerimenti
+     * @return Lista delle aree suggerite
+     * @throws RemoteException In caso di errori durante la comunicazione remota
+     */
+    List<CoordinateMonitoraggio> suggerisciAree(String prefisso, int limite) throws RemoteException;
+
     /**
      * Visualizza i dettagli di un'area geografica.
      *
@@ -75,6 +151,20 @@ public interface ClimateMonitoringService extends Remote {
      */
     String visualizzaAreaGeografica(String nome, String stato) throws RemoteException;
 
+    /**
+     * Restituisce il report strutturato di un'area geografica.
+     *
+     * Contiene gli stessi dati di {@link #visualizzaAreaGeografica} senza
+     * formattazione; il testo si ottiene sul client con
+     * {@link com.climatemonitoring.common.util.FormattatoreReport}.
+     *
+     * @param nome Nome dell'area geografica
+     * @param stato Stato in cui si trova l'area
+     * @return Report dell'area, con {@code trovata} falso se l'area non esiste
+     * @throws RemoteException In caso di errori durante la comunicazione remota
+     */
+    ReportArea reportAreaGeografica(String nome, String stato) throws RemoteException;
+
 
     /**
      * Visualizza i dettagli di un centro di monitoraggio.
@@ -89,6 +179,36 @@ public interface ClimateMonitoringService extends Remote {
      */
     String visualizzaAreaCentroMonitoraggio(String nome, String stato) throws RemoteException;
 
+    /**
+     * Restituisce il report strutturato di un'area di interesse.
+     *
+     * Contiene gli stessi dati di {@link #visualizzaAreaCentroMonitoraggio}
+     * senza formattazione.
+     *
+     * @param nome Nome dell'area di interesse
+     * @param stato Stato in cui si trova l'area
+     * @return Report dell'area, con {@code trovata} falso se l'area non esiste
+     * @throws RemoteException In caso di errori durante la comunicazione remota
+     */
+    ReportArea reportAreaCentroMonitoraggio(String nome, String stato) throws RemoteException;
+
+    /**
+     * Restituisce una pagina della serie storica delle rilevazioni di un'area.
+     *
+     * Le rilevazioni sono ordinate dalla più recente; la paginazione usa il
+     * cursore (data, id) dell'ultima riga letta, quindi le pagine restano
+     * coerenti anche se nel frattempo vengono inserite nuove rilevazioni.
+     *
+     * @param areaId Identificatore della coordinata o dell'area di interesse
+     * @param areaInteresse {@code true} se l'identificatore è di un'area di interesse
+     * @param dopo Cursore restituito dalla pagina precedente, o null per la prima pagina
+     * @param dimensionePagina Numero massimo di rilevazioni della pagina
+     * @return Pagina di rilevazioni con il cursore per la successiva
+     * @throws RemoteException In caso di errori durante la comunicazione remota
+     */
+    PaginaRilevazioni rilevazioniArea(int areaId, boolean areaInteresse, CursoreRilevazioni dopo,
+                                      int dimensionePagina) throws RemoteException;
+
 
     /**
      * Registra un nuovo operatore nel sistema.
@@ -178,6 +298,51 @@ public interface ClimateMonitoringService extends Remote {
                                         int vento, int umidita, int pressione, int temperatura,
                                         int precipitazioni, int altitudine, int massaGhiacciai, String note) throws RemoteException;
 
+    /**
+     * Inserisce un lotto di rilevazioni in un'unica chiamata.
+     *
+     * Pensato per stazioni automatiche e caricamenti massivi: i riferimenti a
+     * centri, aree e coordinate sono verificati tutti insieme e le rilevazioni
+     * sono scritte in un'unica transazione, quindi o vengono inserite tutte
+     * o nessuna.
+     *
+     * @param rilevazioni Rilevazioni da inserire, ciascuna con centro di monitoraggio e data
+     * @return Numero di rilevazioni inserite
+     * @throws RemoteException In caso di errori durante la comunicazione remota
+     * @throws IllegalArgumentException Se il lotto è vuoto, troppo grande o cita entità inesistenti
+     */
+    int inserisciParametriClimaticiLotto(List<ParametriClimatici> rilevazioni) throws RemoteException;
+
+    /**
+     * Inserisce un lotto di rilevazioni identificato da una chiave di idempotenza.
+     *
+     * Se un lotto con la stessa chiave è già stato inserito, ad esempio
+     * perché il client ripete la chiamata dopo un timeout, non viene scritto
+     * di nuovo e si restituisce il numero di rilevazioni di quell'inserimento.
+     *
+     * @param chiaveLotto Chiave generata dal client, o null per un lotto senza chiave
+     * @param rilevazioni Rilevazioni da inserire, ciascuna con centro di monitoraggio e data
+     * @return Numero di rilevazioni inserite
+     * @throws RemoteException In caso di errori durante la comunicazione remota
+     * @throws IllegalArgumentException Se il lotto è vuoto, troppo grande o cita entità inesistenti
+     */
+    int inserisciParametriClimaticiLotto(UUID chiaveLotto, List<ParametriClimatici> rilevazioni) throws RemoteException;
+
+    /**
+     * Inserisce una singola rilevazione, con i riferimenti a centro, area e
+     * coordinate e l'eventuale chiave di idempotenza contenuti nell'oggetto.
+     *
+     * Con una chiave ({@link ParametriClimatici#conNuovaChiave()}) la chiamata
+     * può essere ripetuta senza rischio di duplicati: se la rilevazione è già
+     * stata inserita si restituisce {@code true} senza scriverla di nuovo.
+     *
+     * @param rilevazione Rilevazione da inserire, con centro di monitoraggio e data
+     * @return true se la rilevazione è stata inserita (ora o in precedenza)
+     * @throws RemoteException In caso di errori durante la comunicazione remota
+     *         o di riferimenti inesistenti
+     */
+    boolean inserisciRilevazione(ParametriClimatici rilevazione) throws RemoteException;
+
     /**
      * Autentica un operatore nel sistema.
      *
@@ -200,6 +365,20 @@ public interface ClimateMonitoringService extends Remote {
      */
     List<CoordinateMonitoraggio> getAreePerCentroMonitoraggio(int centroMonitoraggioId) throws RemoteException;
 
+    /**
+     * Sincronizza la copia del client dell'elenco delle coordinate di monitoraggio.
+     *
+     * Il client invia la versione ricevuta dalla sincronizzazione precedente
+     * e riceve solo le coordinate inserite, modificate o eliminate da allora;
+     * se la versione è 0, non è più valida o il server non tiene traccia delle
+     * versioni, riceve l'intero elenco.
+     *
+     * @param versione Versione della copia del client, 0 se non ne ha una
+     * @return Modifiche dalla versione indicata, o l'intero elenco
+     * @throws RemoteException In caso di errori durante la comunicazione remota
+     */
+    AggiornamentoAree sincronizzaAree(long versione) throws RemoteException;
+
     /**
      * Recupera le aree di interesse create da un operatore.
      *
@@ -233,4 +412,29 @@ public interface ClimateMonitoringService extends Remote {
     boolean inserisciParametriClimaticiArea(int centroMonitoraggioId, Integer areaInteresseId, Date dataRilevazione,
                                             int vento, int umidita, int pressione, int temperatura,
                                             int precipitazioni, int altitudine, int massaGhiacciai, String note) throws RemoteException;
+
+    /**
+     * Sottoscrive un ascoltatore alle modifiche di centri e aree.
+     *
+     * L'ascoltatore riceve le nuove rilevazioni delle aree indicate e le
+     * nuove rilevazioni e aree di interesse dei centri indicati. Le modifiche
+     * vengono raccolte e unite per un breve intervallo prima di essere
+     * inviate; un ascoltatore già sottoscritto sostituisce i propri insiemi.
+     *
+     * @param ascoltatore Oggetto remoto esportato dal client
+     * @param centri Identificatori dei centri di monitoraggio osservati
+     * @param areeInteresse Identificatori delle aree di interesse osservate
+     * @param coordinate Identificatori delle coordinate di monitoraggio osservate
+     * @throws RemoteException In caso di errori durante la comunicazione remota
+     */
+    void sottoscriviModifiche(AscoltatoreModifiche ascoltatore, Set<Integer> centri, Set<Integer> areeInteresse,
+                              Set<Integer> coordinate) throws RemoteException;
+
+    /**
+     * Annulla la sottoscrizione di un ascoltatore. Non ha effetto se non è sottoscritto.
+     *
+     * @param ascoltatore Ascoltatore registrato con {@link #sottoscriviModifiche}
+     * @throws RemoteException In caso di errori durante la comunicazione remota
+     */
+    void annullaSottoscrizione(AscoltatoreModifiche ascoltatore) throws RemoteException;
 }
@@ -0,0 +1,53 @@
+package com.climatemonitoring.common.service;
+
+import java.rmi.RemoteException;
+
+/**
+ * Segnala che il server non ha eseguito la chiamata perché sovraccarico o
+ * in arresto: la richiesta non è stata elaborata e può essere ripetuta.
+ *
+ * Essendo sollevata da un metodo remoto, arriva al client come causa di una
+ * {@link java.rmi.ServerException}; {@link #causaDi(Throwable)} la estrae.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class ServizioOccupatoException extends RemoteException {
+    /** Identificatore univoco per la serializzazione delle istanze di questa classe. */
+    private static final long serialVersionUID = 1L;
+
+    /** Attesa suggerita al client prima di ripetere la chiamata, in millisecondi. */
+    private final long ritentaTraMs;
+
+    /**
+     * @param messaggio Descrizione del motivo del rifiuto
+     * @param ritentaTraMs Attesa suggerita prima di ripetere la chiamata, in millisecondi
+     */
+    public ServizioOccupatoException(String messaggio, long ritentaTraMs) {
+        super(messaggio);
+        this.ritentaTraMs = ritentaTraMs;
+    }
+
+    /**
+     * @return Attesa suggerita prima di ripetere la chiamata, in millisecondi
+     */
+    public long getRitentaTraMs() {
+        return ritentaTraMs;
+    }
+
+    /**
+     * Cerca un rifiuto per sovraccarico tra le cause di un'eccezione remota.
+     *
+     * @param e Eccezione ricevuta dal client
+     * @return Il rifiuto, o null se l'errore ha un'altra origine
+     */
+    public static ServizioOccupatoException causaDi(Throwable e) {
+        for (Throwable c = e; c != null; c = c.getCause()) {
+            if (c instanceof ServizioOccupatoException) {
+                return (ServizioOccupatoException) c;
+            }
+        }
+        return null;
+    }
+}
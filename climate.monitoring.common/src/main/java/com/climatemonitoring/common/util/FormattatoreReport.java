@@ -0,0 +1,152 @@
+package com.climatemonitoring.common.util;
+
+import com.climatemonitoring.common.model.PaginaRilevazioni;
+import com.climatemonitoring.common.model.ParametroClimatico;
+import com.climatemonitoring.common.model.ReportArea;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Converte un {@link ReportArea} nel testo mostrato all'utente.
+ *
+ * Il formato è quello prodotto in origine dal server, così i client che
+ * ricevono il report strutturato e quelli che usano ancora i metodi testuali
+ * visualizzano lo stesso contenuto. Il dettaglio delle rilevazioni chiude il
+ * testo: le pagine successive della serie, formattate con
+ * {@link #formattaPagina}, possono essere accodate senza ricomporre il report.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public final class FormattatoreReport {
+
+    private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private static final ParametroClimatico[] PARAMETRI = ParametroClimatico.values();
+
+    private FormattatoreReport() {
+    }
+
+    /**
+     * Formatta il report completo.
+     *
+     * @param report Report da formattare
+     * @return Testo del report
+     */
+    public static String formatta(ReportArea report) {
+        StringBuilder result = new StringBuilder(1024 + report.getSerie().dimensione() * 256);
+
+        if (!report.isTrovata()) {
+            result.append(report.isAreaInteresse() ? "Area di interesse non trovata per: " : "Area geografica non trovata per: ")
+                    .append(report.getNome())
+                    .append(", ")
+                    .append(report.getStato());
+            return result.toString();
+        }
+
+        appendIntestazione(result, report);
+        if (report.getNumeroRilevazioni() == 0) {
+            result.append("\nNessun dato climatico disponibile per questa area.\n");
+            appendCommenti(result, report);
+            return result.toString();
+        }
+
+        appendMedie(result, report);
+        appendCommenti(result, report);
+        result.append("=== Dettaglio rilevazioni ===\n\n");
+        if (report.getSerie().getSuccessiva() != null) {
+            result.append("(dalla più recente, ")
+                    .append(report.getNumeroRilevazioni())
+                    .append(" in totale)\n\n");
+        }
+        appendPagina(result, report.getSerie());
+        return result.toString();
+    }
+
+    /**
+     * Formatta le righe di una pagina della serie storica, nello stesso
+     * formato del dettaglio del report.
+     *
+     * @param pagina Pagina da formattare
+     * @return Testo delle rilevazioni
+     */
+    public static String formattaPagina(PaginaRilevazioni pagina) {
+        StringBuilder result = new StringBuilder(pagina.dimensione() * 256);
+        appendPagina(result, pagina);
+        return result.toString();
+    }
+
+    private static void appendIntestazione(StringBuilder result, ReportArea report) {
+        if (report.isAreaInteresse()) {
+            result.append("=== Informazioni Area di Interesse ===\n\n");
+            result.append("  ID: ").append(report.getId()).append("\n");
+            result.append("  Nome: ").append(report.getNome()).append("\n");
+            result.append("  Centro Monitoraggio: ").append(report.getCentroMonitoraggio()).append("\n");
+            result.append("  Centro Monitoraggio ID: ").append(report.getCentroMonitoraggioId()).append("\n");
+            result.append("  Stato: ").append(report.getStato()).append("\n");
+            result.append("  Latitudine: ").append(report.getLatitudine()).append("\n");
+            result.append("  Longitudine: ").append(report.getLongitudine()).append("\n");
+        } else {
+            result.append("=== Informazioni Area Geografica ===\n\n");
+            result.append("  ID: ").append(report.getId()).append("\n");
+            result.append("  Nome città: ").append(report.getNome()).append("\n");
+            result.append("  Stato: ").append(report.getStato()).append("\n");
+            result.append("  Paese: ").append(report.getPaese()).append("\n");
+            result.append("  Latitudine: ").append(report.getLatitudine()).append("\n");
+            result.append("  Longitudine: ").append(report.getLongitudine()).append("\n\n");
+        }
+    }
+
+    private static void appendMedie(StringBuilder result, ReportArea report) {
+        result.append("\n=== Riepilogo generale dei dati climatici ===\n\n");
+        result.append("Numero totale di rilevazioni: ").append(report.getNumeroRilevazioni()).append("\n\n");
+        result.append("Medie dei parametri climatici:\n");
+        double[] medie = report.getMedie();
+        for (ParametroClimatico p : PARAMETRI) {
+            appendValore(result, p, p.ordinal() < medie.length ? medie[p.ordinal()] : 0);
+        }
+        result.append("\n");
+    }
+
+    private static void appendPagina(StringBuilder result, PaginaRilevazioni pagina) {
+        int[] giorni = pagina.getGiorni();
+        int[][] valori = pagina.getValori();
+        String[] note = pagina.getNote();
+        for (int i = 0; i < giorni.length; i++) {
+            result.append("Data rilevazione: ").append(data(giorni[i])).append("\n");
+            result.append("Parametri rilevati:\n");
+            for (ParametroClimatico p : PARAMETRI) {
+                appendValore(result, p, valori[p.ordinal()][i]);
+            }
+            if (note[i] != null && !note[i].trim().isEmpty()) {
+                result.append("Note: ").append(note[i]).append("\n");
+            }
+            result.append("----------------------------------------\n");
+        }
+    }
+
+    private static void appendCommenti(StringBuilder result, ReportArea report) {
+        result.append("\n=== Commenti recenti degli operatori ===\n");
+        int[] giorni = report.getGiorniCommenti();
+        String[] commenti = report.getCommenti();
+        for (int i = 0; i < giorni.length; i++) {
+            result.append("- [").append(data(giorni[i])).append("] ").append(commenti[i]).append("\n");
+        }
+        if (giorni.length == 0) {
+            result.append("Nessun commento disponibile.\n");
+        }
+        result.append("\n");
+    }
+
+    private static void appendValore(StringBuilder result, ParametroClimatico p, double valore) {
+        result.append("  ").append(p.getEtichetta()).append(": ")
+                .append(String.format("%.2f", valore))
+                .append(p.getUnita()).append("\n");
+    }
+
+    private static String data(int giorno) {
+        return FORMATO_DATA.format(LocalDate.ofEpochDay(giorno));
+    }
+}
@@ -0,0 +1,100 @@
+package com.climatemonitoring.common.util;
+
+import com.climatemonitoring.common.model.CursoreRilevazioni;
+import com.climatemonitoring.common.model.PaginaRilevazioni;
+import com.climatemonitoring.common.service.ClimateMonitoringService;
+
+import java.rmi.RemoteException;
+
+/**
+ * Scorre a pagine la serie storica delle rilevazioni di un'area.
+ *
+ * Ogni chiamata a {@link #prossima()} richiede al server una sola pagina,
+ * ripartendo dal cursore della precedente: né il server né il client devono
+ * tenere in memoria l'intera storia dell'area.
+ *
+ * Esempio d'uso:
+ * <pre>
+ * LettoreRilevazioni lettore = new LettoreRilevazioni(service, areaId, false, 200);
+ * while (lettore.haAltre()) {
+ *     PaginaRilevazioni pagina = lettore.prossima();
+ *     ...
+ * }
+ * </pre>
+ *
+ * Non è thread-safe.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class LettoreRilevazioni {
+
+    private final ClimateMonitoringService service;
+    private final int areaId;
+    private final boolean areaInteresse;
+    private final int dimensionePagina;
+
+    /** Cursore della prossima richiesta, nullo per la prima pagina. */
+    private CursoreRilevazioni cursore;
+
+    /** Falso quando il server ha restituito l'ultima pagina. */
+    private boolean altre = true;
+
+    /**
+     * Crea un lettore che parte dalla rilevazione più recente.
+     *
+     * @param service Servizio remoto
+     * @param areaId Identificatore della coordinata o dell'area di interesse
+     * @param areaInteresse {@code true} se l'identificatore è di un'area di interesse
+     * @param dimensionePagina Numero di rilevazioni per pagina
+     */
+    public LettoreRilevazioni(ClimateMonitoringService service, int areaId, boolean areaInteresse, int dimensionePagina) {
+        this(service, areaId, areaInteresse, dimensionePagina, null);
+    }
+
+    /**
+     * Crea un lettore che riprende da una pagina già ricevuta, ad esempio
+     * la prima pagina contenuta in un report.
+     *
+     * @param service Servizio remoto
+     * @param areaId Identificatore della coordinata o dell'area di interesse
+     * @param areaInteresse {@code true} se l'identificatore è di un'area di interesse
+     * @param dimensionePagina Numero di rilevazioni per pagina
+     * @param dopo Cursore da cui riprendere, o null per partire dall'inizio
+     */
+    public LettoreRilevazioni(ClimateMonitoringService service, int areaId, boolean areaInteresse,
+                              int dimensionePagina, CursoreRilevazioni dopo) {
+        if (dimensionePagina <= 0) {
+            throw new IllegalArgumentException("La dimensione della pagina deve essere positiva");
+        }
+        this.service = service;
+        this.areaId = areaId;
+        this.areaInteresse = areaInteresse;
+        this.dimensionePagina = dimensionePagina;
+        this.cursore = dopo;
+    }
+
+    /**
+     * @return {@code true} se il server può avere altre rilevazioni da restituire
+     */
+    public boolean haAltre() {
+        return altre;
+    }
+
+    /**
+     * Richiede la pagina successiva.
+     *
+     * @return Pagina successiva, vuota se la serie è terminata
+     * @throws RemoteException In caso di errori durante la comunicazione remota
+     */
+    public PaginaRilevazioni prossima() throws RemoteException {
+        if (!altre) {
+            return PaginaRilevazioni.vuota();
+        }
+        PaginaRilevazioni pagina = service.rilevazioniArea(areaId, areaInteresse, cursore, dimensionePagina);
+        cursore = pagina.getSuccessiva();
+        altre = cursore != null;
+        return pagina;
+    }
+}
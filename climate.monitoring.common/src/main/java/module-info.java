@@ -3,5 +3,7 @@ module climate.monitoring.common {
     requires java.sql;
 
     exports com.climatemonitoring.common.model;
+    exports com.climatemonitoring.common.rmi;
     exports com.climatemonitoring.common.service;
+    exports com.climatemonitoring.common.util;
 }
\ No newline at end of file
@@ -0,0 +1,175 @@
+package com.climatemonitoring.common.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica che i modelli condivisi tornino identici dopo la serializzazione
+ * compatta, anche con campi nulli, valori estremi e testi lunghi.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+class SerializzazioneModelliTest {
+
+    @Test
+    void coordinataCompleta() throws Exception {
+        CoordinateMonitoraggio c = new CoordinateMonitoraggio(42, "Varese", "Lombardia", "Italy", 45.82, 8.83);
+        c.setAreaInteresse(true);
+        c.setCentroMonitoraggioId(7);
+        c.setTipo("area");
+        c.setDistanzaKm(12.5);
+
+        CoordinateMonitoraggio letta = andataERitorno(c);
+
+        assertEquals(42, letta.getId());
+        assertEquals("Varese", letta.getNomeCitta());
+        assertEquals("Lombardia", letta.getStato());
+        assertEquals("Italy", letta.getPaese());
+        assertEquals(45.82, letta.getLatitudine());
+        assertEquals(8.83, letta.getLongitudine());
+        assertTrue(letta.isAreaInteresse());
+        assertEquals(7, letta.getCentroMonitoraggioId());
+        assertEquals("area", letta.getTipo());
+        assertEquals(12.5, letta.getDistanzaKm());
+    }
+
+    @Test
+    void coordinataConCampiNulli() throws Exception {
+        CoordinateMonitoraggio letta = andataERitorno(
+                new CoordinateMonitoraggio(Integer.MIN_VALUE, null, null, null, -90, 180));
+
+        assertEquals(Integer.MIN_VALUE, letta.getId());
+        assertNull(letta.getNomeCitta());
+        assertNull(letta.getStato());
+        assertNull(letta.getPaese());
+        assertNull(letta.getCentroMonitoraggioId());
+        assertNull(letta.getTipo());
+        assertNull(letta.getDistanzaKm());
+        assertEquals(-90, letta.getLatitudine());
+        assertEquals(180, letta.getLongitudine());
+    }
+
+    @Test
+    void statoEPaeseRipetutiCondividonoLaStessaIstanza() throws Exception {
+        List<CoordinateMonitoraggio> lista = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            // istanze distinte, come quelle lette dal driver JDBC
+            lista.add(new CoordinateMonitoraggio(i, "Citta " + i, new String("Lazio"), new String("Italy"), 0, 0));
+        }
+
+        List<CoordinateMonitoraggio> letta = andataERitorno(new ArrayList<>(lista));
+
+        assertEquals(3, letta.size());
+        assertSame(letta.get(0).getStato(), letta.get(2).getStato());
+        assertSame(letta.get(0).getPaese(), letta.get(1).getPaese());
+        assertNotSame(letta.get(0).getNomeCitta(), letta.get(1).getNomeCitta());
+        assertEquals("Citta 2", letta.get(2).getNomeCitta());
+    }
+
+    @Test
+    void rilevazioneCompleta() throws Exception {
+        UUID chiave = UUID.randomUUID();
+        ParametriClimatici p = new ParametriClimatici(9, java.sql.Date.valueOf("2024-03-15"),
+                1, 2, 3, 4, 5, -1, Integer.MAX_VALUE, "nota")
+                .riferitaA(3, 11, null);
+        p.setChiaveIdempotenza(chiave);
+
+        ParametriClimatici letta = andataERitorno(p);
+
+        assertEquals(9, letta.getId());
+        assertEquals(java.sql.Date.class, letta.getData_rilevazione().getClass());
+        assertEquals(java.sql.Date.valueOf("2024-03-15"), letta.getData_rilevazione());
+        assertArrayEquals(new int[]{1, 2, 3, 4, 5, -1, Integer.MAX_VALUE}, letta.valori());
+        assertEquals("nota", letta.getNote());
+        assertEquals(3, letta.getCentroMonitoraggioId());
+        assertEquals(11, letta.getAreaInteresseId());
+        assertNull(letta.getCoordinateMonitoraggioId());
+        assertEquals(chiave, letta.getChiaveIdempotenza());
+    }
+
+    @Test
+    void rilevazioneConDataUtilECampiNulli() throws Exception {
+        Date data = new Date(1_700_000_000_123L);
+        ParametriClimatici letta = andataERitorno(
+                new ParametriClimatici(1, data, 0, 0, 0, 0, 0, 0, 0, null).riferitaA(2, null, 5));
+
+        assertEquals(Date.class, letta.getData_rilevazione().getClass());
+        assertEquals(data, letta.getData_rilevazione());
+        assertNull(letta.getNote());
+        assertNull(letta.getAreaInteresseId());
+        assertEquals(5, letta.getCoordinateMonitoraggioId());
+        assertNull(letta.getChiaveIdempotenza());
+
+        assertNull(andataERitorno(new ParametriClimatici()).getData_rilevazione());
+    }
+
+    @Test
+    void notaOltreIlLimiteDiWriteUtf() throws Exception {
+        String nota = "è".repeat(40_000);
+
+        ParametriClimatici letta = andataERitorno(
+                new ParametriClimatici(1, null, 1, 1, 1, 1, 1, 1, 1, nota));
+
+        assertEquals(nota, letta.getNote());
+    }
+
+    @Test
+    void operatore() throws Exception {
+        OperatoriRegistrati letto = andataERitorno(new OperatoriRegistrati(5, "Mario", "Rossi",
+                "RSSMRA80A01H501U", "mario.rossi@example.org", "mrossi", null));
+
+        assertEquals(5, letto.getId());
+        assertEquals("Mario", letto.getNome());
+        assertEquals("Rossi", letto.getCognome());
+        assertEquals("RSSMRA80A01H501U", letto.getCodice_fiscale());
+        assertEquals("mario.rossi@example.org", letto.getEmail());
+        assertEquals("mrossi", letto.getUserid());
+        assertNull(letto.getPassword());
+    }
+
+    @Test
+    void centro() throws Exception {
+        CentroMonitoraggio letto = andataERitorno(
+                new CentroMonitoraggio(3, "Centro Insubria", "Via Dunant 3", "21100", "Varese", "VA"));
+
+        assertEquals(3, letto.getId());
+        assertEquals("Centro Insubria", letto.getNome());
+        assertEquals("Via Dunant 3", letto.getIndirizzo());
+        assertEquals("21100", letto.getCap());
+        assertEquals("Varese", letto.getComune());
+        assertEquals("VA", letto.getProvincia());
+
+        CentroMonitoraggio vuoto = andataERitorno(new CentroMonitoraggio());
+        assertNull(vuoto.getNome());
+        assertNull(vuoto.getComune());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T andataERitorno(T oggetto) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+            out.writeObject(oggetto);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray()))) {
+            return (T) in.readObject();
+        }
+    }
+}
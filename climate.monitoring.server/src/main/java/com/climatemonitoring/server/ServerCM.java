@@ -2,6 +2,7 @@ package com.climatemonitoring.server;
 
 import com.climatemonitoring.server.controller.ServerLogin;
 import com.climatemonitoring.server.server.ClimateMonitoringServiceImpl;
+import com.climatemonitoring.server.server.ServerRMI;
 import com.climatemonitoring.server.util.DatabaseManager;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
@@ -11,12 +12,9 @@ import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
 import java.io.IOException;
 import java.net.URL;
-import java.rmi.Naming;
 import java.rmi.NotBoundException;
 import java.rmi.RemoteException;
-import java.rmi.registry.LocateRegistry;
-import java.rmi.registry.Registry;
-import java.rmi.server.UnicastRemoteObject;
+import java.sql.SQLException;
 /**
  * Classe principale per l'applicazione server di Climate Monitoring.
  *
@@ -60,19 +58,10 @@ public class ServerCM extends Application {
     private DatabaseManager dbManager;
 
     /**
-     * Flag per verificare se il server RMI è già stato avviato.
-     * Previene l'avvio multiplo accidentale del server.
+     * Server RMI che pubblica il servizio di monitoraggio climatico.
+     * Creato al login e condiviso con l'avvio senza interfaccia {@link ServerDaemon}.
      */
-    private static boolean rmiStarted = false;
-
-    /**
-     * Implementazione del servizio di monitoraggio climatico distribuito.
-     * Gestisce tutte le operazioni remote disponibili ai client attraverso RMI,
-     * facendo da intermediario tra le richieste dei client e il database.
-     * Viene inizializzato all'avvio del server e rimane attivo per tutta la
-     * sua durata di esecuzione.
-     */
-     private ClimateMonitoringServiceImpl serviceImpl;
+    private ServerRMI serverRMI;
 
     /**
      * Metodo principale di avvio dell'applicazione JavaFX.
@@ -198,17 +187,16 @@ public class ServerCM extends Application {
      * @throws RemoteException In caso di problemi durante la configurazione RMI
      */
     public void startRMIServer(DatabaseManager dbManager) {
-        if (rmiStarted) {
+        if (serverRMI != null && serverRMI.isAvviato()) {
             errore("Server già avviato", "Il server RMI è già in esecuzione", "Non è possibile avviare più istanze del server RMI");
             return;
         }
 
         try {
             this.dbManager = dbManager;
-            LocateRegistry.createRegistry(1099);
-            ClimateMonitoringServiceImpl climateService = new ClimateMonitoringServiceImpl(dbManager);
-            Naming.rebind("rmi://localhost/ClimateMonitoringService", climateService);
-            rmiStarted = true;
+            ServerRMI server = new ServerRMI(dbManager, ServerRMI.PORTA_PREDEFINITA);
+            server.avvia();
+            serverRMI = server;
 
             successo("Server Avviato", "Il server RMI è stato avviato con successo", "In ascolto sulla porta 1099");
 
@@ -217,6 +205,27 @@ public class ServerCM extends Application {
         }
     }
 
+    /**
+     * Ricalcola dal database gli aggregati delle rilevazioni usati dai
+     * riepiloghi e verifica che coincidessero con quelli in memoria.
+     *
+     * @return Messaggio con l'esito della verifica
+     */
+    public String ricostruisciAggregati() {
+        ClimateMonitoringServiceImpl servizio = serverRMI == null ? null : serverRMI.getServizio();
+        if (servizio == null) {
+            return "Server RMI non avviato";
+        }
+        try {
+            int differenze = servizio.ricostruisciAggregati();
+            return differenze == 0
+                    ? "Aggregati climatici ricalcolati: nessuna differenza"
+                    : "Aggregati climatici ricalcolati: " + differenze + " voci non coerenti corrette";
+        } catch (SQLException e) {
+            return "Errore durante il ricalcolo degli aggregati: " + e.getMessage();
+        }
+    }
+
 
     /**
      * Visualizza un messaggio di errore mediante un dialogo JavaFX.
@@ -269,35 +278,18 @@ public class ServerCM extends Application {
      *
      * Gestisce la pulizia delle risorse:
      * - Disconnessione dal registro RMI
+     * - Attesa delle chiamate remote in corso (vedi {@link ServerRMI#arresta()})
+     * - Scrittura delle rilevazioni ancora in coda di ingestione
      * - Chiusura della connessione al database
      * - Rilascio delle risorse di sistema
      */
     @Override
     public void stop() {
         try {
-            if (dbManager != null && rmiStarted) {
-                try {
-                    Registry registry = LocateRegistry.getRegistry(1099);
-                    registry.unbind("ClimateMonitoringService");
-                } catch (Exception e) {
-                    System.err.println("Warning durante l'unbind del servizio: " + e.getMessage());
-                }
-
-                try {
-                    if (serviceImpl != null) {
-                        UnicastRemoteObject.unexportObject(serviceImpl, true);
-                    }
-                } catch (Exception e) {
-                    System.err.println("Warning durante l'unexport del servizio: " + e.getMessage());
-                }
-
-                rmiStarted = false;
-                serviceImpl = null;
-
-                dbManager.closeConnection();
+            if (serverRMI != null) {
+                serverRMI.arresta();
+                serverRMI = null;
                 dbManager = null;
-
-                System.out.println("Server RMI arrestato con successo");
             }
         } catch (Exception e) {
             System.err.println("Errore durante la chiusura del server: " + e.getMessage());
@@ -0,0 +1,99 @@
+package com.climatemonitoring.server;
+
+import com.climatemonitoring.server.server.ServerRMI;
+import com.climatemonitoring.server.util.ConfigurazioneServer;
+import com.climatemonitoring.server.util.DatabaseManager;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Avvio del server di Climate Monitoring senza interfaccia grafica.
+ *
+ * A differenza di {@link ServerCM} non carica il toolkit JavaFX: legge le
+ * credenziali del database da file o dall'ambiente (vedi
+ * {@link ConfigurazioneServer}) e pubblica subito il servizio RMI. È pensato
+ * per server senza display, container e supervisori di processo.
+ *
+ * Utilizzo:
+ * {@code java -cp Server-ClimateMonitoring.jar com.climatemonitoring.server.ServerDaemon [--config file]}
+ *
+ * Il file può essere indicato anche con la variabile {@code CM_CONFIG}.
+ * Alla ricezione di SIGTERM (o SIGINT) il servizio viene arrestato in modo
+ * ordinato tramite {@link ServerRMI#arresta()}.
+ *
+ * Codici di uscita: 0 arresto regolare, 1 errore di avvio, 2 configurazione non valida.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public final class ServerDaemon {
+
+    private ServerDaemon() {
+    }
+
+    /**
+     * Punto di ingresso dell'avvio senza interfaccia grafica.
+     *
+     * @param args {@code --config <file>} per indicare il file di configurazione
+     */
+    public static void main(String[] args) {
+        ConfigurazioneServer configurazione;
+        try {
+            configurazione = ConfigurazioneServer.carica(fileConfigurazione(args));
+        } catch (Exception e) {
+            System.err.println("Configurazione non valida: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        DatabaseManager dbManager = DatabaseManager.initialize(
+                configurazione.getHost(), configurazione.getUtente(), configurazione.getPassword(),
+                configurazione.getPoolConfig());
+        if (!dbManager.testConnection()) {
+            System.err.println("Impossibile connettersi al database. Verificare le credenziali.");
+            System.exit(1);
+            return;
+        }
+
+        ServerRMI server = new ServerRMI(dbManager, configurazione.getPortaRmi());
+        server.setCompressione(configurazione.isCompressione());
+        try {
+            server.avvia();
+        } catch (Exception e) {
+            System.err.println("Impossibile avviare il server RMI: " + e.getMessage());
+            dbManager.closeConnection();
+            System.exit(1);
+            return;
+        }
+
+        CountDownLatch arrestato = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("Arresto del server in corso...");
+            server.arresta();
+            arrestato.countDown();
+        }, "arresto-server"));
+
+        try {
+            arrestato.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Path fileConfigurazione(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--config")) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("--config richiede il percorso del file");
+                }
+                return Paths.get(args[i + 1]);
+            }
+            throw new IllegalArgumentException("Argomento non riconosciuto: " + args[i]);
+        }
+        String daAmbiente = System.getenv("CM_CONFIG");
+        return daAmbiente == null || daAmbiente.isBlank() ? null : Paths.get(daAmbiente);
+    }
+}
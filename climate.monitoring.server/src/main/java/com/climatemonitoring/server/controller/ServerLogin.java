@@ -2,6 +2,7 @@ package com.climatemonitoring.server.controller;
 
 import com.climatemonitoring.server.ServerCM;
 import com.climatemonitoring.server.util.DatabaseManager;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.PasswordField;
@@ -66,6 +67,12 @@ public class ServerLogin {
      */
     @FXML public Button disconnectButton;
 
+    /**
+     * Pulsante per ricalcolare e verificare gli aggregati delle rilevazioni.
+     * Abilitato solo mentre il server è connesso.
+     */
+    @FXML private Button aggregatiButton;
+
     /**
      * Area di testo per la registrazione e visualizzazione dei log.
      * Fornisce feedback all'utente sulle operazioni in corso.
@@ -92,6 +99,8 @@ public class ServerLogin {
         connectButton.setOnAction(event -> handleConnessioni());
         disconnectButton.setOnAction(event -> handleDisconnessione());
         disconnectButton.setDisable(true);
+        aggregatiButton.setOnAction(event -> handleVerificaAggregati());
+        aggregatiButton.setDisable(true);
     }
 
     /**
@@ -132,6 +141,7 @@ public class ServerLogin {
             passwordField.setDisable(true);
             connectButton.setDisable(true);
             disconnectButton.setDisable(false);
+            aggregatiButton.setDisable(false);
 
         } catch (Exception e) {
             appendLog("Errore durante la connessione al database: " + e.getMessage());
@@ -158,6 +168,7 @@ public class ServerLogin {
             passwordField.setDisable(false);
             connectButton.setDisable(false);
             disconnectButton.setDisable(true);
+            aggregatiButton.setDisable(true);
 
             appendLog("Disconnessione dal database effettuata con successo");
 
@@ -171,6 +182,24 @@ public class ServerLogin {
         }
     }
 
+    /**
+     * Ricalcola gli aggregati in un thread separato, perché la lettura
+     * dell'intera tabella delle rilevazioni può richiedere alcuni secondi.
+     */
+    private void handleVerificaAggregati() {
+        aggregatiButton.setDisable(true);
+        appendLog("Verifica degli aggregati climatici in corso...");
+        Thread verifica = new Thread(() -> {
+            String esito = mainApp.ricostruisciAggregati();
+            Platform.runLater(() -> {
+                appendLog(esito);
+                aggregatiButton.setDisable(disconnectButton.isDisabled());
+            });
+        }, "verifica-aggregati");
+        verifica.setDaemon(true);
+        verifica.start();
+    }
+
     /**
      * Utility method per aggiungere messaggi al log.
      *
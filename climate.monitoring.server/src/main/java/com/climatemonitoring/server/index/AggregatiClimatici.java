@@ -0,0 +1,232 @@
+package com.climatemonitoring.server.index;
+
+import com.climatemonitoring.common.model.ParametroClimatico;
+import com.climatemonitoring.server.util.DatabaseManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Aggregati in memoria delle rilevazioni climatiche.
+ *
+ * Per ogni coordinata di monitoraggio, area di interesse e centro di
+ * monitoraggio conserva le {@link StatisticheClimatiche} di tutte le sue
+ * rilevazioni. All'avvio vengono calcolate con una query per dimensione;
+ * in seguito ogni inserimento le aggiorna con {@link #registra}, così che
+ * il riepilogo di un'area non debba rileggere l'intera storia.
+ *
+ * {@link #ricostruisci()} ricalcola tutto dal database e segnala quante voci
+ * differivano: serve come verifica di coerenza, ad esempio dopo modifiche
+ * fatte direttamente sul database.
+ *
+ * Gli inserimenti devono avvenire sotto {@link #bloccoAggiornamenti()}:
+ * la ricostruzione attende gli inserimenti in corso e blocca i nuovi
+ * mentre legge il database, così nessuna rilevazione è contata due volte
+ * o persa.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class AggregatiClimatici {
+
+    /**
+     * Entità rispetto a cui sono aggregate le rilevazioni.
+     */
+    public enum Dimensione {
+        COORDINATA("coordinate_monitoraggio_id"),
+        AREA_INTERESSE("area_interesse_id"),
+        CENTRO("centro_monitoraggio_id");
+
+        /** Colonna di parametriclimatici che identifica l'entità. */
+        private final String colonna;
+
+        Dimensione(String colonna) {
+            this.colonna = colonna;
+        }
+    }
+
+    private static final ParametroClimatico[] PARAMETRI = ParametroClimatico.values();
+
+    /** Gestore del database da cui calcolare gli aggregati. */
+    private final DatabaseManager dbManager;
+
+    /** Aggregati per chiave (dimensione, id). */
+    private volatile Map<Long, StatisticheClimatiche> aggregati = new ConcurrentHashMap<>();
+
+    /** Indica se gli aggregati sono stati calcolati almeno una volta. */
+    private volatile boolean caricato = false;
+
+    /** Condiviso dagli inserimenti, esclusivo per la ricostruzione. */
+    private final ReentrantReadWriteLock blocco = new ReentrantReadWriteLock();
+
+    /**
+     * Crea un archivio vuoto.
+     *
+     * @param dbManager Gestore del database
+     */
+    public AggregatiClimatici(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+    }
+
+    /**
+     * @return {@code true} se gli aggregati sono disponibili
+     */
+    public boolean isCaricato() {
+        return caricato;
+    }
+
+    /**
+     * Restituisce il blocco da tenere durante l'inserimento di una
+     * rilevazione e la chiamata a {@link #registra}.
+     *
+     * @return Blocco condiviso degli aggiornamenti
+     */
+    public Lock bloccoAggiornamenti() {
+        return blocco.readLock();
+    }
+
+    /**
+     * Calcola gli aggregati all'avvio.
+     *
+     * @return {@code true} se il calcolo è riuscito
+     */
+    public boolean carica() {
+        long inizio = System.nanoTime();
+        try {
+            ricostruisci();
+        } catch (SQLException e) {
+            System.err.println("Impossibile calcolare gli aggregati climatici: " + e.getMessage());
+            return false;
+        }
+        System.out.println("Aggregati climatici calcolati: " + aggregati.size() + " voci in "
+                + (System.nanoTime() - inizio) / 1_000_000 + " ms");
+        return true;
+    }
+
+    /**
+     * Ricalcola tutti gli aggregati dal database e sostituisce quelli correnti.
+     *
+     * @return Numero di voci che differivano dagli aggregati mantenuti in memoria
+     * @throws SQLException In caso di errori durante l'accesso al database
+     */
+    public int ricostruisci() throws SQLException {
+        // La connessione va ottenuta prima del blocco: gli inserimenti in attesa
+        // del blocco tengono occupate le loro connessioni del pool
+        try (Connection conn = dbManager.getConnection()) {
+            Lock esclusivo = blocco.writeLock();
+            esclusivo.lock();
+            try {
+                return ricostruisci(conn);
+            } finally {
+                esclusivo.unlock();
+            }
+        }
+    }
+
+    private int ricostruisci(Connection conn) throws SQLException {
+        Map<Long, StatisticheClimatiche> nuovi = new ConcurrentHashMap<>();
+        for (Dimensione d : Dimensione.values()) {
+            leggi(conn, d, nuovi);
+        }
+
+        int differenze = 0;
+        if (caricato) {
+            Map<Long, StatisticheClimatiche> vecchi = aggregati;
+            for (Map.Entry<Long, StatisticheClimatiche> e : nuovi.entrySet()) {
+                StatisticheClimatiche v = vecchi.get(e.getKey());
+                if (v == null || !v.copia().coincide(e.getValue())) {
+                    differenze++;
+                }
+            }
+            for (Long chiave : vecchi.keySet()) {
+                if (!nuovi.containsKey(chiave)) {
+                    differenze++;
+                }
+            }
+        }
+
+        aggregati = nuovi;
+        caricato = true;
+        return differenze;
+    }
+
+    private void leggi(Connection conn, Dimensione d, Map<Long, StatisticheClimatiche> destinazione) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT ").append(d.colonna).append(", COUNT(*)");
+        for (ParametroClimatico p : PARAMETRI) {
+            String c = p.getColonna();
+            sql.append(", COUNT(").append(c).append(")")
+                    .append(", COALESCE(SUM(").append(c).append("), 0)")
+                    .append(", COALESCE(SUM(").append(c).append("::bigint * ").append(c).append("), 0)")
+                    .append(", MIN(").append(c).append(")")
+                    .append(", MAX(").append(c).append(")");
+        }
+        sql.append(" FROM parametriclimatici WHERE ").append(d.colonna).append(" IS NOT NULL GROUP BY ").append(d.colonna);
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql.toString());
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                StatisticheClimatiche s = new StatisticheClimatiche(PARAMETRI.length);
+                s.aggiungiRighe(rs.getLong(2));
+                int colonna = 3;
+                for (int p = 0; p < PARAMETRI.length; p++) {
+                    long conteggio = rs.getLong(colonna);
+                    if (conteggio > 0) {
+                        s.accumula(p, conteggio, rs.getLong(colonna + 1), rs.getLong(colonna + 2),
+                                rs.getInt(colonna + 3), rs.getInt(colonna + 4));
+                    }
+                    colonna += 5;
+                }
+                destinazione.put(chiave(d, rs.getInt(1)), s);
+            }
+        }
+    }
+
+    /**
+     * Aggiorna gli aggregati con una rilevazione appena inserita.
+     * Va chiamato tenendo {@link #bloccoAggiornamenti()}.
+     *
+     * @param centroId Centro di monitoraggio della rilevazione
+     * @param areaInteresseId Area di interesse, o null
+     * @param coordinataId Coordinata di monitoraggio, o null
+     * @param valori Valori dei parametri, nell'ordine di {@link ParametroClimatico}
+     */
+    public void registra(int centroId, Integer areaInteresseId, Integer coordinataId, int[] valori) {
+        if (!caricato) {
+            return;
+        }
+        aggiungi(Dimensione.CENTRO, centroId, valori);
+        if (areaInteresseId != null) {
+            aggiungi(Dimensione.AREA_INTERESSE, areaInteresseId, valori);
+        }
+        if (coordinataId != null) {
+            aggiungi(Dimensione.COORDINATA, coordinataId, valori);
+        }
+    }
+
+    private void aggiungi(Dimensione d, int id, int[] valori) {
+        aggregati.computeIfAbsent(chiave(d, id), k -> new StatisticheClimatiche(PARAMETRI.length)).aggiungi(valori);
+    }
+
+    /**
+     * Restituisce le statistiche di un'entità.
+     *
+     * @param d Dimensione dell'entità
+     * @param id Identificatore dell'entità
+     * @return Copia delle statistiche, o null se l'entità non ha rilevazioni
+     */
+    public StatisticheClimatiche statistiche(Dimensione d, int id) {
+        StatisticheClimatiche s = aggregati.get(chiave(d, id));
+        return s == null ? null : s.copia();
+    }
+
+    private static long chiave(Dimensione d, int id) {
+        return ((long) d.ordinal() << 32) | (id & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,418 @@
+package com.climatemonitoring.server.index;
+
+import com.climatemonitoring.server.util.DatabaseManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copia in memoria dei luoghi geografici noti al server.
+ *
+ * All'avvio carica una sola volta le tabelle {@code coordinatemonitoraggio} e
+ * {@code areeinteresse} e ne costruisce gli indici, così che le ricerche dei
+ * client non debbano interrogare PostgreSQL:
+ * - {@link IndiceSpaziale} per le ricerche di prossimità
+ * - {@link IndiceTestuale} sui nomi delle città e sui paesi delle coordinate,
+ *   per le ricerche per sottostringa senza distinzione di maiuscole e accenti
+ * - {@link IndiceSuggerimenti} per il completamento dei nomi, ordinato per
+ *   numero di rilevazioni e visualizzazioni
+ *
+ * Le coordinate degli indici testuali sono numerate in ordine di
+ * identificatore, quindi gli elenchi dei documenti sono già ordinati per
+ * identificatore e le ricerche paginate ({@link #paginaPerNome},
+ * {@link #paginaPerPaese}) partono dal cursore con una ricerca binaria e si
+ * fermano alla fine della pagina, senza ordinare tutte le corrispondenze.
+ *
+ * Le nuove aree di interesse vengono aggiunte tramite {@link #registraAreaInteresse}.
+ *
+ * Se il caricamento fallisce il catalogo resta non disponibile e il servizio
+ * continua a usare le query SQL.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class CatalogoGeografico {
+
+    /** Righe lette per ogni round trip durante il caricamento. */
+    private static final int FETCH_SIZE = 5_000;
+
+    /** Gestore del database da cui caricare i luoghi. */
+    private final DatabaseManager dbManager;
+
+    /** Indice spaziale su coordinate e aree di interesse. */
+    private final IndiceSpaziale indiceSpaziale = new IndiceSpaziale();
+
+    /** Indici testuali sulle coordinate di monitoraggio. */
+    private volatile IndiciTestuali testuali = new IndiciTestuali(new PuntoGeografico[0], new HashMap<>());
+
+    /** Indica se il caricamento iniziale è andato a buon fine. */
+    private volatile boolean caricato = false;
+
+    /**
+     * Crea un catalogo vuoto.
+     *
+     * @param dbManager Gestore del database
+     */
+    public CatalogoGeografico(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+    }
+
+    /**
+     * Carica tutti i luoghi dal database e ricostruisce gli indici.
+     *
+     * @return {@code true} se il caricamento è riuscito
+     */
+    public boolean carica() {
+        long inizio = System.nanoTime();
+        List<PuntoGeografico> punti = new ArrayList<>();
+        Map<Integer, Integer> rilevazioni = new HashMap<>();
+
+        try (Connection conn = dbManager.getConnection()) {
+            // Il fetch size è rispettato dal driver solo fuori dall'autocommit
+            conn.setAutoCommit(false);
+            leggiCoordinate(conn, punti);
+            leggiAreeInteresse(conn, punti);
+            contaRilevazioni(conn, rilevazioni);
+            conn.commit();
+        } catch (SQLException e) {
+            System.err.println("Impossibile caricare il catalogo geografico: " + e.getMessage());
+            return false;
+        }
+
+        indiceSpaziale.ricostruisci(punti);
+        costruisciIndiciTestuali(punti, rilevazioni);
+        caricato = true;
+
+        System.out.println("Catalogo geografico caricato: " + punti.size() + " luoghi in "
+                + (System.nanoTime() - inizio) / 1_000_000 + " ms");
+        return true;
+    }
+
+    private void leggiCoordinate(Connection conn, List<PuntoGeografico> punti) throws SQLException {
+        String sql = "SELECT id, nome_citta, stato, paese, latitudine, longitudine FROM coordinatemonitoraggio";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    punti.add(new PuntoGeografico(PuntoGeografico.Tipo.COORDINATA,
+                            rs.getInt("id"),
+                            rs.getString("nome_citta"),
+                            rs.getString("stato"),
+                            rs.getString("paese"),
+                            null,
+                            rs.getDouble("latitudine"),
+                            rs.getDouble("longitudine")));
+                }
+            }
+        }
+    }
+
+    private void leggiAreeInteresse(Connection conn, List<PuntoGeografico> punti) throws SQLException {
+        String sql = "SELECT id, nome, stato, centro_monitoraggio_id, latitudine, longitudine FROM areeinteresse";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int centro = rs.getInt("centro_monitoraggio_id");
+                    punti.add(new PuntoGeografico(PuntoGeografico.Tipo.AREA_INTERESSE,
+                            rs.getInt("id"),
+                            rs.getString("nome"),
+                            rs.getString("stato"),
+                            null,
+                            rs.wasNull() ? null : centro,
+                            rs.getDouble("latitudine"),
+                            rs.getDouble("longitudine")));
+                }
+            }
+        }
+    }
+
+    private void contaRilevazioni(Connection conn, Map<Integer, Integer> rilevazioni) throws SQLException {
+        String sql = "SELECT coordinate_monitoraggio_id, COUNT(*) AS n FROM parametriclimatici "
+                + "WHERE coordinate_monitoraggio_id IS NOT NULL GROUP BY coordinate_monitoraggio_id";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                rilevazioni.put(rs.getInt(1), rs.getInt(2));
+            }
+        }
+    }
+
+    /**
+     * Costruisce gli indici testuali sulle coordinate di monitoraggio.
+     */
+    private void costruisciIndiciTestuali(List<PuntoGeografico> punti, Map<Integer, Integer> rilevazioni) {
+        List<PuntoGeografico> listaCoordinate = new ArrayList<>();
+        for (PuntoGeografico p : punti) {
+            if (p.getTipo() == PuntoGeografico.Tipo.COORDINATA) {
+                listaCoordinate.add(p);
+            }
+        }
+        listaCoordinate.sort(Comparator.comparingInt(PuntoGeografico::getId));
+        this.testuali = new IndiciTestuali(listaCoordinate.toArray(new PuntoGeografico[0]), rilevazioni);
+    }
+
+    /**
+     * Cerca le coordinate il cui nome contiene il testo indicato, nello stato indicato.
+     *
+     * Il confronto non distingue maiuscole e accenti; lo stato deve coincidere
+     * dopo la normalizzazione.
+     *
+     * @param nome Parte del nome della città
+     * @param stato Stato della città
+     * @return Coordinate corrispondenti, in ordine di identificatore
+     */
+    public List<PuntoGeografico> cercaPerNome(String nome, String stato) {
+        IndiciTestuali t = testuali;
+        String statoNormalizzato = Normalizzazione.normalizza(stato);
+
+        List<PuntoGeografico> risultato = new ArrayList<>();
+        for (int doc : t.citta.contiene(Normalizzazione.normalizza(nome))) {
+            if (t.stati[doc].equals(statoNormalizzato)) {
+                risultato.add(t.coordinate[doc]);
+            }
+        }
+        return risultato;
+    }
+
+    /**
+     * Cerca le coordinate il cui paese contiene il testo indicato.
+     *
+     * @param paese Parte del nome del paese
+     * @return Coordinate corrispondenti, in ordine di identificatore
+     */
+    public List<PuntoGeografico> cercaPerPaese(String paese) {
+        IndiciTestuali t = testuali;
+        int[][] documenti = t.coordinatePerPaese;
+
+        int[] paesi = t.paesi.contiene(Normalizzazione.normalizza(paese));
+        if (paesi.length == 0) {
+            return new ArrayList<>();
+        }
+
+        int[] docs;
+        if (paesi.length == 1) {
+            docs = documenti[paesi[0]];
+        } else {
+            int totale = 0;
+            for (int p : paesi) {
+                totale += documenti[p].length;
+            }
+            docs = new int[totale];
+            int n = 0;
+            for (int p : paesi) {
+                System.arraycopy(documenti[p], 0, docs, n, documenti[p].length);
+                n += documenti[p].length;
+            }
+            Arrays.sort(docs);
+        }
+
+        List<PuntoGeografico> risultato = new ArrayList<>(docs.length);
+        for (int doc : docs) {
+            risultato.add(t.coordinate[doc]);
+        }
+        return risultato;
+    }
+
+    /**
+     * Pagina di {@link #cercaPerNome}: le prime coordinate con identificatore
+     * maggiore di {@code dopoId}.
+     *
+     * @param nome Parte del nome della città
+     * @param stato Stato della città
+     * @param dopoId Identificatore da cui riprendere, escluso
+     * @param massimo Numero massimo di coordinate restituite
+     * @return Coordinate corrispondenti, in ordine di identificatore
+     */
+    public List<PuntoGeografico> paginaPerNome(String nome, String stato, int dopoId, int massimo) {
+        IndiciTestuali t = testuali;
+        String statoNormalizzato = Normalizzazione.normalizza(stato);
+
+        int[] docs = t.citta.contiene(Normalizzazione.normalizza(nome), t.ultimoFinoA(dopoId), massimo,
+                doc -> t.stati[doc].equals(statoNormalizzato));
+        return punti(t, docs);
+    }
+
+    /**
+     * Pagina di {@link #cercaPerPaese}: le prime coordinate con identificatore
+     * maggiore di {@code dopoId}.
+     *
+     * @param paese Parte del nome del paese
+     * @param dopoId Identificatore da cui riprendere, escluso
+     * @param massimo Numero massimo di coordinate restituite
+     * @return Coordinate corrispondenti, in ordine di identificatore
+     */
+    public List<PuntoGeografico> paginaPerPaese(String paese, int dopoId, int massimo) {
+        IndiciTestuali t = testuali;
+        int dopoDoc = t.ultimoFinoA(dopoId);
+
+        int[] paesi = t.paesi.contiene(Normalizzazione.normalizza(paese));
+        if (paesi.length == 0 || massimo <= 0) {
+            return new ArrayList<>();
+        }
+
+        // da ogni paese bastano i primi documenti dopo il cursore
+        int[] docs = new int[0];
+        for (int p : paesi) {
+            int[] lista = t.coordinatePerPaese[p];
+            int inizio = IndiceTestuale.primoDopo(lista, dopoDoc);
+            int fine = Math.min(lista.length, inizio + massimo);
+            int n = docs.length;
+            docs = Arrays.copyOf(docs, n + fine - inizio);
+            System.arraycopy(lista, inizio, docs, n, fine - inizio);
+        }
+        if (paesi.length > 1) {
+            Arrays.sort(docs);
+        }
+        return punti(t, docs.length > massimo ? Arrays.copyOf(docs, massimo) : docs);
+    }
+
+    private static List<PuntoGeografico> punti(IndiciTestuali t, int[] docs) {
+        List<PuntoGeografico> risultato = new ArrayList<>(docs.length);
+        for (int doc : docs) {
+            risultato.add(t.coordinate[doc]);
+        }
+        return risultato;
+    }
+
+    /**
+     * Suggerisce le coordinate la cui città, stato o paese inizia con il prefisso indicato.
+     *
+     * @param prefisso Testo digitato dall'utente
+     * @param limite Numero massimo di suggerimenti
+     * @return Coordinate ordinate per frequenza d'uso decrescente
+     */
+    public List<PuntoGeografico> suggerisci(String prefisso, int limite) {
+        IndiciTestuali t = testuali;
+        int[] docs = t.suggerimenti.suggerisci(Normalizzazione.normalizza(prefisso), limite);
+        List<PuntoGeografico> risultato = new ArrayList<>(docs.length);
+        for (int doc : docs) {
+            risultato.add(t.coordinate[doc]);
+        }
+        return risultato;
+    }
+
+    /**
+     * Registra la visualizzazione di una coordinata, aumentandone il peso nei suggerimenti.
+     *
+     * @param coordinataId Identificativo della coordinata di monitoraggio
+     */
+    public void registraUtilizzo(int coordinataId) {
+        IndiciTestuali t = testuali;
+        Integer doc = t.documentoPerId.get(coordinataId);
+        if (doc != null) {
+            t.suggerimenti.registraUtilizzo(doc);
+        }
+    }
+
+    /**
+     * Aggiunge agli indici un'area di interesse appena inserita nel database.
+     *
+     * @param id Identificativo generato dal database
+     * @param nome Nome dell'area
+     * @param stato Stato dell'area
+     * @param centroMonitoraggioId Centro di monitoraggio proprietario
+     * @param latitudine Latitudine in gradi
+     * @param longitudine Longitudine in gradi
+     */
+    public void registraAreaInteresse(int id, String nome, String stato, int centroMonitoraggioId,
+                                      double latitudine, double longitudine) {
+        if (!caricato) {
+            return;
+        }
+        indiceSpaziale.aggiungi(new PuntoGeografico(PuntoGeografico.Tipo.AREA_INTERESSE,
+                id, nome, stato, null, centroMonitoraggioId, latitudine, longitudine));
+    }
+
+    /**
+     * @return {@code true} se gli indici sono stati caricati e possono sostituire le query SQL
+     */
+    public boolean isCaricato() {
+        return caricato;
+    }
+
+    public IndiceSpaziale getIndiceSpaziale() {
+        return indiceSpaziale;
+    }
+
+    /**
+     * Indici testuali immutabili, sostituiti in blocco a ogni caricamento.
+     * Il numero di documento è la posizione nell'array delle coordinate,
+     * ordinato per identificatore.
+     */
+    private static final class IndiciTestuali {
+
+        /** Coordinate di monitoraggio indicizzate. */
+        private final PuntoGeografico[] coordinate;
+
+        /** Stato normalizzato di ogni coordinata. */
+        private final String[] stati;
+
+        /** Indice per sottostringa sui nomi delle città. */
+        private final IndiceTestuale citta;
+
+        /** Indice per sottostringa sui paesi distinti. */
+        private final IndiceTestuale paesi;
+
+        /** Per ogni paese distinto, i documenti delle coordinate che gli appartengono. */
+        private final int[][] coordinatePerPaese;
+
+        /** Indice di completamento su città, stato e paese. */
+        private final IndiceSuggerimenti suggerimenti;
+
+        /** Documento corrispondente all'ID di ogni coordinata. */
+        private final Map<Integer, Integer> documentoPerId;
+
+        /** Identificatore di ogni documento, in ordine crescente. */
+        private final int[] ids;
+
+        private IndiciTestuali(PuntoGeografico[] coordinate, Map<Integer, Integer> rilevazioni) {
+            this.coordinate = coordinate;
+            this.stati = new String[coordinate.length];
+            this.documentoPerId = new HashMap<>(coordinate.length * 4 / 3 + 1);
+            this.ids = new int[coordinate.length];
+
+            String[] nomi = new String[coordinate.length];
+            String[][] campi = new String[coordinate.length][];
+            int[] frequenze = new int[coordinate.length];
+            Map<String, List<Integer>> perPaese = new LinkedHashMap<>();
+            for (int i = 0; i < coordinate.length; i++) {
+                String paese = Normalizzazione.normalizza(coordinate[i].getPaese());
+                nomi[i] = Normalizzazione.normalizza(coordinate[i].getNome());
+                stati[i] = Normalizzazione.normalizza(coordinate[i].getStato());
+                campi[i] = new String[]{nomi[i], stati[i], paese};
+                frequenze[i] = rilevazioni.getOrDefault(coordinate[i].getId(), 0);
+                documentoPerId.put(coordinate[i].getId(), i);
+                ids[i] = coordinate[i].getId();
+                perPaese.computeIfAbsent(paese, k -> new ArrayList<>()).add(i);
+            }
+
+            String[] chiaviPaesi = perPaese.keySet().toArray(new String[0]);
+            this.coordinatePerPaese = new int[chiaviPaesi.length][];
+            for (int i = 0; i < chiaviPaesi.length; i++) {
+                coordinatePerPaese[i] = perPaese.get(chiaviPaesi[i]).stream().mapToInt(Integer::intValue).toArray();
+            }
+
+            this.citta = new IndiceTestuale(nomi);
+            this.paesi = new IndiceTestuale(chiaviPaesi);
+            this.suggerimenti = new IndiceSuggerimenti(campi, frequenze);
+        }
+
+        /**
+         * @return Ultimo documento con identificatore non maggiore di {@code id}, -1 se nessuno
+         */
+        private int ultimoFinoA(int id) {
+            return IndiceTestuale.primoDopo(ids, id) - 1;
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.climatemonitoring.server.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Indice spaziale in memoria per le ricerche di prossimità geografica.
+ *
+ * I punti sono convertiti in vettori unitari sulla sfera e organizzati in un
+ * k-d tree tridimensionale. La distanza euclidea (corda) tra due vettori è
+ * monotona rispetto alla distanza ortodromica, quindi l'albero può potare i
+ * rami senza calcolare la formula di Haversine; inoltre poli e antimeridiano
+ * non richiedono casi particolari.
+ *
+ * Operazioni supportate:
+ * - k punti più vicini a una posizione
+ * - Tutti i punti entro un raggio in chilometri, ordinati per distanza
+ * - Aggiunta di nuovi punti senza bloccare le letture
+ *
+ * Le letture lavorano su un'istantanea immutabile. I punti aggiunti dopo la
+ * costruzione finiscono in una piccola lista di attesa esaminata linearmente;
+ * superata una soglia l'albero viene ricostruito.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class IndiceSpaziale {
+
+    /** Raggio medio terrestre in chilometri, lo stesso usato dal servizio. */
+    public static final double RAGGIO_TERRA_KM = 6371;
+
+    /** Numero di punti in attesa oltre il quale l'albero viene ricostruito. */
+    private static final int SOGLIA_RICOSTRUZIONE = 256;
+
+    /** Istantanea corrente dell'indice. */
+    private volatile Istantanea corrente = new Istantanea(new PuntoGeografico[0], new PuntoGeografico[0]);
+
+    /**
+     * Sostituisce il contenuto dell'indice con i punti indicati.
+     *
+     * @param punti Punti da indicizzare
+     */
+    public synchronized void ricostruisci(Collection<PuntoGeografico> punti) {
+        corrente = new Istantanea(costruisci(punti.toArray(new PuntoGeografico[0])), new PuntoGeografico[0]);
+    }
+
+    /**
+     * Aggiunge un punto all'indice.
+     *
+     * @param punto Punto da aggiungere
+     */
+    public synchronized void aggiungi(PuntoGeografico punto) {
+        Istantanea att = corrente;
+        PuntoGeografico[] inAttesa = Arrays.copyOf(att.inAttesa, att.inAttesa.length + 1);
+        inAttesa[inAttesa.length - 1] = punto;
+
+        if (inAttesa.length > SOGLIA_RICOSTRUZIONE) {
+            PuntoGeografico[] tutti = Arrays.copyOf(att.albero, att.albero.length + inAttesa.length);
+            System.arraycopy(inAttesa, 0, tutti, att.albero.length, inAttesa.length);
+            corrente = new Istantanea(costruisci(tutti), new PuntoGeografico[0]);
+        } else {
+            corrente = new Istantanea(att.albero, inAttesa);
+        }
+    }
+
+    /**
+     * @return Numero di punti indicizzati
+     */
+    public int dimensione() {
+        Istantanea att = corrente;
+        return att.albero.length + att.inAttesa.length;
+    }
+
+    /**
+     * Restituisce i k punti più vicini alla posizione indicata.
+     *
+     * @param latitudine Latitudine in gradi
+     * @param longitudine Longitudine in gradi
+     * @param k Numero massimo di risultati
+     * @param filtro Filtro sui punti ammessi, o null per accettarli tutti
+     * @return Risultati ordinati per distanza crescente
+     */
+    public List<RisultatoDistanza> piuVicini(double latitudine, double longitudine, int k,
+                                             Predicate<PuntoGeografico> filtro) {
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+        Istantanea att = corrente;
+        double[] q = versore(latitudine, longitudine);
+        Raccolta raccolta = new Raccolta(k, Double.POSITIVE_INFINITY);
+
+        cerca(att.albero, 0, att.albero.length, 0, q, raccolta, filtro);
+        for (PuntoGeografico p : att.inAttesa) {
+            considera(p, q, raccolta, filtro);
+        }
+        return raccolta.risultati();
+    }
+
+    /**
+     * Restituisce i punti entro il raggio indicato, ordinati per distanza.
+     *
+     * @param latitudine Latitudine in gradi
+     * @param longitudine Longitudine in gradi
+     * @param raggioKm Raggio di ricerca in chilometri
+     * @param limite Numero massimo di risultati (i più vicini)
+     * @param filtro Filtro sui punti ammessi, o null per accettarli tutti
+     * @return Risultati ordinati per distanza crescente
+     */
+    public List<RisultatoDistanza> entroRaggio(double latitudine, double longitudine, double raggioKm, int limite,
+                                               Predicate<PuntoGeografico> filtro) {
+        if (limite <= 0 || raggioKm < 0) {
+            return new ArrayList<>();
+        }
+        Istantanea att = corrente;
+        double[] q = versore(latitudine, longitudine);
+        double corda = cordaDaKm(raggioKm);
+        Raccolta raccolta = new Raccolta(limite, corda * corda);
+
+        cerca(att.albero, 0, att.albero.length, 0, q, raccolta, filtro);
+        for (PuntoGeografico p : att.inAttesa) {
+            considera(p, q, raccolta, filtro);
+        }
+        return raccolta.risultati();
+    }
+
+    /**
+     * Converte una distanza ortodromica nella lunghezza della corda corrispondente
+     * sulla sfera unitaria.
+     */
+    static double cordaDaKm(double km) {
+        double angolo = Math.min(km / RAGGIO_TERRA_KM, Math.PI);
+        return 2 * Math.sin(angolo / 2);
+    }
+
+    /**
+     * Converte il quadrato della corda sulla sfera unitaria in distanza ortodromica.
+     */
+    static double kmDaCorda2(double corda2) {
+        double meta = Math.min(1.0, Math.sqrt(corda2) / 2);
+        return 2 * Math.asin(meta) * RAGGIO_TERRA_KM;
+    }
+
+    private static double[] versore(double latitudine, double longitudine) {
+        double lat = Math.toRadians(latitudine);
+        double lon = Math.toRadians(longitudine);
+        double cosLat = Math.cos(lat);
+        return new double[]{cosLat * Math.cos(lon), cosLat * Math.sin(lon), Math.sin(lat)};
+    }
+
+    private static double coordinata(PuntoGeografico p, int asse) {
+        return asse == 0 ? p.x : asse == 1 ? p.y : p.z;
+    }
+
+    private static double distanza2(PuntoGeografico p, double[] q) {
+        double dx = p.x - q[0];
+        double dy = p.y - q[1];
+        double dz = p.z - q[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static void considera(PuntoGeografico p, double[] q, Raccolta raccolta, Predicate<PuntoGeografico> filtro) {
+        double d2 = distanza2(p, q);
+        if (d2 <= raccolta.soglia() && (filtro == null || filtro.test(p))) {
+            raccolta.offri(p, d2);
+        }
+    }
+
+    /**
+     * Visita ricorsiva dell'albero implicito memorizzato nell'intervallo [da, a).
+     * Il nodo dell'intervallo è l'elemento mediano, diviso sull'asse profondità % 3.
+     */
+    private static void cerca(PuntoGeografico[] albero, int da, int a, int profondita, double[] q,
+                              Raccolta raccolta, Predicate<PuntoGeografico> filtro) {
+        if (da >= a) {
+            return;
+        }
+        int medio = (da + a) >>> 1;
+        PuntoGeografico nodo = albero[medio];
+        considera(nodo, q, raccolta, filtro);
+
+        int asse = profondita % 3;
+        double diff = q[asse] - coordinata(nodo, asse);
+        if (diff < 0) {
+            cerca(albero, da, medio, profondita + 1, q, raccolta, filtro);
+            if (diff * diff <= raccolta.soglia()) {
+                cerca(albero, medio + 1, a, profondita + 1, q, raccolta, filtro);
+            }
+        } else {
+            cerca(albero, medio + 1, a, profondita + 1, q, raccolta, filtro);
+            if (diff * diff <= raccolta.soglia()) {
+                cerca(albero, da, medio, profondita + 1, q, raccolta, filtro);
+            }
+        }
+    }
+
+    /**
+     * Ordina l'array in modo che ogni intervallo abbia il proprio mediano come nodo.
+     */
+    private static PuntoGeografico[] costruisci(PuntoGeografico[] punti) {
+        dividi(punti, 0, punti.length, 0);
+        return punti;
+    }
+
+    private static void dividi(PuntoGeografico[] punti, int da, int a, int profondita) {
+        if (a - da <= 1) {
+            return;
+        }
+        int medio = (da + a) >>> 1;
+        seleziona(punti, da, a - 1, medio, profondita % 3);
+        dividi(punti, da, medio, profondita + 1);
+        dividi(punti, medio + 1, a, profondita + 1);
+    }
+
+    /**
+     * Quickselect: porta in posizione k l'elemento che vi starebbe dopo l'ordinamento sull'asse.
+     */
+    private static void seleziona(PuntoGeografico[] punti, int sx, int dx, int k, int asse) {
+        while (dx > sx) {
+            double pivot = coordinata(punti[(sx + dx) >>> 1], asse);
+            int i = sx;
+            int j = dx;
+            while (i <= j) {
+                while (coordinata(punti[i], asse) < pivot) {
+                    i++;
+                }
+                while (coordinata(punti[j], asse) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    PuntoGeografico t = punti[i];
+                    punti[i] = punti[j];
+                    punti[j] = t;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                dx = j;
+            } else if (k >= i) {
+                sx = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stato immutabile letto dalle ricerche.
+     */
+    private static final class Istantanea {
+        private final PuntoGeografico[] albero;
+        private final PuntoGeografico[] inAttesa;
+
+        private Istantanea(PuntoGeografico[] albero, PuntoGeografico[] inAttesa) {
+            this.albero = albero;
+            this.inAttesa = inAttesa;
+        }
+    }
+
+    /**
+     * Raccoglie al massimo {@code limite} punti mantenendo i più vicini
+     * in un max-heap sulla distanza al quadrato.
+     */
+    private static final class Raccolta {
+        private final int limite;
+        private final double soglia2;
+        private PuntoGeografico[] punti;
+        private double[] distanze;
+        private int n;
+
+        private Raccolta(int limite, double soglia2) {
+            this.limite = limite;
+            this.soglia2 = soglia2;
+            int capacita = Math.min(limite, 64);
+            this.punti = new PuntoGeografico[capacita];
+            this.distanze = new double[capacita];
+        }
+
+        /**
+         * Soglia corrente: il raggio richiesto finché l'heap non è pieno,
+         * poi la distanza del peggiore tra i candidati tenuti.
+         */
+        private double soglia() {
+            return n < limite ? soglia2 : Math.min(soglia2, distanze[0]);
+        }
+
+        private void offri(PuntoGeografico p, double d2) {
+            if (n < limite) {
+                if (n == punti.length) {
+                    int nuova = (int) Math.min(limite, (long) n * 2);
+                    punti = Arrays.copyOf(punti, nuova);
+                    distanze = Arrays.copyOf(distanze, nuova);
+                }
+                int i = n++;
+                while (i > 0) {
+                    int padre = (i - 1) >>> 1;
+                    if (distanze[padre] >= d2) {
+                        break;
+                    }
+                    punti[i] = punti[padre];
+                    distanze[i] = distanze[padre];
+                    i = padre;
+                }
+                punti[i] = p;
+                distanze[i] = d2;
+            } else if (d2 < distanze[0]) {
+                int i = 0;
+                while (true) {
+                    int figlio = 2 * i + 1;
+                    if (figlio >= n) {
+                        break;
+                    }
+                    if (figlio + 1 < n && distanze[figlio + 1] > distanze[figlio]) {
+                        figlio++;
+                    }
+                    if (distanze[figlio] <= d2) {
+                        break;
+                    }
+                    punti[i] = punti[figlio];
+                    distanze[i] = distanze[figlio];
+                    i = figlio;
+                }
+                punti[i] = p;
+                distanze[i] = d2;
+            }
+        }
+
+        private List<RisultatoDistanza> risultati() {
+            List<RisultatoDistanza> lista = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                lista.add(new RisultatoDistanza(punti[i], kmDaCorda2(distanze[i])));
+            }
+            lista.sort(Comparator.comparingDouble(RisultatoDistanza::getDistanzaKm));
+            return lista;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.climatemonitoring.server.index;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Indice per il completamento automatico dei nomi di luogo.
+ *
+ * Ogni documento (una coordinata di monitoraggio) contribuisce con le chiavi
+ * normalizzate di città, stato e paese a un unico array ordinato. Un prefisso
+ * individua con due ricerche binarie l'intervallo di chiavi che lo iniziano;
+ * i documenti dell'intervallo sono poi ordinati per frequenza d'uso e ne
+ * vengono restituiti i primi.
+ *
+ * La frequenza di un documento è il numero di rilevazioni caricate all'avvio
+ * più le visualizzazioni registrate durante l'esecuzione con {@link #registraUtilizzo}.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class IndiceSuggerimenti {
+
+    /** Chiavi normalizzate in ordine lessicografico. */
+    private final String[] chiavi;
+
+    /** Documento a cui appartiene ciascuna chiave. */
+    private final int[] documenti;
+
+    /** Frequenza iniziale di ogni documento. */
+    private final int[] frequenzaBase;
+
+    /** Utilizzi registrati dopo il caricamento. */
+    private final AtomicIntegerArray utilizzi;
+
+    /**
+     * Costruisce l'indice.
+     *
+     * @param campi Per ogni documento, le chiavi normalizzate da indicizzare (le vuote sono ignorate)
+     * @param frequenzaBase Frequenza iniziale di ogni documento
+     */
+    public IndiceSuggerimenti(String[][] campi, int[] frequenzaBase) {
+        int totale = 0;
+        for (String[] c : campi) {
+            totale += c.length;
+        }
+
+        String[] tutte = new String[totale];
+        int[] docs = new int[totale];
+        int n = 0;
+        for (int doc = 0; doc < campi.length; doc++) {
+            for (String chiave : campi[doc]) {
+                if (chiave.isEmpty() || giaPresente(chiave, n, tutte, docs, doc)) {
+                    continue;
+                }
+                tutte[n] = chiave;
+                docs[n] = doc;
+                n++;
+            }
+        }
+
+        Integer[] indici = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            indici[i] = i;
+        }
+        Arrays.sort(indici, Comparator.comparing((Integer i) -> tutte[i]));
+
+        this.chiavi = new String[n];
+        this.documenti = new int[n];
+        for (int i = 0; i < n; i++) {
+            chiavi[i] = tutte[indici[i]];
+            documenti[i] = docs[indici[i]];
+        }
+        this.frequenzaBase = frequenzaBase;
+        this.utilizzi = new AtomicIntegerArray(campi.length);
+    }
+
+    /**
+     * Evita di indicizzare due volte la stessa chiave per lo stesso documento (es. stato uguale al paese).
+     */
+    private static boolean giaPresente(String chiave, int n, String[] tutte, int[] docs, int doc) {
+        for (int i = n - 1; i >= 0 && docs[i] == doc; i--) {
+            if (tutte[i].equals(chiave)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Incrementa la frequenza d'uso di un documento.
+     *
+     * @param doc Numero di documento
+     */
+    public void registraUtilizzo(int doc) {
+        if (doc >= 0 && doc < utilizzi.length()) {
+            utilizzi.incrementAndGet(doc);
+        }
+    }
+
+    /**
+     * Restituisce i documenti più usati con una chiave che inizia per il prefisso.
+     *
+     * @param prefisso Prefisso già normalizzato
+     * @param limite Numero massimo di documenti
+     * @return Documenti ordinati per frequenza decrescente
+     */
+    public int[] suggerisci(String prefisso, int limite) {
+        if (prefisso.isEmpty() || limite <= 0) {
+            return new int[0];
+        }
+        int da = primoNonMinore(prefisso);
+        int a = primoNonMinore(prefisso + Character.MAX_VALUE);
+        if (da >= a) {
+            return new int[0];
+        }
+
+        // min-heap sulla frequenza: in cima il peggiore tra i documenti tenuti
+        PriorityQueue<int[]> migliori = new PriorityQueue<>(limite + 1,
+                (x, y) -> x[1] != y[1] ? Integer.compare(x[1], y[1]) : Integer.compare(y[0], x[0]));
+        BitSet visti = new BitSet();
+        for (int i = da; i < a; i++) {
+            int doc = documenti[i];
+            if (visti.get(doc)) {
+                continue;
+            }
+            visti.set(doc);
+            int frequenza = frequenzaBase[doc] + utilizzi.get(doc);
+            if (migliori.size() < limite) {
+                migliori.add(new int[]{doc, frequenza});
+            } else {
+                int[] peggiore = migliori.peek();
+                if (frequenza > peggiore[1] || (frequenza == peggiore[1] && doc < peggiore[0])) {
+                    migliori.poll();
+                    migliori.add(new int[]{doc, frequenza});
+                }
+            }
+        }
+
+        int[] risultato = new int[migliori.size()];
+        for (int i = risultato.length - 1; i >= 0; i--) {
+            risultato[i] = migliori.poll()[0];
+        }
+        return risultato;
+    }
+
+    private int primoNonMinore(String chiave) {
+        int basso = 0;
+        int alto = chiavi.length;
+        while (basso < alto) {
+            int medio = (basso + alto) >>> 1;
+            if (chiavi[medio].compareTo(chiave) < 0) {
+                basso = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return basso;
+    }
+}
@@ -0,0 +1,237 @@
+package com.climatemonitoring.server.index;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Indice invertito a trigrammi per la ricerca per sottostringa.
+ *
+ * Ogni documento è una chiave già normalizzata con {@link Normalizzazione}.
+ * Per ogni trigramma l'indice conserva l'elenco ordinato dei documenti che lo
+ * contengono; una ricerca interseca gli elenchi dei trigrammi della query,
+ * partendo dal più corto, e verifica i pochi candidati rimasti con
+ * {@link String#contains}. In questo modo una ricerca {@code %testo%} non
+ * richiede la scansione di tutte le chiavi.
+ *
+ * Le query più corte di tre caratteri non hanno trigrammi e vengono
+ * risolte con una scansione lineare delle chiavi.
+ *
+ * L'indice è immutabile dopo la costruzione e può essere letto da più thread.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class IndiceTestuale {
+
+    private static final int[] VUOTO = new int[0];
+
+    /** Chiavi normalizzate, indicizzate per numero di documento. */
+    private final String[] chiavi;
+
+    /** Elenchi ordinati di documenti per trigramma. */
+    private final Map<Long, int[]> trigrammi;
+
+    /**
+     * Costruisce l'indice sulle chiavi indicate.
+     *
+     * @param chiavi Chiavi già normalizzate; la posizione è il numero di documento
+     */
+    public IndiceTestuale(String[] chiavi) {
+        this.chiavi = chiavi;
+
+        Map<Long, int[]> liste = new HashMap<>();
+        Map<Long, Integer> lunghezze = new HashMap<>();
+        for (int doc = 0; doc < chiavi.length; doc++) {
+            String k = chiavi[doc];
+            for (int i = 0; i + 3 <= k.length(); i++) {
+                long t = trigramma(k, i);
+                int[] lista = liste.get(t);
+                int n = lunghezze.getOrDefault(t, 0);
+                if (lista == null) {
+                    lista = new int[4];
+                } else if (n > 0 && lista[n - 1] == doc) {
+                    continue; // trigramma ripetuto nella stessa chiave
+                } else if (n == lista.length) {
+                    lista = Arrays.copyOf(lista, n * 2);
+                }
+                lista[n] = doc;
+                liste.put(t, lista);
+                lunghezze.put(t, n + 1);
+            }
+        }
+
+        Map<Long, int[]> compatte = new HashMap<>(liste.size() * 4 / 3 + 1);
+        for (Map.Entry<Long, int[]> e : liste.entrySet()) {
+            compatte.put(e.getKey(), Arrays.copyOf(e.getValue(), lunghezze.get(e.getKey())));
+        }
+        this.trigrammi = compatte;
+    }
+
+    /**
+     * @return Numero di documenti indicizzati
+     */
+    public int dimensione() {
+        return chiavi.length;
+    }
+
+    /**
+     * @param doc Numero di documento
+     * @return Chiave normalizzata del documento
+     */
+    public String chiave(int doc) {
+        return chiavi[doc];
+    }
+
+    /**
+     * Cerca i documenti la cui chiave contiene la query.
+     *
+     * @param query Testo già normalizzato
+     * @return Numeri di documento in ordine crescente
+     */
+    public int[] contiene(String query) {
+        if (query.isEmpty()) {
+            return VUOTO;
+        }
+        if (query.length() < 3) {
+            return scansione(query);
+        }
+
+        int nTrigrammi = query.length() - 2;
+        int[][] liste = new int[nTrigrammi][];
+        for (int i = 0; i < nTrigrammi; i++) {
+            int[] lista = trigrammi.get(trigramma(query, i));
+            if (lista == null) {
+                return VUOTO;
+            }
+            liste[i] = lista;
+        }
+        Arrays.sort(liste, (a, b) -> Integer.compare(a.length, b.length));
+
+        int[] candidati = liste[0];
+        int n = candidati.length;
+        for (int i = 1; i < liste.length && n > 0; i++) {
+            int[] dest = candidati == liste[0] ? new int[n] : candidati;
+            n = interseca(candidati, n, liste[i], dest);
+            candidati = dest;
+        }
+
+        // I trigrammi sono necessari ma non sufficienti: verifica la sottostringa
+        int[] risultato = new int[n];
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            if (chiavi[candidati[i]].contains(query)) {
+                risultato[m++] = candidati[i];
+            }
+        }
+        return m == risultato.length ? risultato : Arrays.copyOf(risultato, m);
+    }
+
+    /**
+     * Cerca i primi documenti successivi a {@code dopoDoc} la cui chiave
+     * contiene la query e che soddisfano il filtro.
+     *
+     * Non calcola l'intersezione completa: scorre, dal punto di partenza,
+     * l'elenco del trigramma meno frequente e verifica ogni candidato con
+     * {@link String#contains}, fermandosi dopo {@code massimo} documenti.
+     * Il costo dipende quindi dalla pagina richiesta e non dal numero totale
+     * di corrispondenze.
+     *
+     * @param query Testo già normalizzato
+     * @param dopoDoc Documento da cui riprendere, escluso; -1 per partire dall'inizio
+     * @param massimo Numero massimo di documenti restituiti
+     * @param filtro Condizione aggiuntiva sul numero di documento
+     * @return Numeri di documento in ordine crescente
+     */
+    public int[] contiene(String query, int dopoDoc, int massimo, IntPredicate filtro) {
+        if (query.isEmpty() || massimo <= 0) {
+            return VUOTO;
+        }
+
+        int[] candidati = null;
+        for (int i = 0; i + 3 <= query.length(); i++) {
+            int[] lista = trigrammi.get(trigramma(query, i));
+            if (lista == null) {
+                return VUOTO;
+            }
+            if (candidati == null || lista.length < candidati.length) {
+                candidati = lista;
+            }
+        }
+
+        // senza trigrammi (query di uno o due caratteri) i candidati sono tutte le chiavi
+        int inizio = candidati == null ? dopoDoc + 1 : primoDopo(candidati, dopoDoc);
+        int fine = candidati == null ? chiavi.length : candidati.length;
+        int[] risultato = new int[Math.min(massimo, 16)];
+        int m = 0;
+        for (int i = inizio; i < fine && m < massimo; i++) {
+            int doc = candidati == null ? i : candidati[i];
+            if (chiavi[doc].contains(query) && filtro.test(doc)) {
+                if (m == risultato.length) {
+                    risultato = Arrays.copyOf(risultato, Math.min(massimo, m * 2));
+                }
+                risultato[m++] = doc;
+            }
+        }
+        return Arrays.copyOf(risultato, m);
+    }
+
+    /**
+     * @param ordinati Valori distinti in ordine crescente
+     * @param valore Valore da superare
+     * @return Posizione del primo elemento maggiore di {@code valore}
+     */
+    static int primoDopo(int[] ordinati, int valore) {
+        int i = Arrays.binarySearch(ordinati, valore);
+        return i >= 0 ? i + 1 : -i - 1;
+    }
+
+    private int[] scansione(String query) {
+        int[] risultato = new int[16];
+        int m = 0;
+        for (int doc = 0; doc < chiavi.length; doc++) {
+            if (chiavi[doc].contains(query)) {
+                if (m == risultato.length) {
+                    risultato = Arrays.copyOf(risultato, m * 2);
+                }
+                risultato[m++] = doc;
+            }
+        }
+        return Arrays.copyOf(risultato, m);
+    }
+
+    /**
+     * Intersezione di due elenchi ordinati; scrive il risultato in dest (può coincidere con a).
+     */
+    private static int interseca(int[] a, int na, int[] b, int[] dest) {
+        int i = 0, j = 0, n = 0;
+        while (i < na && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                // salto esponenziale nell'elenco più lungo
+                int passo = 1;
+                int k = j;
+                while (k + passo < b.length && b[k + passo] < a[i]) {
+                    k += passo;
+                    passo <<= 1;
+                }
+                j = k + 1;
+                while (j < b.length && b[j] < a[i]) {
+                    j++;
+                }
+            } else {
+                dest[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return n;
+    }
+
+    private static long trigramma(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+}
@@ -0,0 +1,47 @@
+package com.climatemonitoring.server.index;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalizzazione dei testi usata dagli indici di ricerca.
+ *
+ * Rende le ricerche indipendenti da maiuscole, accenti e spazi superflui:
+ * "  São Paulo" e "sao paulo" producono la stessa chiave.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public final class Normalizzazione {
+
+    /** Segni diacritici separati dalla decomposizione NFD. */
+    private static final Pattern DIACRITICI = Pattern.compile("\\p{M}+");
+
+    /** Sequenze di spazi da ridurre a uno solo. */
+    private static final Pattern SPAZI = Pattern.compile("\\s+");
+
+    private Normalizzazione() {
+    }
+
+    /**
+     * Restituisce la chiave normalizzata di un testo.
+     *
+     * @param testo Testo da normalizzare, anche nullo
+     * @return Testo senza accenti, in minuscolo e con spazi compattati; stringa vuota se nullo
+     */
+    public static String normalizza(String testo) {
+        if (testo == null) {
+            return "";
+        }
+        String senzaAccenti = testo;
+        for (int i = 0; i < testo.length(); i++) {
+            if (testo.charAt(i) > 0x7F) {
+                senzaAccenti = DIACRITICI.matcher(Normalizer.normalize(testo, Normalizer.Form.NFD)).replaceAll("");
+                break;
+            }
+        }
+        return SPAZI.matcher(senzaAccenti.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,125 @@
+package com.climatemonitoring.server.index;
+
+import com.climatemonitoring.common.model.CoordinateMonitoraggio;
+
+/**
+ * Punto geografico immutabile gestito dagli indici in memoria del server.
+ *
+ * Rappresenta sia una riga di {@code coordinatemonitoraggio} sia un'area di
+ * interesse registrata da un centro di monitoraggio. Oltre a latitudine e
+ * longitudine conserva la posizione come vettore unitario sulla sfera, usato
+ * dall'{@link IndiceSpaziale} per confrontare le distanze senza trigonometria.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public final class PuntoGeografico {
+
+    /**
+     * Origine del punto geografico.
+     */
+    public enum Tipo {
+        /** Riga della tabella coordinatemonitoraggio. */
+        COORDINATA,
+        /** Riga della tabella areeinteresse. */
+        AREA_INTERESSE
+    }
+
+    private final Tipo tipo;
+    private final int id;
+    private final String nome;
+    private final String stato;
+    private final String paese;
+    private final Integer centroMonitoraggioId;
+    private final double latitudine;
+    private final double longitudine;
+
+    /** Componenti del vettore unitario corrispondente alla posizione. */
+    final double x;
+    final double y;
+    final double z;
+
+    /**
+     * Costruisce un punto geografico.
+     *
+     * @param tipo Origine del punto
+     * @param id Identificativo nella tabella di origine
+     * @param nome Nome della città o dell'area
+     * @param stato Stato o regione
+     * @param paese Paese (null per le aree di interesse)
+     * @param centroMonitoraggioId Centro associato (null per le coordinate)
+     * @param latitudine Latitudine in gradi
+     * @param longitudine Longitudine in gradi
+     */
+    public PuntoGeografico(Tipo tipo, int id, String nome, String stato, String paese,
+                           Integer centroMonitoraggioId, double latitudine, double longitudine) {
+        this.tipo = tipo;
+        this.id = id;
+        this.nome = nome;
+        this.stato = stato;
+        this.paese = paese;
+        this.centroMonitoraggioId = centroMonitoraggioId;
+        this.latitudine = latitudine;
+        this.longitudine = longitudine;
+
+        double lat = Math.toRadians(latitudine);
+        double lon = Math.toRadians(longitudine);
+        double cosLat = Math.cos(lat);
+        this.x = cosLat * Math.cos(lon);
+        this.y = cosLat * Math.sin(lon);
+        this.z = Math.sin(lat);
+    }
+
+    /**
+     * Converte il punto nel modello condiviso con il client.
+     *
+     * @return Nuova istanza di {@link CoordinateMonitoraggio}
+     */
+    public CoordinateMonitoraggio toCoordinateMonitoraggio() {
+        if (tipo == Tipo.AREA_INTERESSE) {
+            CoordinateMonitoraggio area = new CoordinateMonitoraggio(id, nome,
+                    centroMonitoraggioId == null ? 0 : centroMonitoraggioId, stato, latitudine, longitudine);
+            area.setPaese(paese);
+            return area;
+        }
+        return new CoordinateMonitoraggio(id, nome, stato, paese, latitudine, longitudine);
+    }
+
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    public String getStato() {
+        return stato;
+    }
+
+    public String getPaese() {
+        return paese;
+    }
+
+    public Integer getCentroMonitoraggioId() {
+        return centroMonitoraggioId;
+    }
+
+    public double getLatitudine() {
+        return latitudine;
+    }
+
+    public double getLongitudine() {
+        return longitudine;
+    }
+
+    @Override
+    public String toString() {
+        return tipo + "#" + id + " " + nome + " (" + latitudine + ", " + longitudine + ")";
+    }
+}
@@ -0,0 +1,30 @@
+package com.climatemonitoring.server.index;
+
+/**
+ * Punto restituito da una ricerca spaziale, con la sua distanza dal punto di ricerca.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public final class RisultatoDistanza {
+
+    private final PuntoGeografico punto;
+    private final double distanzaKm;
+
+    RisultatoDistanza(PuntoGeografico punto, double distanzaKm) {
+        this.punto = punto;
+        this.distanzaKm = distanzaKm;
+    }
+
+    public PuntoGeografico getPunto() {
+        return punto;
+    }
+
+    /**
+     * @return Distanza ortodromica in chilometri dal punto di ricerca
+     */
+    public double getDistanzaKm() {
+        return distanzaKm;
+    }
+}
@@ -0,0 +1,152 @@
+package com.climatemonitoring.server.index;
+
+import java.util.Arrays;
+
+/**
+ * Statistiche cumulative delle rilevazioni di un'area o di un centro.
+ *
+ * Per ogni parametro climatico conserva numero di valori non nulli, somma,
+ * minimo, massimo e somma dei quadrati: da questi si ricavano media e
+ * varianza in tempo costante, qualunque sia la lunghezza della storia.
+ * I parametri sono indicizzati per
+ * {@link com.climatemonitoring.common.model.ParametroClimatico#ordinal()}.
+ *
+ * Gli aggiornamenti e le copie sono sincronizzati sull'istanza.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public final class StatisticheClimatiche {
+
+    /** Numero di rilevazioni, comprese quelle con parametri nulli. */
+    private long righe;
+
+    private final long[] conteggi;
+    private final long[] somme;
+    private final long[] sommeQuadrati;
+    private final int[] minimi;
+    private final int[] massimi;
+
+    /**
+     * Crea statistiche vuote.
+     *
+     * @param parametri Numero di parametri climatici
+     */
+    StatisticheClimatiche(int parametri) {
+        conteggi = new long[parametri];
+        somme = new long[parametri];
+        sommeQuadrati = new long[parametri];
+        minimi = new int[parametri];
+        massimi = new int[parametri];
+        Arrays.fill(minimi, Integer.MAX_VALUE);
+        Arrays.fill(massimi, Integer.MIN_VALUE);
+    }
+
+    private StatisticheClimatiche(StatisticheClimatiche altra) {
+        righe = altra.righe;
+        conteggi = altra.conteggi.clone();
+        somme = altra.somme.clone();
+        sommeQuadrati = altra.sommeQuadrati.clone();
+        minimi = altra.minimi.clone();
+        massimi = altra.massimi.clone();
+    }
+
+    /**
+     * Aggiunge una rilevazione con tutti i parametri valorizzati.
+     *
+     * @param valori Valori dei parametri
+     */
+    synchronized void aggiungi(int[] valori) {
+        righe++;
+        for (int p = 0; p < valori.length; p++) {
+            accumula(p, 1, valori[p], (long) valori[p] * valori[p], valori[p], valori[p]);
+        }
+    }
+
+    /**
+     * Somma ai totali di un parametro i valori parziali indicati,
+     * ad esempio quelli letti dal database con una GROUP BY.
+     */
+    void accumula(int p, long conteggio, long somma, long sommaQuadrati, int minimo, int massimo) {
+        conteggi[p] += conteggio;
+        somme[p] += somma;
+        sommeQuadrati[p] += sommaQuadrati;
+        minimi[p] = Math.min(minimi[p], minimo);
+        massimi[p] = Math.max(massimi[p], massimo);
+    }
+
+    void aggiungiRighe(long righe) {
+        this.righe += righe;
+    }
+
+    /**
+     * @return Copia indipendente, coerente con gli aggiornamenti concorrenti
+     */
+    synchronized StatisticheClimatiche copia() {
+        return new StatisticheClimatiche(this);
+    }
+
+    /**
+     * @return Numero di rilevazioni
+     */
+    public long getRighe() {
+        return righe;
+    }
+
+    /**
+     * @param p Indice del parametro
+     * @return Numero di valori non nulli del parametro
+     */
+    public long conteggio(int p) {
+        return conteggi[p];
+    }
+
+    /**
+     * @param p Indice del parametro
+     * @return Media dei valori non nulli, 0 se non ce ne sono (come {@code AVG} letto con getDouble)
+     */
+    public double media(int p) {
+        return conteggi[p] == 0 ? 0 : (double) somme[p] / conteggi[p];
+    }
+
+    /**
+     * @param p Indice del parametro
+     * @return Varianza della popolazione dei valori non nulli, 0 se non ce ne sono
+     */
+    public double varianza(int p) {
+        if (conteggi[p] == 0) {
+            return 0;
+        }
+        double media = media(p);
+        return Math.max(0, (double) sommeQuadrati[p] / conteggi[p] - media * media);
+    }
+
+    /**
+     * @param p Indice del parametro
+     * @return Valore minimo, {@link Integer#MAX_VALUE} se non ci sono valori
+     */
+    public int minimo(int p) {
+        return minimi[p];
+    }
+
+    /**
+     * @param p Indice del parametro
+     * @return Valore massimo, {@link Integer#MIN_VALUE} se non ci sono valori
+     */
+    public int massimo(int p) {
+        return massimi[p];
+    }
+
+    /**
+     * Confronta esattamente due statistiche, usato per la verifica di coerenza.
+     */
+    boolean coincide(StatisticheClimatiche altra) {
+        return righe == altra.righe
+                && Arrays.equals(conteggi, altra.conteggi)
+                && Arrays.equals(somme, altra.somme)
+                && Arrays.equals(sommeQuadrati, altra.sommeQuadrati)
+                && Arrays.equals(minimi, altra.minimi)
+                && Arrays.equals(massimi, altra.massimi);
+    }
+}
@@ -0,0 +1,67 @@
+package com.climatemonitoring.server.ingestion;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Chiavi di idempotenza degli inserimenti confermati più di recente.
+ *
+ * Un client che ripete un inserimento lo fa quasi sempre entro pochi
+ * secondi: tenendo in memoria le ultime chiavi confermate, la ripetizione
+ * si riconosce senza interrogare il database. Oltre la capacità vengono
+ * dimenticate le chiavi usate meno di recente; per quelle resta il vincolo
+ * di unicità sul database, che impedisce comunque i duplicati.
+ *
+ * A ogni chiave è associato il numero di rilevazioni dell'inserimento
+ * (1 per una rilevazione, la dimensione del lotto per un lotto).
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class ChiaviRecenti {
+
+    private final Map<UUID, Integer> chiavi;
+
+    /**
+     * @param capacita Numero massimo di chiavi ricordate
+     */
+    public ChiaviRecenti(int capacita) {
+        if (capacita <= 0) {
+            throw new IllegalArgumentException("La capacità deve essere positiva");
+        }
+        this.chiavi = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Integer> piuVecchia) {
+                return size() > capacita;
+            }
+        };
+    }
+
+    /**
+     * @param chiave Chiave di idempotenza
+     * @return Numero di rilevazioni dell'inserimento confermato con la chiave, o null se non ricordata
+     */
+    public synchronized Integer cerca(UUID chiave) {
+        return chiavi.get(chiave);
+    }
+
+    /**
+     * @param chiave Chiave di idempotenza
+     * @return {@code true} se la chiave è ricordata come già confermata
+     */
+    public boolean contiene(UUID chiave) {
+        return cerca(chiave) != null;
+    }
+
+    /**
+     * Ricorda una chiave dopo il commit del relativo inserimento.
+     *
+     * @param chiave Chiave di idempotenza
+     * @param rilevazioni Numero di rilevazioni inserite
+     */
+    public synchronized void registra(UUID chiave, int rilevazioni) {
+        chiavi.put(chiave, rilevazioni);
+    }
+}
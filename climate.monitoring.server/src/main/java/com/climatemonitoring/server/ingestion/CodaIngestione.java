@@ -0,0 +1,305 @@
+package com.climatemonitoring.server.ingestion;
+
+import com.climatemonitoring.common.model.ParametriClimatici;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coda di ingestione delle rilevazioni con scrittura differita a gruppi.
+ *
+ * Le chiamate di inserimento accodano la rilevazione e attendono l'esito;
+ * un unico thread di scrittura preleva dalla coda gruppi di rilevazioni e li
+ * scrive con {@link ScrittoreRilevazioni#scriviGruppo(List)}, cioè con una
+ * sola transazione e un solo commit per gruppo. Un gruppo si chiude quando
+ * raggiunge la dimensione massima o quando scade la finestra temporale
+ * iniziata dalla sua prima rilevazione.
+ *
+ * Il client riceve conferma solo dopo il commit del gruppo che contiene la
+ * sua rilevazione; se la conferma non arriva entro il tempo configurato,
+ * ad esempio perché il thread di scrittura si è fermato, riceve un errore.
+ * La coda ha capacità limitata: se è piena l'accodamento attende per il
+ * tempo configurato e poi viene rifiutato, così un picco di richieste
+ * rallenta i client invece di esaurire la memoria del server.
+ *
+ * Le metriche sono esposte tramite JMX con {@link CodaIngestioneMBean}.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class CodaIngestione implements CodaIngestioneMBean {
+
+    /** Nome JMX con cui sono registrate le metriche. */
+    public static final String NOME_JMX = "com.climatemonitoring:type=CodaIngestione";
+
+    /** Intervallo (ms) con cui il thread di scrittura controlla la chiusura a coda vuota. */
+    private static final long INTERVALLO_CONTROLLO_MS = 200;
+
+    /**
+     * Rilevazione in attesa di scrittura con l'esito da restituire al chiamante:
+     * null se inserita, altrimenti il messaggio di errore.
+     */
+    private static final class Richiesta {
+        final ParametriClimatici rilevazione;
+        final CompletableFuture<String> esito = new CompletableFuture<>();
+
+        Richiesta(ParametriClimatici rilevazione) {
+            this.rilevazione = rilevazione;
+        }
+    }
+
+    private final ScrittoreRilevazioni scrittore;
+    private final ConfigurazioneIngestione configurazione;
+    private final BlockingQueue<Richiesta> coda;
+    private final Thread scrittura;
+
+    /** Diventa false alla chiusura: non si accettano nuove rilevazioni. */
+    private volatile boolean aperta = true;
+
+    private final AtomicLong lottiScritti = new AtomicLong();
+    private final AtomicLong rilevazioniInLotti = new AtomicLong();
+    private final AtomicLong rilevazioniScritte = new AtomicLong();
+    private final AtomicLong rilevazioniFallite = new AtomicLong();
+    private final AtomicLong rilevazioniRifiutate = new AtomicLong();
+    private final AtomicLong nanosCommitTotali = new AtomicLong();
+    private volatile long nanosCommitMassimi;
+    private volatile int ultimaDimensioneLotto;
+
+    /**
+     * Crea la coda e avvia il thread di scrittura.
+     *
+     * @param scrittore Scrittore usato per i gruppi di rilevazioni
+     * @param configurazione Limiti della coda e dei lotti
+     */
+    public CodaIngestione(ScrittoreRilevazioni scrittore, ConfigurazioneIngestione configurazione) {
+        this.scrittore = scrittore;
+        this.configurazione = configurazione;
+        this.coda = new ArrayBlockingQueue<>(configurazione.getCapacitaCoda());
+        this.scrittura = new Thread(this::eseguiScrittura, "ingestione-rilevazioni");
+        scrittura.setDaemon(true);
+        scrittura.start();
+        registraMetriche();
+    }
+
+    /**
+     * Accoda una rilevazione e attende il commit del gruppo che la contiene.
+     *
+     * @param rilevazione Rilevazione da inserire
+     * @throws IllegalArgumentException Se la rilevazione non è valida o cita entità inesistenti
+     * @throws IllegalStateException Se la coda è piena oltre il tempo di attesa, se è stata chiusa
+     *                               o se la conferma non arriva entro il tempo configurato
+     * @throws InterruptedException Se il thread chiamante viene interrotto durante l'attesa
+     */
+    public void inserisci(ParametriClimatici rilevazione) throws InterruptedException {
+        if (!aperta) {
+            throw new IllegalStateException("La coda di ingestione è chiusa");
+        }
+        Richiesta richiesta = new Richiesta(rilevazione);
+        if (!coda.offer(richiesta, configurazione.getTimeoutAccodamentoMs(), TimeUnit.MILLISECONDS)) {
+            rilevazioniRifiutate.incrementAndGet();
+            throw new IllegalStateException("Il server è occupato, riprovare più tardi");
+        }
+        // la chiusura può aver già svuotato la coda tra il controllo e l'accodamento:
+        // se la richiesta è ancora in coda nessuno la completerà
+        if (!aperta && coda.remove(richiesta)) {
+            throw new IllegalStateException("La coda di ingestione è chiusa");
+        }
+
+        String errore;
+        try {
+            errore = richiesta.esito.get(configurazione.getTimeoutEsitoMs(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Errore durante la scrittura della rilevazione: "
+                    + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Nessuna conferma della scrittura entro "
+                    + configurazione.getTimeoutEsitoMs() + " ms: la rilevazione potrebbe essere stata inserita");
+        }
+        if (errore != null) {
+            throw new IllegalArgumentException(errore);
+        }
+    }
+
+    private void eseguiScrittura() {
+        List<Richiesta> lotto = new ArrayList<>(configurazione.getDimensioneMassimaLotto());
+        while (aperta || !coda.isEmpty()) {
+            try {
+                Richiesta prima = coda.poll(INTERVALLO_CONTROLLO_MS, TimeUnit.MILLISECONDS);
+                if (prima == null) {
+                    continue;
+                }
+                lotto.add(prima);
+                raccogli(lotto);
+                scrivi(lotto);
+            } catch (InterruptedException e) {
+                // le rilevazioni già prelevate vanno comunque scritte e confermate
+                if (!lotto.isEmpty()) {
+                    scrivi(lotto);
+                }
+            } finally {
+                lotto.clear();
+            }
+        }
+    }
+
+    /**
+     * Completa il lotto con le rilevazioni già in coda e con quelle che
+     * arrivano entro la finestra temporale, fino alla dimensione massima.
+     */
+    private void raccogli(List<Richiesta> lotto) throws InterruptedException {
+        int massimo = configurazione.getDimensioneMassimaLotto();
+        long scadenza = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(configurazione.getFinestraLottoMs());
+        while (lotto.size() < massimo) {
+            if (coda.drainTo(lotto, massimo - lotto.size()) > 0) {
+                continue;
+            }
+            long attesa = scadenza - System.nanoTime();
+            if (attesa <= 0 || !aperta) {
+                return;
+            }
+            Richiesta successiva = coda.poll(attesa, TimeUnit.NANOSECONDS);
+            if (successiva == null) {
+                return;
+            }
+            lotto.add(successiva);
+        }
+    }
+
+    private void scrivi(List<Richiesta> lotto) {
+        List<ParametriClimatici> rilevazioni = new ArrayList<>(lotto.size());
+        for (Richiesta r : lotto) {
+            rilevazioni.add(r.rilevazione);
+        }
+
+        long inizio = System.nanoTime();
+        String[] errori;
+        try {
+            errori = scrittore.scriviGruppo(rilevazioni);
+        } catch (Exception e) {
+            System.err.println("Scrittura di un lotto di " + lotto.size() + " rilevazioni fallita: " + e.getMessage());
+            rilevazioniFallite.addAndGet(lotto.size());
+            for (Richiesta r : lotto) {
+                r.esito.completeExceptionally(e);
+            }
+            return;
+        }
+        long durata = System.nanoTime() - inizio;
+
+        int fallite = 0;
+        for (String errore : errori) {
+            if (errore != null) {
+                fallite++;
+            }
+        }
+        lottiScritti.incrementAndGet();
+        rilevazioniInLotti.addAndGet(lotto.size());
+        rilevazioniScritte.addAndGet(lotto.size() - fallite);
+        rilevazioniFallite.addAndGet(fallite);
+        nanosCommitTotali.addAndGet(durata);
+        nanosCommitMassimi = Math.max(nanosCommitMassimi, durata);
+        ultimaDimensioneLotto = lotto.size();
+
+        for (int i = 0; i < lotto.size(); i++) {
+            lotto.get(i).esito.complete(errori[i]);
+        }
+    }
+
+    /**
+     * Smette di accettare rilevazioni, attende la scrittura di quelle già
+     * accodate e rimuove le metriche JMX.
+     *
+     * @param attesaMs Tempo massimo (ms) di attesa dello svuotamento della coda
+     */
+    public void chiudi(long attesaMs) {
+        // il thread di scrittura non viene interrotto: se ne accorge entro
+        // INTERVALLO_CONTROLLO_MS e termina dopo aver svuotato la coda
+        aperta = false;
+        try {
+            scrittura.join(attesaMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (scrittura.isAlive()) {
+            System.err.println("Coda di ingestione chiusa con " + coda.size() + " rilevazioni non scritte");
+        }
+        Richiesta residua;
+        while ((residua = coda.poll()) != null) {
+            residua.esito.completeExceptionally(new IllegalStateException("Il server è in chiusura"));
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(NOME_JMX));
+        } catch (Exception e) {
+            System.err.println("Impossibile rimuovere le metriche JMX della coda di ingestione: " + e.getMessage());
+        }
+    }
+
+    private void registraMetriche() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(NOME_JMX));
+        } catch (Exception e) {
+            System.err.println("Impossibile registrare le metriche JMX della coda di ingestione: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public int getProfondita() {
+        return coda.size();
+    }
+
+    @Override
+    public int getCapacita() {
+        return configurazione.getCapacitaCoda();
+    }
+
+    @Override
+    public long getLottiScritti() {
+        return lottiScritti.get();
+    }
+
+    @Override
+    public long getRilevazioniScritte() {
+        return rilevazioniScritte.get();
+    }
+
+    @Override
+    public long getRilevazioniFallite() {
+        return rilevazioniFallite.get();
+    }
+
+    @Override
+    public long getRilevazioniRifiutate() {
+        return rilevazioniRifiutate.get();
+    }
+
+    @Override
+    public int getUltimaDimensioneLotto() {
+        return ultimaDimensioneLotto;
+    }
+
+    @Override
+    public double getDimensioneMediaLotto() {
+        long lotti = lottiScritti.get();
+        return lotti == 0 ? 0 : (double) rilevazioniInLotti.get() / lotti;
+    }
+
+    @Override
+    public double getLatenzaMediaCommitMs() {
+        long lotti = lottiScritti.get();
+        return lotti == 0 ? 0 : nanosCommitTotali.get() / 1e6 / lotti;
+    }
+
+    @Override
+    public double getLatenzaMassimaCommitMs() {
+        return nanosCommitMassimi / 1e6;
+    }
+}
@@ -0,0 +1,62 @@
+package com.climatemonitoring.server.ingestion;
+
+/**
+ * Metriche della coda di ingestione esposte tramite JMX
+ * (ad esempio in JConsole, sotto {@code com.climatemonitoring:type=CodaIngestione}).
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public interface CodaIngestioneMBean {
+
+    /**
+     * @return Rilevazioni in attesa di scrittura
+     */
+    int getProfondita();
+
+    /**
+     * @return Capacità massima della coda
+     */
+    int getCapacita();
+
+    /**
+     * @return Numero di lotti scritti dall'avvio
+     */
+    long getLottiScritti();
+
+    /**
+     * @return Numero di rilevazioni confermate dall'avvio
+     */
+    long getRilevazioniScritte();
+
+    /**
+     * @return Numero di rilevazioni non inserite per errore
+     */
+    long getRilevazioniFallite();
+
+    /**
+     * @return Numero di rilevazioni rifiutate perché la coda era piena
+     */
+    long getRilevazioniRifiutate();
+
+    /**
+     * @return Dimensione dell'ultimo lotto scritto
+     */
+    int getUltimaDimensioneLotto();
+
+    /**
+     * @return Dimensione media dei lotti scritti
+     */
+    double getDimensioneMediaLotto();
+
+    /**
+     * @return Durata media (ms) della scrittura e del commit di un lotto
+     */
+    double getLatenzaMediaCommitMs();
+
+    /**
+     * @return Durata massima (ms) della scrittura e del commit di un lotto
+     */
+    double getLatenzaMassimaCommitMs();
+}
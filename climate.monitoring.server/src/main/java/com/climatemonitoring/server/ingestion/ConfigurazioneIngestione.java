@@ -0,0 +1,202 @@
+package com.climatemonitoring.server.ingestion;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Parametri dell'ingestione delle rilevazioni.
+ *
+ * Raccoglie i limiti usati da {@link CodaIngestione}:
+ * - Attivazione della coda (disattivata per impostazione predefinita)
+ * - Capacità della coda, oltre la quale i client vengono rallentati
+ * - Dimensione massima e finestra temporale di un lotto
+ * - Tempo massimo di attesa per accodare una rilevazione a coda piena
+ * - Tempo massimo di attesa della conferma di scrittura
+ *
+ * da {@link ChiaviRecenti}:
+ * - Numero di chiavi di idempotenza ricordate in memoria
+ *
+ * e da {@link SpoolRilevazioni}:
+ * - Attivazione dello spool locale (attivo per impostazione predefinita)
+ * - Cartella del file di spool
+ * - Intervallo tra i tentativi di riapplicazione
+ *
+ * I valori possono essere letti dalle proprietà di sistema con
+ * {@link #daProprietaSistema()}, ad esempio
+ * {@code -Dclimatemonitoring.ingestione.attiva=true}.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class ConfigurazioneIngestione {
+
+    /** Prefisso delle proprietà di sistema lette da {@link #daProprietaSistema()}. */
+    public static final String PREFISSO = "climatemonitoring.ingestione.";
+
+    /** Indica se gli inserimenti passano dalla coda. */
+    private boolean attiva = false;
+
+    /** Numero massimo di rilevazioni in attesa di scrittura. */
+    private int capacitaCoda = 10_000;
+
+    /** Numero massimo di rilevazioni scritte in un'unica transazione. */
+    private int dimensioneMassimaLotto = 500;
+
+    /** Tempo massimo (ms) di attesa di altre rilevazioni prima di scrivere un lotto. */
+    private long finestraLottoMs = 10;
+
+    /** Tempo massimo (ms) di attesa per accodare una rilevazione quando la coda è piena. */
+    private long timeoutAccodamentoMs = 2_000;
+
+    /** Tempo massimo (ms) di attesa della conferma di scrittura di una rilevazione accodata. */
+    private long timeoutEsitoMs = 30_000;
+
+    /** Numero massimo di chiavi di idempotenza ricordate in memoria. */
+    private int chiaviRecenti = 100_000;
+
+    /** Indica se le rilevazioni vengono salvate nello spool quando il database non è disponibile. */
+    private boolean spoolAttivo = true;
+
+    /** Cartella del file di spool. */
+    private Path cartellaSpool = Paths.get(System.getProperty("user.home"), ".climatemonitoring", "spool");
+
+    /** Intervallo (ms) tra i tentativi di riapplicare lo spool. */
+    private long intervalloRipresaMs = 5_000;
+
+    /**
+     * Costruisce una configurazione con i valori predefiniti.
+     */
+    public ConfigurazioneIngestione() {
+    }
+
+    /**
+     * Costruisce una configurazione a partire dalle proprietà di sistema
+     * con prefisso {@value #PREFISSO}; le proprietà assenti mantengono il
+     * valore predefinito.
+     *
+     * @return Configurazione letta
+     * @throws IllegalArgumentException Se una proprietà ha un valore non valido
+     */
+    public static ConfigurazioneIngestione daProprietaSistema() {
+        ConfigurazioneIngestione c = new ConfigurazioneIngestione();
+        c.setAttiva(Boolean.parseBoolean(System.getProperty(PREFISSO + "attiva", "false")));
+        c.setCapacitaCoda(Integer.getInteger(PREFISSO + "capacita", c.capacitaCoda));
+        c.setDimensioneMassimaLotto(Integer.getInteger(PREFISSO + "lotto", c.dimensioneMassimaLotto));
+        c.setFinestraLottoMs(Long.getLong(PREFISSO + "finestraMs", c.finestraLottoMs));
+        c.setTimeoutAccodamentoMs(Long.getLong(PREFISSO + "timeoutAccodamentoMs", c.timeoutAccodamentoMs));
+        c.setTimeoutEsitoMs(Long.getLong(PREFISSO + "timeoutEsitoMs", c.timeoutEsitoMs));
+        c.setChiaviRecenti(Integer.getInteger(PREFISSO + "chiaviRecenti", c.chiaviRecenti));
+        c.setSpoolAttivo(Boolean.parseBoolean(System.getProperty(PREFISSO + "spool", "true")));
+        String cartella = System.getProperty(PREFISSO + "spool.cartella");
+        if (cartella != null) {
+            c.setCartellaSpool(Paths.get(cartella));
+        }
+        c.setIntervalloRipresaMs(Long.getLong(PREFISSO + "spool.intervalloMs", c.intervalloRipresaMs));
+        return c;
+    }
+
+    public boolean isAttiva() {
+        return attiva;
+    }
+
+    public void setAttiva(boolean attiva) {
+        this.attiva = attiva;
+    }
+
+    public int getCapacitaCoda() {
+        return capacitaCoda;
+    }
+
+    public void setCapacitaCoda(int capacitaCoda) {
+        if (capacitaCoda <= 0) {
+            throw new IllegalArgumentException("La capacità della coda deve essere positiva");
+        }
+        this.capacitaCoda = capacitaCoda;
+    }
+
+    public int getDimensioneMassimaLotto() {
+        return dimensioneMassimaLotto;
+    }
+
+    public void setDimensioneMassimaLotto(int dimensioneMassimaLotto) {
+        if (dimensioneMassimaLotto <= 0) {
+            throw new IllegalArgumentException("La dimensione massima del lotto deve essere positiva");
+        }
+        this.dimensioneMassimaLotto = dimensioneMassimaLotto;
+    }
+
+    public long getFinestraLottoMs() {
+        return finestraLottoMs;
+    }
+
+    public void setFinestraLottoMs(long finestraLottoMs) {
+        if (finestraLottoMs < 0) {
+            throw new IllegalArgumentException("La finestra del lotto non può essere negativa");
+        }
+        this.finestraLottoMs = finestraLottoMs;
+    }
+
+    public long getTimeoutAccodamentoMs() {
+        return timeoutAccodamentoMs;
+    }
+
+    public void setTimeoutAccodamentoMs(long timeoutAccodamentoMs) {
+        if (timeoutAccodamentoMs < 0) {
+            throw new IllegalArgumentException("Il timeout di accodamento non può essere negativo");
+        }
+        this.timeoutAccodamentoMs = timeoutAccodamentoMs;
+    }
+
+    public long getTimeoutEsitoMs() {
+        return timeoutEsitoMs;
+    }
+
+    public void setTimeoutEsitoMs(long timeoutEsitoMs) {
+        if (timeoutEsitoMs <= 0) {
+            throw new IllegalArgumentException("Il timeout di attesa dell'esito deve essere positivo");
+        }
+        this.timeoutEsitoMs = timeoutEsitoMs;
+    }
+
+    public int getChiaviRecenti() {
+        return chiaviRecenti;
+    }
+
+    public void setChiaviRecenti(int chiaviRecenti) {
+        if (chiaviRecenti <= 0) {
+            throw new IllegalArgumentException("Il numero di chiavi recenti deve essere positivo");
+        }
+        this.chiaviRecenti = chiaviRecenti;
+    }
+
+    public boolean isSpoolAttivo() {
+        return spoolAttivo;
+    }
+
+    public void setSpoolAttivo(boolean spoolAttivo) {
+        this.spoolAttivo = spoolAttivo;
+    }
+
+    public Path getCartellaSpool() {
+        return cartellaSpool;
+    }
+
+    public void setCartellaSpool(Path cartellaSpool) {
+        if (cartellaSpool == null) {
+            throw new IllegalArgumentException("La cartella dello spool è obbligatoria");
+        }
+        this.cartellaSpool = cartellaSpool;
+    }
+
+    public long getIntervalloRipresaMs() {
+        return intervalloRipresaMs;
+    }
+
+    public void setIntervalloRipresaMs(long intervalloRipresaMs) {
+        if (intervalloRipresaMs <= 0) {
+            throw new IllegalArgumentException("L'intervallo di ripresa dello spool deve essere positivo");
+        }
+        this.intervalloRipresaMs = intervalloRipresaMs;
+    }
+}
@@ -0,0 +1,762 @@
+package com.climatemonitoring.server.ingestion;
+
+import com.climatemonitoring.common.model.ParametriClimatici;
+import com.climatemonitoring.server.index.AggregatiClimatici;
+import com.climatemonitoring.server.notifiche.DistributoreModifiche;
+import com.climatemonitoring.server.util.DatabaseManager;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Inserimento massivo delle rilevazioni climatiche.
+ *
+ * Un lotto di rilevazioni viene scritto in un'unica transazione:
+ * 1. Una sola query verifica l'esistenza di tutti i centri, le aree di
+ *    interesse e le coordinate citati, invece di tre SELECT per rilevazione
+ * 2. Le righe sono inviate a blocchi come array, con una INSERT su
+ *    {@code unnest} per blocco che restituisce le chiavi effettivamente inserite
+ * 3. Al commit gli {@link AggregatiClimatici} vengono aggiornati e le nuove
+ *    rilevazioni segnalate al {@link DistributoreModifiche}
+ *
+ * Se una verifica o un inserimento fallisce non viene scritta nessuna rilevazione.
+ *
+ * Le rilevazioni con chiave di idempotenza già inserita vengono saltate: la
+ * chiave si cerca prima tra le {@link ChiaviRecenti} e poi nel database, dove
+ * un indice univoco su {@code chiave_idempotenza} esclude i duplicati anche
+ * tra inserimenti concorrenti. Una riga saltata dal database perché la sua
+ * chiave è stata confermata nel frattempo da un'altra chiamata non viene
+ * contata negli aggregati né notificata. Un lotto può avere a sua volta una
+ * chiave, registrata nella tabella {@code ingestione_lotti}.
+ *
+ * Una singola rilevazione è invece scritta con {@link #inserisci(ParametriClimatici)}
+ * in un'unica istruzione che verifica i riferimenti e inserisce la riga.
+ *
+ * {@link #scriviGruppo(List)} scrive insieme le rilevazioni raccolte dalla
+ * {@link CodaIngestione}, con un esito separato per ciascuna.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class ScrittoreRilevazioni {
+
+    /** Numero massimo di rilevazioni accettate in un lotto. */
+    public static final int MAX_RILEVAZIONI = 50_000;
+
+    /** Righe inviate al database con ogni INSERT. */
+    private static final int DIMENSIONE_BLOCCO = 1_000;
+
+    private static final String SQL_VERIFICA =
+            "SELECT 'centro', id FROM centrimonitoraggio WHERE id = ANY(?) " +
+            "UNION ALL SELECT 'area', id FROM areeinteresse WHERE id = ANY(?) " +
+            "UNION ALL SELECT 'coordinata', id FROM coordinatemonitoraggio WHERE id = ANY(?)";
+
+    /**
+     * Inserimento di un blocco di righe passate come un array per colonna.
+     *
+     * Con ON CONFLICT DO NOTHING il database salta senza errori le righe la
+     * cui chiave è stata inserita da una transazione concorrente; RETURNING
+     * riporta le chiavi delle righe scritte davvero, cosa che i conteggi
+     * di un batch riscritto dal driver non permettono.
+     */
+    private static final String SQL_INSERIMENTO =
+            "INSERT INTO parametriclimatici (centro_monitoraggio_id, area_interesse_id, " +
+            "coordinate_monitoraggio_id, data_rilevazione, vento, umidita, pressione, " +
+            "temperatura, precipitazioni, altitudine, massa_ghiacciai, note, chiave_idempotenza) " +
+            "SELECT * FROM unnest(?::integer[], ?::integer[], ?::integer[], ?::timestamp[], " +
+            "?::integer[], ?::integer[], ?::integer[], ?::integer[], ?::integer[], ?::integer[], ?::integer[], " +
+            "?::text[], ?::uuid[]) " +
+            "ON CONFLICT DO NOTHING RETURNING chiave_idempotenza";
+
+    private static final String SQL_CHIAVI_PRESENTI =
+            "SELECT chiave_idempotenza FROM parametriclimatici WHERE chiave_idempotenza = ANY(?::uuid[])";
+
+    private static final String SQL_REGISTRA_LOTTO =
+            "INSERT INTO ingestione_lotti (chiave, rilevazioni) VALUES (?, ?) ON CONFLICT DO NOTHING";
+
+    private static final String SQL_LEGGI_LOTTO =
+            "SELECT rilevazioni FROM ingestione_lotti WHERE chiave = ?";
+
+    /**
+     * Verifica dei riferimenti e inserimento di una rilevazione in un solo round trip.
+     *
+     * La CTE {@code rif} valuta le tre esistenze, la INSERT scrive la riga solo
+     * se sono tutte vere, e la SELECT finale restituisce sia gli esiti delle
+     * verifiche sia l'id inserito, così da poter indicare il riferimento mancante.
+     * Essendo un'unica istruzione è atomica anche in autocommit; le chiavi
+     * esterne coprono le cancellazioni concorrenti. Se la chiave di
+     * idempotenza è già presente la riga non viene inserita e l'id è nullo.
+     */
+    private static final String SQL_INSERIMENTO_VERIFICATO =
+            "WITH rif AS (SELECT " +
+            "EXISTS (SELECT 1 FROM centrimonitoraggio WHERE id = ?) AS centro, " +
+            "(?::integer IS NULL OR EXISTS (SELECT 1 FROM areeinteresse WHERE id = ?::integer)) AS area, " +
+            "(?::integer IS NULL OR EXISTS (SELECT 1 FROM coordinatemonitoraggio WHERE id = ?::integer)) AS coordinata), " +
+            "ins AS (INSERT INTO parametriclimatici (centro_monitoraggio_id, area_interesse_id, " +
+            "coordinate_monitoraggio_id, data_rilevazione, vento, umidita, pressione, " +
+            "temperatura, precipitazioni, altitudine, massa_ghiacciai, note, chiave_idempotenza) " +
+            "SELECT ?::integer, ?::integer, ?::integer, ?::date, ?::integer, ?::integer, ?::integer, " +
+            "?::integer, ?::integer, ?::integer, ?::integer, ?::text, ?::uuid FROM rif WHERE centro AND area AND coordinata " +
+            "ON CONFLICT DO NOTHING RETURNING id) " +
+            "SELECT rif.centro, rif.area, rif.coordinata, (SELECT id FROM ins) FROM rif";
+
+    private static final String SQL_CREA_CHECKPOINT =
+            "INSERT INTO ingestione_checkpoint (sorgente, sequenza) VALUES (?, 0) ON CONFLICT (sorgente) DO NOTHING";
+
+    private static final String SQL_LEGGI_CHECKPOINT =
+            "SELECT sequenza FROM ingestione_checkpoint WHERE sorgente = ? FOR UPDATE";
+
+    private static final String SQL_AGGIORNA_CHECKPOINT =
+            "UPDATE ingestione_checkpoint SET sequenza = ? WHERE sorgente = ?";
+
+    /** Gestore del database. */
+    private final DatabaseManager dbManager;
+
+    /** Aggregati da aggiornare dopo ogni lotto. */
+    private final AggregatiClimatici aggregati;
+
+    /** Chiavi di idempotenza confermate di recente. */
+    private final ChiaviRecenti chiavi;
+
+    /** Destinatario delle nuove rilevazioni per i client sottoscritti. */
+    private final DistributoreModifiche notifiche;
+
+    /**
+     * Crea lo scrittore.
+     *
+     * @param dbManager Gestore del database
+     * @param aggregati Aggregati da mantenere allineati agli inserimenti
+     * @param chiavi Chiavi di idempotenza confermate di recente
+     * @param notifiche Distributore a cui segnalare le rilevazioni scritte
+     */
+    public ScrittoreRilevazioni(DatabaseManager dbManager, AggregatiClimatici aggregati, ChiaviRecenti chiavi,
+                                DistributoreModifiche notifiche) {
+        this.dbManager = dbManager;
+        this.aggregati = aggregati;
+        this.chiavi = chiavi;
+        this.notifiche = notifiche;
+    }
+
+    /**
+     * Inserisce un lotto di rilevazioni in un'unica transazione.
+     *
+     * @param rilevazioni Rilevazioni da inserire, ciascuna con centro e data valorizzati
+     * @return Numero di rilevazioni inserite
+     * @throws IllegalArgumentException Se il lotto è vuoto, troppo grande, contiene
+     *         rilevazioni incomplete o riferimenti a entità inesistenti
+     * @throws SQLException In caso di errori durante l'accesso al database
+     */
+    public int inserisci(List<ParametriClimatici> rilevazioni) throws SQLException {
+        return inserisci(null, rilevazioni);
+    }
+
+    /**
+     * Inserisce un lotto di rilevazioni in un'unica transazione, una sola
+     * volta per chiave di lotto.
+     *
+     * @param chiaveLotto Chiave di idempotenza del lotto, o null
+     * @param rilevazioni Rilevazioni da inserire, ciascuna con centro e data valorizzati
+     * @return Numero di rilevazioni inserite, anche da una chiamata precedente con la stessa chiave
+     * @throws IllegalArgumentException Se il lotto è vuoto, troppo grande, contiene
+     *         rilevazioni incomplete o riferimenti a entità inesistenti
+     * @throws SQLException In caso di errori durante l'accesso al database
+     */
+    public int inserisci(UUID chiaveLotto, List<ParametriClimatici> rilevazioni) throws SQLException {
+        if (chiaveLotto != null) {
+            Integer giaInserite = chiavi.cerca(chiaveLotto);
+            if (giaInserite != null) {
+                return giaInserite;
+            }
+        }
+        valida(rilevazioni);
+
+        try (Connection conn = dbManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                if (chiaveLotto != null) {
+                    Integer giaInserite = registraLotto(conn, chiaveLotto, rilevazioni.size());
+                    if (giaInserite != null) {
+                        conn.rollback();
+                        chiavi.registra(chiaveLotto, giaInserite);
+                        return giaInserite;
+                    }
+                }
+
+                Riferimenti riferimenti = Riferimenti.leggi(conn, rilevazioni);
+                for (ParametriClimatici r : rilevazioni) {
+                    String errore = riferimenti.errore(r);
+                    if (errore != null) {
+                        throw new IllegalArgumentException(errore);
+                    }
+                }
+
+                Lock blocco = aggregati.bloccoAggiornamenti();
+                blocco.lock();
+                try {
+                    List<ParametriClimatici> scritte = scrivi(conn, rilevazioni);
+                    conn.commit();
+                    registra(scritte);
+                    ricordaChiavi(rilevazioni);
+                    if (chiaveLotto != null) {
+                        chiavi.registra(chiaveLotto, rilevazioni.size());
+                    }
+                } finally {
+                    blocco.unlock();
+                }
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        return rilevazioni.size();
+    }
+
+    /**
+     * Inserisce una singola rilevazione con un'unica istruzione SQL.
+     *
+     * @param r Rilevazione da inserire, con centro e data valorizzati
+     * @return {@code true} se la rilevazione è stata inserita
+     * @throws IllegalArgumentException Se la rilevazione è incompleta o cita entità inesistenti
+     * @throws SQLException In caso di errori durante l'accesso al database
+     */
+    public boolean inserisci(ParametriClimatici r) throws SQLException {
+        if (r == null || r.getData_rilevazione() == null) {
+            throw new IllegalArgumentException("La rilevazione è incompleta");
+        }
+        UUID chiave = r.getChiaveIdempotenza();
+        if (chiave != null && chiavi.contiene(chiave)) {
+            return true;
+        }
+
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL_INSERIMENTO_VERIFICATO)) {
+            pstmt.setInt(1, r.getCentroMonitoraggioId());
+            impostaIntero(pstmt, 2, r.getAreaInteresseId());
+            impostaIntero(pstmt, 3, r.getAreaInteresseId());
+            impostaIntero(pstmt, 4, r.getCoordinateMonitoraggioId());
+            impostaIntero(pstmt, 5, r.getCoordinateMonitoraggioId());
+            impostaValori(pstmt, 6, r);
+
+            Lock blocco = aggregati.bloccoAggiornamenti();
+            blocco.lock();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                if (!rs.getBoolean(1)) {
+                    throw new IllegalArgumentException("Il centro di monitoraggio con ID " + r.getCentroMonitoraggioId() + " non esiste.");
+                }
+                if (!rs.getBoolean(2)) {
+                    throw new IllegalArgumentException("L'area di interesse con ID " + r.getAreaInteresseId() + " non esiste.");
+                }
+                if (!rs.getBoolean(3)) {
+                    throw new IllegalArgumentException("Le coordinate di monitoraggio con ID " + r.getCoordinateMonitoraggioId() + " non esistono.");
+                }
+                rs.getInt(4);
+                if (rs.wasNull()) {
+                    // riferimenti validi ma nessuna riga: la chiave era già stata inserita
+                    if (chiave == null) {
+                        return false;
+                    }
+                } else {
+                    registra(r);
+                }
+                if (chiave != null) {
+                    chiavi.registra(chiave, 1);
+                }
+                return true;
+            } finally {
+                blocco.unlock();
+            }
+        }
+    }
+
+    /**
+     * Verifica, senza scriverla, che centro, area e coordinata citati dalla rilevazione esistano.
+     *
+     * @param r Rilevazione da verificare
+     * @return Messaggio del primo riferimento mancante, o null se sono tutti presenti
+     * @throws SQLException In caso di errori durante l'accesso al database
+     */
+    public String verificaRiferimenti(ParametriClimatici r) throws SQLException {
+        try (Connection conn = dbManager.getConnection()) {
+            return Riferimenti.leggi(conn, List.of(r)).errore(r);
+        }
+    }
+
+    /**
+     * Scrive un gruppo di rilevazioni indipendenti, provenienti da client diversi,
+     * riportando l'esito di ciascuna invece di rifiutare l'intero gruppo.
+     *
+     * Le rilevazioni incomplete o con riferimenti inesistenti vengono scartate
+     * prima della scrittura; le altre sono inserite in un'unica transazione.
+     * Se questa fallisce, ognuna viene ritentata singolarmente con
+     * {@link #inserisci(ParametriClimatici)}, così un errore non si propaga
+     * alle rilevazioni degli altri client.
+     *
+     * @param rilevazioni Rilevazioni da inserire
+     * @return Per ogni rilevazione, null se è stata inserita, altrimenti il messaggio di errore
+     * @throws SQLException Se non è possibile verificare i riferimenti
+     */
+    public String[] scriviGruppo(List<ParametriClimatici> rilevazioni) throws SQLException {
+        String[] errori = new String[rilevazioni.size()];
+        List<ParametriClimatici> valide = new ArrayList<>(rilevazioni.size());
+        boolean ritenta = false;
+
+        try (Connection conn = dbManager.getConnection()) {
+            Riferimenti riferimenti = Riferimenti.leggi(conn, rilevazioni);
+            for (int i = 0; i < rilevazioni.size(); i++) {
+                ParametriClimatici r = rilevazioni.get(i);
+                if (r == null || r.getData_rilevazione() == null) {
+                    errori[i] = "La rilevazione è incompleta";
+                } else {
+                    errori[i] = riferimenti.errore(r);
+                    if (errori[i] == null) {
+                        valide.add(r);
+                    }
+                }
+            }
+            if (valide.isEmpty()) {
+                return errori;
+            }
+
+            conn.setAutoCommit(false);
+            Lock blocco = aggregati.bloccoAggiornamenti();
+            blocco.lock();
+            try {
+                List<ParametriClimatici> scritte = scrivi(conn, valide);
+                conn.commit();
+                registra(scritte);
+                ricordaChiavi(valide);
+            } catch (SQLException e) {
+                conn.rollback();
+                System.err.println("Scrittura del gruppo di " + valide.size()
+                        + " rilevazioni fallita, inserimento singolo: " + e.getMessage());
+                ritenta = true;
+            } finally {
+                blocco.unlock();
+            }
+        }
+
+        if (ritenta) {
+            for (int i = 0; i < rilevazioni.size(); i++) {
+                if (errori[i] == null) {
+                    errori[i] = inserisciSingola(rilevazioni.get(i));
+                }
+            }
+        }
+        return errori;
+    }
+
+    /**
+     * Riapplica un gruppo di rilevazioni numerate di una sorgente, come lo
+     * {@link SpoolRilevazioni}, in modo idempotente.
+     *
+     * Nella stessa transazione delle INSERT viene aggiornata l'ultima
+     * sequenza applicata della sorgente: le rilevazioni con sequenza non
+     * superiore a quella già registrata vengono saltate. Le rilevazioni che
+     * non possono essere inserite (riferimenti inesistenti, vincoli violati)
+     * sono scartate avanzando comunque la sequenza, così non bloccano le successive.
+     *
+     * @param sorgente Identificatore della sorgente
+     * @param sequenze Sequenze crescenti delle rilevazioni
+     * @param rilevazioni Rilevazioni da inserire, nello stesso ordine
+     * @return Per ogni rilevazione, null se inserita o già applicata, altrimenti il motivo dello scarto
+     * @throws SQLException Se il database non è disponibile
+     */
+    public String[] riapplica(String sorgente, long[] sequenze, List<ParametriClimatici> rilevazioni) throws SQLException {
+        try {
+            return riapplicaGruppo(sorgente, sequenze, rilevazioni, true);
+        } catch (SQLException e) {
+            if (SpoolRilevazioni.indisponibilita(e)) {
+                throw e;
+            }
+            if (rilevazioni.size() == 1) {
+                riapplicaGruppo(sorgente, sequenze, rilevazioni, false);
+                return new String[]{"Errore durante l'inserimento della rilevazione: " + e.getMessage()};
+            }
+            // un record non valido fa fallire il gruppo: si isola ritentando uno alla volta
+            String[] errori = new String[rilevazioni.size()];
+            for (int i = 0; i < rilevazioni.size(); i++) {
+                errori[i] = riapplica(sorgente, new long[]{sequenze[i]}, List.of(rilevazioni.get(i)))[0];
+            }
+            return errori;
+        }
+    }
+
+    /**
+     * @param inserisci Se false avanza soltanto la sequenza, scartando le rilevazioni
+     */
+    private String[] riapplicaGruppo(String sorgente, long[] sequenze, List<ParametriClimatici> rilevazioni,
+                                     boolean inserisci) throws SQLException {
+        String[] errori = new String[rilevazioni.size()];
+        try (Connection conn = dbManager.getConnection()) {
+            conn.setAutoCommit(false);
+            Lock blocco = aggregati.bloccoAggiornamenti();
+            blocco.lock();
+            try {
+                long applicata = leggiCheckpoint(conn, sorgente);
+                List<ParametriClimatici> nuove = new ArrayList<>(rilevazioni.size());
+                List<ParametriClimatici> scritte = List.of();
+                if (inserisci) {
+                    Riferimenti riferimenti = Riferimenti.leggi(conn, rilevazioni);
+                    for (int i = 0; i < rilevazioni.size(); i++) {
+                        if (sequenze[i] > applicata) {
+                            errori[i] = riferimenti.errore(rilevazioni.get(i));
+                            if (errori[i] == null) {
+                                nuove.add(rilevazioni.get(i));
+                            }
+                        }
+                    }
+                    if (!nuove.isEmpty()) {
+                        scritte = scrivi(conn, nuove);
+                    }
+                }
+
+                long ultima = sequenze[sequenze.length - 1];
+                if (ultima > applicata) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(SQL_AGGIORNA_CHECKPOINT)) {
+                        pstmt.setLong(1, ultima);
+                        pstmt.setString(2, sorgente);
+                        pstmt.executeUpdate();
+                    }
+                }
+                conn.commit();
+                registra(scritte);
+                ricordaChiavi(nuove);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                blocco.unlock();
+            }
+        }
+        return errori;
+    }
+
+    /**
+     * Legge e blocca fino al commit l'ultima sequenza applicata della sorgente.
+     */
+    private static long leggiCheckpoint(Connection conn, String sorgente) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL_CREA_CHECKPOINT)) {
+            pstmt.setString(1, sorgente);
+            pstmt.executeUpdate();
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL_LEGGI_CHECKPOINT)) {
+            pstmt.setString(1, sorgente);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private String inserisciSingola(ParametriClimatici r) {
+        try {
+            return inserisci(r) ? null : "La rilevazione non è stata inserita";
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        } catch (SQLException e) {
+            return "Errore durante l'inserimento della rilevazione: " + e.getMessage();
+        }
+    }
+
+    private static void valida(List<ParametriClimatici> rilevazioni) {
+        if (rilevazioni == null || rilevazioni.isEmpty()) {
+            throw new IllegalArgumentException("Il lotto di rilevazioni non può essere vuoto");
+        }
+        if (rilevazioni.size() > MAX_RILEVAZIONI) {
+            throw new IllegalArgumentException("Un lotto può contenere al massimo " + MAX_RILEVAZIONI + " rilevazioni");
+        }
+        for (int i = 0; i < rilevazioni.size(); i++) {
+            ParametriClimatici r = rilevazioni.get(i);
+            if (r == null || r.getData_rilevazione() == null) {
+                throw new IllegalArgumentException("La rilevazione " + (i + 1) + " del lotto è incompleta");
+            }
+        }
+    }
+
+    /**
+     * Identificatori citati da un gruppo di rilevazioni che esistono nel database,
+     * letti con una sola query.
+     */
+    private static final class Riferimenti {
+
+        private final Set<Integer> centri = new HashSet<>();
+        private final Set<Integer> aree = new HashSet<>();
+        private final Set<Integer> coordinate = new HashSet<>();
+
+        static Riferimenti leggi(Connection conn, List<ParametriClimatici> rilevazioni) throws SQLException {
+            Set<Integer> centri = new TreeSet<>();
+            Set<Integer> aree = new TreeSet<>();
+            Set<Integer> coordinate = new TreeSet<>();
+            for (ParametriClimatici r : rilevazioni) {
+                if (r == null) {
+                    continue;
+                }
+                centri.add(r.getCentroMonitoraggioId());
+                if (r.getAreaInteresseId() != null) {
+                    aree.add(r.getAreaInteresseId());
+                }
+                if (r.getCoordinateMonitoraggioId() != null) {
+                    coordinate.add(r.getCoordinateMonitoraggioId());
+                }
+            }
+
+            Riferimenti trovati = new Riferimenti();
+            try (PreparedStatement pstmt = conn.prepareStatement(SQL_VERIFICA)) {
+                pstmt.setArray(1, comeArray(conn, centri));
+                pstmt.setArray(2, comeArray(conn, aree));
+                pstmt.setArray(3, comeArray(conn, coordinate));
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        String tipo = rs.getString(1);
+                        int id = rs.getInt(2);
+                        if (tipo.equals("centro")) {
+                            trovati.centri.add(id);
+                        } else if (tipo.equals("area")) {
+                            trovati.aree.add(id);
+                        } else {
+                            trovati.coordinate.add(id);
+                        }
+                    }
+                }
+            }
+            return trovati;
+        }
+
+        /**
+         * @return Messaggio del primo riferimento mancante della rilevazione, o null se sono tutti presenti
+         */
+        String errore(ParametriClimatici r) {
+            if (!centri.contains(r.getCentroMonitoraggioId())) {
+                return "Il centro di monitoraggio con ID " + r.getCentroMonitoraggioId() + " non esiste.";
+            }
+            if (r.getAreaInteresseId() != null && !aree.contains(r.getAreaInteresseId())) {
+                return "L'area di interesse con ID " + r.getAreaInteresseId() + " non esiste.";
+            }
+            if (r.getCoordinateMonitoraggioId() != null && !coordinate.contains(r.getCoordinateMonitoraggioId())) {
+                return "Le coordinate di monitoraggio con ID " + r.getCoordinateMonitoraggioId() + " non esistono.";
+            }
+            return null;
+        }
+    }
+
+    private static Array comeArray(Connection conn, Set<Integer> ids) throws SQLException {
+        return conn.createArrayOf("integer", ids.toArray());
+    }
+
+    /**
+     * Scrive le rilevazioni a blocchi di {@link #DIMENSIONE_BLOCCO}, saltando
+     * quelle la cui chiave di idempotenza è già stata inserita o compare più volte.
+     *
+     * Le chiavi già presenti sono escluse in anticipo da {@link #senzaDuplicati},
+     * ma una chiamata concorrente può confermare la stessa chiave prima della
+     * INSERT: il database salta allora la riga, e dalle chiavi restituite la
+     * si esclude anche dalle rilevazioni scritte.
+     *
+     * @return Rilevazioni effettivamente scritte, da registrare negli aggregati
+     */
+    private List<ParametriClimatici> scrivi(Connection conn, List<ParametriClimatici> rilevazioni) throws SQLException {
+        List<ParametriClimatici> daScrivere = senzaDuplicati(conn, rilevazioni);
+        List<ParametriClimatici> scritte = new ArrayList<>(daScrivere.size());
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL_INSERIMENTO)) {
+            for (int inizio = 0; inizio < daScrivere.size(); inizio += DIMENSIONE_BLOCCO) {
+                List<ParametriClimatici> blocco =
+                        daScrivere.subList(inizio, Math.min(daScrivere.size(), inizio + DIMENSIONE_BLOCCO));
+                impostaColonne(conn, pstmt, blocco);
+
+                Set<String> inserite = new HashSet<>();
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        String chiave = rs.getString(1);
+                        if (chiave != null) {
+                            inserite.add(chiave);
+                        }
+                    }
+                }
+                for (ParametriClimatici r : blocco) {
+                    // senza chiave nessun conflitto è possibile: la riga è sempre inserita
+                    UUID chiave = r.getChiaveIdempotenza();
+                    if (chiave == null || inserite.contains(chiave.toString())) {
+                        scritte.add(r);
+                    }
+                }
+            }
+        }
+        return scritte;
+    }
+
+    /**
+     * Imposta i tredici array di {@link #SQL_INSERIMENTO}, uno per colonna,
+     * con i valori del blocco di rilevazioni.
+     */
+    private static void impostaColonne(Connection conn, PreparedStatement pstmt, List<ParametriClimatici> blocco)
+            throws SQLException {
+        int n = blocco.size();
+        Integer[][] interi = new Integer[10][n];
+        Timestamp[] date = new Timestamp[n];
+        String[] note = new String[n];
+        String[] chiaviRighe = new String[n];
+        for (int i = 0; i < n; i++) {
+            ParametriClimatici r = blocco.get(i);
+            interi[0][i] = r.getCentroMonitoraggioId();
+            interi[1][i] = r.getAreaInteresseId();
+            interi[2][i] = r.getCoordinateMonitoraggioId();
+            date[i] = new Timestamp(r.getData_rilevazione().getTime());
+            interi[3][i] = r.getVento();
+            interi[4][i] = r.getUmidita();
+            interi[5][i] = r.getPressione();
+            interi[6][i] = r.getTemperatura();
+            interi[7][i] = r.getPrecipitazioni();
+            interi[8][i] = r.getAltitudine();
+            interi[9][i] = r.getMassa_ghiacciai();
+            note[i] = r.getNote();
+            chiaviRighe[i] = r.getChiaveIdempotenza() != null ? r.getChiaveIdempotenza().toString() : null;
+        }
+        pstmt.setArray(1, conn.createArrayOf("integer", interi[0]));
+        pstmt.setArray(2, conn.createArrayOf("integer", interi[1]));
+        pstmt.setArray(3, conn.createArrayOf("integer", interi[2]));
+        pstmt.setArray(4, conn.createArrayOf("timestamp", date));
+        for (int c = 3; c < interi.length; c++) {
+            pstmt.setArray(c + 2, conn.createArrayOf("integer", interi[c]));
+        }
+        pstmt.setArray(12, conn.createArrayOf("text", note));
+        pstmt.setArray(13, conn.createArrayOf("text", chiaviRighe));
+    }
+
+    /**
+     * Esclude le rilevazioni con chiave già confermata: prima si consultano
+     * le chiavi recenti, poi con una sola query il database per le altre.
+     */
+    private List<ParametriClimatici> senzaDuplicati(Connection conn, List<ParametriClimatici> rilevazioni) throws SQLException {
+        Set<UUID> giaInserite = new HashSet<>();
+        Set<String> daVerificare = new HashSet<>();
+        for (ParametriClimatici r : rilevazioni) {
+            UUID chiave = r.getChiaveIdempotenza();
+            if (chiave != null) {
+                if (chiavi.contiene(chiave)) {
+                    giaInserite.add(chiave);
+                } else {
+                    daVerificare.add(chiave.toString());
+                }
+            }
+        }
+        if (giaInserite.isEmpty() && daVerificare.isEmpty()) {
+            return rilevazioni;
+        }
+
+        if (!daVerificare.isEmpty()) {
+            try (PreparedStatement pstmt = conn.prepareStatement(SQL_CHIAVI_PRESENTI)) {
+                pstmt.setArray(1, conn.createArrayOf("text", daVerificare.toArray()));
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        giaInserite.add(UUID.fromString(rs.getString(1)));
+                    }
+                }
+            }
+        }
+
+        List<ParametriClimatici> nuove = new ArrayList<>(rilevazioni.size());
+        for (ParametriClimatici r : rilevazioni) {
+            UUID chiave = r.getChiaveIdempotenza();
+            // add restituisce false anche per una chiave ripetuta nello stesso gruppo
+            if (chiave == null || giaInserite.add(chiave)) {
+                nuove.add(r);
+            }
+        }
+        return nuove;
+    }
+
+    /**
+     * Registra la chiave del lotto nella transazione corrente.
+     *
+     * @return Numero di rilevazioni del lotto già inserito con la stessa chiave, o null se è nuovo
+     */
+    private static Integer registraLotto(Connection conn, UUID chiaveLotto, int rilevazioni) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL_REGISTRA_LOTTO)) {
+            pstmt.setObject(1, chiaveLotto);
+            pstmt.setInt(2, rilevazioni);
+            if (pstmt.executeUpdate() > 0) {
+                return null;
+            }
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL_LEGGI_LOTTO)) {
+            pstmt.setObject(1, chiaveLotto);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    private void registra(List<ParametriClimatici> scritte) {
+        for (ParametriClimatici r : scritte) {
+            registra(r);
+        }
+    }
+
+    /**
+     * Aggiorna gli aggregati con una rilevazione scritta e la segnala ai client sottoscritti.
+     */
+    private void registra(ParametriClimatici r) {
+        aggregati.registra(r.getCentroMonitoraggioId(), r.getAreaInteresseId(),
+                r.getCoordinateMonitoraggioId(), r.valori());
+        notifiche.rilevazione(r.getCentroMonitoraggioId(), r.getAreaInteresseId(), r.getCoordinateMonitoraggioId());
+    }
+
+    /**
+     * Ricorda le chiavi delle rilevazioni confermate, comprese quelle saltate perché già presenti.
+     */
+    private void ricordaChiavi(List<ParametriClimatici> confermate) {
+        for (ParametriClimatici r : confermate) {
+            if (r.getChiaveIdempotenza() != null) {
+                chiavi.registra(r.getChiaveIdempotenza(), 1);
+            }
+        }
+    }
+
+    /**
+     * Imposta le tredici colonne di una rilevazione a partire dal parametro indicato,
+     * nell'ordine di {@link #SQL_INSERIMENTO_VERIFICATO}.
+     */
+    private static void impostaValori(PreparedStatement pstmt, int primo, ParametriClimatici r) throws SQLException {
+        int i = primo;
+        pstmt.setInt(i++, r.getCentroMonitoraggioId());
+        impostaIntero(pstmt, i++, r.getAreaInteresseId());
+        impostaIntero(pstmt, i++, r.getCoordinateMonitoraggioId());
+        pstmt.setTimestamp(i++, new Timestamp(r.getData_rilevazione().getTime()));
+        pstmt.setInt(i++, r.getVento());
+        pstmt.setInt(i++, r.getUmidita());
+        pstmt.setInt(i++, r.getPressione());
+        pstmt.setInt(i++, r.getTemperatura());
+        pstmt.setInt(i++, r.getPrecipitazioni());
+        pstmt.setInt(i++, r.getAltitudine());
+        pstmt.setInt(i++, r.getMassa_ghiacciai());
+        pstmt.setString(i++, r.getNote());
+        if (r.getChiaveIdempotenza() != null) {
+            pstmt.setObject(i, r.getChiaveIdempotenza());
+        } else {
+            pstmt.setNull(i, Types.OTHER);
+        }
+    }
+
+    private static void impostaIntero(PreparedStatement pstmt, int indice, Integer valore) throws SQLException {
+        if (valore != null) {
+            pstmt.setInt(indice, valore);
+        } else {
+            pstmt.setNull(indice, Types.INTEGER);
+        }
+    }
+}
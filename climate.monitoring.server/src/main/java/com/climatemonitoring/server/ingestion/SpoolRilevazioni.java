@@ -0,0 +1,485 @@
+package com.climatemonitoring.server.ingestion;
+
+import com.climatemonitoring.common.model.ParametriClimatici;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Spool locale delle rilevazioni accettate quando il database non è raggiungibile.
+ *
+ * Le rilevazioni sono aggiunte in coda a un file ({@code rilevazioni.spool})
+ * e forzate su disco prima di confermare l'inserimento al client. Un thread
+ * di ripresa le riapplica in ordine con
+ * {@link ScrittoreRilevazioni#riapplica(String, long[], List)} appena il
+ * database torna disponibile, anche dopo un riavvio del server.
+ *
+ * Formato del file:
+ * - Intestazione: marcatore, versione, identificatore dello spool (UUID)
+ *   e numero di sequenza del primo record
+ * - Record: lunghezza del contenuto, sequenza, contenuto, CRC32 di sequenza e contenuto
+ *
+ * La riapplicazione è idempotente: la tabella {@code ingestione_checkpoint}
+ * conserva, per identificatore dello spool, l'ultima sequenza applicata ed
+ * è aggiornata nella stessa transazione delle INSERT, quindi un record già
+ * applicato prima di un arresto non viene scritto due volte.
+ *
+ * Un record troncato o con CRC errato alla fine del file (scrittura
+ * interrotta) viene scartato all'apertura: non era ancora stato confermato.
+ * Quando tutti i record sono applicati il file viene svuotato.
+ *
+ * Il file è usato da un solo server alla volta: all'apertura viene preso un
+ * lock esclusivo, rilasciato alla chiusura. Se un altro processo (ad esempio
+ * {@code ServerCM} e {@code ServerDaemon} avviati dallo stesso utente) lo
+ * tiene già, lo spool resta disattivato invece di mescolare i record dei
+ * due server sotto lo stesso identificatore.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class SpoolRilevazioni {
+
+    /** Nome del file di spool nella cartella configurata. */
+    public static final String NOME_FILE = "rilevazioni.spool";
+
+    private static final int MARCATORE = 0x434D5350;
+    private static final int VERSIONE = 1;
+
+    /** Marcatore, versione, UUID e prima sequenza. */
+    private static final int DIMENSIONE_INTESTAZIONE = 4 + 4 + 16 + 8;
+
+    /** Lunghezza, sequenza e CRC che circondano il contenuto di un record. */
+    private static final int SOVRACCARICO_RECORD = 4 + 8 + 4;
+
+    /** Dimensione massima accettata per il contenuto di un record. */
+    private static final int MAX_CONTENUTO = 1 << 20;
+
+    /** Record riapplicati in un'unica transazione. */
+    private static final int RECORD_PER_RIPRESA = 500;
+
+    private final FileChannel canale;
+    private final String identificatore;
+    private final ScrittoreRilevazioni scrittore;
+    private final long intervalloRipresaMs;
+    private final Thread ripresa;
+
+    /** Sequenza del prossimo record aggiunto. */
+    private long prossimaSequenza;
+
+    /** Posizione del primo record non ancora riapplicato. */
+    private long posizioneLettura = DIMENSIONE_INTESTAZIONE;
+
+    private volatile boolean aperto = true;
+
+    private SpoolRilevazioni(FileChannel canale, ScrittoreRilevazioni scrittore, long intervalloRipresaMs) throws IOException {
+        this.canale = canale;
+        this.scrittore = scrittore;
+        this.intervalloRipresaMs = intervalloRipresaMs;
+
+        if (canale.size() < DIMENSIONE_INTESTAZIONE) {
+            UUID id = UUID.randomUUID();
+            this.identificatore = id.toString();
+            scriviIntestazione(id, 1);
+            this.prossimaSequenza = 1;
+        } else {
+            ByteBuffer intestazione = leggi(0, DIMENSIONE_INTESTAZIONE);
+            if (intestazione.getInt() != MARCATORE || intestazione.getInt() != VERSIONE) {
+                throw new IOException("File di spool non riconosciuto");
+            }
+            this.identificatore = new UUID(intestazione.getLong(), intestazione.getLong()).toString();
+            this.prossimaSequenza = recupera(intestazione.getLong());
+        }
+
+        this.ripresa = new Thread(this::eseguiRipresa, "ripresa-spool");
+        ripresa.setDaemon(true);
+        ripresa.start();
+    }
+
+    /**
+     * Apre lo spool indicato dalla configurazione, creandolo se non esiste,
+     * e avvia la riapplicazione dei record pendenti.
+     *
+     * @param configurazione Configurazione dell'ingestione
+     * @param scrittore Scrittore usato per riapplicare i record
+     * @return Spool aperto, o null se disattivato, non apribile o in uso da un altro server
+     */
+    public static SpoolRilevazioni apri(ConfigurazioneIngestione configurazione, ScrittoreRilevazioni scrittore) {
+        if (!configurazione.isSpoolAttivo()) {
+            return null;
+        }
+        Path file = configurazione.getCartellaSpool().resolve(NOME_FILE);
+        try {
+            Files.createDirectories(file.getParent());
+            FileChannel canale = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            SpoolRilevazioni spool;
+            try {
+                if (!blocca(canale)) {
+                    canale.close();
+                    System.err.println("Lo spool delle rilevazioni " + file + " è già in uso da un altro server: "
+                            + "spool disattivato. Configurare una cartella diversa con "
+                            + ConfigurazioneIngestione.PREFISSO + "spool.cartella");
+                    return null;
+                }
+                spool = new SpoolRilevazioni(canale, scrittore, configurazione.getIntervalloRipresaMs());
+            } catch (IOException | RuntimeException e) {
+                canale.close();
+                throw e;
+            }
+            System.out.println("Spool delle rilevazioni aperto in " + file
+                    + (spool.inAttesa() ? " (record da riapplicare presenti)" : ""));
+            return spool;
+        } catch (IOException e) {
+            System.err.println("Impossibile aprire lo spool delle rilevazioni " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Prende il lock esclusivo sull'intero file, senza attendere.
+     *
+     * @return {@code false} se il lock è tenuto da un altro processo o da un altro spool di questa JVM
+     */
+    private static boolean blocca(FileChannel canale) throws IOException {
+        try {
+            return canale.tryLock() != null;
+        } catch (OverlappingFileLockException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Indica se un errore dipende dall'indisponibilità del database
+     * (connessione rifiutata o interrotta, pool esaurito) e non dalla rilevazione.
+     *
+     * @param e Errore da esaminare
+     * @return {@code true} se la rilevazione può essere affidata allo spool
+     */
+    public static boolean indisponibilita(Throwable e) {
+        for (Throwable c = e; c != null; c = c.getCause()) {
+            if (c instanceof SQLTimeoutException
+                    || c instanceof SQLTransientConnectionException
+                    || c instanceof SQLNonTransientConnectionException) {
+                return true;
+            }
+            if (c instanceof SQLException) {
+                String stato = ((SQLException) c).getSQLState();
+                if (stato != null && stato.startsWith("08")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return {@code true} se ci sono record non ancora riapplicati
+     */
+    public synchronized boolean inAttesa() {
+        try {
+            return posizioneLettura < canale.size();
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Aggiunge una rilevazione allo spool e la forza su disco.
+     *
+     * @param r Rilevazione da aggiungere, con centro e data valorizzati
+     * @throws IOException Se la scrittura sul file non riesce o la rilevazione
+     *                     supera la dimensione massima di un record
+     */
+    public void aggiungi(ParametriClimatici r) throws IOException {
+        byte[] contenuto = codifica(r);
+        if (contenuto.length > MAX_CONTENUTO) {
+            // all'apertura recupera() lo scambierebbe per un record danneggiato,
+            // scartandolo insieme a tutti i successivi
+            throw new IOException("Rilevazione troppo grande per lo spool (" + contenuto.length + " byte)");
+        }
+        synchronized (this) {
+            if (!aperto) {
+                throw new IOException("Spool delle rilevazioni chiuso");
+            }
+            long sequenza = prossimaSequenza;
+            ByteBuffer record = ByteBuffer.allocate(SOVRACCARICO_RECORD + contenuto.length);
+            record.putInt(contenuto.length).putLong(sequenza).put(contenuto).putInt(crc(sequenza, contenuto));
+            record.flip();
+
+            long fine = canale.size();
+            try {
+                while (record.hasRemaining()) {
+                    canale.write(record, fine + record.position());
+                }
+                canale.force(false);
+            } catch (IOException e) {
+                // un record parziale verrebbe scartato al prossimo avvio, ma non deve
+                // restare davanti ai record successivi
+                canale.truncate(fine);
+                throw e;
+            }
+            prossimaSequenza = sequenza + 1;
+        }
+    }
+
+    /**
+     * Ferma la riapplicazione e chiude il file; i record pendenti restano
+     * nello spool e saranno riapplicati al prossimo avvio.
+     */
+    public void chiudi() {
+        synchronized (this) {
+            aperto = false;
+            notifyAll();
+        }
+        try {
+            ripresa.join(intervalloRipresaMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                canale.close();
+            } catch (IOException e) {
+                System.err.println("Errore durante la chiusura dello spool: " + e.getMessage());
+            }
+        }
+    }
+
+    private void eseguiRipresa() {
+        while (aperto) {
+            boolean completa;
+            try {
+                completa = riprendi();
+            } catch (SQLException e) {
+                // database ancora non disponibile: si riprova al prossimo intervallo
+                completa = true;
+            } catch (IOException e) {
+                System.err.println("Errore di lettura dello spool delle rilevazioni: " + e.getMessage());
+                completa = true;
+            }
+            if (completa) {
+                synchronized (this) {
+                    try {
+                        if (aperto) {
+                            wait(intervalloRipresaMs);
+                        }
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Riapplica un gruppo di record a partire dalla posizione di lettura.
+     *
+     * @return {@code true} se non restano record da riapplicare
+     */
+    private boolean riprendi() throws IOException, SQLException {
+        long inizio;
+        long fine;
+        synchronized (this) {
+            inizio = posizioneLettura;
+            fine = canale.size();
+        }
+        if (inizio >= fine) {
+            return true;
+        }
+
+        List<ParametriClimatici> rilevazioni = new ArrayList<>(RECORD_PER_RIPRESA);
+        long[] sequenze = new long[RECORD_PER_RIPRESA];
+        long posizione = inizio;
+        while (posizione < fine && rilevazioni.size() < RECORD_PER_RIPRESA) {
+            ByteBuffer testa = leggi(posizione, 12);
+            int lunghezza = testa.getInt();
+            sequenze[rilevazioni.size()] = testa.getLong();
+            rilevazioni.add(decodifica(leggi(posizione + 12, lunghezza)));
+            posizione += SOVRACCARICO_RECORD + lunghezza;
+        }
+
+        long[] applicate = rilevazioni.size() == RECORD_PER_RIPRESA
+                ? sequenze : Arrays.copyOf(sequenze, rilevazioni.size());
+        String[] errori = scrittore.riapplica(identificatore, applicate, rilevazioni);
+        for (int i = 0; i < errori.length; i++) {
+            if (errori[i] != null) {
+                System.err.println("Rilevazione " + applicate[i] + " dello spool scartata: " + errori[i]);
+            }
+        }
+        System.out.println("Riapplicate " + rilevazioni.size() + " rilevazioni dallo spool");
+
+        synchronized (this) {
+            posizioneLettura = posizione;
+            if (posizioneLettura == canale.size()) {
+                compatta();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Svuota il file quando tutti i record sono stati riapplicati; la
+     * sequenza continua da dove era arrivata, così il checkpoint resta valido.
+     *
+     * L'intestazione con la nuova prima sequenza è forzata su disco prima del
+     * troncamento: se il processo si interrompe tra i due passi restano solo
+     * record già applicati, che la riapplicazione salta. Nell'ordine inverso
+     * resterebbe la prima sequenza precedente, e i nuovi record riceverebbero
+     * sequenze già coperte dal checkpoint.
+     */
+    private void compatta() throws IOException {
+        scriviIntestazione(UUID.fromString(identificatore), prossimaSequenza);
+        canale.truncate(DIMENSIONE_INTESTAZIONE);
+        canale.force(true);
+        posizioneLettura = DIMENSIONE_INTESTAZIONE;
+    }
+
+    /**
+     * Scorre i record all'apertura, tronca l'eventuale coda danneggiata e
+     * restituisce la sequenza del prossimo record.
+     */
+    private long recupera(long primaSequenza) throws IOException {
+        long sequenza = primaSequenza;
+        long posizione = DIMENSIONE_INTESTAZIONE;
+        long dimensione = canale.size();
+        while (posizione + SOVRACCARICO_RECORD <= dimensione) {
+            ByteBuffer testa = leggi(posizione, 12);
+            int lunghezza = testa.getInt();
+            long seq = testa.getLong();
+            if (lunghezza < 0 || lunghezza > MAX_CONTENUTO
+                    || posizione + SOVRACCARICO_RECORD + lunghezza > dimensione) {
+                break;
+            }
+            ByteBuffer resto = leggi(posizione + 12, lunghezza + 4);
+            byte[] contenuto = new byte[lunghezza];
+            resto.get(contenuto);
+            if (resto.getInt() != crc(seq, contenuto)) {
+                break;
+            }
+            // dopo una compattazione interrotta i record restati hanno sequenze
+            // inferiori alla prima dell'intestazione
+            sequenza = Math.max(sequenza, seq + 1);
+            posizione += SOVRACCARICO_RECORD + lunghezza;
+        }
+        if (posizione < dimensione) {
+            System.err.println("Spool delle rilevazioni: scartati " + (dimensione - posizione)
+                    + " byte di un record incompleto");
+            canale.truncate(posizione);
+            canale.force(false);
+        }
+        return sequenza;
+    }
+
+    private void scriviIntestazione(UUID id, long primaSequenza) throws IOException {
+        ByteBuffer intestazione = ByteBuffer.allocate(DIMENSIONE_INTESTAZIONE);
+        intestazione.putInt(MARCATORE).putInt(VERSIONE)
+                .putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits())
+                .putLong(primaSequenza);
+        intestazione.flip();
+        while (intestazione.hasRemaining()) {
+            canale.write(intestazione, intestazione.position());
+        }
+        canale.force(true);
+    }
+
+    private ByteBuffer leggi(long posizione, int lunghezza) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(lunghezza);
+        while (buffer.hasRemaining()) {
+            if (canale.read(buffer, posizione + buffer.position()) < 0) {
+                throw new IOException("Fine inattesa del file di spool");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static int crc(long sequenza, byte[] contenuto) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(8).putLong(sequenza).array());
+        crc.update(contenuto);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] codifica(ParametriClimatici r) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(r.getCentroMonitoraggioId());
+            scriviIntero(out, r.getAreaInteresseId());
+            scriviIntero(out, r.getCoordinateMonitoraggioId());
+            out.writeLong(r.getData_rilevazione().getTime());
+            for (int valore : r.valori()) {
+                out.writeInt(valore);
+            }
+            if (r.getNote() == null) {
+                out.writeInt(-1);
+            } else {
+                byte[] note = r.getNote().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(note.length);
+                out.write(note);
+            }
+            UUID chiave = r.getChiaveIdempotenza();
+            out.writeBoolean(chiave != null);
+            if (chiave != null) {
+                out.writeLong(chiave.getMostSignificantBits());
+                out.writeLong(chiave.getLeastSignificantBits());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void scriviIntero(DataOutputStream out, Integer valore) throws IOException {
+        out.writeBoolean(valore != null);
+        out.writeInt(valore != null ? valore : 0);
+    }
+
+    private static ParametriClimatici decodifica(ByteBuffer in) {
+        int centro = in.getInt();
+        Integer area = leggiIntero(in);
+        Integer coordinata = leggiIntero(in);
+        Date data = new Date(in.getLong());
+        int[] v = new int[7];
+        for (int i = 0; i < v.length; i++) {
+            v[i] = in.getInt();
+        }
+        String note = null;
+        int lunghezzaNote = in.getInt();
+        if (lunghezzaNote >= 0) {
+            byte[] b = new byte[lunghezzaNote];
+            in.get(b);
+            note = new String(b, StandardCharsets.UTF_8);
+        }
+        ParametriClimatici r = new ParametriClimatici(0, data, v[0], v[1], v[2], v[3], v[4], v[5], v[6], note)
+                .riferitaA(centro, area, coordinata);
+        // la chiave di idempotenza è in coda al contenuto, assente nei record più vecchi
+        if (in.hasRemaining() && in.get() != 0) {
+            r.setChiaveIdempotenza(new UUID(in.getLong(), in.getLong()));
+        }
+        return r;
+    }
+
+    private static Integer leggiIntero(ByteBuffer in) {
+        boolean presente = in.get() != 0;
+        int valore = in.getInt();
+        return presente ? valore : null;
+    }
+}
@@ -0,0 +1,346 @@
+package com.climatemonitoring.server.notifiche;
+
+import com.climatemonitoring.common.model.EventoModifica;
+import com.climatemonitoring.common.rmi.AttesaLimitataSocketFactory;
+import com.climatemonitoring.common.service.AscoltatoreModifiche;
+
+import java.rmi.ConnectException;
+import java.rmi.NoSuchObjectException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Invia ai client sottoscritti le modifiche avvenute sul server.
+ *
+ * Chi inserisce i dati chiama {@link #rilevazione} o {@link #areaInteresse}
+ * e ritorna subito: l'evento viene solo aggiunto alla coda di ogni
+ * sottoscrittore interessato, sotto il lock del sottoscrittore, senza
+ * chiamate remote. L'invio avviene su thread dedicati:
+ * - Gli eventi arrivati entro {@link #FINESTRA_MS} millisecondi dal primo
+ *   partono in un'unica chiamata, e quelli uguali sono uniti in uno solo
+ * - Ogni sottoscrittore ha al più una chiamata in corso; gli eventi che
+ *   arrivano nel frattempo si accumulano per la successiva
+ * - La coda di un sottoscrittore contiene al più {@link #CAPACITA_CODA}
+ *   eventi distinti: oltre, viene sostituita da un unico evento
+ *   {@link EventoModifica.Tipo#RISINCRONIZZA}, così un client lento non fa
+ *   crescere la memoria del server né rallenta gli inserimenti
+ * - Dopo {@link #ERRORI_MASSIMI} invii falliti di seguito, o se il client
+ *   non esiste più, la sottoscrizione viene rimossa
+ * - La chiamata remota è eseguita da un pool separato di al più
+ *   {@link #CHIAMATE} thread e il thread di invio ne attende l'esito per
+ *   {@link #TIMEOUT_MS} millisecondi: un client bloccato conta come errore
+ *   invece di occupare per sempre uno dei {@link #THREAD} thread di invio e
+ *   fermare le notifiche di tutti. Finché la sua chiamata non termina, gli
+ *   invii successivi allo stesso client falliscono subito
+ * - Il client esporta l'ascoltatore con {@link AttesaLimitataSocketFactory},
+ *   che chiude anche la connessione verso un client bloccato e libera il
+ *   thread della chiamata; senza di essa il thread resta occupato finché il
+ *   sistema operativo non chiude la connessione
+ *
+ * I limiti si possono modificare con le proprietà di sistema
+ * {@code climatemonitoring.notifiche.thread}, {@code .finestraMs},
+ * {@code .coda}, {@code .errori}, {@code .timeoutMs} e {@code .chiamate}.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class DistributoreModifiche {
+
+    /** Thread che eseguono gli invii. */
+    public static final int THREAD = Integer.getInteger("climatemonitoring.notifiche.thread", 2);
+
+    /** Attesa (ms) prima di un invio, per raccogliere gli eventi vicini. */
+    public static final long FINESTRA_MS = Long.getLong("climatemonitoring.notifiche.finestraMs", 200);
+
+    /** Eventi distinti in attesa per sottoscrittore. */
+    public static final int CAPACITA_CODA = Integer.getInteger("climatemonitoring.notifiche.coda", 256);
+
+    /** Invii falliti di seguito dopo i quali la sottoscrizione viene rimossa. */
+    public static final int ERRORI_MASSIMI = Integer.getInteger("climatemonitoring.notifiche.errori", 3);
+
+    /** Attesa massima (ms) dell'esito di una chiamata all'ascoltatore. */
+    public static final long TIMEOUT_MS = Long.getLong("climatemonitoring.notifiche.timeoutMs",
+            AttesaLimitataSocketFactory.ATTESA_PREDEFINITA_MS);
+
+    /** Chiamate remote agli ascoltatori in corso contemporaneamente. */
+    public static final int CHIAMATE = Integer.getInteger("climatemonitoring.notifiche.chiamate", 16);
+
+    private final Map<AscoltatoreModifiche, Sottoscrittore> sottoscrittori = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService esecutore;
+
+    /** Esegue le chiamate remote, così i thread di invio non restano bloccati. */
+    private final ThreadPoolExecutor chiamate;
+
+    /**
+     * Crea il distributore e i suoi thread di invio.
+     */
+    public DistributoreModifiche() {
+        AtomicInteger numero = new AtomicInteger();
+        ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(Math.max(1, THREAD), r -> {
+            Thread t = new Thread(r, "notifiche-" + numero.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        pool.setRemoveOnCancelPolicy(true);
+        this.esecutore = pool;
+
+        // nessuna coda: con tutti i thread occupati da client bloccati l'invio fallisce subito
+        AtomicInteger numeroChiamate = new AtomicInteger();
+        this.chiamate = new ThreadPoolExecutor(0, Math.max(1, CHIAMATE), 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> {
+            Thread t = new Thread(r, "notifiche-chiamata-" + numeroChiamate.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Registra un ascoltatore o ne sostituisce gli insiemi osservati.
+     *
+     * @param ascoltatore Ascoltatore remoto
+     * @param centri Centri osservati, o null
+     * @param areeInteresse Aree di interesse osservate, o null
+     * @param coordinate Coordinate osservate, o null
+     * @throws IllegalArgumentException Se l'ascoltatore è nullo
+     */
+    public void sottoscrivi(AscoltatoreModifiche ascoltatore, Set<Integer> centri, Set<Integer> areeInteresse,
+                            Set<Integer> coordinate) {
+        if (ascoltatore == null) {
+            throw new IllegalArgumentException("L'ascoltatore non può essere nullo");
+        }
+        Filtro filtro = new Filtro(copia(centri), copia(areeInteresse), copia(coordinate));
+        sottoscrittori.compute(ascoltatore, (a, esistente) -> {
+            if (esistente == null) {
+                return new Sottoscrittore(a, filtro);
+            }
+            esistente.filtro = filtro;
+            return esistente;
+        });
+    }
+
+    /**
+     * Rimuove un ascoltatore; gli eventi ancora in coda vengono scartati.
+     *
+     * @param ascoltatore Ascoltatore da rimuovere
+     */
+    public void annulla(AscoltatoreModifiche ascoltatore) {
+        if (ascoltatore != null) {
+            sottoscrittori.remove(ascoltatore);
+        }
+    }
+
+    /**
+     * @return Numero di ascoltatori sottoscritti
+     */
+    public int getSottoscrittori() {
+        return sottoscrittori.size();
+    }
+
+    /**
+     * Segnala una nuova rilevazione. Non esegue chiamate remote.
+     *
+     * @param centroMonitoraggioId Centro della rilevazione
+     * @param areaInteresseId Area di interesse, o null
+     * @param coordinateMonitoraggioId Coordinata, o null
+     */
+    public void rilevazione(int centroMonitoraggioId, Integer areaInteresseId, Integer coordinateMonitoraggioId) {
+        pubblica(new EventoModifica(EventoModifica.Tipo.RILEVAZIONE, centroMonitoraggioId,
+                areaInteresseId, coordinateMonitoraggioId, 1));
+    }
+
+    /**
+     * Segnala una nuova area di interesse. Non esegue chiamate remote.
+     *
+     * @param centroMonitoraggioId Centro a cui appartiene l'area
+     * @param areaInteresseId Identificatore dell'area
+     */
+    public void areaInteresse(int centroMonitoraggioId, int areaInteresseId) {
+        pubblica(new EventoModifica(EventoModifica.Tipo.AREA_INTERESSE, centroMonitoraggioId,
+                areaInteresseId, null, 1));
+    }
+
+    /**
+     * Ferma gli invii e rimuove tutte le sottoscrizioni.
+     */
+    public void chiudi() {
+        esecutore.shutdownNow();
+        chiamate.shutdownNow();
+        sottoscrittori.clear();
+    }
+
+    private void pubblica(EventoModifica evento) {
+        if (sottoscrittori.isEmpty()) {
+            return;
+        }
+        for (Sottoscrittore s : sottoscrittori.values()) {
+            if (s.filtro.interessa(evento) && s.accoda(evento)) {
+                programma(s, FINESTRA_MS);
+            }
+        }
+    }
+
+    private void programma(Sottoscrittore s, long ritardoMs) {
+        if (!esecutore.isShutdown()) {
+            esecutore.schedule(() -> invia(s), ritardoMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Invia gli eventi in coda di un sottoscrittore, fuori da ogni lock.
+     */
+    private void invia(Sottoscrittore s) {
+        List<EventoModifica> eventi = s.preleva();
+        String errore = null;
+        if (s.inCorso != null && !s.inCorso.isDone()) {
+            errore = "la notifica precedente non ha ancora ricevuto risposta";
+        } else {
+            try {
+                s.inCorso = chiamate.submit(() -> {
+                    s.ascoltatore.modificheAvvenute(eventi);
+                    return null;
+                });
+                s.inCorso.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                Throwable causa = e.getCause();
+                if (causa instanceof NoSuchObjectException || causa instanceof ConnectException) {
+                    // il client è terminato senza annullare la sottoscrizione
+                    sottoscrittori.remove(s.ascoltatore, s);
+                    return;
+                }
+                errore = String.valueOf(causa.getMessage());
+            } catch (TimeoutException e) {
+                errore = "nessuna risposta entro " + TIMEOUT_MS + " ms";
+            } catch (RejectedExecutionException e) {
+                errore = "tutti i " + CHIAMATE + " thread delle chiamate sono occupati";
+            } catch (InterruptedException e) {
+                // distributore in chiusura
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        if (errore != null && s.errori + 1 >= ERRORI_MASSIMI) {
+            System.err.println("Sottoscrizione rimossa dopo " + ERRORI_MASSIMI
+                    + " notifiche fallite: " + errore);
+            sottoscrittori.remove(s.ascoltatore, s);
+            return;
+        }
+        if (s.concludi(errore == null)) {
+            programma(s, FINESTRA_MS);
+        }
+    }
+
+    private static Set<Integer> copia(Set<Integer> insieme) {
+        return insieme == null ? Set.of() : Set.copyOf(insieme);
+    }
+
+    /**
+     * Centri, aree e coordinate osservati da un sottoscrittore.
+     */
+    private record Filtro(Set<Integer> centri, Set<Integer> areeInteresse, Set<Integer> coordinate) {
+
+        boolean interessa(EventoModifica e) {
+            return (e.getCentroMonitoraggioId() != null && centri.contains(e.getCentroMonitoraggioId()))
+                    || (e.getAreaInteresseId() != null && areeInteresse.contains(e.getAreaInteresseId()))
+                    || (e.getCoordinateMonitoraggioId() != null && coordinate.contains(e.getCoordinateMonitoraggioId()));
+        }
+    }
+
+    /**
+     * Coda e stato di invio di un ascoltatore.
+     */
+    private static final class Sottoscrittore {
+        final AscoltatoreModifiche ascoltatore;
+        volatile Filtro filtro;
+
+        /** Eventi in attesa, senza conteggio, con il numero di occorrenze. */
+        private final Map<EventoModifica, Integer> inAttesa = new LinkedHashMap<>();
+        private boolean traboccata;
+
+        /** Vero da quando un invio è programmato fino alla sua conclusione. */
+        private boolean programmato;
+
+        /** Invii falliti di seguito, modificato solo dal thread di invio. */
+        int errori;
+
+        /** Ultima chiamata remota avviata, letta e scritta solo dal thread di invio. */
+        volatile Future<?> inCorso;
+
+        Sottoscrittore(AscoltatoreModifiche ascoltatore, Filtro filtro) {
+            this.ascoltatore = ascoltatore;
+            this.filtro = filtro;
+        }
+
+        /**
+         * @return {@code true} se il chiamante deve programmare un invio
+         */
+        synchronized boolean accoda(EventoModifica evento) {
+            if (!traboccata) {
+                if (inAttesa.containsKey(evento)) {
+                    inAttesa.merge(evento, 1, Integer::sum);
+                } else if (inAttesa.size() < CAPACITA_CODA) {
+                    inAttesa.put(evento, 1);
+                } else {
+                    inAttesa.clear();
+                    traboccata = true;
+                }
+            }
+            if (programmato) {
+                return false;
+            }
+            programmato = true;
+            return true;
+        }
+
+        synchronized List<EventoModifica> preleva() {
+            List<EventoModifica> eventi = new ArrayList<>(traboccata ? 1 : inAttesa.size());
+            if (traboccata) {
+                eventi.add(new EventoModifica(EventoModifica.Tipo.RISINCRONIZZA, null, null, null, 1));
+            } else {
+                for (Map.Entry<EventoModifica, Integer> e : inAttesa.entrySet()) {
+                    eventi.add(e.getKey().conConteggio(e.getValue()));
+                }
+            }
+            inAttesa.clear();
+            traboccata = false;
+            return eventi;
+        }
+
+        /**
+         * Chiude un invio.
+         *
+         * @param riuscito Esito dell'invio; se fallito gli eventi inviati sono persi
+         *                 e il client riceverà un evento di risincronizzazione
+         * @return {@code true} se sono arrivati altri eventi e va programmato un nuovo invio
+         */
+        synchronized boolean concludi(boolean riuscito) {
+            if (riuscito) {
+                errori = 0;
+            } else {
+                errori++;
+                inAttesa.clear();
+                traboccata = true;
+            }
+            if (traboccata || !inAttesa.isEmpty()) {
+                return true;
+            }
+            programmato = false;
+            return false;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.climatemonitoring.server.server;
+
+import com.climatemonitoring.common.service.ClimateMonitoringService;
+import com.climatemonitoring.common.service.ServizioOccupatoException;
+import com.climatemonitoring.server.util.PoolConfig;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Proxy;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Misura dei thread usati dal server con molti client contemporanei, senza
+ * bisogno del database.
+ *
+ * Lo stesso carico è eseguito due volte, per confronto: prima con il
+ * servizio simulato esportato direttamente, poi avvolto da
+ * {@link VarcoRichieste} con il {@link ControlloAmmissione} dimensionato sul
+ * pool predefinito, come nel server reale. Il servizio è esportato con RMI
+ * su una porta locale e ogni client simulato chiama
+ * {@code autenticaOperatore} attraverso lo stub, quindi su una connessione
+ * TCP propria. Il servizio occupa una "connessione" di un semaforo grande
+ * quanto il pool e attende la latenza indicata, come una query JDBC.
+ *
+ * Durante il carico vengono campionati i thread di connessione RMI del
+ * server, le chiamate dentro il varco e l'heap occupato. Per ogni modalità
+ * sono stampati i massimi, la stima della memoria degli stack dei thread RMI
+ * (thread per dimensione dello stack, {@code -Xss}), le chiamate completate e
+ * rifiutate e le chiamate al secondo. Ogni chiamata in esecuzione o in attesa
+ * di ammissione occupa un thread RMI di piattaforma.
+ *
+ * Uso: {@code CaricoRichieste [client] [chiamate per client] [latenza ms]},
+ * con valori predefiniti 5000, 20 e 5. Con tanti client può servire alzare
+ * il limite dei file aperti ({@code ulimit -n}). Per la memoria nativa
+ * effettiva conviene avviare la JVM con {@code -XX:NativeMemoryTracking=summary}
+ * e leggerla con {@code jcmd <pid> VM.native_memory summary}.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class CaricoRichieste {
+
+    /** Prefisso dei thread con cui il trasporto RMI serve le connessioni in arrivo. */
+    private static final String THREAD_RMI = "RMI TCP Connection";
+
+    private final int clienti;
+    private final int chiamate;
+    private final long latenzaMs;
+    private final int connessioni = new PoolConfig().getMaxConnessioni();
+    private final long stackKb = dimensioneStackKb();
+
+    private CaricoRichieste(int clienti, int chiamate, long latenzaMs) {
+        this.clienti = clienti;
+        this.chiamate = chiamate;
+        this.latenzaMs = latenzaMs;
+    }
+
+    /**
+     * @param args Numero di client, chiamate per client e latenza in millisecondi, tutti facoltativi
+     * @throws Exception Se il servizio non può essere esportato o la misura viene interrotta
+     */
+    public static void main(String[] args) throws Exception {
+        int clienti = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int chiamate = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        long latenzaMs = args.length > 2 ? Long.parseLong(args[2]) : 5;
+        CaricoRichieste carico = new CaricoRichieste(clienti, chiamate, latenzaMs);
+
+        System.out.println("Client: " + clienti + ", chiamate per client: " + chiamate
+                + ", latenza: " + latenzaMs + " ms, connessioni: " + carico.connessioni
+                + ", stack: " + carico.stackKb + " KB");
+        carico.esegui(false);
+        carico.esegui(true);
+        System.exit(0);
+    }
+
+    /**
+     * Esporta il servizio simulato, esegue tutti i client e stampa le misure.
+     *
+     * @param conVarco Se avvolgere il servizio con il varco di ammissione
+     */
+    private void esegui(boolean conVarco) throws RemoteException, InterruptedException {
+        Semaphore pool = new Semaphore(connessioni);
+        ClimateMonitoringService simulato = (ClimateMonitoringService) Proxy.newProxyInstance(
+                ClimateMonitoringService.class.getClassLoader(),
+                new Class<?>[]{ClimateMonitoringService.class},
+                (p, metodo, argomenti) -> {
+                    if (!metodo.getName().equals("autenticaOperatore")) {
+                        throw new UnsupportedOperationException(metodo.getName());
+                    }
+                    pool.acquire();
+                    try {
+                        Thread.sleep(latenzaMs);
+                    } finally {
+                        pool.release();
+                    }
+                    return true;
+                });
+
+        ClimateMonitoringService esportato = simulato;
+        VarcoRichieste varco = null;
+        if (conVarco) {
+            ControlloAmmissione ammissione = new ControlloAmmissione(connessioni);
+            esportato = VarcoRichieste.proxy(ClimateMonitoringService.class, simulato, ammissione);
+            varco = VarcoRichieste.di(esportato);
+        }
+        ClimateMonitoringService stub = (ClimateMonitoringService) UnicastRemoteObject.exportObject(esportato, 0);
+
+        MemoryMXBean memoria = ManagementFactory.getMemoryMXBean();
+        memoria.gc();
+        long heapIniziale = memoria.getHeapMemoryUsage().getUsed();
+        ThreadMXBean thread = ManagementFactory.getThreadMXBean();
+        thread.resetPeakThreadCount();
+
+        CountDownLatch pronti = new CountDownLatch(clienti);
+        CountDownLatch via = new CountDownLatch(1);
+        CountDownLatch finiti = new CountDownLatch(clienti);
+        AtomicLong completate = new AtomicLong();
+        AtomicLong rifiutate = new AtomicLong();
+
+        Runnable cliente = () -> {
+            pronti.countDown();
+            try {
+                via.await();
+                for (int i = 0; i < chiamate; i++) {
+                    try {
+                        stub.autenticaOperatore("carico", "carico");
+                        completate.incrementAndGet();
+                    } catch (RemoteException e) {
+                        // lanciata dal varco sul server, arriva avvolta in una ServerException
+                        if (e instanceof ServizioOccupatoException || e.getCause() instanceof ServizioOccupatoException) {
+                            rifiutate.incrementAndGet();
+                        } else {
+                            System.err.println("Chiamata fallita: " + e.getMessage());
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                finiti.countDown();
+            }
+        };
+
+        List<Thread> avviati = new ArrayList<>(clienti);
+        for (int i = 0; i < clienti; i++) {
+            Thread t = new Thread(cliente, "cliente-" + i);
+            t.setDaemon(true);
+            t.start();
+            avviati.add(t);
+        }
+        pronti.await();
+
+        VarcoRichieste campionato = varco;
+        long[] massimi = new long[3];
+        Thread campionatore = new Thread(() -> {
+            while (finiti.getCount() > 0) {
+                massimi[0] = Math.max(massimi[0], threadRmi());
+                massimi[1] = Math.max(massimi[1], campionato != null ? campionato.getInCorso() : 0);
+                massimi[2] = Math.max(massimi[2], memoria.getHeapMemoryUsage().getUsed());
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "campionatore");
+        campionatore.setDaemon(true);
+
+        long inizio = System.nanoTime();
+        via.countDown();
+        campionatore.start();
+        finiti.await();
+        long durataMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inizio);
+        campionatore.join();
+        for (Thread t : avviati) {
+            t.join();
+        }
+        UnicastRemoteObject.unexportObject(esportato, true);
+
+        System.out.println(conVarco ? "Con VarcoRichieste:" : "Senza varco:");
+        System.out.printf("  thread RMI del server: massimo %d (stack circa %d MB), "
+                        + "chiamate nel varco: massimo %s, thread della JVM: picco %d%n",
+                massimi[0], massimi[0] * stackKb / 1024,
+                conVarco ? String.valueOf(massimi[1]) : "-", thread.getPeakThreadCount());
+        System.out.printf("  heap occupato: %d MB all'inizio, massimo %d MB%n",
+                heapIniziale >> 20, Math.max(heapIniziale, massimi[2]) >> 20);
+        System.out.printf("  completate %d, rifiutate %d, durata %d ms, %.0f chiamate/s%n",
+                completate.get(), rifiutate.get(), durataMs,
+                completate.get() * 1000.0 / Math.max(1, durataMs));
+    }
+
+    /**
+     * Dimensione dello stack dei thread in KB, cioè il valore di {@code -Xss}
+     * o quello predefinito della piattaforma.
+     */
+    private static long dimensioneStackKb() {
+        for (String argomento : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (argomento.startsWith("-Xss")) {
+                String valore = argomento.substring(4).toLowerCase();
+                long numero = Long.parseLong(valore.replaceAll("[kmg]$", ""));
+                if (valore.endsWith("g")) {
+                    return numero << 20;
+                } else if (valore.endsWith("m")) {
+                    return numero << 10;
+                } else if (valore.endsWith("k")) {
+                    return numero;
+                }
+                return numero >> 10;
+            }
+        }
+        // valore predefinito di HotSpot sui sistemi a 64 bit
+        return 1024;
+    }
+
+    private static int threadRmi() {
+        int n = 0;
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.getName().startsWith(THREAD_RMI)) {
+                n++;
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,138 @@
+package com.climatemonitoring.server.server;
+
+import java.lang.reflect.Method;
+
+/**
+ * Classi di costo delle chiamate remote, ciascuna con i propri limiti di
+ * concorrenza in {@link ControlloAmmissione}.
+ *
+ * Separare le classi fa sì che un picco di report, che leggono molte righe
+ * e tengono a lungo una connessione, non rallenti le chiamate leggere come
+ * il login o le ricerche sul catalogo in memoria.
+ *
+ * I limiti delle classi che tengono una connessione per tutta la chiamata
+ * (report e inserimenti) sono una quota del pool di connessioni, così
+ * insieme non possono occuparlo tutto: almeno {@link #riserva(int)}
+ * connessioni restano alle chiamate ordinarie. Le chiamate ordinarie hanno
+ * invece un limite fisso, perché molte sono servite dal catalogo in memoria
+ * senza usare il database.
+ *
+ * Con la coda di ingestione attiva gli inserimenti di singole rilevazioni
+ * non tengono una connessione: attendono il commit del gruppo in cui sono
+ * scritte. Il loro limite diventa allora la capacità della coda, così un
+ * gruppo può raccogliere tutte le rilevazioni di un picco, e non contano
+ * più nella quota del pool.
+ *
+ * I valori predefiniti possono essere modificati con le proprietà di sistema
+ * {@code climatemonitoring.ammissione.<classe>.limite}, {@code .coda} e
+ * {@code .attesaMs}, ad esempio {@code climatemonitoring.ammissione.report.limite=4}.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public enum ClasseRichiesta {
+
+    /** Login, registrazione, ricerche e letture brevi: limite fisso di 64. */
+    ORDINARIA(0, 256, 1_000),
+
+    /** Report e serie storiche delle aree: un quarto delle connessioni. */
+    REPORT(4, 32, 2_000),
+
+    /** Inserimento di singole rilevazioni: un quarto delle connessioni, o la capacità della coda di ingestione. */
+    INSERIMENTO(4, 128, 5_000),
+
+    /** Inserimento di lotti di rilevazioni: un ottavo delle connessioni. */
+    LOTTO(8, 4, 10_000);
+
+    /** Limite predefinito delle chiamate ordinarie. */
+    private static final int LIMITE_ORDINARIA = 64;
+
+    /** Divisore del pool che dà il limite predefinito, 0 se il limite non dipende dal pool. */
+    private final int divisore;
+    private final Integer limiteImpostato;
+    private final int coda;
+    private final long attesaMs;
+
+    ClasseRichiesta(int divisore, int coda, long attesaMs) {
+        String prefisso = "climatemonitoring.ammissione." + name().toLowerCase() + ".";
+        this.divisore = divisore;
+        this.limiteImpostato = Integer.getInteger(prefisso + "limite");
+        this.coda = Integer.getInteger(prefisso + "coda", coda);
+        this.attesaMs = Long.getLong(prefisso + "attesaMs", attesaMs);
+    }
+
+    /**
+     * @param connessioni Numero massimo di connessioni del pool
+     * @param codaIngestione Capacità della coda di ingestione, 0 se la coda non è attiva
+     * @return Numero massimo di chiamate della classe eseguite contemporaneamente
+     */
+    public int getLimite(int connessioni, int codaIngestione) {
+        if (limiteImpostato != null) {
+            return limiteImpostato;
+        }
+        if (isAccodata(codaIngestione)) {
+            return codaIngestione;
+        }
+        return divisore == 0 ? LIMITE_ORDINARIA : Math.max(1, connessioni / divisore);
+    }
+
+    /**
+     * @param codaIngestione Capacità della coda di ingestione, 0 se la coda non è attiva
+     * @return {@code true} se le chiamate della classe tengono una connessione per tutta la durata
+     */
+    public boolean isLegataAlPool(int codaIngestione) {
+        return divisore != 0 && !isAccodata(codaIngestione);
+    }
+
+    /**
+     * Gli inserimenti di singole rilevazioni passano dalla coda di ingestione, se attiva.
+     */
+    private boolean isAccodata(int codaIngestione) {
+        return this == INSERIMENTO && codaIngestione > 0;
+    }
+
+    /**
+     * @param connessioni Numero massimo di connessioni del pool
+     * @return Connessioni da lasciare libere per le chiamate ordinarie
+     */
+    public static int riserva(int connessioni) {
+        return Math.max(1, connessioni / 4);
+    }
+
+    /**
+     * @return Numero massimo di chiamate in attesa di un posto libero
+     */
+    public int getCoda() {
+        return coda;
+    }
+
+    /**
+     * @return Attesa massima di un posto libero, in millisecondi
+     */
+    public long getAttesaMs() {
+        return attesaMs;
+    }
+
+    /**
+     * Classifica un metodo dell'interfaccia remota.
+     *
+     * @param metodo Metodo remoto
+     * @return Classe di costo del metodo
+     */
+    public static ClasseRichiesta di(Method metodo) {
+        String nome = metodo.getName();
+        switch (nome) {
+            case "visualizzaAreaGeografica":
+            case "reportAreaGeografica":
+            case "visualizzaAreaCentroMonitoraggio":
+            case "reportAreaCentroMonitoraggio":
+            case "rilevazioniArea":
+                return REPORT;
+            case "inserisciParametriClimaticiLotto":
+                return LOTTO;
+            default:
+                return nome.startsWith("inserisci") ? INSERIMENTO : ORDINARIA;
+        }
+    }
+}
@@ -1,52 +1,304 @@
 package com.climatemonitoring.server.server;
 
+import com.climatemonitoring.common.model.AggiornamentoAree;
 import com.climatemonitoring.common.model.OperatoriRegistrati;
+import com.climatemonitoring.common.model.PaginaAree;
+import com.climatemonitoring.common.model.PaginaRilevazioni;
+import com.climatemonitoring.common.model.ParametriClimatici;
+import com.climatemonitoring.common.model.ParametroClimatico;
+import com.climatemonitoring.common.model.ReportArea;
 import com.climatemonitoring.common.service.ClimateMonitoringService;
+import com.climatemonitoring.common.util.FormattatoreReport;
 import com.climatemonitoring.common.model.CoordinateMonitoraggio;
+import com.climatemonitoring.common.model.CursoreRilevazioni;
+import com.climatemonitoring.common.service.AscoltatoreModifiche;
+import com.climatemonitoring.server.index.AggregatiClimatici;
+import com.climatemonitoring.server.index.CatalogoGeografico;
+import com.climatemonitoring.server.index.PuntoGeografico;
+import com.climatemonitoring.server.index.RisultatoDistanza;
+import com.climatemonitoring.server.index.StatisticheClimatiche;
+import com.climatemonitoring.server.ingestion.ChiaviRecenti;
+import com.climatemonitoring.server.ingestion.CodaIngestione;
+import com.climatemonitoring.server.ingestion.ConfigurazioneIngestione;
+import com.climatemonitoring.server.ingestion.ScrittoreRilevazioni;
+import com.climatemonitoring.server.ingestion.SpoolRilevazioni;
+import com.climatemonitoring.server.notifiche.DistributoreModifiche;
 import com.climatemonitoring.server.util.DatabaseManager;
+import com.climatemonitoring.server.util.MigrazioniSchema;
 
+import java.io.IOException;
 import java.rmi.RemoteException;
-import java.rmi.server.UnicastRemoteObject;
 import java.sql.*;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
 
 /**
  * Implementazione del servizio di monitoraggio climatico che gestisce
  * la ricerca e la visualizzazione di aree geografiche e parametri climatici.
  *
- * Questa classe estende UnicastRemoteObject per supportare chiamate remote
- * e implementa l'interfaccia ClimateMonitoringService.
+ * Questa classe implementa l'interfaccia ClimateMonitoringService; non viene
+ * esportata direttamente ma tramite il proxy di {@link VarcoRichieste}
+ * (vedi {@link ServerRMI}), che permette di attendere le chiamate in corso
+ * prima dell'arresto.
  *
  * @author Fusè Lorenzo 753168
  * @author Ciminella Alessandro 753369
  * @author Dragan Cosmin 754427
  */
-public class ClimateMonitoringServiceImpl extends UnicastRemoteObject implements ClimateMonitoringService {
+public class ClimateMonitoringServiceImpl implements ClimateMonitoringService {
 
     /**
      * Gestore del database per le connessioni e le query.
      */
     private final DatabaseManager dbManager;
 
+    /**
+     * Catalogo in memoria dei luoghi, usato per le ricerche senza accesso al database.
+     */
+    private final CatalogoGeografico catalogo;
+
+    /**
+     * Aggregati delle rilevazioni per area e centro, usati dai riepiloghi dei report.
+     */
+    private final AggregatiClimatici aggregati;
+
+    /**
+     * Scrittore per l'inserimento a lotti delle rilevazioni.
+     */
+    private final ScrittoreRilevazioni scrittore;
+
+    /**
+     * Chiavi di idempotenza confermate di recente, condivise con lo scrittore.
+     */
+    private final ChiaviRecenti chiaviRecenti;
+
+    /**
+     * Coda di scrittura a gruppi delle singole rilevazioni, null se non attiva.
+     */
+    private final CodaIngestione codaIngestione;
+
+    /**
+     * Spool locale delle rilevazioni accettate a database non disponibile, null se non attivo.
+     */
+    private final SpoolRilevazioni spool;
+
+    /**
+     * Distributore delle notifiche di modifica ai client sottoscritti.
+     */
+    private final DistributoreModifiche notifiche = new DistributoreModifiche();
+
+    /**
+     * Tempo massimo (ms) di attesa dello svuotamento della coda di ingestione alla chiusura.
+     */
+    private static final long ATTESA_CHIUSURA_CODA_MS = 10_000;
+
+    /**
+     * Raggio (km) che contiene interamente il riquadro di ±{@value #TOLLERANZA_GRADI} gradi
+     * a qualsiasi latitudine: la diagonale all'equatore è di circa 78.6 km.
+     */
+    private static final double RAGGIO_RIQUADRO_KM = 80.0;
+
+    /**
+     * Tolleranza in gradi usata dalla ricerca per coordinate.
+     */
+    private static final double TOLLERANZA_GRADI = 0.5;
+
+    /**
+     * Numero massimo di risultati restituiti dalle ricerche per prossimità.
+     */
+    private static final int MAX_RISULTATI_PROSSIMITA = 1000;
+
+    /**
+     * Numero massimo di suggerimenti restituiti dal completamento automatico.
+     */
+    private static final int MAX_SUGGERIMENTI = 50;
+
+    /**
+     * Numero di commenti recenti degli operatori inclusi nei report.
+     */
+    private static final int MAX_COMMENTI = 5;
+
+    /**
+     * Numero di rilevazioni incluse nel report; le altre si leggono a pagine.
+     */
+    private static final int DIMENSIONE_PAGINA_REPORT = 200;
+
+    /**
+     * Dimensione massima di una pagina di rilevazioni.
+     */
+    private static final int MAX_DIMENSIONE_PAGINA = 1000;
+
+    /**
+     * Dimensione massima di una pagina di risultati delle ricerche di aree.
+     */
+    private static final int MAX_DIMENSIONE_PAGINA_AREE = 1000;
+
+    /**
+     * Parametri climatici nell'ordine degli array dei report.
+     */
+    private static final ParametroClimatico[] PARAMETRI = ParametroClimatico.values();
+
+    /**
+     * Raggio terrestre usato dalla formula di Haversine.
+     */
+    private static final double RAGGIO_TERRA_KM = 6371;
+
     /**
      * Costruttore della classe che inizializza il servizio RMI.
      *
      * @param dbManager Gestore del database per stabilire le connessioni
      * @throws RemoteException Se si verificano errori durante l'inizializzazione remota
+     *                         o lo schema del database non permette gli inserimenti
      */
     public ClimateMonitoringServiceImpl(DatabaseManager dbManager) throws RemoteException {
-        super();
         this.dbManager = dbManager;
+        try {
+            MigrazioniSchema.applica(dbManager);
+        } catch (IllegalStateException e) {
+            throw new RemoteException(e.getMessage());
+        }
+        this.catalogo = new CatalogoGeografico(dbManager);
+        catalogo.carica();
+        this.aggregati = new AggregatiClimatici(dbManager);
+        aggregati.carica();
+        ConfigurazioneIngestione configurazione = ConfigurazioneIngestione.daProprietaSistema();
+        this.chiaviRecenti = new ChiaviRecenti(configurazione.getChiaviRecenti());
+        this.scrittore = new ScrittoreRilevazioni(dbManager, aggregati, chiaviRecenti, notifiche);
+
+        if (configurazione.isAttiva()) {
+            this.codaIngestione = new CodaIngestione(scrittore, configurazione);
+            System.out.println("Coda di ingestione attiva: capacità " + configurazione.getCapacitaCoda()
+                    + ", lotti fino a " + configurazione.getDimensioneMassimaLotto()
+                    + " rilevazioni ogni " + configurazione.getFinestraLottoMs() + " ms");
+        } else {
+            this.codaIngestione = null;
+        }
+        this.spool = SpoolRilevazioni.apri(configurazione, scrittore);
+    }
+
+    /**
+     * Rilascia le risorse del servizio: attende la scrittura delle
+     * rilevazioni ancora in coda di ingestione, chiude lo spool e ferma
+     * l'invio delle notifiche.
+     *
+     * Non fa parte dell'interfaccia remota; va chiamato dopo l'unexport,
+     * quando non possono arrivare nuove richieste.
+     */
+    public void chiudi() {
+        if (codaIngestione != null) {
+            codaIngestione.chiudi(ATTESA_CHIUSURA_CODA_MS);
+        }
+        if (spool != null) {
+            spool.chiudi();
+        }
+        notifiche.chiudi();
+    }
+
+    /**
+     * Non fa parte dell'interfaccia remota: serve a dimensionare il controllo di ammissione.
+     *
+     * @return Capacità della coda di ingestione, 0 se la coda non è attiva
+     */
+    public int getCapacitaCodaIngestione() {
+        return codaIngestione == null ? 0 : codaIngestione.getCapacita();
+    }
+
+    /**
+     * Salva una rilevazione nello spool locale, da cui sarà scritta nel
+     * database appena torna disponibile.
+     *
+     * @return {@code true} se la rilevazione è stata salvata e può essere confermata
+     */
+    private boolean salvaInSpool(ParametriClimatici rilevazione) {
+        if (spool == null) {
+            return false;
+        }
+        try {
+            spool.aggiungi(rilevazione);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Impossibile salvare la rilevazione nello spool: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Finché lo spool contiene rilevazioni da riapplicare, le nuove vi sono
+     * accodate a loro volta, così il database le riceve nell'ordine di arrivo.
+     *
+     * Prima di confermare la rilevazione ne verifica i riferimenti: una
+     * rilevazione con centro, area o coordinata inesistenti sarebbe scartata
+     * alla riapplicazione dopo essere stata confermata al client. Solo se il
+     * database non è raggiungibile la rilevazione viene salvata senza verifica.
+     *
+     * @throws RemoteException Se un riferimento non esiste o la verifica fallisce
+     */
+    private boolean accodaDopoSpool(ParametriClimatici rilevazione) throws RemoteException {
+        if (spool == null || !spool.inAttesa()) {
+            return false;
+        }
+        String errore;
+        try {
+            errore = scrittore.verificaRiferimenti(rilevazione);
+        } catch (SQLException e) {
+            if (!SpoolRilevazioni.indisponibilita(e)) {
+                throw new RemoteException("Errore durante la verifica della rilevazione", e);
+            }
+            errore = null;
+        }
+        if (errore != null) {
+            throw new RemoteException(errore);
+        }
+        return salvaInSpool(rilevazione);
+    }
+
+    /**
+     * Inserisce una rilevazione tramite la coda di ingestione, attendendo il
+     * commit del gruppo in cui viene scritta.
+     */
+    private void accoda(ParametriClimatici rilevazione) throws RemoteException {
+        try {
+            codaIngestione.inserisci(rilevazione);
+        } catch (IllegalArgumentException e) {
+            throw new RemoteException(e.getMessage());
+        } catch (IllegalStateException e) {
+            if (SpoolRilevazioni.indisponibilita(e) && salvaInSpool(rilevazione)) {
+                return;
+            }
+            throw new RemoteException(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RemoteException("Inserimento della rilevazione interrotto");
+        }
+    }
+
+    /**
+     * Ricalcola dal database gli aggregati delle rilevazioni e li confronta
+     * con quelli mantenuti in memoria.
+     *
+     * Non fa parte dell'interfaccia remota: è un comando di amministrazione
+     * del server.
+     *
+     * @return Numero di aree e centri i cui aggregati non erano coerenti col database
+     * @throws SQLException In caso di errori durante l'accesso al database
+     */
+    public int ricostruisciAggregati() throws SQLException {
+        return aggregati.ricostruisci();
     }
 
     /**
      * Cerca aree geografiche per nome città e stato.
      *
-     * Effettua una ricerca nel database per trovare aree geografiche
-     * che corrispondono parzialmente al nome della città e allo stato specificati.
+     * Effettua una ricerca per trovare aree geografiche che corrispondono
+     * parzialmente al nome della città e allo stato specificati.
+     * Se il catalogo in memoria è caricato la ricerca usa l'indice a trigrammi,
+     * senza distinzione di maiuscole e accenti; altrimenti interroga il database.
      *
      * @param nome Nome della città (può essere parziale)
      * @param stato Stato in cui cercare la città
@@ -62,32 +314,22 @@ public class ClimateMonitoringServiceImpl extends UnicastRemoteObject implements
             throw new IllegalArgumentException("Nome e stato non possono essere nulli o vuoti");
         }
 
-        String sql = "SELECT * FROM coordinatemonitoraggio WHERE nome_citta LIKE ? AND stato = ?";
+        if (catalogo.isCaricato()) {
+            return daPunti(catalogo.cercaPerNome(nome, stato));
+        }
 
-        try {
+        String sql = "SELECT * FROM coordinatemonitoraggio WHERE nome_citta LIKE ? AND stato = ?";
 
-            Connection conn = dbManager.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql);
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, "%" + nome + "%");
             pstmt.setString(2, stato);
 
-            try {
-                ResultSet rs = pstmt.executeQuery();
-
+            try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    CoordinateMonitoraggio area = new CoordinateMonitoraggio(
-                            rs.getInt("id"),
-                            rs.getString("nome_citta"),
-                            rs.getString("stato"),
-                            rs.getString("paese"),
-                            rs.getDouble("latitudine"),
-                            rs.getDouble("longitudine")
-                    );
-                    aree.add(area);
+                    aree.add(mappaCoordinata(rs));
                 }
-            } catch (SQLException e1) {
-                e1.printStackTrace();
             }
         } catch (Exception e) {
             throw new RemoteException("Errore durante la ricerca delle aree geografiche", e);
@@ -95,11 +337,56 @@ public class ClimateMonitoringServiceImpl extends UnicastRemoteObject implements
         return aree;
     }
 
+    /**
+     * Restituisce una pagina dei risultati della ricerca per nome città e stato.
+     *
+     * Usa gli stessi criteri di {@link #cercaAreaGeograficaNome(String, String)},
+     * con le aree ordinate per identificatore a partire da {@code dopoId}.
+     *
+     * @param nome Nome della città (può essere parziale)
+     * @param stato Stato in cui cercare la città
+     * @param dopoId Identificatore da cui riprendere, 0 per la prima pagina
+     * @param dimensionePagina Numero massimo di aree della pagina
+     * @return Pagina di coordinate di monitoraggio corrispondenti
+     * @throws RemoteException Se si verificano errori durante la ricerca nel database
+     * @throws IllegalArgumentException Se nome o stato sono nulli o vuoti o la dimensione non è positiva
+     */
+    @Override
+    public PaginaAree cercaAreaGeograficaNome(String nome, String stato, int dopoId, int dimensionePagina)
+            throws RemoteException {
+        if (nome == null || nome.trim().isEmpty() || stato == null || stato.trim().isEmpty()) {
+            throw new IllegalArgumentException("Nome e stato non possono essere nulli o vuoti");
+        }
+        if (dimensionePagina <= 0) {
+            throw new IllegalArgumentException("La dimensione della pagina deve essere positiva");
+        }
+        int limite = Math.min(dimensionePagina, MAX_DIMENSIONE_PAGINA_AREE);
+
+        if (catalogo.isCaricato()) {
+            return paginaDaPunti(catalogo.paginaPerNome(nome, stato, dopoId, limite + 1), limite);
+        }
+
+        String sql = "SELECT * FROM coordinatemonitoraggio WHERE nome_citta LIKE ? AND stato = ? AND id > ? "
+                + "ORDER BY id LIMIT ?";
+
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, "%" + nome + "%");
+            pstmt.setString(2, stato);
+            pstmt.setInt(3, dopoId);
+            pstmt.setInt(4, limite + 1);
+            return paginaDaQuery(pstmt, limite);
+        } catch (SQLException e) {
+            throw new RemoteException("Errore durante la ricerca delle aree geografiche", e);
+        }
+    }
+
     /**
      * Cerca aree geografiche per paese.
      *
      * Recupera tutte le coordinate di monitoraggio che appartengono
-     * parzialmente al paese specificato.
+     * parzialmente al paese specificato, usando l'indice in memoria se disponibile.
      *
      * @param paese Nome del paese (può essere parziale)
      * @return Lista di coordinate di monitoraggio nel paese
@@ -114,29 +401,21 @@ public class ClimateMonitoringServiceImpl extends UnicastRemoteObject implements
             throw new IllegalArgumentException("Il paese non può essere nullo");
         }
 
+        if (catalogo.isCaricato()) {
+            return daPunti(catalogo.cercaPerPaese(paese));
+        }
+
         String sql = "SELECT * FROM coordinatemonitoraggio WHERE paese LIKE ?";
 
-        try {
-            Connection conn = dbManager.getConnection();
-            PreparedStatement p = conn.prepareStatement(sql);
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement p = conn.prepareStatement(sql)) {
 
             p.setString(1, "%" + paese + "%");
 
-            try {
-                ResultSet rs = p.executeQuery();
+            try (ResultSet rs = p.executeQuery()) {
                 while (rs.next()) {
-                    CoordinateMonitoraggio area = new CoordinateMonitoraggio(
-                            rs.getInt("id"),
-                            rs.getString("nome_citta"),
-                            rs.getString("stato"),
-                            rs.getString("paese"),
-                            rs.getDouble("latitudine"),
-                            rs.getDouble("longitudine")
-                    );
-                    aree.add(area);
+                    aree.add(mappaCoordinata(rs));
                 }
-            } catch (SQLException e) {
-                throw new RuntimeException(e);
             }
 
         } catch (SQLException e) {
@@ -146,6 +425,48 @@ public class ClimateMonitoringServiceImpl extends UnicastRemoteObject implements
         return aree;
     }
 
+    /**
+     * Restituisce una pagina dei risultati della ricerca per paese.
+     *
+     * Usa gli stessi criteri di {@link #cercaAreaGeograficaPerPaese(String)},
+     * con le aree ordinate per identificatore a partire da {@code dopoId}.
+     *
+     * @param paese Nome del paese (può essere parziale)
+     * @param dopoId Identificatore da cui riprendere, 0 per la prima pagina
+     * @param dimensionePagina Numero massimo di aree della pagina
+     * @return Pagina di coordinate di monitoraggio nel paese
+     * @throws RemoteException Se si verificano errori durante la ricerca nel database
+     * @throws IllegalArgumentException Se il paese è nullo o vuoto o la dimensione non è positiva
+     */
+    @Override
+    public PaginaAree cercaAreaGeograficaPerPaese(String paese, int dopoId, int dimensionePagina)
+            throws RemoteException {
+        if (paese == null || paese.trim().isEmpty()) {
+            throw new IllegalArgumentException("Il paese non può essere nullo");
+        }
+        if (dimensionePagina <= 0) {
+            throw new IllegalArgumentException("La dimensione della pagina deve essere positiva");
+        }
+        int limite = Math.min(dimensionePagina, MAX_DIMENSIONE_PAGINA_AREE);
+
+        if (catalogo.isCaricato()) {
+            return paginaDaPunti(catalogo.paginaPerPaese(paese, dopoId, limite + 1), limite);
+        }
+
+        String sql = "SELECT * FROM coordinatemonitoraggio WHERE paese LIKE ? AND id > ? ORDER BY id LIMIT ?";
+
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement p = conn.prepareStatement(sql)) {
+
+            p.setString(1, "%" + paese + "%");
+            p.setInt(2, dopoId);
+            p.setInt(3, limite + 1);
+            return paginaDaQuery(p, limite);
+        } catch (SQLException e) {
+            throw new RemoteException("Errore durante la ricerca delle aree geografiche per paese", e);
+        }
+    }
+
     /**
      * Cerca aree geografiche in prossimità di coordinate geografiche specifiche.
      *
@@ -155,7 +476,8 @@ public class ClimateMonitoringServiceImpl extends UnicastRemoteObject implements
      *
      * Caratteristiche principali:
      * - Verifica la validità delle coordinate in input
-     * - Usa una query SQL con intervallo di tolleranza per latitudine e longitudine
+     * - Interroga l'indice spaziale in memoria, se caricato, senza accedere al database
+     * - Altrimenti usa una query SQL con intervallo di tolleranza per latitudine e longitudine
      * - Recupera i dettagli delle aree geografiche vicine
      * - Ordina i risultati dalla zona più vicina alla più lontana
      *
@@ -172,14 +494,17 @@ public class ClimateMonitoringServiceImpl extends UnicastRemoteObject implements
             throw new IllegalArgumentException("Latitudine e longitudine non possono essere nulli");
         }
 
+        if (catalogo.isCaricato()) {
+            return cercaNelRiquadro(latitudine, longitudine);
+        }
+
         List<CoordinateMonitoraggio> aree = new ArrayList<>();
-        final double TOLLERANZA = 0.5;
+        final double TOLLERANZA = TOLLERANZA_GRADI;
 
         String sql = "SELECT * FROM coordinatemonitoraggio WHERE latitudine BETWEEN ? - ? AND ? + ? AND longitudine BETWEEN ? - ? AND ? + ? ";
 
-        try {
-            Connection conn = dbManager.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql);
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setDouble(1, latitudine);
             pstmt.setDouble(2, TOLLERANZA);
@@ -190,39 +515,325 @@ public class ClimateMonitoringServiceImpl extends UnicastRemoteObject implements
             pstmt.setDouble(7, longitudine);
             pstmt.setDouble(8, TOLLERANZA);
 
-            try {
-                ResultSet rs = pstmt.executeQuery();
+            try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    CoordinateMonitoraggio area = new CoordinateMonitoraggio();
-                    area.setId(rs.getInt("id"));
-                    area.setNomeCitta(rs.getString("nome_citta"));
-                    area.setStato(rs.getString("stato"));
-                    area.setPaese(rs.getString("paese"));
-                    area.setLatitudine(rs.getDouble("latitudine"));
-                    area.setLongitudine(rs.getDouble("longitudine"));
-                    aree.add(area);
+                    aree.add(mappaCoordinata(rs));
                 }
-            } catch (Exception e1) {
-                e1.printStackTrace();
             }
         } catch (SQLException e) {
             e.printStackTrace();
             throw new RemoteException("Errore durante la ricerca nel database", e);
         }
 
-        //ordino ris dopo averli presi tramite la dist + vicina
-        if (!aree.isEmpty()) {
-            aree.sort((a1, a2) -> {
-                double dist1 = calcolaDistanzaKm(latitudine, longitudine, a1.getLatitudine(), a1.getLongitudine());
-                double dist2 = calcolaDistanzaKm(latitudine, longitudine, a2.getLatitudine(), a2.getLongitudine());
-                return Double.compare(dist1, dist2);
-            });
+        //ordino ris dopo averli presi tramite la dist + vicina, calcolando una sola distanza per area
+        if (aree.size() > 1) {
+            double[] distanze = new double[aree.size()];
+            Integer[] ordine = new Integer[aree.size()];
+            for (int i = 0; i < distanze.length; i++) {
+                CoordinateMonitoraggio a = aree.get(i);
+                distanze[i] = calcolaDistanzaKm(latitudine, longitudine, a.getLatitudine(), a.getLongitudine());
+                ordine[i] = i;
+            }
+            Arrays.sort(ordine, (i1, i2) -> Double.compare(distanze[i1], distanze[i2]));
+            List<CoordinateMonitoraggio> ordinate = new ArrayList<>(aree.size());
+            for (Integer i : ordine) {
+                ordinate.add(aree.get(i));
+            }
+            aree = ordinate;
+        }
+
+        return aree;
+    }
+
+    /**
+     * Esegue la ricerca per coordinate sull'indice spaziale in memoria.
+     *
+     * L'indice restituisce i punti entro {@link #RAGGIO_RIQUADRO_KM} già ordinati
+     * per distanza; di questi si tengono le coordinate di monitoraggio che cadono
+     * nel riquadro di tolleranza, con la stessa semantica della query SQL.
+     *
+     * @param latitudine Latitudine del punto di ricerca
+     * @param longitudine Longitudine del punto di ricerca
+     * @return Lista di {@link CoordinateMonitoraggio} ordinate per vicinanza
+     */
+    private List<CoordinateMonitoraggio> cercaNelRiquadro(double latitudine, double longitudine) {
+        List<RisultatoDistanza> vicini = catalogo.getIndiceSpaziale().entroRaggio(
+                latitudine, longitudine, RAGGIO_RIQUADRO_KM, Integer.MAX_VALUE,
+                p -> p.getTipo() == PuntoGeografico.Tipo.COORDINATA
+                        && Math.abs(p.getLatitudine() - latitudine) <= TOLLERANZA_GRADI
+                        && Math.abs(p.getLongitudine() - longitudine) <= TOLLERANZA_GRADI);
+
+        List<CoordinateMonitoraggio> aree = new ArrayList<>(vicini.size());
+        for (RisultatoDistanza r : vicini) {
+            aree.add(r.getPunto().toCoordinateMonitoraggio());
+        }
+        return aree;
+    }
+
+    /**
+     * Cerca le coordinate di monitoraggio entro un raggio dal punto indicato.
+     *
+     * Usa l'indice spaziale in memoria quando disponibile; in caso contrario
+     * interroga il database con un riquadro che tiene conto di poli e
+     * antimeridiano e filtra i candidati con la distanza esatta.
+     *
+     * @param latitudine Latitudine del punto di ricerca
+     * @param longitudine Longitudine del punto di ricerca
+     * @param raggioKm Raggio di ricerca in chilometri
+     * @param limite Numero massimo di risultati (al più {@value #MAX_RISULTATI_PROSSIMITA})
+     * @return Lista di {@link CoordinateMonitoraggio} ordinate per distanza, con la distanza valorizzata
+     * @throws RemoteException Se si verificano errori durante la ricerca nel database
+     * @throws IllegalArgumentException Se le coordinate, il raggio o il limite non sono validi
+     */
+    @Override
+    public List<CoordinateMonitoraggio> cercaAreeEntroRaggio(double latitudine, double longitudine,
+                                                             double raggioKm, int limite) throws RemoteException {
+        validaCoordinate(latitudine, longitudine);
+        if (!(raggioKm >= 0)) {
+            throw new IllegalArgumentException("Il raggio deve essere un numero non negativo");
+        }
+        if (limite <= 0) {
+            throw new IllegalArgumentException("Il limite deve essere positivo");
+        }
+        int max = Math.min(limite, MAX_RISULTATI_PROSSIMITA);
+
+        if (catalogo.isCaricato()) {
+            return daRisultati(catalogo.getIndiceSpaziale().entroRaggio(latitudine, longitudine, raggioKm, max,
+                    p -> p.getTipo() == PuntoGeografico.Tipo.COORDINATA));
+        }
+        return cercaEntroRaggioSql(latitudine, longitudine, raggioKm, max);
+    }
+
+    /**
+     * Cerca le k coordinate di monitoraggio più vicine al punto indicato.
+     *
+     * Senza indice in memoria la ricerca viene ripetuta sul database
+     * raddoppiando il raggio finché non si trovano k risultati.
+     *
+     * @param latitudine Latitudine del punto di ricerca
+     * @param longitudine Longitudine del punto di ricerca
+     * @param k Numero di risultati richiesti (al più {@value #MAX_RISULTATI_PROSSIMITA})
+     * @return Lista di {@link CoordinateMonitoraggio} ordinate per distanza, con la distanza valorizzata
+     * @throws RemoteException Se si verificano errori durante la ricerca nel database
+     * @throws IllegalArgumentException Se le coordinate o k non sono validi
+     */
+    @Override
+    public List<CoordinateMonitoraggio> cercaAreePiuVicine(double latitudine, double longitudine, int k) throws RemoteException {
+        validaCoordinate(latitudine, longitudine);
+        if (k <= 0) {
+            throw new IllegalArgumentException("Il numero di aree richieste deve essere positivo");
+        }
+        int max = Math.min(k, MAX_RISULTATI_PROSSIMITA);
+
+        if (catalogo.isCaricato()) {
+            return daRisultati(catalogo.getIndiceSpaziale().piuVicini(latitudine, longitudine, max,
+                    p -> p.getTipo() == PuntoGeografico.Tipo.COORDINATA));
+        }
+
+        double semicirconferenza = Math.PI * RAGGIO_TERRA_KM;
+        List<CoordinateMonitoraggio> aree;
+        double raggio = 50;
+        do {
+            aree = cercaEntroRaggioSql(latitudine, longitudine, raggio, max);
+            raggio *= 2;
+        } while (aree.size() < max && raggio < 2 * semicirconferenza);
+        return aree;
+    }
+
+    /**
+     * Suggerisce aree geografiche a partire da un prefisso digitato dall'utente.
+     *
+     * Con il catalogo caricato la ricerca avviene in memoria su città, stato e
+     * paese, con i risultati ordinati per frequenza d'uso; altrimenti si cerca
+     * per prefisso del nome città nel database.
+     *
+     * @param prefisso Testo digitato dall'utente
+     * @param limite Numero massimo di suggerimenti (al più {@value #MAX_SUGGERIMENTI})
+     * @return Lista di {@link CoordinateMonitoraggio} suggerite
+     * @throws RemoteException Se si verificano errori durante la ricerca nel database
+     * @throws IllegalArgumentException Se il limite non è positivo
+     */
+    @Override
+    public List<CoordinateMonitoraggio> suggerisciAree(String prefisso, int limite) throws RemoteException {
+        if (limite <= 0) {
+            throw new IllegalArgumentException("Il limite deve essere positivo");
+        }
+        if (prefisso == null || prefisso.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        int max = Math.min(limite, MAX_SUGGERIMENTI);
+
+        if (catalogo.isCaricato()) {
+            return daPunti(catalogo.suggerisci(prefisso, max));
+        }
+
+        String sql = "SELECT * FROM coordinatemonitoraggio WHERE nome_citta ILIKE ? ORDER BY nome_citta LIMIT ?";
+        List<CoordinateMonitoraggio> aree = new ArrayList<>();
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, prefisso.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+            pstmt.setInt(2, max);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    aree.add(mappaCoordinata(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RemoteException("Errore durante la ricerca dei suggerimenti", e);
+        }
+        return aree;
+    }
+
+    /**
+     * Verifica che latitudine e longitudine siano nei rispettivi intervalli.
+     */
+    private void validaCoordinate(double latitudine, double longitudine) {
+        if (!(latitudine >= -90 && latitudine <= 90) || !(longitudine >= -180 && longitudine <= 180)) {
+            throw new IllegalArgumentException("La latitudine deve essere tra -90 e 90, la longitudine tra -180 e 180");
+        }
+    }
+
+    /**
+     * Converte i punti del catalogo nel modello condiviso.
+     */
+    private List<CoordinateMonitoraggio> daPunti(List<PuntoGeografico> punti) {
+        List<CoordinateMonitoraggio> aree = new ArrayList<>(punti.size());
+        for (PuntoGeografico p : punti) {
+            aree.add(p.toCoordinateMonitoraggio());
+        }
+        return aree;
+    }
 
+    /**
+     * Costruisce una pagina dai punti del catalogo, già in ordine di
+     * identificatore e richiesti in numero di uno maggiore del limite, per
+     * sapere se esiste una pagina successiva.
+     */
+    private PaginaAree paginaDaPunti(List<PuntoGeografico> punti, int limite) {
+        if (punti.size() <= limite) {
+            return new PaginaAree(daPunti(punti), null);
+        }
+        List<PuntoGeografico> pagina = punti.subList(0, limite);
+        return new PaginaAree(daPunti(pagina), pagina.get(limite - 1).getId());
+    }
+
+    /**
+     * Legge una pagina di coordinate da una query che ne richiede una in più
+     * del limite, per sapere se esiste una pagina successiva.
+     */
+    private PaginaAree paginaDaQuery(PreparedStatement pstmt, int limite) throws SQLException {
+        List<CoordinateMonitoraggio> aree = new ArrayList<>(limite);
+        boolean altre = false;
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                if (aree.size() == limite) {
+                    altre = true;
+                    break;
+                }
+                aree.add(mappaCoordinata(rs));
+            }
         }
+        return new PaginaAree(aree, altre ? aree.get(limite - 1).getId() : null);
+    }
 
+    /**
+     * Converte i risultati dell'indice spaziale nel modello condiviso, riportando la distanza.
+     */
+    private List<CoordinateMonitoraggio> daRisultati(List<RisultatoDistanza> risultati) {
+        List<CoordinateMonitoraggio> aree = new ArrayList<>(risultati.size());
+        for (RisultatoDistanza r : risultati) {
+            CoordinateMonitoraggio area = r.getPunto().toCoordinateMonitoraggio();
+            area.setDistanzaKm(r.getDistanzaKm());
+            aree.add(area);
+        }
         return aree;
     }
 
+    /**
+     * Ricerca per raggio sul database.
+     *
+     * Il riquadro di pre-selezione è calcolato sul raggio reale: in latitudine è
+     * costante, in longitudine si allarga con la latitudine e, se supera
+     * l'antimeridiano, viene spezzato in due intervalli. Se il cerchio include
+     * un polo la longitudine non viene vincolata.
+     */
+    private List<CoordinateMonitoraggio> cercaEntroRaggioSql(double latitudine, double longitudine,
+                                                             double raggioKm, int limite) throws RemoteException {
+        double angolo = raggioKm / RAGGIO_TERRA_KM;
+        double dLat = Math.toDegrees(angolo);
+        double latMin = latitudine - dLat;
+        double latMax = latitudine + dLat;
+
+        double lon1Min = -180, lon1Max = 180, lon2Min = -180, lon2Max = 180;
+        if (latMin > -90 && latMax < 90) {
+            double rapporto = Math.sin(angolo) / Math.cos(Math.toRadians(latitudine));
+            if (rapporto < 1) {
+                double dLon = Math.toDegrees(Math.asin(rapporto));
+                lon1Min = longitudine - dLon;
+                lon1Max = longitudine + dLon;
+                lon2Min = lon1Min;
+                lon2Max = lon1Max;
+                if (lon1Min < -180) {
+                    lon2Min = lon1Min + 360;
+                    lon2Max = 180;
+                    lon1Min = -180;
+                } else if (lon1Max > 180) {
+                    lon2Min = -180;
+                    lon2Max = lon1Max - 360;
+                    lon1Max = 180;
+                }
+            }
+        }
+
+        String sql = "SELECT * FROM coordinatemonitoraggio WHERE latitudine BETWEEN ? AND ? "
+                + "AND (longitudine BETWEEN ? AND ? OR longitudine BETWEEN ? AND ?)";
+
+        List<CoordinateMonitoraggio> candidati = new ArrayList<>();
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setDouble(1, Math.max(-90, latMin));
+            pstmt.setDouble(2, Math.min(90, latMax));
+            pstmt.setDouble(3, lon1Min);
+            pstmt.setDouble(4, lon1Max);
+            pstmt.setDouble(5, lon2Min);
+            pstmt.setDouble(6, lon2Max);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    CoordinateMonitoraggio area = mappaCoordinata(rs);
+                    double distanza = calcolaDistanzaKm(latitudine, longitudine, area.getLatitudine(), area.getLongitudine());
+                    if (distanza <= raggioKm) {
+                        area.setDistanzaKm(distanza);
+                        candidati.add(area);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RemoteException("Errore durante la ricerca per raggio nel database", e);
+        }
+
+        candidati.sort((a1, a2) -> Double.compare(a1.getDistanzaKm(), a2.getDistanzaKm()));
+        return candidati.size() > limite ? new ArrayList<>(candidati.subList(0, limite)) : candidati;
+    }
+
+    /**
+     * Costruisce una {@link CoordinateMonitoraggio} dalla riga corrente del ResultSet.
+     *
+     * @param rs ResultSet posizionato su una riga di coordinatemonitoraggio
+     * @return Area geografica corrispondente alla riga
+     * @throws SQLException In caso di errori durante l'accesso ai dati
+     */
+    private CoordinateMonitoraggio mappaCoordinata(ResultSet rs) throws SQLException {
+        return new CoordinateMonitoraggio(
+                rs.getInt("id"),
+                rs.getString("nome_citta"),
+                rs.getString("stato"),
+                rs.getString("paese"),
+                rs.getDouble("latitudine"),
+                rs.getDouble("longitudine")
+        );
+    }
+
     /**
      * Calcola la distanza in chilometri tra due punti geografici
      * utilizzando la formula di Haversine.
@@ -237,7 +848,7 @@ public class ClimateMonitoringServiceImpl extends UnicastRemoteObject implements
      * @return Distanza in chilometri tra i due punti
      */
     private double calcolaDistanzaKm(double lat1, double lon1, double lat2, double lon2) {
-        final int R = 6371;
+        final double R = RAGGIO_TERRA_KM;
 
         double latDistance = Math.toRadians(lat2 - lat1);
         double lonDistance = Math.toRadians(lon2 - lon1);
@@ -252,290 +863,277 @@ public class ClimateMonitoringServiceImpl extends UnicastRemoteObject implements
     }
 
     /**
-     * Visualizza i dettagli completi di un'area geografica, inclusi
-     * i parametri climatici e i commenti degli operatori.
-     *
-     * Recupera informazioni dettagliate su una specifica area geografica
-     * identificata da nome e stato.
+     * Visualizza i dettagli completi di un'area geografica, inclusi
+     * i parametri climatici e i commenti degli operatori.
+     *
+     * Mantenuto per i client che non usano {@link #reportAreaGeografica}:
+     * il report strutturato viene formattato sul server.
+     *
+     * @param nome Nome della città
+     * @param stato Stato della città
+     * @return Stringa formattata con le informazioni dell'area geografica
+     * @throws RemoteException Se si verificano errori durante il recupero dei dati
+     * @throws IllegalArgumentException Se nome o stato sono nulli o vuoti
+     */
+    @Override
+    public String visualizzaAreaGeografica(String nome, String stato) throws RemoteException {
+        return FormattatoreReport.formatta(reportAreaGeografica(nome, stato));
+    }
+
+    /**
+     * Recupera il report strutturato di un'area geografica.
      *
      * @param nome Nome della città
      * @param stato Stato della città
-     * @return Stringa formattata con le informazioni dell'area geografica
+     * @return Report dell'area, con {@code trovata} falso se non esiste
      * @throws RemoteException Se si verificano errori durante il recupero dei dati
      * @throws IllegalArgumentException Se nome o stato sono nulli o vuoti
      */
     @Override
-    public String visualizzaAreaGeografica(String nome, String stato) throws RemoteException {
+    public ReportArea reportAreaGeografica(String nome, String stato) throws RemoteException {
         if (nome == null || nome.trim().isEmpty() || stato == null || stato.trim().isEmpty()) {
             throw new IllegalArgumentException("Nome e stato non possono essere nulli o vuoti");
         }
 
-        String sql = "SELECT * FROM coordinatemonitoraggio WHERE nome_citta = ? AND stato = ?";
-        StringBuilder result = new StringBuilder();
+        String sql = "SELECT id, nome_citta, stato, paese, latitudine, longitudine " +
+                "FROM coordinatemonitoraggio WHERE nome_citta = ? AND stato = ?";
+        ReportArea report = new ReportArea();
+        report.setNome(nome);
+        report.setStato(stato);
 
-        try {
-            Connection conn = dbManager.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql);
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, nome);
             pstmt.setString(2, stato);
 
-
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                result.append("=== Informazioni Area Geografica ===\n\n");
-                result.append("  ID: ").append(rs.getInt("id")).append("\n");
-                result.append("  Nome città: ").append(rs.getString("nome_citta")).append("\n");
-                result.append("  Stato: ").append(rs.getString("stato")).append("\n");
-                result.append("  Paese: ").append(rs.getString("paese")).append("\n");
-                result.append("  Latitudine: ").append(rs.getDouble("latitudine")).append("\n");
-                result.append("  Longitudine: ").append(rs.getDouble("longitudine")).append("\n\n");
-
-                int areaId = rs.getInt("id");
-                boolean hasParametri = appendParametriClimatici(result, areaId, "coordinate_monitoraggio_id");
-
-                if (!hasParametri) {
-                    result.append("\nNessun dato climatico disponibile per questa area.\n");
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return report;
                 }
-
-                appendCommentiOperatori(result, areaId, "coordinate_monitoraggio_id");
-            } else {
-                result.append("Area geografica non trovata per: ")
-                        .append(nome)
-                        .append(", ")
-                        .append(stato);
+                report.setTrovata(true);
+                report.setId(rs.getInt("id"));
+                report.setNome(rs.getString("nome_citta"));
+                report.setStato(rs.getString("stato"));
+                report.setPaese(rs.getString("paese"));
+                report.setLatitudine(rs.getDouble("latitudine"));
+                report.setLongitudine(rs.getDouble("longitudine"));
             }
 
+            catalogo.registraUtilizzo(report.getId());
+            caricaRilevazioni(conn, report, AggregatiClimatici.Dimensione.COORDINATA, "coordinate_monitoraggio_id");
+            caricaCommentiOperatori(conn, report, "coordinate_monitoraggio_id");
+
         } catch (SQLException e) {
             throw new RemoteException("Errore durante la visualizzazione dell'area geografica: " + e.getMessage(), e);
         }
 
-        return result.toString();
+        return report;
     }
 
-
     /**
-     * Recupera e aggiunge i parametri climatici ad un {@link StringBuilder}.
+     * Carica nel report le medie e la prima pagina della serie storica.
      *
-     * Questo metodo esegue due query principali:
-     * 1. Calcolo delle medie dei parametri climatici
-     * 2. Recupero dei dettagli delle rilevazioni
+     * Conteggio e medie provengono dagli aggregati in memoria; solo se non
+     * sono disponibili vengono calcolati con una query sull'intera storia.
+     * Se ci sono rilevazioni vengono lette le {@value #DIMENSIONE_PAGINA_REPORT}
+     * più recenti; le pagine successive si ottengono con {@link #rilevazioniArea}.
      *
-     * @param result StringBuilder su cui appendere i risultati
-     * @param id Identificativo dell'area di monitoraggio
-     * @param idColumnType Tipo di colonna per l'identificazione (coordinate, centro, area interesse)
-     * @return {@code true} se ci sono rilevazioni, {@code false} altrimenti
+     * @param conn Connessione già ottenuta dal chiamante
+     * @param report Report da completare, con l'id dell'area già impostato
+     * @param dimensione Dimensione degli aggregati corrispondente all'area
+     * @param idColonna Colonna di parametriclimatici che identifica l'area
      * @throws SQLException In caso di errori durante l'accesso al database
      */
-    private boolean appendParametriClimatici(StringBuilder result, int id, String idColumnType) throws SQLException {
-        // Query per le medie
-        String sqlAvg = "SELECT COUNT(*) AS num_rilevazioni, " +
-                "AVG(vento) AS avg_vento, " +
-                "AVG(umidita) AS avg_umidita, " +
-                "AVG(pressione) AS avg_pressione, " +
-                "AVG(temperatura) AS avg_temperatura, " +
-                "AVG(precipitazioni) AS avg_precipitazioni, " +
-                "AVG(altitudine) AS avg_altitudine, " +
-                "AVG(massa_ghiacciai) AS avg_massa_ghiacciai " +
-                "FROM parametriclimatici " +
-                "WHERE " + idColumnType + " = ?";
-
-        // dettagli
-        String sqlDettaglio;
-        if (idColumnType.equals("coordinate_monitoraggio_id")) {
-            sqlDettaglio = "SELECT p.*, p.data_rilevazione, " +
-                    "p.vento, p.umidita, p.pressione, p.temperatura, " +
-                    "p.precipitazioni, p.altitudine, p.massa_ghiacciai, p.note " +
-                    "FROM parametriclimatici p " +
-                    "WHERE p." + idColumnType + " = ? " +
-                    "ORDER BY p.data_rilevazione DESC";
+    private void caricaRilevazioni(Connection conn, ReportArea report, AggregatiClimatici.Dimensione dimensione,
+                                   String idColonna) throws SQLException {
+        if (aggregati.isCaricato()) {
+            StatisticheClimatiche statistiche = aggregati.statistiche(dimensione, report.getId());
+            double[] valoriMedi = new double[PARAMETRI.length];
+            if (statistiche != null) {
+                for (int i = 0; i < PARAMETRI.length; i++) {
+                    valoriMedi[i] = statistiche.media(i);
+                }
+            }
+            report.setNumeroRilevazioni(statistiche == null ? 0 : (int) statistiche.getRighe());
+            report.setMedie(valoriMedi);
         } else {
-            sqlDettaglio = "SELECT p.*, op.nome AS nome_operatore, op.cognome AS cognome_operatore, " +
-                    "p.data_rilevazione, p.vento, p.umidita, p.pressione, p.temperatura, " +
-                    "p.precipitazioni, p.altitudine, p.massa_ghiacciai, p.note " +
-                    "FROM parametriclimatici p " +
-                    "JOIN centrimonitoraggio cm ON p.centro_monitoraggio_id = cm.id " +
-                    "JOIN operatoriregistrati op ON cm.operatore_id = op.id " +
-                    "WHERE p." + idColumnType + " = ? " +
-                    "ORDER BY p.data_rilevazione DESC";
+            caricaMedie(conn, report, idColonna);
         }
-
-
-        try {
-            Connection conn = dbManager.getConnection();
-            PreparedStatement pstmtAvg = conn.prepareStatement(sqlAvg);
-
-            pstmtAvg.setInt(1, id);
-
-            ResultSet rs = pstmtAvg.executeQuery();
-            if (rs.next() && rs.getInt("num_rilevazioni") > 0) {
-                appendMedie(result, rs);
-
-                // Aggiungi i dettagli
-                try {PreparedStatement pstmtDettaglio = conn.prepareStatement(sqlDettaglio);
-                    pstmtDettaglio.setInt(1, id);
-                    appendDetails(result, pstmtDettaglio.executeQuery(), idColumnType.equals("centro_monitoraggio_id"));
-                }catch (SQLException e1){ throw new RuntimeException(e1);}
-                return true;
-            }
-
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
+        if (report.getNumeroRilevazioni() > 0) {
+            report.setSerie(caricaPagina(conn, idColonna, report.getId(), null, DIMENSIONE_PAGINA_REPORT));
         }
-        return false;
     }
 
-
     /**
-     * Aggiunge le medie dei parametri climatici al risultato.
-     *
-     * Calcola e formatta le medie di diversi parametri climatici
-     * come vento, umidità, temperatura, precipitazioni, ecc.
+     * Calcola con una query conteggio e medie delle rilevazioni di un'area.
      *
-     * @param result StringBuilder su cui appendere le medie
-     * @param rs ResultSet contenente i dati delle medie
-     * @throws SQLException In caso di errori durante l'accesso ai dati
+     * @param conn Connessione già ottenuta dal chiamante
+     * @param report Report da completare, con l'id dell'area già impostato
+     * @param idColonna Colonna di parametriclimatici che identifica l'area
+     * @throws SQLException In caso di errori durante l'accesso al database
      */
-    private void appendMedie(StringBuilder result, ResultSet rs) throws SQLException {
-        result.append("\n=== Riepilogo generale dei dati climatici ===\n\n");
-        result.append("Numero totale di rilevazioni: ").append(rs.getInt("num_rilevazioni")).append("\n\n");
-        result.append("Medie dei parametri climatici:\n");
-        result.append("  Vento: ").append(String.format("%.2f", rs.getDouble("avg_vento"))).append(" m/s\n");
-        result.append("  Umidità: ").append(String.format("%.2f", rs.getDouble("avg_umidita"))).append("%\n");
-        result.append("  Pressione: ").append(String.format("%.2f", rs.getDouble("avg_pressione"))).append(" hPa\n");
-        result.append("  Temperatura: ").append(String.format("%.2f", rs.getDouble("avg_temperatura"))).append(" °C\n");
-        result.append("  Precipitazioni: ").append(String.format("%.2f", rs.getDouble("avg_precipitazioni"))).append(" mm\n");
-        result.append("  Altitudine: ").append(String.format("%.2f", rs.getDouble("avg_altitudine"))).append(" m\n");
-        result.append("  Massa ghiacciai: ").append(String.format("%.2f", rs.getDouble("avg_massa_ghiacciai"))).append(" kg/m³\n\n");
+    private void caricaMedie(Connection conn, ReportArea report, String idColonna) throws SQLException {
+        StringBuilder medie = new StringBuilder("SELECT COUNT(*) AS num_rilevazioni");
+        for (ParametroClimatico p : PARAMETRI) {
+            medie.append(", AVG(").append(p.getColonna()).append(")");
+        }
+        medie.append(" FROM parametriclimatici WHERE ").append(idColonna).append(" = ?");
+
+        try (PreparedStatement pstmt = conn.prepareStatement(medie.toString())) {
+            pstmt.setInt(1, report.getId());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                int numero = rs.getInt(1);
+                double[] valoriMedi = new double[PARAMETRI.length];
+                for (int i = 0; i < PARAMETRI.length; i++) {
+                    valoriMedi[i] = rs.getDouble(i + 2);
+                }
+                report.setNumeroRilevazioni(numero);
+                report.setMedie(valoriMedi);
+            }
+        }
     }
 
     /**
-     * Aggiunge i dettagli delle singole rilevazioni climatiche.
+     * Restituisce una pagina della serie storica delle rilevazioni di un'area.
      *
-     * Supporta due modalità di visualizzazione:
-     * - Con informazioni sull'operatore
-     * - Senza informazioni sull'operatore
-     *
-     * @param result StringBuilder su cui appendere i dettagli
-     * @param rs ResultSet contenente i dati delle rilevazioni
-     * @param op Flag per includere informazioni sull'operatore
-     * @throws SQLException In caso di errori durante l'accesso ai dati
+     * @param areaId Identificatore della coordinata o dell'area di interesse
+     * @param areaInteresse {@code true} se l'identificatore è di un'area di interesse
+     * @param dopo Cursore della pagina precedente, o null per la prima pagina
+     * @param dimensionePagina Numero massimo di rilevazioni, ridotto a {@value #MAX_DIMENSIONE_PAGINA}
+     * @return Pagina di rilevazioni dalla più recente
+     * @throws RemoteException Se si verificano errori durante il recupero dei dati
+     * @throws IllegalArgumentException Se la dimensione della pagina non è positiva
      */
-    private void appendDetails(StringBuilder result, ResultSet rs, boolean op) throws SQLException {
-        result.append("=== Dettaglio rilevazioni ===\n\n");
-
-        while (rs.next()) {
-            if (op) {
-                result.append("Operatore: ").append(rs.getString("nome_operatore"))
-                        .append(" ").append(rs.getString("cognome_operatore")).append("\n");
-            }
-
-            result.append("Data rilevazione: ")
-                    .append(new SimpleDateFormat("dd/MM/yyyy").format(rs.getTimestamp("data_rilevazione")))
-                    .append("\n");
+    @Override
+    public PaginaRilevazioni rilevazioniArea(int areaId, boolean areaInteresse, CursoreRilevazioni dopo,
+                                             int dimensionePagina) throws RemoteException {
+        if (dimensionePagina <= 0) {
+            throw new IllegalArgumentException("La dimensione della pagina deve essere positiva");
+        }
+        String idColonna = areaInteresse ? "area_interesse_id" : "coordinate_monitoraggio_id";
 
-            appendParameterDetails(result, rs);
-            result.append("----------------------------------------\n");
+        try (Connection conn = dbManager.getConnection()) {
+            return caricaPagina(conn, idColonna, areaId, dopo, Math.min(dimensionePagina, MAX_DIMENSIONE_PAGINA));
+        } catch (SQLException e) {
+            throw new RemoteException("Errore durante il recupero delle rilevazioni: " + e.getMessage(), e);
         }
     }
 
     /**
-     * Aggiunge i dettagli dei singoli parametri climatici di una rilevazione.
-     *
-     * Formatta e inserisce i valori puntuali di:
-     * - Vento
-     * - Umidità
-     * - Pressione
-     * - Temperatura
-     * - Precipitazioni
-     * - Altitudine
-     * - Massa ghiacciai
+     * Legge una pagina di rilevazioni con paginazione per cursore.
      *
-     * Include anche eventuali note aggiuntive.
+     * La condizione {@code (data_rilevazione, id) < (?, ?)} e l'ordinamento
+     * coincidono con gli indici creati da {@link MigrazioniSchema}, quindi il
+     * database legge solo le righe della pagina. Viene letta una riga in più
+     * per sapere se esiste una pagina successiva.
      *
-     * @param result StringBuilder su cui appendere i parametri
-     * @param rs ResultSet contenente i dati dei parametri
-     * @throws SQLException In caso di errori durante l'accesso ai dati
+     * @param conn Connessione già ottenuta dal chiamante
+     * @param idColonna Colonna di parametriclimatici che identifica l'area
+     * @param areaId Identificatore dell'area
+     * @param dopo Cursore della pagina precedente, o null
+     * @param dimensione Numero massimo di rilevazioni
+     * @return Pagina letta
+     * @throws SQLException In caso di errori durante l'accesso al database
      */
-    private void appendParameterDetails(StringBuilder result, ResultSet rs) throws SQLException {
-        result.append("Parametri rilevati:\n");
-        result.append("  Vento: ").append(String.format("%.2f", rs.getDouble("vento"))).append(" m/s\n");
-        result.append("  Umidità: ").append(String.format("%.2f", rs.getDouble("umidita"))).append("%\n");
-        result.append("  Pressione: ").append(String.format("%.2f", rs.getDouble("pressione"))).append(" hPa\n");
-        result.append("  Temperatura: ").append(String.format("%.2f", rs.getDouble("temperatura"))).append(" °C\n");
-        result.append("  Precipitazioni: ").append(String.format("%.2f", rs.getDouble("precipitazioni"))).append(" mm\n");
-        result.append("  Altitudine: ").append(String.format("%.2f", rs.getDouble("altitudine"))).append(" m\n");
-        result.append("  Massa ghiacciai: ").append(String.format("%.2f", rs.getDouble("massa_ghiacciai"))).append(" kg/m³\n");
+    private PaginaRilevazioni caricaPagina(Connection conn, String idColonna, int areaId,
+                                           CursoreRilevazioni dopo, int dimensione) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT id, data_rilevazione, note");
+        for (ParametroClimatico p : PARAMETRI) {
+            sql.append(", ").append(p.getColonna());
+        }
+        sql.append(" FROM parametriclimatici WHERE ").append(idColonna).append(" = ?");
+        if (dopo != null) {
+            sql.append(" AND (data_rilevazione, id) < (?, ?)");
+        }
+        sql.append(" ORDER BY data_rilevazione DESC, id DESC LIMIT ?");
+
+        int[] ids = new int[dimensione];
+        int[] giorni = new int[dimensione];
+        int[][] valori = new int[PARAMETRI.length][dimensione];
+        String[] note = new String[dimensione];
+        int n = 0;
+        boolean altre = false;
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            int i = 1;
+            pstmt.setInt(i++, areaId);
+            if (dopo != null) {
+                pstmt.setObject(i++, LocalDate.ofEpochDay(dopo.getGiorno()));
+                pstmt.setInt(i++, dopo.getId());
+            }
+            pstmt.setInt(i, dimensione + 1);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (n == dimensione) {
+                        altre = true;
+                        break;
+                    }
+                    ids[n] = rs.getInt(1);
+                    giorni[n] = (int) rs.getDate(2).toLocalDate().toEpochDay();
+                    note[n] = rs.getString(3);
+                    for (int p = 0; p < PARAMETRI.length; p++) {
+                        valori[p][n] = rs.getInt(p + 4);
+                    }
+                    n++;
+                }
+            }
+        }
 
-        String note = rs.getString("note");
-        if (note != null && !note.trim().isEmpty()) {
-            result.append("Note: ").append(note).append("\n");
+        if (n < dimensione) {
+            ids = Arrays.copyOf(ids, n);
+            giorni = Arrays.copyOf(giorni, n);
+            note = Arrays.copyOf(note, n);
+            for (int p = 0; p < valori.length; p++) {
+                valori[p] = Arrays.copyOf(valori[p], n);
+            }
         }
+        CursoreRilevazioni successiva = altre ? new CursoreRilevazioni(giorni[n - 1], ids[n - 1]) : null;
+        return new PaginaRilevazioni(ids, giorni, valori, note, successiva);
     }
 
     /**
-     * Recupera e aggiunge i commenti più recenti degli operatori.
+     * Carica nel report i commenti più recenti degli operatori.
      *
-     * Estrae fino a 5 commenti più recenti associati a un'area di monitoraggio,
-     * ordinati per data decrescente.
+     * Estrae fino a 5 note non vuote associate all'area, ordinate per data decrescente.
      *
-     * @param result StringBuilder su cui appendere i commenti
-     * @param id Identificativo dell'area di monitoraggio
+     * @param conn Connessione già ottenuta dal chiamante
+     * @param report Report da completare, con l'id dell'area già impostato
      * @param idColonna Nome della colonna per l'identificazione
      * @throws SQLException In caso di errori durante l'accesso al database
      */
-    private void appendCommentiOperatori(StringBuilder result, int id, String idColonna) throws SQLException {
+    private void caricaCommentiOperatori(Connection conn, ReportArea report, String idColonna) throws SQLException {
 
         String sql = "SELECT note, data_rilevazione FROM parametriclimatici " +
                 "WHERE " + idColonna + " = ? " +
                 "AND note IS NOT NULL AND note != '' " +
-                "ORDER BY data_rilevazione DESC LIMIT 5";
-
-        try {
-            Connection conn = dbManager.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql);
-
-            pstmt.setInt(1, id);
-
-
-            ResultSet rs = pstmt.executeQuery();
-            result.append("\n=== Commenti recenti degli operatori ===\n");
-            boolean hasComments = false;
+                "ORDER BY data_rilevazione DESC LIMIT " + MAX_COMMENTI;
 
-            while (rs.next()) {
+        int[] giorni = new int[MAX_COMMENTI];
+        String[] commenti = new String[MAX_COMMENTI];
+        int n = 0;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-                result.append("- [")
-                        .append(new SimpleDateFormat("dd/MM/yyyy").format(rs.getTimestamp("data_rilevazione")))
-                        .append("] ")
-                        .append(rs.getString("note"))
-                        .append("\n");
-                hasComments = true;
-            }
+            pstmt.setInt(1, report.getId());
 
-            if (!hasComments) {
-                result.append("Nessun commento disponibile.\n");
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    commenti[n] = rs.getString("note");
+                    giorni[n] = (int) rs.getDate("data_rilevazione").toLocalDate().toEpochDay();
+                    n++;
+                }
             }
-            result.append("\n");
-
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
         }
+        report.setCommenti(Arrays.copyOf(giorni, n), Arrays.copyOf(commenti, n));
     }
 
     /**
      * Visualizza i dettagli di un'area di interesse associata a un centro di monitoraggio.
      *
-     * Questo metodo recupera le informazioni complete di un'area di interesse:
-     * - Dettagli geografici (nome, stato, latitudine, longitudine)
-     * - Informazioni sul centro di monitoraggio associato
-     * - Parametri climatici dell'area
-     * - Commenti degli operatori
-     *
-     * Processo:
-     * 1. Verifica la validità di nome e stato
-     * 2. Esegue una query SQL per recuperare i dettagli dell'area
-     * 3. Aggiunge parametri climatici se disponibili
-     * 4. Aggiunge commenti degli operatori
+     * Mantenuto per i client che non usano {@link #reportAreaCentroMonitoraggio}:
+     * il report strutturato viene formattato sul server.
      *
      * @param nome Nome dell'area di interesse
      * @param stato Stato dell'area di interesse
@@ -545,6 +1143,23 @@ public class ClimateMonitoringServiceImpl extends UnicastRemoteObject implements
      */
     @Override
     public String visualizzaAreaCentroMonitoraggio(String nome, String stato) throws RemoteException {
+        return FormattatoreReport.formatta(reportAreaCentroMonitoraggio(nome, stato));
+    }
+
+    /**
+     * Recupera il report strutturato di un'area di interesse.
+     *
+     * Oltre ai dati geografici contiene il centro di monitoraggio associato,
+     * i parametri climatici dell'area e i commenti degli operatori.
+     *
+     * @param nome Nome dell'area di interesse
+     * @param stato Stato dell'area di interesse
+     * @return Report dell'area, con {@code trovata} falso se non esiste
+     * @throws RemoteException Se si verificano errori durante il recupero dei dati
+     * @throws IllegalArgumentException Se nome o stato sono nulli o vuoti
+     */
+    @Override
+    public ReportArea reportAreaCentroMonitoraggio(String nome, String stato) throws RemoteException {
         if (nome == null || nome.trim().isEmpty() || stato == null || stato.trim().isEmpty()) {
             throw new IllegalArgumentException("Nome e stato non possono essere nulli o vuoti");
         }
@@ -555,49 +1170,39 @@ public class ClimateMonitoringServiceImpl extends UnicastRemoteObject implements
                 "JOIN centrimonitoraggio cm ON ai.centro_monitoraggio_id = cm.id " +
                 "WHERE ai.nome = ? AND ai.stato = ?";
 
-        StringBuilder result = new StringBuilder();
+        ReportArea report = new ReportArea();
+        report.setAreaInteresse(true);
+        report.setNome(nome);
+        report.setStato(stato);
 
-        try {
-            Connection conn = dbManager.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql);
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, nome);
             pstmt.setString(2, stato);
 
-
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                result.append("=== Informazioni Area di Interesse ===\n\n");
-                result.append("  ID: ").append(rs.getInt("id")).append("\n");
-                result.append("  Nome: ").append(rs.getString("nome")).append("\n");
-                result.append("  Centro Monitoraggio: ").append(rs.getString("centro_nome")).append("\n");
-                result.append("  Centro Monitoraggio ID: ").append(rs.getInt("centro_monitoraggio_id")).append("\n");
-                result.append("  Stato: ").append(rs.getString("stato")).append("\n");
-                result.append("  Latitudine: ").append(rs.getDouble("latitudine")).append("\n");
-                result.append("  Longitudine: ").append(rs.getDouble("longitudine")).append("\n");
-
-
-                int areaInteresseId = rs.getInt("id");
-                boolean hasParametri = appendParametriClimatici(result, areaInteresseId, "area_interesse_id");
-
-                if (!hasParametri) {
-                    result.append("\nNessun dato climatico disponibile per questa area.\n");
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return report;
                 }
-
-
-                appendCommentiOperatori(result, areaInteresseId, "area_interesse_id");
-            } else {
-                result.append("Area di interesse non trovata per: ")
-                        .append(nome)
-                        .append(", ")
-                        .append(stato);
+                report.setTrovata(true);
+                report.setId(rs.getInt("id"));
+                report.setNome(rs.getString("nome"));
+                report.setCentroMonitoraggio(rs.getString("centro_nome"));
+                report.setCentroMonitoraggioId(rs.getInt("centro_monitoraggio_id"));
+                report.setStato(rs.getString("stato"));
+                report.setLatitudine(rs.getDouble("latitudine"));
+                report.setLongitudine(rs.getDouble("longitudine"));
             }
 
+            caricaRilevazioni(conn, report, AggregatiClimatici.Dimensione.AREA_INTERESSE, "area_interesse_id");
+            caricaCommentiOperatori(conn, report, "area_interesse_id");
+
         } catch (SQLException e) {
             throw new RemoteException("Errore durante la visualizzazione dell'area di interesse: " + e.getMessage(), e);
         }
 
-        return result.toString();
+        return report;
     }
 
     /**
@@ -626,9 +1231,8 @@ public class ClimateMonitoringServiceImpl extends UnicastRemoteObject implements
     public boolean registrazione(String nome, String cognome, String codiceFiscale, String email, String userId, String password) throws RemoteException {
         String sql = "INSERT INTO operatoriregistrati (nome, cognome, codice_fiscale, email, userid, password) VALUES (?, ?, ?, ?, ?, ?)";
 
-        try {
-            Connection conn = dbManager.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, nome);
             pstmt.setString(2, cognome);
@@ -661,23 +1265,23 @@ public class ClimateMonitoringServiceImpl extends UnicastRemoteObject implements
     public OperatoriRegistrati getUserById(String userId) throws RemoteException {
         String sql = "SELECT * FROM operatoriregistrati WHERE userid = ?";
 
-        try {
-            Connection conn = dbManager.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql);
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, userId);
 
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return new OperatoriRegistrati(
-                        rs.getInt("id"),
-                        rs.getString("nome"),
-                        rs.getString("cognome"),
-                        rs.getString("codice_fiscale"),
-                        rs.getString("email"),
-                        rs.getString("userid"),
-                        rs.getString("password")
-                );
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return new OperatoriRegistrati(
+                            rs.getInt("id"),
+                            rs.getString("nome"),
+                            rs.getString("cognome"),
+                            rs.getString("codice_fiscale"),
+                            rs.getString("email"),
+                            rs.getString("userid"),
+                            rs.getString("password")
+                    );
+                }
             }
             return null;
 
@@ -710,33 +1314,35 @@ public class ClimateMonitoringServiceImpl extends UnicastRemoteObject implements
      */
     @Override
     public boolean creaCentroMonitoraggio(int operatoreId, String nome, String indirizzo, String cap, String comune, String provincia) throws RemoteException {
-        try {
+        try (Connection conn = dbManager.getConnection()) {
             String verificaQuery = "SELECT id FROM centrimonitoraggio WHERE operatore_id = ?";
-            PreparedStatement verificaStmt = dbManager.getConnection().prepareStatement(verificaQuery);
-            verificaStmt.setInt(1, operatoreId);
-            ResultSet rs = verificaStmt.executeQuery();
-
-            if (rs.next() && rs.getInt(1) > 0) {
-                throw new RemoteException("L'utente ha già registrato un centro di monitoraggio");
+            try (PreparedStatement verificaStmt = conn.prepareStatement(verificaQuery)) {
+                verificaStmt.setInt(1, operatoreId);
+                try (ResultSet rs = verificaStmt.executeQuery()) {
+                    if (rs.next() && rs.getInt(1) > 0) {
+                        throw new RemoteException("L'utente ha già registrato un centro di monitoraggio");
+                    }
+                }
             }
 
             String query = "INSERT INTO centrimonitoraggio (operatore_id, nome, indirizzo, cap, comune, provincia) VALUES (?, ?, ?, ?, ?, ?)";
-            PreparedStatement stmt = dbManager.getConnection().prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
-            stmt.setInt(1, operatoreId);
-            stmt.setString(2, nome);
-            stmt.setString(3, indirizzo);
-            stmt.setString(4, cap);
-            stmt.setString(5, comune);
-            stmt.setString(6, provincia);
-
-            int rowsAffected = stmt.executeUpdate();
-
-            if (rowsAffected > 0) {
-                System.out.println("Centro di monitoraggio creato con successo per operatore ID: " + operatoreId);
-                return true;
-            } else {
-                System.out.println("Nessun centro di monitoraggio creato");
-                return false;
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setInt(1, operatoreId);
+                stmt.setString(2, nome);
+                stmt.setString(3, indirizzo);
+                stmt.setString(4, cap);
+                stmt.setString(5, comune);
+                stmt.setString(6, provincia);
+
+                int rowsAffected = stmt.executeUpdate();
+
+                if (rowsAffected > 0) {
+                    System.out.println("Centro di monitoraggio creato con successo per operatore ID: " + operatoreId);
+                    return true;
+                } else {
+                    System.out.println("Nessun centro di monitoraggio creato");
+                    return false;
+                }
             }
 
         } catch (SQLException e) {
@@ -775,9 +1381,10 @@ public class ClimateMonitoringServiceImpl extends UnicastRemoteObject implements
             throw new RemoteException("Centro di monitoraggio mancante");
         }
 
-        try {
-            String query = "INSERT INTO areeinteresse (nome, stato, centro_monitoraggio_id, latitudine, longitudine) VALUES (?, ?, ?, ?, ?)";
-            PreparedStatement stmt = dbManager.getConnection().prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
+        String query = "INSERT INTO areeinteresse (nome, stato, centro_monitoraggio_id, latitudine, longitudine) VALUES (?, ?, ?, ?, ?)";
+
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setString(1, citta);
             stmt.setString(2, stato);
             stmt.setInt(3, centroId);
@@ -785,6 +1392,12 @@ public class ClimateMonitoringServiceImpl extends UnicastRemoteObject implements
             stmt.setDouble(5, longitudine);
 
             int rowsAffected = stmt.executeUpdate();
+            try (ResultSet chiavi = stmt.getGeneratedKeys()) {
+                if (chiavi.next()) {
+                    catalogo.registraAreaInteresse(chiavi.getInt(1), citta, stato, centroId, latitudine, longitudine);
+                    notifiche.areaInteresse(centroId, chiavi.getInt(1));
+                }
+            }
             return rowsAffected > 0;
         } catch (SQLException e) {
             throw new RemoteException("Errore durante la creazione dell'area di interesse", e);
@@ -805,20 +1418,21 @@ public class ClimateMonitoringServiceImpl extends UnicastRemoteObject implements
      * @throws RemoteException Se si verificano errori durante la ricerca
      */
     public int getCentroMonitoraggio(int operatoreId) throws RemoteException {
-        try {
-            String query = "SELECT id FROM centrimonitoraggio WHERE operatore_id = ?";
-            PreparedStatement stmt = dbManager.getConnection().prepareStatement(query);
-            stmt.setInt(1, operatoreId);
+        String query = "SELECT id FROM centrimonitoraggio WHERE operatore_id = ?";
 
-            ResultSet rs = stmt.executeQuery();
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, operatoreId);
 
-            if (rs.next()) {
-                int centroId = rs.getInt("id");
-               // System.out.println("Trovato centro di monitoraggio con ID " + centroId + " per operatore ID " + operatoreId);
-                return centroId;
-            } else {
-               // System.out.println("Nessun centro di monitoraggio trovato per l'operatore con ID " + operatoreId);
-                return -1;
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    int centroId = rs.getInt("id");
+                   // System.out.println("Trovato centro di monitoraggio con ID " + centroId + " per operatore ID " + operatoreId);
+                    return centroId;
+                } else {
+                   // System.out.println("Nessun centro di monitoraggio trovato per l'operatore con ID " + operatoreId);
+                    return -1;
+                }
             }
         } catch (SQLException e) {
             System.err.println("Errore SQL durante la ricerca del centro: " + e.getMessage());
@@ -834,6 +1448,10 @@ public class ClimateMonitoringServiceImpl extends UnicastRemoteObject implements
      * - Opzionalmente verifica area di interesse o coordinate
      * - Inserisce dati come vento, umidità, temperatura, ecc.
      *
+     * Verifiche e inserimento avvengono in un'unica istruzione SQL
+     * (vedi {@link ScrittoreRilevazioni#inserisci(ParametriClimatici)}),
+     * quindi con un solo round trip verso il database.
+     *
      * Parametri inclusi:
      * - Centro di monitoraggio
      * - Area di interesse (opzionale)
@@ -863,77 +1481,56 @@ public class ClimateMonitoringServiceImpl extends UnicastRemoteObject implements
                                                int vento, int umidita, int pressione, int temperatura,
                                                int precipitazioni, int altitudine, int massaGhiacciai,
                                                String note) throws RemoteException {
-        try {
-            // Verifica l'esistenza del centro monitoraggio
-            String checkCentroSql = "SELECT id FROM centrimonitoraggio WHERE id = ?";
-            PreparedStatement checkStmt = dbManager.getConnection().prepareStatement(checkCentroSql);
-            checkStmt.setInt(1, centroMonitoraggioId);
-            ResultSet rs = checkStmt.executeQuery();
-
-            if (!rs.next()) {
-                throw new RemoteException("Il centro di monitoraggio con ID " + centroMonitoraggioId + " non esiste.");
-            }
-
-            // Verifica l'area di interesse se specificata
-            if (areaInteresseId != null) {
-                String checkAreaSql = "SELECT id FROM areeinteresse WHERE id = ?";
-                checkStmt = dbManager.getConnection().prepareStatement(checkAreaSql);
-                checkStmt.setInt(1, areaInteresseId);
-                rs = checkStmt.executeQuery();
-
-                if (!rs.next()) {
-                    throw new RemoteException("L'area di interesse con ID " + areaInteresseId + " non esiste.");
-                }
-            }
-
-            // Verifica le coordinate di monitoraggio se specificate
-            if (coordinateMonitoraggioId != null) {
-                String checkCoordSql = "SELECT id FROM coordinatemonitoraggio WHERE id = ?";
-                checkStmt = dbManager.getConnection().prepareStatement(checkCoordSql);
-                checkStmt.setInt(1, coordinateMonitoraggioId);
-                rs = checkStmt.executeQuery();
-
-                if (!rs.next()) {
-                    throw new RemoteException("Le coordinate di monitoraggio con ID " + coordinateMonitoraggioId + " non esistono.");
-                }
-            }
-
-            // Se tutte le verifiche passano, procedi con l'inserimento
-            String sql = "INSERT INTO parametriclimatici (centro_monitoraggio_id, area_interesse_id, " +
-                    "coordinate_monitoraggio_id, data_rilevazione, vento, umidita, pressione, " +
-                    "temperatura, precipitazioni, altitudine, massa_ghiacciai, note) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-
-            PreparedStatement pstmt = dbManager.getConnection().prepareStatement(sql);
-
-            pstmt.setInt(1, centroMonitoraggioId);
-
-            if (areaInteresseId != null) {
-                pstmt.setInt(2, areaInteresseId);
-            } else {
-                pstmt.setNull(2, Types.INTEGER);
-            }
-
-            if (coordinateMonitoraggioId != null) {
-                pstmt.setInt(3, coordinateMonitoraggioId);
-            } else {
-                pstmt.setNull(3, Types.INTEGER);
-            }
-
-            pstmt.setTimestamp(4, new Timestamp(dataRilevazione.getTime()));
-            pstmt.setInt(5, vento);
-            pstmt.setInt(6, umidita);
-            pstmt.setInt(7, pressione);
-            pstmt.setInt(8, temperatura);
-            pstmt.setInt(9, precipitazioni);
-            pstmt.setInt(10, altitudine);
-            pstmt.setInt(11, massaGhiacciai);
-            pstmt.setString(12, note);
+        if (dataRilevazione == null) {
+            throw new IllegalArgumentException("La data di rilevazione è obbligatoria");
+        }
+        ParametriClimatici rilevazione = new ParametriClimatici(0, dataRilevazione, vento, umidita, pressione,
+                temperatura, precipitazioni, altitudine, massaGhiacciai, note)
+                .riferitaA(centroMonitoraggioId, areaInteresseId, coordinateMonitoraggioId);
+        return inserisciSingola(rilevazione);
+    }
 
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
+    /**
+     * Inserisce una singola rilevazione con i riferimenti e l'eventuale
+     * chiave di idempotenza contenuti nell'oggetto.
+     *
+     * Una ripetizione con una chiave già confermata di recente è riconosciuta
+     * in memoria, senza accedere al database.
+     *
+     * @param rilevazione Rilevazione da inserire
+     * @return {@code true} se la rilevazione è stata inserita, ora o in precedenza
+     * @throws RemoteException Se si verificano errori durante l'inserimento
+     */
+    @Override
+    public boolean inserisciRilevazione(ParametriClimatici rilevazione) throws RemoteException {
+        if (rilevazione == null || rilevazione.getData_rilevazione() == null) {
+            throw new IllegalArgumentException("La data di rilevazione è obbligatoria");
+        }
+        return inserisciSingola(rilevazione);
+    }
 
+    private boolean inserisciSingola(ParametriClimatici rilevazione) throws RemoteException {
+        UUID chiave = rilevazione.getChiaveIdempotenza();
+        if (chiave != null && chiaviRecenti.contiene(chiave)) {
+            return true;
+        }
+        if (accodaDopoSpool(rilevazione)) {
+            return true;
+        }
+        if (codaIngestione != null) {
+            accoda(rilevazione);
+            return true;
+        }
+        try {
+            return scrittore.inserisci(rilevazione);
+        } catch (IllegalArgumentException e) {
+            // riferimento inesistente: stesso esito delle verifiche eseguite in precedenza una per una
+            throw new RemoteException(e.getMessage());
         } catch (SQLException e) {
+            if (SpoolRilevazioni.indisponibilita(e) && salvaInSpool(rilevazione)) {
+                System.err.println("Database non disponibile, rilevazione salvata nello spool: " + e.getMessage());
+                return true;
+            }
             System.err.println("Errore SQL durante l'inserimento:");
             System.err.println("Stato: " + e.getSQLState());
             System.err.println("Codice errore: " + e.getErrorCode());
@@ -943,6 +1540,41 @@ public class ClimateMonitoringServiceImpl extends UnicastRemoteObject implements
         }
     }
 
+    /**
+     * Inserisce un lotto di rilevazioni in un'unica transazione.
+     *
+     * La verifica dei riferimenti usa una sola query per l'intero lotto e
+     * le righe sono inserite a blocchi con una INSERT per blocco.
+     *
+     * @param rilevazioni Rilevazioni da inserire
+     * @return Numero di rilevazioni inserite
+     * @throws RemoteException Se si verificano errori durante l'inserimento
+     * @throws IllegalArgumentException Se il lotto non è valido
+     */
+    @Override
+    public int inserisciParametriClimaticiLotto(List<ParametriClimatici> rilevazioni) throws RemoteException {
+        return inserisciParametriClimaticiLotto(null, rilevazioni);
+    }
+
+    /**
+     * Inserisce un lotto di rilevazioni una sola volta per chiave di lotto.
+     *
+     * @param chiaveLotto Chiave di idempotenza del lotto, o null
+     * @param rilevazioni Rilevazioni da inserire
+     * @return Numero di rilevazioni inserite, anche da una chiamata precedente con la stessa chiave
+     * @throws RemoteException Se si verificano errori durante l'inserimento
+     * @throws IllegalArgumentException Se il lotto non è valido
+     */
+    @Override
+    public int inserisciParametriClimaticiLotto(UUID chiaveLotto, List<ParametriClimatici> rilevazioni) throws RemoteException {
+        try {
+            return scrittore.inserisci(chiaveLotto, rilevazioni);
+        } catch (SQLException e) {
+            System.err.println("Errore SQL durante l'inserimento del lotto: " + e.getMessage());
+            throw new RemoteException("Errore nell'inserimento del lotto di parametri climatici: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Autentica un operatore nel sistema di monitoraggio climatico.
      *
@@ -959,16 +1591,15 @@ public class ClimateMonitoringServiceImpl extends UnicastRemoteObject implements
     public boolean autenticaOperatore(String userId, String password) throws RemoteException {
         String sql = "SELECT * FROM operatoriregistrati WHERE userid = ? AND password = ?";
 
-        try {
-            Connection conn = dbManager.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql);
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, userId);
             pstmt.setString(2, password);
 
-            ResultSet rs = pstmt.executeQuery();
-
-            return rs.next();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
 
         } catch (SQLException e) {
             e.printStackTrace();
@@ -994,26 +1625,12 @@ public class ClimateMonitoringServiceImpl extends UnicastRemoteObject implements
 
         String queryCoordinate = "SELECT * FROM coordinatemonitoraggio";
 
-        try {
-            Connection conn = dbManager.getConnection();
+        try (Connection conn = dbManager.getConnection();
              PreparedStatement pstmtCoord = conn.prepareStatement(queryCoordinate);
+             ResultSet rsCoord = pstmtCoord.executeQuery()) {
 
-
-            try {
-                ResultSet rsCoord = pstmtCoord.executeQuery();
-                while (rsCoord.next()) {
-                    CoordinateMonitoraggio coord = new CoordinateMonitoraggio(
-                            rsCoord.getInt("id"),
-                            rsCoord.getString("nome_citta"),
-                            rsCoord.getString("stato"),
-                            rsCoord.getString("paese"),
-                            rsCoord.getDouble("latitudine"),
-                            rsCoord.getDouble("longitudine")
-                    );
-                    aree.add(coord);
-                }
-            } catch (Exception e2) {
-                e2.printStackTrace();
+            while (rsCoord.next()) {
+                aree.add(mappaCoordinata(rsCoord));
             }
 
         } catch (SQLException e) {
@@ -1024,6 +1641,94 @@ public class ClimateMonitoringServiceImpl extends UnicastRemoteObject implements
         return aree;
     }
 
+    /**
+     * Sincronizza la copia del client dell'elenco delle coordinate di monitoraggio.
+     *
+     * La versione di riferimento è la più alta assegnata a una coordinata o
+     * a un'eliminazione, letta prima delle modifiche: le righe cambiate nel
+     * frattempo hanno versione maggiore e arrivano con la sincronizzazione
+     * successiva. Il trigger che assegna le versioni esegue una alla volta le
+     * transazioni che inseriscono, modificano o eliminano coordinate (vedi
+     * {@link MigrazioniSchema}), quindi una transazione ancora in corso avrà
+     * solo versioni maggiori di quella letta e nessuna modifica va persa.
+     *
+     * Se la versione del client è 0 o superiore a quella del database
+     * (ad esempio dopo un ripristino) viene restituito l'intero elenco; se il
+     * database non ha la colonna delle versioni l'elenco completo viene
+     * restituito sempre, con versione 0.
+     *
+     * @param versione Versione della copia del client, 0 se non ne ha una
+     * @return Modifiche dalla versione indicata, o l'intero elenco
+     * @throws RemoteException Se si verificano errori durante il recupero
+     * @throws IllegalArgumentException Se la versione è negativa
+     */
+    @Override
+    public AggiornamentoAree sincronizzaAree(long versione) throws RemoteException {
+        if (versione < 0) {
+            throw new IllegalArgumentException("La versione non può essere negativa");
+        }
+
+        try (Connection conn = dbManager.getConnection()) {
+            long attuale;
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT GREATEST("
+                         + "(SELECT COALESCE(MAX(versione), 0) FROM coordinatemonitoraggio), "
+                         + "(SELECT COALESCE(MAX(versione), 0) FROM coordinatemonitoraggio_eliminate))")) {
+                rs.next();
+                attuale = rs.getLong(1);
+            } catch (SQLException e) {
+                // schema senza versioni: il client riceverà sempre l'elenco completo
+                return new AggiornamentoAree(true, leggiCoordinate(conn), new int[0], 0);
+            }
+
+            if (versione == 0 || versione > attuale) {
+                return new AggiornamentoAree(true, leggiCoordinate(conn), new int[0], attuale);
+            }
+
+            List<CoordinateMonitoraggio> modificate = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT * FROM coordinatemonitoraggio WHERE versione > ? AND versione <= ? ORDER BY id")) {
+                pstmt.setLong(1, versione);
+                pstmt.setLong(2, attuale);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        modificate.add(mappaCoordinata(rs));
+                    }
+                }
+            }
+
+            List<Integer> eliminate = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT id FROM coordinatemonitoraggio_eliminate WHERE versione > ? AND versione <= ?")) {
+                pstmt.setLong(1, versione);
+                pstmt.setLong(2, attuale);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        eliminate.add(rs.getInt(1));
+                    }
+                }
+            }
+            return new AggiornamentoAree(false, modificate,
+                    eliminate.stream().mapToInt(Integer::intValue).toArray(), attuale);
+        } catch (SQLException e) {
+            throw new RemoteException("Errore durante la sincronizzazione delle aree", e);
+        }
+    }
+
+    /**
+     * Legge tutte le coordinate di monitoraggio in ordine di identificatore.
+     */
+    private List<CoordinateMonitoraggio> leggiCoordinate(Connection conn) throws SQLException {
+        List<CoordinateMonitoraggio> aree = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM coordinatemonitoraggio ORDER BY id")) {
+            while (rs.next()) {
+                aree.add(mappaCoordinata(rs));
+            }
+        }
+        return aree;
+    }
+
     /**
      * Recupera le aree di interesse di un operatore.
      *
@@ -1047,23 +1752,23 @@ public class ClimateMonitoringServiceImpl extends UnicastRemoteObject implements
         WHERE a.centro_monitoraggio_id = ?
     """;
 
-        try {
-            Connection conn = dbManager.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(query);
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
 
             pstmt.setInt(1, operatoreId);
 
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                CoordinateMonitoraggio area = new CoordinateMonitoraggio(
-                        rs.getInt("id"),
-                        rs.getString("nome"),
-                        rs.getInt("centro_monitoraggio_id"),
-                        rs.getString("stato"),
-                        rs.getDouble("latitudine"),
-                        rs.getDouble("longitudine")
-                );
-                areeInteresse.add(area);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    CoordinateMonitoraggio area = new CoordinateMonitoraggio(
+                            rs.getInt("id"),
+                            rs.getString("nome"),
+                            rs.getInt("centro_monitoraggio_id"),
+                            rs.getString("stato"),
+                            rs.getDouble("latitudine"),
+                            rs.getDouble("longitudine")
+                    );
+                    areeInteresse.add(area);
+                }
             }
 
 
@@ -1112,16 +1817,28 @@ public class ClimateMonitoringServiceImpl extends UnicastRemoteObject implements
                                                    Date dataRilevazione, int vento, int umidita, int pressione, int temperatura,
                                                    int precipitazioni, int altitudine, int massaGhiacciai, String note) throws RemoteException {
 
+        if (dataRilevazione == null) {
+            throw new IllegalArgumentException("La data di rilevazione è obbligatoria");
+        }
+        ParametriClimatici rilevazione = new ParametriClimatici(0, dataRilevazione, vento, umidita, pressione,
+                temperatura, precipitazioni, altitudine, massaGhiacciai, note)
+                .riferitaA(centroMonitoraggioId, areaInteresseId, null);
+        if (accodaDopoSpool(rilevazione)) {
+            return true;
+        }
+        if (codaIngestione != null) {
+            accoda(rilevazione);
+            return true;
+        }
+
         String sql = "INSERT INTO parametriclimatici "
                 + "(centro_monitoraggio_id, area_interesse_id, data_rilevazione, "
                 + "vento, umidita, pressione, temperatura, precipitazioni, "
                 + "altitudine, massa_ghiacciai, note) "
                 + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
-        try {
-            Connection conn = dbManager.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql);
-
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, centroMonitoraggioId);
             if (areaInteresseId != null) {
@@ -1139,10 +1856,25 @@ public class ClimateMonitoringServiceImpl extends UnicastRemoteObject implements
             pstmt.setInt(10, massaGhiacciai);
             pstmt.setString(11, note);
 
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
+            int[] valori = {vento, umidita, pressione, temperatura, precipitazioni, altitudine, massaGhiacciai};
+            Lock blocco = aggregati.bloccoAggiornamenti();
+            blocco.lock();
+            try {
+                int rowsAffected = pstmt.executeUpdate();
+                if (rowsAffected > 0) {
+                    aggregati.registra(centroMonitoraggioId, areaInteresseId, null, valori);
+                    notifiche.rilevazione(centroMonitoraggioId, areaInteresseId, null);
+                }
+                return rowsAffected > 0;
+            } finally {
+                blocco.unlock();
+            }
 
         } catch (SQLException e) {
+            if (SpoolRilevazioni.indisponibilita(e) && salvaInSpool(rilevazione)) {
+                System.err.println("Database non disponibile, rilevazione salvata nello spool: " + e.getMessage());
+                return true;
+            }
             System.err.println("Errore SQL: " + e.getMessage());
             System.err.println("Stato: " + e.getSQLState());
             System.err.println("Codice errore: " + e.getErrorCode());
@@ -1152,4 +1884,34 @@ public class ClimateMonitoringServiceImpl extends UnicastRemoteObject implements
     }
 
 
-}
\ No newline at end of file
+
+    /**
+     * Sottoscrive un ascoltatore alle modifiche di centri e aree.
+     *
+     * Le notifiche partono dai thread del {@link DistributoreModifiche},
+     * mai da quelli che eseguono gli inserimenti.
+     *
+     * @param ascoltatore Oggetto remoto esportato dal client
+     * @param centri Identificatori dei centri osservati
+     * @param areeInteresse Identificatori delle aree di interesse osservate
+     * @param coordinate Identificatori delle coordinate osservate
+     * @throws RemoteException Non sollevata da questa implementazione
+     * @throws IllegalArgumentException Se l'ascoltatore è nullo
+     */
+    @Override
+    public void sottoscriviModifiche(AscoltatoreModifiche ascoltatore, Set<Integer> centri, Set<Integer> areeInteresse,
+                                     Set<Integer> coordinate) throws RemoteException {
+        notifiche.sottoscrivi(ascoltatore, centri, areeInteresse, coordinate);
+    }
+
+    /**
+     * Annulla la sottoscrizione di un ascoltatore.
+     *
+     * @param ascoltatore Ascoltatore da rimuovere
+     * @throws RemoteException Non sollevata da questa implementazione
+     */
+    @Override
+    public void annullaSottoscrizione(AscoltatoreModifiche ascoltatore) throws RemoteException {
+        notifiche.annulla(ascoltatore);
+    }
+}
@@ -0,0 +1,149 @@
+package com.climatemonitoring.server.server;
+
+import com.climatemonitoring.common.service.ServizioOccupatoException;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Controllo di ammissione delle chiamate remote.
+ *
+ * RMI esegue ogni chiamata in un proprio thread, senza limiti: per ogni
+ * {@link ClasseRichiesta} un semaforo limita le chiamate eseguite insieme.
+ * Quando i posti sono occupati la chiamata attende al massimo il tempo della
+ * classe, e solo se la coda di attesa non è già piena; altrimenti viene
+ * rifiutata subito con una {@link ServizioOccupatoException}, che il client
+ * può ripetere più tardi. Così il server resta reattivo durante i picchi
+ * invece di esaurire connessioni e memoria.
+ *
+ * I limiti sono calcolati dalla dimensione del pool di connessioni: le
+ * classi che tengono una connessione per tutta la chiamata non possono
+ * occuparlo tutto, così login e ricerche non restano in attesa di una
+ * connessione dietro ai report. Con la coda di ingestione attiva il limite
+ * degli inserimenti è invece la capacità della coda.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class ControlloAmmissione {
+
+    /**
+     * Stato di una classe: posti liberi, chiamate in attesa e rifiuti.
+     */
+    private static final class Limiti {
+        final Semaphore posti;
+        final AtomicInteger inAttesa = new AtomicInteger();
+        final AtomicLong rifiutate = new AtomicLong();
+
+        Limiti(int limite) {
+            this.posti = new Semaphore(limite);
+        }
+    }
+
+    private final Map<ClasseRichiesta, Limiti> limiti = new EnumMap<>(ClasseRichiesta.class);
+
+    /**
+     * Crea il controllo con i limiti definiti in {@link ClasseRichiesta}, senza coda di ingestione.
+     *
+     * @param connessioni Numero massimo di connessioni del pool
+     * @throws IllegalArgumentException Se il numero di connessioni non è positivo
+     */
+    public ControlloAmmissione(int connessioni) {
+        this(connessioni, 0);
+    }
+
+    /**
+     * Crea il controllo con i limiti definiti in {@link ClasseRichiesta}.
+     *
+     * Se i limiti impostati con le proprietà di sistema lasciano alle chiamate
+     * ordinarie meno connessioni di {@link ClasseRichiesta#riserva(int)}, lo
+     * segnala all'avvio.
+     *
+     * @param connessioni Numero massimo di connessioni del pool
+     * @param codaIngestione Capacità della coda di ingestione, 0 se la coda non è attiva
+     * @throws IllegalArgumentException Se il numero di connessioni non è positivo o la capacità è negativa
+     */
+    public ControlloAmmissione(int connessioni, int codaIngestione) {
+        if (connessioni < 1) {
+            throw new IllegalArgumentException("Il pool deve avere almeno una connessione");
+        }
+        if (codaIngestione < 0) {
+            throw new IllegalArgumentException("La capacità della coda di ingestione non può essere negativa");
+        }
+        int legate = 0;
+        StringBuilder descrizione = new StringBuilder();
+        for (ClasseRichiesta c : ClasseRichiesta.values()) {
+            int limite = c.getLimite(connessioni, codaIngestione);
+            limiti.put(c, new Limiti(limite));
+            if (c.isLegataAlPool(codaIngestione)) {
+                legate += limite;
+            }
+            descrizione.append(descrizione.length() == 0 ? "" : ", ")
+                    .append(c.name().toLowerCase()).append(' ').append(limite);
+        }
+        System.out.println("Limiti di ammissione: " + descrizione + " (pool di " + connessioni + " connessioni)");
+        if (connessioni - legate < ClasseRichiesta.riserva(connessioni)) {
+            System.err.println("Attenzione: report e inserimenti possono occupare " + legate + " delle "
+                    + connessioni + " connessioni del pool; login e ricerche potrebbero attendere una connessione");
+        }
+    }
+
+    /**
+     * Occupa un posto della classe, attendendo se necessario.
+     * Ogni chiamata riuscita va seguita da {@link #rilascia(ClasseRichiesta)}.
+     *
+     * @param classe Classe della chiamata
+     * @throws ServizioOccupatoException Se la classe è satura
+     */
+    public void acquisisci(ClasseRichiesta classe) throws ServizioOccupatoException {
+        Limiti l = limiti.get(classe);
+        if (l.posti.tryAcquire()) {
+            return;
+        }
+        if (l.inAttesa.incrementAndGet() > classe.getCoda()) {
+            l.inAttesa.decrementAndGet();
+            throw rifiuto(classe, l);
+        }
+        try {
+            if (!l.posti.tryAcquire(classe.getAttesaMs(), TimeUnit.MILLISECONDS)) {
+                throw rifiuto(classe, l);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw rifiuto(classe, l);
+        } finally {
+            l.inAttesa.decrementAndGet();
+        }
+    }
+
+    /**
+     * Libera il posto occupato con {@link #acquisisci(ClasseRichiesta)}.
+     *
+     * @param classe Classe della chiamata
+     */
+    public void rilascia(ClasseRichiesta classe) {
+        limiti.get(classe).posti.release();
+    }
+
+    /**
+     * @param classe Classe di richieste
+     * @return Numero di chiamate della classe rifiutate dall'avvio
+     */
+    public long getRifiutate(ClasseRichiesta classe) {
+        return limiti.get(classe).rifiutate.get();
+    }
+
+    private static ServizioOccupatoException rifiuto(ClasseRichiesta classe, Limiti l) {
+        long totale = l.rifiutate.incrementAndGet();
+        // una riga ogni cento rifiuti, per non inondare il log durante un picco
+        if (totale % 100 == 1) {
+            System.err.println("Server sovraccarico: chiamate " + classe + " rifiutate finora: " + totale);
+        }
+        return new ServizioOccupatoException("Il server è sovraccarico, riprovare più tardi", classe.getAttesaMs());
+    }
+}
@@ -0,0 +1,175 @@
+package com.climatemonitoring.server.server;
+
+import com.climatemonitoring.common.rmi.CompressioneSocketFactory;
+import com.climatemonitoring.common.service.ClimateMonitoringService;
+import com.climatemonitoring.server.util.DatabaseManager;
+
+import java.rmi.NoSuchObjectException;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+
+/**
+ * Ciclo di vita del servizio RMI, indipendente dall'interfaccia grafica.
+ *
+ * Crea il registry e pubblica {@link ClimateMonitoringServiceImpl} attraverso
+ * il proxy di {@link VarcoRichieste}. Alla chiusura lo rimuove nell'ordine corretto:
+ * 1. Rimozione dal registry, così i nuovi client non lo trovano
+ * 2. Chiusura del varco: le nuove chiamate sono rifiutate
+ * 3. Attesa delle chiamate in corso, fino a {@link #ATTESA_RICHIESTE_MS}
+ * 4. Unexport del servizio
+ * 5. Chiusura del servizio (svuotamento della coda di ingestione e dello spool)
+ * 6. Chiusura del registry e del pool di connessioni
+ *
+ * Così un riavvio non interrompe inserimenti o report a metà e non perde
+ * rilevazioni già accettate.
+ *
+ * Con {@link #setCompressione(boolean)}, o con la proprietà di sistema
+ * {@code climatemonitoring.rmi.compressione=true}, il servizio è esportato
+ * con {@link CompressioneSocketFactory}: i client la ricevono nello stub e
+ * comprimono il traffico senza configurazioni aggiuntive.
+ *
+ * È usato sia da {@link com.climatemonitoring.server.ServerCM} sia
+ * dall'avvio senza interfaccia {@link com.climatemonitoring.server.ServerDaemon}.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class ServerRMI {
+
+    /** Nome con cui il servizio è pubblicato nel registry. */
+    public static final String NOME_SERVIZIO = "ClimateMonitoringService";
+
+    /** Porta predefinita del registry RMI. */
+    public static final int PORTA_PREDEFINITA = 1099;
+
+    /**
+     * Attesa massima (ms) delle chiamate in corso all'arresto, modificabile con
+     * la proprietà di sistema {@code climatemonitoring.arresto.attesaMs}.
+     */
+    public static final long ATTESA_RICHIESTE_MS = Long.getLong("climatemonitoring.arresto.attesaMs", 30_000);
+
+    private final DatabaseManager dbManager;
+    private final int porta;
+    private boolean compressione = Boolean.getBoolean("climatemonitoring.rmi.compressione");
+
+    private Registry registry;
+    private ClimateMonitoringServiceImpl servizio;
+
+    /** Proxy esportato al posto del servizio. */
+    private ClimateMonitoringService esportato;
+
+    /**
+     * @param dbManager Gestore del database usato dal servizio
+     * @param porta Porta del registry RMI
+     */
+    public ServerRMI(DatabaseManager dbManager, int porta) {
+        this.dbManager = dbManager;
+        this.porta = porta;
+    }
+
+    /**
+     * Sceglie se comprimere il traffico del servizio. Ha effetto al prossimo avvio.
+     *
+     * @param compressione {@code true} per esportare il servizio con socket compressi
+     */
+    public synchronized void setCompressione(boolean compressione) {
+        this.compressione = compressione;
+    }
+
+    /**
+     * Crea il registry e vi pubblica il servizio.
+     *
+     * @throws RemoteException Se il registry non può essere creato o il servizio esportato
+     * @throws IllegalStateException Se il server è già avviato
+     */
+    public synchronized void avvia() throws RemoteException {
+        if (servizio != null) {
+            throw new IllegalStateException("Il server RMI è già in esecuzione");
+        }
+        registry = LocateRegistry.createRegistry(porta);
+        try {
+            ClimateMonitoringServiceImpl nuovo = new ClimateMonitoringServiceImpl(dbManager);
+            ControlloAmmissione ammissione = new ControlloAmmissione(dbManager.getPoolConfig().getMaxConnessioni(),
+                    nuovo.getCapacitaCodaIngestione());
+            ClimateMonitoringService proxy = VarcoRichieste.proxy(ClimateMonitoringService.class, nuovo, ammissione);
+            registry.rebind(NOME_SERVIZIO, esporta(proxy));
+            servizio = nuovo;
+            esportato = proxy;
+        } catch (RemoteException | RuntimeException e) {
+            chiudiRegistry();
+            throw e;
+        }
+        System.out.println("Server RMI in ascolto sulla porta " + porta);
+    }
+
+    /**
+     * @return {@code true} se il servizio è pubblicato
+     */
+    public synchronized boolean isAvviato() {
+        return servizio != null;
+    }
+
+    /**
+     * @return Servizio pubblicato, o null se il server non è avviato
+     */
+    public synchronized ClimateMonitoringServiceImpl getServizio() {
+        return servizio;
+    }
+
+    /**
+     * Arresta il servizio e chiude il pool di connessioni.
+     * Può essere chiamato più volte: le chiamate successive non hanno effetto.
+     */
+    public synchronized void arresta() {
+        if (servizio == null) {
+            return;
+        }
+        try {
+            registry.unbind(NOME_SERVIZIO);
+        } catch (Exception e) {
+            System.err.println("Warning durante l'unbind del servizio: " + e.getMessage());
+        }
+
+        VarcoRichieste varco = VarcoRichieste.di(esportato);
+        varco.chiudi();
+        if (!varco.attendi(ATTESA_RICHIESTE_MS)) {
+            System.err.println("Arresto con " + varco.getInCorso() + " chiamate ancora in corso dopo "
+                    + ATTESA_RICHIESTE_MS + " ms");
+        }
+
+        try {
+            UnicastRemoteObject.unexportObject(esportato, true);
+        } catch (NoSuchObjectException e) {
+            System.err.println("Warning durante l'unexport del servizio: " + e.getMessage());
+        }
+        servizio.chiudi();
+        servizio = null;
+        esportato = null;
+
+        chiudiRegistry();
+        dbManager.closeConnection();
+        System.out.println("Server RMI arrestato con successo");
+    }
+
+    private Remote esporta(ClimateMonitoringService proxy) throws RemoteException {
+        if (!compressione) {
+            return UnicastRemoteObject.exportObject(proxy, 0);
+        }
+        CompressioneSocketFactory fabbrica = new CompressioneSocketFactory();
+        System.out.println("Compressione del traffico RMI attiva (livello " + fabbrica.getLivello() + ")");
+        return UnicastRemoteObject.exportObject(proxy, 0, fabbrica, fabbrica);
+    }
+
+    private void chiudiRegistry() {
+        try {
+            UnicastRemoteObject.unexportObject(registry, true);
+        } catch (NoSuchObjectException e) {
+            System.err.println("Warning durante la chiusura del registry: " + e.getMessage());
+        }
+        registry = null;
+    }
+}
@@ -0,0 +1,182 @@
+package com.climatemonitoring.server.server;
+
+import com.climatemonitoring.common.service.ServizioOccupatoException;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Varco attraverso cui passano tutte le chiamate remote al servizio.
+ *
+ * Il servizio non viene esportato direttamente: RMI esporta un proxy che
+ * conta le chiamate in corso prima di inoltrarle all'implementazione.
+ * All'arresto del server il varco viene chiuso, così:
+ * - Le nuove chiamate sono rifiutate subito con una {@link ServizioOccupatoException}
+ * - Quelle già iniziate (inserimenti, report) possono terminare, e
+ *   {@link #attendi(long)} aspetta che finiscano entro una scadenza
+ *
+ * Solo dopo si possono chiudere la coda di ingestione e il pool di
+ * connessioni senza interrompere un'operazione a metà.
+ *
+ * Il varco applica anche il {@link ControlloAmmissione}: ogni chiamata
+ * occupa un posto della propria {@link ClasseRichiesta} per tutta la durata
+ * dell'esecuzione, e se la classe è satura viene rifiutata con una
+ * {@link ServizioOccupatoException} che il client può ripetere.
+ *
+ * Il corpo del metodo è eseguito sul thread RMI che ha ricevuto la chiamata.
+ * Il trasporto RMI del JDK dedica a ogni connessione un thread di
+ * piattaforma, che legge la chiamata e scrive la risposta: spostare il corpo
+ * su un thread virtuale lascerebbe quel thread bloccato in attesa per tutta
+ * la chiamata, senza ridurre né i thread né la memoria degli stack. Su
+ * Java 17 questi thread non possono essere virtuali; il numero di chiamate
+ * contemporanee è limitato invece dal {@link ControlloAmmissione}.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class VarcoRichieste implements InvocationHandler {
+
+    /** Implementazione a cui sono inoltrate le chiamate. */
+    private final Object destinazione;
+
+    /** Limiti di concorrenza per classe di chiamata. */
+    private final ControlloAmmissione ammissione;
+
+    /** Numero di chiamate in esecuzione, protetto dal monitor dell'istanza. */
+    private int inCorso;
+
+    /** Diventa true all'arresto: le nuove chiamate vengono rifiutate. */
+    private boolean chiuso;
+
+    private VarcoRichieste(Object destinazione, ControlloAmmissione ammissione) {
+        this.destinazione = destinazione;
+        this.ammissione = ammissione;
+    }
+
+    /**
+     * Crea il proxy del servizio da esportare con RMI.
+     *
+     * @param interfaccia Interfaccia remota del servizio
+     * @param destinazione Implementazione del servizio
+     * @param ammissione Limiti di concorrenza, calcolati sul pool di connessioni del servizio
+     * @param <T> Tipo dell'interfaccia remota
+     * @return Proxy che implementa l'interfaccia passando dal varco
+     */
+    public static <T extends Remote> T proxy(Class<T> interfaccia, T destinazione, ControlloAmmissione ammissione) {
+        return interfaccia.cast(Proxy.newProxyInstance(interfaccia.getClassLoader(),
+                new Class<?>[]{interfaccia}, new VarcoRichieste(destinazione, ammissione)));
+    }
+
+    /**
+     * Restituisce il varco di un proxy creato con {@link #proxy}.
+     *
+     * @param proxy Proxy del servizio
+     * @return Varco del proxy
+     */
+    public static VarcoRichieste di(Object proxy) {
+        return (VarcoRichieste) Proxy.getInvocationHandler(proxy);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method metodo, Object[] argomenti) throws Throwable {
+        if (metodo.getDeclaringClass() == Object.class) {
+            return metodoObject(proxy, metodo, argomenti);
+        }
+
+        entra(metodo);
+        try {
+            ClasseRichiesta classe = ClasseRichiesta.di(metodo);
+            ammissione.acquisisci(classe);
+            try {
+                return metodo.invoke(destinazione, argomenti);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                ammissione.rilascia(classe);
+            }
+        } finally {
+            esci();
+        }
+    }
+
+    private synchronized void entra(Method metodo) throws RemoteException {
+        if (chiuso) {
+            throw new ServizioOccupatoException("Il server è in arresto, riprovare più tardi ("
+                    + metodo.getName() + ")", ServerRMI.ATTESA_RICHIESTE_MS);
+        }
+        inCorso++;
+    }
+
+    private synchronized void esci() {
+        if (--inCorso == 0 && chiuso) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * @return Controllo di ammissione applicato alle chiamate
+     */
+    public ControlloAmmissione getAmmissione() {
+        return ammissione;
+    }
+
+    /**
+     * Rifiuta le nuove chiamate; quelle in corso proseguono.
+     */
+    public synchronized void chiudi() {
+        chiuso = true;
+        if (inCorso == 0) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * @return Numero di chiamate in esecuzione
+     */
+    public synchronized int getInCorso() {
+        return inCorso;
+    }
+
+    /**
+     * Attende che terminino le chiamate in corso.
+     *
+     * @param attesaMs Tempo massimo di attesa in millisecondi
+     * @return {@code true} se non restano chiamate in corso
+     */
+    public synchronized boolean attendi(long attesaMs) {
+        long scadenza = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(attesaMs);
+        while (inCorso > 0) {
+            long restante = TimeUnit.NANOSECONDS.toMillis(scadenza - System.nanoTime());
+            if (restante <= 0) {
+                return false;
+            }
+            try {
+                wait(restante);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return inCorso == 0;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * equals, hashCode e toString riguardano il proxy, non l'implementazione.
+     */
+    private Object metodoObject(Object proxy, Method metodo, Object[] argomenti) {
+        switch (metodo.getName()) {
+            case "equals":
+                return proxy == argomenti[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return "Proxy[" + destinazione.getClass().getSimpleName() + "]";
+        }
+    }
+}
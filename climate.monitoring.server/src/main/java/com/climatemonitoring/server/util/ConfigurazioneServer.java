@@ -0,0 +1,170 @@
+package com.climatemonitoring.server.util;
+
+import com.climatemonitoring.server.server.ServerRMI;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Parametri di avvio del server senza interfaccia grafica.
+ *
+ * I valori sono letti, in ordine di priorità crescente:
+ * 1. Dal file di proprietà indicato (chiavi {@code db.host}, {@code db.user},
+ *    {@code db.password}, {@code rmi.porta}, {@code rmi.compressione},
+ *    {@code db.pool.min}, {@code db.pool.max}, {@code db.pool.attesaMs},
+ *    {@code db.pool.inattivitaMs})
+ * 2. Dalle variabili d'ambiente {@code CM_DB_HOST}, {@code CM_DB_USER},
+ *    {@code CM_DB_PASSWORD}, {@code CM_RMI_PORTA}, {@code CM_RMI_COMPRESSIONE},
+ *    {@code CM_DB_POOL_MIN}, {@code CM_DB_POOL_MAX}, {@code CM_DB_POOL_ATTESA_MS},
+ *    {@code CM_DB_POOL_INATTIVITA_MS}
+ *
+ * Così la password può restare fuori dal file, ad esempio in un container.
+ * I parametri del pool non indicati mantengono i valori predefiniti di
+ * {@link PoolConfig}; dal massimo dipendono anche i limiti del controllo
+ * di ammissione delle chiamate RMI.
+ * L'host ha la stessa forma richiesta dalla schermata di login
+ * ({@code localhost:5432}).
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class ConfigurazioneServer {
+
+    private String host;
+    private String utente;
+    private String password = "";
+    private int portaRmi = ServerRMI.PORTA_PREDEFINITA;
+    private boolean compressione = Boolean.getBoolean("climatemonitoring.rmi.compressione");
+    private final PoolConfig poolConfig = new PoolConfig();
+
+    /**
+     * Legge la configurazione dal file (se indicato) e dall'ambiente del processo.
+     *
+     * @param file File di proprietà, o null per usare solo l'ambiente
+     * @return Configurazione letta
+     * @throws IOException Se il file non può essere letto
+     * @throws IllegalArgumentException Se mancano host o utente o la porta o il pool non sono validi
+     */
+    public static ConfigurazioneServer carica(Path file) throws IOException {
+        return carica(file, System.getenv());
+    }
+
+    /**
+     * Legge la configurazione dal file (se indicato) e dalle variabili indicate.
+     *
+     * @param file File di proprietà, o null
+     * @param ambiente Variabili d'ambiente
+     * @return Configurazione letta
+     * @throws IOException Se il file non può essere letto
+     * @throws IllegalArgumentException Se mancano host o utente o la porta o il pool non sono validi
+     */
+    public static ConfigurazioneServer carica(Path file, Map<String, String> ambiente) throws IOException {
+        Properties proprieta = new Properties();
+        if (file != null) {
+            try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                proprieta.load(in);
+            }
+        }
+
+        ConfigurazioneServer c = new ConfigurazioneServer();
+        c.host = valore(proprieta, "db.host", ambiente, "CM_DB_HOST");
+        c.utente = valore(proprieta, "db.user", ambiente, "CM_DB_USER");
+        String password = valore(proprieta, "db.password", ambiente, "CM_DB_PASSWORD");
+        if (password != null) {
+            c.password = password;
+        }
+        String porta = valore(proprieta, "rmi.porta", ambiente, "CM_RMI_PORTA");
+        if (porta != null) {
+            try {
+                c.portaRmi = Integer.parseInt(porta);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Porta RMI non valida: " + porta);
+            }
+        }
+        String compressione = valore(proprieta, "rmi.compressione", ambiente, "CM_RMI_COMPRESSIONE");
+        if (compressione != null) {
+            c.compressione = Boolean.parseBoolean(compressione);
+        }
+        String min = valore(proprieta, "db.pool.min", ambiente, "CM_DB_POOL_MIN");
+        if (min != null) {
+            c.poolConfig.setMinConnessioni((int) numero(min, "db.pool.min"));
+        }
+        String max = valore(proprieta, "db.pool.max", ambiente, "CM_DB_POOL_MAX");
+        if (max != null) {
+            c.poolConfig.setMaxConnessioni((int) numero(max, "db.pool.max"));
+        }
+        String attesa = valore(proprieta, "db.pool.attesaMs", ambiente, "CM_DB_POOL_ATTESA_MS");
+        if (attesa != null) {
+            c.poolConfig.setTimeoutAcquisizioneMs(numero(attesa, "db.pool.attesaMs"));
+        }
+        String inattivita = valore(proprieta, "db.pool.inattivitaMs", ambiente, "CM_DB_POOL_INATTIVITA_MS");
+        if (inattivita != null) {
+            c.poolConfig.setTimeoutInattivitaMs(numero(inattivita, "db.pool.inattivitaMs"));
+        }
+        c.valida();
+        return c;
+    }
+
+    private static String valore(Properties proprieta, String chiave, Map<String, String> ambiente, String variabile) {
+        String v = ambiente.get(variabile);
+        if (v == null || v.isBlank()) {
+            v = proprieta.getProperty(chiave);
+        }
+        return v == null ? null : v.trim();
+    }
+
+    private static long numero(String valore, String chiave) {
+        try {
+            long n = Long.parseLong(valore);
+            if (n < 0 || n > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Valore non valido per " + chiave + ": " + valore);
+            }
+            return n;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valore non valido per " + chiave + ": " + valore);
+        }
+    }
+
+    private void valida() {
+        if (host == null || host.isEmpty()) {
+            throw new IllegalArgumentException("Host del database mancante (db.host o CM_DB_HOST)");
+        }
+        if (utente == null || utente.isEmpty()) {
+            throw new IllegalArgumentException("Utente del database mancante (db.user o CM_DB_USER)");
+        }
+        if (portaRmi <= 0 || portaRmi > 65535) {
+            throw new IllegalArgumentException("Porta RMI non valida: " + portaRmi);
+        }
+        poolConfig.valida();
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public String getUtente() {
+        return utente;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public int getPortaRmi() {
+        return portaRmi;
+    }
+
+    public boolean isCompressione() {
+        return compressione;
+    }
+
+    public PoolConfig getPoolConfig() {
+        return poolConfig;
+    }
+}
@@ -0,0 +1,128 @@
+package com.climatemonitoring.server.util;
+
+import com.climatemonitoring.common.model.CentroMonitoraggio;
+import com.climatemonitoring.common.model.CoordinateMonitoraggio;
+import com.climatemonitoring.common.model.OperatoriRegistrati;
+import com.climatemonitoring.common.model.ParametriClimatici;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Misura dimensione e velocità della serializzazione delle liste di modelli
+ * scambiate via RMI. La correttezza dell'andata e ritorno è verificata dai
+ * test del modulo common.
+ *
+ * Le liste imitano le risposte reali: molte coordinate con pochi valori
+ * distinti di stato e paese, letti dal database come stringhe distinte.
+ *
+ * Uso: {@code ConfrontoSerializzazione [numero di coordinate] [ripetizioni]},
+ * con valori predefiniti 10000 e 200.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class ConfrontoSerializzazione {
+
+    private static final String[] PAESI = {"Italy", "France", "Germany", "Spain", "Switzerland",
+            "Austria", "Slovenia", "Croatia", "Portugal", "Belgium"};
+
+    /**
+     * @param args Numero di coordinate e ripetizioni, facoltativi
+     * @throws Exception Se la serializzazione fallisce
+     */
+    public static void main(String[] args) throws Exception {
+        int numero = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int ripetizioni = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        Random casuale = new Random(42);
+
+        List<CoordinateMonitoraggio> coordinate = new ArrayList<>(numero);
+        for (int i = 0; i < numero; i++) {
+            String paese = PAESI[casuale.nextInt(PAESI.length)];
+            // new String: il driver JDBC restituisce un'istanza diversa per ogni riga
+            CoordinateMonitoraggio c = new CoordinateMonitoraggio(i, "Citta " + i,
+                    new String(paese + " regione " + casuale.nextInt(20)), new String(paese),
+                    casuale.nextDouble() * 180 - 90, casuale.nextDouble() * 360 - 180);
+            if (i % 3 == 0) {
+                c.setAreaInteresse(true);
+                c.setTipo(new String("area"));
+                c.setCentroMonitoraggioId(i % 50);
+            }
+            if (i % 2 == 0) {
+                c.setDistanzaKm(casuale.nextDouble() * 100);
+            }
+            coordinate.add(c);
+        }
+
+        List<ParametriClimatici> rilevazioni = new ArrayList<>();
+        for (int i = 0; i < numero / 10; i++) {
+            ParametriClimatici p = new ParametriClimatici(i, java.sql.Date.valueOf("2024-01-01"),
+                    1 + i % 5, 2, 3, 4, 5, 1, 2, i % 4 == 0 ? null : "nota " + i)
+                    .riferitaA(i % 50, i % 2 == 0 ? i : null, i % 2 == 0 ? null : i);
+            p.setChiaveIdempotenza(i % 3 == 0 ? null : UUID.randomUUID());
+            rilevazioni.add(p);
+        }
+
+        List<OperatoriRegistrati> operatori = new ArrayList<>();
+        List<CentroMonitoraggio> centri = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            operatori.add(new OperatoriRegistrati(i, "Nome" + i, "Cognome" + i, "CF" + i,
+                    "utente" + i + "@example.org", "user" + i, null));
+            centri.add(new CentroMonitoraggio(i, "Centro " + i, "Via " + i, "2110" + i % 10,
+                    new String("Varese"), new String("VA")));
+        }
+
+        misura("CoordinateMonitoraggio", coordinate, ripetizioni);
+        misura("ParametriClimatici", rilevazioni, ripetizioni);
+        misura("OperatoriRegistrati", operatori, ripetizioni);
+        misura("CentroMonitoraggio", centri, ripetizioni);
+    }
+
+    /**
+     * Serializza ripetutamente una lista e stampa dimensione e tempi medi.
+     */
+    private static void misura(String nome, List<?> lista, int ripetizioni)
+            throws IOException, ClassNotFoundException {
+        byte[] dati = serializza(lista);
+        long scrittura = 0;
+        long lettura = 0;
+        for (int i = 0; i < ripetizioni * 2; i++) {
+            long t0 = System.nanoTime();
+            dati = serializza(lista);
+            long t1 = System.nanoTime();
+            deserializza(dati);
+            long t2 = System.nanoTime();
+            // la prima metà delle ripetizioni serve da riscaldamento
+            if (i >= ripetizioni) {
+                scrittura += t1 - t0;
+                lettura += t2 - t1;
+            }
+        }
+
+        System.out.printf("%-24s %6d oggetti  %9d byte (%5.1f byte/oggetto)  scrittura %7.2f ms  lettura %7.2f ms%n",
+                nome, lista.size(), dati.length, (double) dati.length / Math.max(1, lista.size()),
+                scrittura / 1e6 / ripetizioni, lettura / 1e6 / ripetizioni);
+    }
+
+    private static byte[] serializza(Object o) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+            out.writeObject(o);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static Object deserializza(byte[] dati) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(dati))) {
+            return in.readObject();
+        }
+    }
+}
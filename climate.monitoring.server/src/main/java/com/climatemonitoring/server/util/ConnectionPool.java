@@ -0,0 +1,439 @@
+package com.climatemonitoring.server.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool limitato di connessioni JDBC verso il database PostgreSQL.
+ *
+ * Sostituisce la singola connessione condivisa del {@link DatabaseManager},
+ * permettendo a più thread RMI di eseguire query in parallelo.
+ *
+ * Caratteristiche principali:
+ * - Dimensione minima e massima configurabile tramite {@link PoolConfig}
+ * - Attesa limitata nel tempo quando tutte le connessioni sono in uso
+ * - Validazione della connessione al momento del prestito
+ * - Chiusura delle connessioni inattive in eccesso rispetto al minimo
+ * - Segnalazione delle connessioni non restituite (perdite)
+ *
+ * Le connessioni restituite da {@link #getConnection()} sono dei proxy:
+ * la chiamata a {@code close()} le restituisce al pool invece di chiuderle.
+ * Ogni connessione fisica mantiene una {@link StatementCache}, per cui le
+ * {@code prepareStatement} ripetute sulla stessa query riutilizzano il piano già preparato.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    /** URL JDBC del database. */
+    private final String dbUrl;
+
+    /** Nome utente per l'accesso al database. */
+    private final String dbUser;
+
+    /** Password per l'accesso al database. */
+    private final String dbPassword;
+
+    /** Configurazione del pool. */
+    private final PoolConfig config;
+
+    /** Connessioni fisiche libere, ordinate dalla più recente (testa) alla meno recente (coda). */
+    private final LinkedBlockingDeque<PooledConnection> libere = new LinkedBlockingDeque<>();
+
+    /** Connessioni attualmente prestate ai chiamanti. */
+    private final Set<PooledConnection> inUso = ConcurrentHashMap.newKeySet();
+
+    /** Permessi di prestito: limitano il numero di connessioni in uso al massimo configurato. */
+    private final Semaphore permessi;
+
+    /** Numero totale di connessioni fisiche aperte (libere e in uso). */
+    private final AtomicInteger totali = new AtomicInteger();
+
+    /** Thread di manutenzione per evizione delle inattive e rilevamento perdite. */
+    private final ScheduledExecutorService manutenzione;
+
+    /** Flag di chiusura del pool. */
+    private volatile boolean chiuso = false;
+
+    /**
+     * Crea il pool e apre il numero minimo di connessioni.
+     *
+     * @param dbUrl URL JDBC del database
+     * @param dbUser Nome utente
+     * @param dbPassword Password
+     * @param config Configurazione del pool
+     * @throws SQLException Se non è possibile aprire le connessioni iniziali
+     */
+    public ConnectionPool(String dbUrl, String dbUser, String dbPassword, PoolConfig config) throws SQLException {
+        config.valida();
+        this.dbUrl = dbUrl;
+        this.dbUser = dbUser;
+        this.dbPassword = dbPassword;
+        this.config = config;
+        this.permessi = new Semaphore(config.getMaxConnessioni(), true);
+
+        for (int i = 0; i < config.getMinConnessioni(); i++) {
+            libere.offerLast(crea());
+        }
+
+        this.manutenzione = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cm-pool-manutenzione");
+            t.setDaemon(true);
+            return t;
+        });
+        long periodo = Math.max(1_000, Math.min(config.getTimeoutInattivitaMs(), config.getSogliaPerditaMs()) / 2);
+        manutenzione.scheduleWithFixedDelay(this::manutenzione, periodo, periodo, TimeUnit.MILLISECONDS);
+
+        System.out.println("Pool di connessioni avviato (min " + config.getMinConnessioni()
+                + ", max " + config.getMaxConnessioni() + ")");
+    }
+
+    /**
+     * Ottiene una connessione dal pool.
+     *
+     * Se tutte le connessioni sono in uso attende al massimo il tempo configurato.
+     * Le connessioni libere vengono validate prima del prestito; quelle non più
+     * valide sono chiuse e sostituite.
+     *
+     * @return Connessione da restituire al pool con {@code close()}
+     * @throws SQLTimeoutException Se nessuna connessione si libera entro il timeout
+     * @throws SQLException Se il pool è chiuso o la connessione non può essere aperta
+     */
+    public Connection getConnection() throws SQLException {
+        if (chiuso) {
+            throw new SQLException("Pool di connessioni chiuso");
+        }
+
+        boolean acquisito;
+        try {
+            acquisito = permessi.tryAcquire(config.getTimeoutAcquisizioneMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Attesa di una connessione interrotta", e);
+        }
+        if (!acquisito) {
+            throw new SQLTimeoutException("Nessuna connessione disponibile entro "
+                    + config.getTimeoutAcquisizioneMs() + " ms (in uso: " + inUso.size() + ")");
+        }
+
+        try {
+            PooledConnection pc;
+            while ((pc = libere.pollFirst()) != null) {
+                if (pc.isValida()) {
+                    break;
+                }
+                distruggi(pc);
+            }
+            if (pc == null) {
+                pc = crea();
+            }
+            inUso.add(pc);
+            return pc.presta();
+        } catch (SQLException | RuntimeException e) {
+            permessi.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Restituisce una connessione al pool dopo averne ripristinato lo stato.
+     *
+     * @param pc Connessione da restituire
+     */
+    void restituisci(PooledConnection pc) {
+        inUso.remove(pc);
+        try {
+            if (!chiuso && pc.ripristina()) {
+                libere.offerFirst(pc);
+            } else {
+                distruggi(pc);
+            }
+        } finally {
+            permessi.release();
+        }
+    }
+
+    /**
+     * Apre una nuova connessione fisica.
+     *
+     * @return Nuova connessione gestita dal pool
+     * @throws SQLException In caso di errori di connessione
+     */
+    private PooledConnection crea() throws SQLException {
+        Connection fisica = DriverManager.getConnection(dbUrl, dbUser, dbPassword);
+        totali.incrementAndGet();
+        return new PooledConnection(fisica);
+    }
+
+    /**
+     * Chiude definitivamente una connessione fisica.
+     *
+     * @param pc Connessione da chiudere
+     */
+    private void distruggi(PooledConnection pc) {
+        totali.decrementAndGet();
+        pc.chiudiFisica();
+    }
+
+    /**
+     * Attività periodica di manutenzione del pool.
+     *
+     * - Chiude le connessioni libere inattive oltre il timeout, senza scendere sotto il minimo
+     * - Riapre connessioni fino al minimo configurato
+     * - Segnala le connessioni in uso da più tempo della soglia di perdita
+     */
+    private void manutenzione() {
+        if (chiuso) {
+            return;
+        }
+        long ora = System.currentTimeMillis();
+
+        Iterator<PooledConnection> it = libere.descendingIterator();
+        while (it.hasNext() && totali.get() > config.getMinConnessioni()) {
+            PooledConnection pc = it.next();
+            if (ora - pc.ultimoUso > config.getTimeoutInattivitaMs() && libere.remove(pc)) {
+                distruggi(pc);
+            }
+        }
+
+        try {
+            while (totali.get() < config.getMinConnessioni()) {
+                libere.offerLast(crea());
+            }
+        } catch (SQLException e) {
+            System.err.println("Impossibile ripristinare il minimo di connessioni: " + e.getMessage());
+        }
+
+        if (config.getSogliaPerditaMs() > 0) {
+            for (PooledConnection pc : inUso) {
+                if (!pc.perditaSegnalata && ora - pc.inizioPrestito > config.getSogliaPerditaMs()) {
+                    pc.perditaSegnalata = true;
+                    System.err.println("Possibile perdita di connessione: in uso da "
+                            + (ora - pc.inizioPrestito) + " ms, ottenuta da " + pc.threadPrestito);
+                    if (pc.puntoPrestito != null) {
+                        pc.puntoPrestito.printStackTrace();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Restituisce il numero di connessioni attualmente in uso.
+     *
+     * @return Connessioni prestate
+     */
+    public int getConnessioniInUso() {
+        return inUso.size();
+    }
+
+    /**
+     * Restituisce il numero totale di connessioni fisiche aperte.
+     *
+     * @return Connessioni aperte
+     */
+    public int getConnessioniTotali() {
+        return totali.get();
+    }
+
+    /**
+     * Chiude il pool e tutte le connessioni libere.
+     *
+     * Le connessioni ancora in uso vengono chiuse al momento della restituzione.
+     */
+    @Override
+    public void close() {
+        chiuso = true;
+        manutenzione.shutdownNow();
+        PooledConnection pc;
+        while ((pc = libere.pollFirst()) != null) {
+            distruggi(pc);
+        }
+        System.out.println("Pool di connessioni chiuso");
+    }
+
+    /**
+     * Connessione fisica gestita dal pool con i relativi metadati di utilizzo.
+     */
+    final class PooledConnection {
+
+        /** Connessione JDBC reale. */
+        private final Connection fisica;
+
+        /** Cache delle statement preparate su questa connessione. */
+        private final StatementCache statementCache;
+
+        /** Istante dell'ultima restituzione al pool. */
+        private volatile long ultimoUso = System.currentTimeMillis();
+
+        /** Istante dell'ultimo prestito. */
+        private volatile long inizioPrestito;
+
+        /** Thread che ha ottenuto la connessione. */
+        private volatile String threadPrestito;
+
+        /**
+         * Punto del codice che ha ottenuto la connessione, per la diagnosi delle perdite.
+         * Registrato solo se {@link PoolConfig#isTracciaPrestiti()}: creare lo stack a ogni prestito è costoso.
+         */
+        private volatile Throwable puntoPrestito;
+
+        /** Indica se la perdita è già stata segnalata per il prestito corrente. */
+        private volatile boolean perditaSegnalata;
+
+        /** Indica che la connessione ha riportato un errore di comunicazione. */
+        private volatile boolean guasta;
+
+        /**
+         * @param fisica Connessione JDBC reale
+         */
+        private PooledConnection(Connection fisica) {
+            this.fisica = fisica;
+            this.statementCache = new StatementCache(fisica, config.getDimensioneCacheStatement());
+        }
+
+        /**
+         * Verifica che la connessione sia ancora utilizzabile.
+         *
+         * @return true se la connessione risponde entro il timeout di validazione
+         */
+        private boolean isValida() {
+            try {
+                return !guasta && fisica.isValid(config.getTimeoutValidazioneSec());
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Registra il prestito e crea il proxy da consegnare al chiamante.
+         *
+         * @return Proxy della connessione
+         */
+        private Connection presta() {
+            inizioPrestito = System.currentTimeMillis();
+            perditaSegnalata = false;
+            threadPrestito = Thread.currentThread().getName();
+            puntoPrestito = config.isTracciaPrestiti() && config.getSogliaPerditaMs() > 0
+                    ? new Throwable("Connessione ottenuta da " + threadPrestito)
+                    : null;
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Gestore());
+        }
+
+        /**
+         * Riporta la connessione allo stato predefinito prima di rimetterla nel pool.
+         *
+         * @return true se la connessione può essere riutilizzata
+         */
+        private boolean ripristina() {
+            if (guasta) {
+                return false;
+            }
+            statementCache.rilascia();
+            try {
+                if (!fisica.getAutoCommit()) {
+                    fisica.rollback();
+                    fisica.setAutoCommit(true);
+                }
+                fisica.clearWarnings();
+                ultimoUso = System.currentTimeMillis();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Chiude la connessione fisica ignorando eventuali errori.
+         */
+        private void chiudiFisica() {
+            statementCache.svuota();
+            try {
+                fisica.close();
+            } catch (SQLException e) {
+                System.err.println("Errore durante la chiusura della connessione: " + e.getMessage());
+            }
+        }
+
+        /**
+         * Gestore delle invocazioni sul proxy di un singolo prestito.
+         *
+         * Intercetta {@code close()} per restituire la connessione al pool e
+         * impedisce l'uso del proxy dopo la restituzione.
+         */
+        private final class Gestore implements InvocationHandler {
+
+            /** Indica se questo prestito è già stato chiuso. */
+            private boolean chiusa = false;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!chiusa) {
+                            chiusa = true;
+                            restituisci(PooledConnection.this);
+                        }
+                        return null;
+                    case "isClosed":
+                        return chiusa || fisica.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "PooledConnection[" + fisica + "]";
+                    default:
+                        break;
+                }
+
+                if (chiusa) {
+                    throw new SQLException("Connessione già restituita al pool");
+                }
+
+                if (method.getName().equals("prepareStatement") && config.getDimensioneCacheStatement() > 0) {
+                    Class<?>[] tipi = method.getParameterTypes();
+                    if (tipi.length == 1) {
+                        return statementCache.prepara((Connection) proxy, (String) args[0], null);
+                    }
+                    if (tipi.length == 2 && tipi[1] == int.class) {
+                        return statementCache.prepara((Connection) proxy, (String) args[0], (Integer) args[1]);
+                    }
+                }
+
+                try {
+                    return method.invoke(fisica, args);
+                } catch (InvocationTargetException e) {
+                    Throwable causa = e.getCause();
+                    if (causa instanceof SQLException) {
+                        String stato = ((SQLException) causa).getSQLState();
+                        if (stato != null && stato.startsWith("08")) {
+                            guasta = true;
+                        }
+                    }
+                    throw causa;
+                }
+            }
+        }
+    }
+}
@@ -8,23 +8,24 @@ import java.sql.SQLException;
  * Gestore della connessione al database PostgreSQL per l'applicazione Climate Monitoring.
  *
  * Questa classe implementa il pattern Singleton per garantire un punto di accesso
- * centralizzato e controllato alla connessione del database. Offre funzionalità
+ * centralizzato e controllato alle connessioni del database. Offre funzionalità
  * essenziali per:
  * - Inizializzazione della connessione al database
  * - Gestione delle credenziali di accesso
- * - Apertura e chiusura delle connessioni
+ * - Prestito e restituzione delle connessioni tramite un {@link ConnectionPool}
  * - Test di connettività
  *
  * Caratteristiche principali:
  * - Caricamento dinamico del driver JDBC PostgreSQL
- * - Connessione sicura e gestita al database
+ * - Pool di connessioni limitato, configurabile con {@link PoolConfig}
  * - Metodi per test e gestione della connessione
  *
  * Pattern di utilizzo:
- * 1. Inizializzare con {@link #initialize(String, String, String)}
+ * 1. Inizializzare con {@link #initialize(String, String, String, PoolConfig)}
  * 2. Ottenere l'istanza con {@link #getInstance()}
- * 3. Utilizzare {@link #getConnection()} per operazioni di database
- * 4. Chiudere la connessione con {@link #closeConnection()}
+ * 3. Utilizzare {@link #getConnection()} in un blocco try-with-resources,
+ *    così che la connessione torni al pool al termine dell'operazione
+ * 4. Chiudere il pool con {@link #closeConnection()}
  *
  * @author Fusè Lorenzo 753168
  * @author Ciminella Alessandro 753369
@@ -37,6 +38,8 @@ public class DatabaseManager {
      *
      * Formato: jdbc:postgresql://[host]/ClimateMonitoring
      * Costruito dinamicamente in base all'host fornito durante l'inizializzazione.
+     * Con reWriteBatchedInserts il driver riscrive i batch di INSERT in
+     * istruzioni a più righe, riducendo i round trip degli inserimenti massivi.
      */
     private final String dbUrl;
 
@@ -59,10 +62,23 @@ public class DatabaseManager {
     private static DatabaseManager dbManager;
 
     /**
-     * Connessione attiva al database PostgreSQL.
-     * Gestita per essere riutilizzata o chiusa secondo necessità.
+     * Configurazione del pool di connessioni.
+     * Fornita in fase di inizializzazione.
      */
-    private Connection connection;
+    private final PoolConfig poolConfig;
+
+    /**
+     * Pool di connessioni al database PostgreSQL.
+     * Creato alla prima richiesta di connessione; volatile perché i prestiti
+     * successivi lo leggono senza sincronizzazione.
+     */
+    private volatile ConnectionPool pool;
+
+    /**
+     * Indica che il pool è stato chiuso definitivamente.
+     * Dopo la chiusura nessun pool viene ricreato.
+     */
+    private volatile boolean chiuso;
 
 
     /**
@@ -74,13 +90,15 @@ public class DatabaseManager {
      * @param host Indirizzo del server di database
      * @param user Nome utente per l'accesso
      * @param password Password di autenticazione
+     * @param poolConfig Configurazione del pool di connessioni
      * @throws RuntimeException Se il driver JDBC non può essere caricato
      */
-    private DatabaseManager(String host, String user, String password) {
+    private DatabaseManager(String host, String user, String password, PoolConfig poolConfig) {
 
-        this.dbUrl = String.format("jdbc:postgresql://%s/ClimateMonitoring", host);
+        this.dbUrl = String.format("jdbc:postgresql://%s/ClimateMonitoring?reWriteBatchedInserts=true", host);
         this.dbUser = user;
         this.dbPassword = password;
+        this.poolConfig = poolConfig;
 
         try {
             Class.forName("org.postgresql.Driver");
@@ -95,24 +113,44 @@ public class DatabaseManager {
     /**
      * Metodo di inizializzazione del gestore database.
      *
+     * Crea una singola istanza del DatabaseManager seguendo il pattern Singleton,
+     * con la configurazione predefinita del pool di connessioni.
+     *
+     * @param host Indirizzo del server di database
+     * @param user Nome utente per l'accesso
+     * @param password Password di autenticazione
+     * @return Istanza singleton del DatabaseManager
+     * @throws IllegalStateException Se si tenta di inizializzare più volte
+     */
+    public static synchronized DatabaseManager initialize(String host, String user, String password) {
+        return initialize(host, user, password, new PoolConfig());
+    }
+
+    /**
+     * Metodo di inizializzazione del gestore database con configurazione del pool.
+     *
      * Crea una singola istanza del DatabaseManager seguendo il pattern Singleton.
      * Garantisce che:
      * - Un solo gestore database sia creato
-     * - Le credenziali siano impostate una sola volta
+     * - Le credenziali e il dimensionamento del pool siano impostati una sola volta
      *
      * @param host Indirizzo del server di database
      * @param user Nome utente per l'accesso
      * @param password Password di autenticazione
+     * @param poolConfig Configurazione del pool di connessioni
      * @return Istanza singleton del DatabaseManager
      * @throws IllegalStateException Se si tenta di inizializzare più volte
+     * @throws IllegalArgumentException Se la configurazione del pool non è coerente
      */
-    public static synchronized DatabaseManager initialize(String host, String user, String password) {
+    public static synchronized DatabaseManager initialize(String host, String user, String password, PoolConfig poolConfig) {
         if (dbManager == null) {
+            poolConfig.valida();
             System.out.println("Inizializzazione DatabaseManager con:");
             System.out.println("Host: " + host);
             System.out.println("User: " + user);
             System.out.println("URL completo: jdbc:postgresql://" + host + "/ClimateMonitoring");
-            dbManager = new DatabaseManager(host, user, password);
+            System.out.println("Pool: min " + poolConfig.getMinConnessioni() + ", max " + poolConfig.getMaxConnessioni());
+            dbManager = new DatabaseManager(host, user, password, poolConfig);
         } else {
             throw new IllegalStateException("DatabaseManager è già stato inizializzato");
         }
@@ -138,46 +176,84 @@ public class DatabaseManager {
 
 
     /**
-     * Ottiene una connessione attiva al database.
+     * Restituisce la configurazione del pool, ad esempio per dimensionare
+     * i limiti di concorrenza sul numero di connessioni.
      *
-     * Gestisce in modo intelligente la connessione:
-     * - Crea una nuova connessione se non esistente
-     * - Riutilizza la connessione esistente se valida
-     * - Reconnette automaticamente in caso di connessione chiusa
+     * @return Configurazione del pool di connessioni
+     */
+    public PoolConfig getPoolConfig() {
+        return poolConfig;
+    }
+
+
+    /**
+     * Ottiene una connessione dal pool del database.
+     *
+     * Gestisce in modo intelligente le connessioni:
+     * - Crea il pool alla prima richiesta
+     * - Riutilizza una connessione libera e validata
+     * - Attende al massimo il timeout configurato se il pool è esaurito
+     *
+     * La connessione deve essere chiusa dal chiamante (preferibilmente con
+     * try-with-resources): la chiusura la restituisce al pool.
      *
      * @return Connessione attiva al database PostgreSQL
-     * @throws SQLException In caso di errori durante la connessione
+     * @throws SQLException In caso di errori durante la connessione o di timeout,
+     *                      o se il pool è già stato chiuso con {@link #closeConnection()}
      */
     public Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
+        ConnectionPool p = pool;
+        if (p == null) {
+            p = creaPool();
+        }
+        return p.getConnection();
+    }
+
+
+    /**
+     * Crea il pool alla prima richiesta di connessione.
+     *
+     * @return Pool di connessioni attivo
+     * @throws SQLException Se il pool è già stato chiuso o in caso di errori
+     *                      durante l'apertura delle connessioni iniziali
+     */
+    private synchronized ConnectionPool creaPool() throws SQLException {
+        if (chiuso) {
+            throw new SQLException("Connessione al database già chiusa");
+        }
+        if (pool == null) {
             System.out.println("Tentativo di connessione al database...");
             System.out.println("URL: " + dbUrl);
-            connection = DriverManager.getConnection(dbUrl, dbUser, dbPassword);
+            pool = new ConnectionPool(dbUrl, dbUser, dbPassword, poolConfig);
             System.out.println("Connessione stabilita con successo!");
         }
-        return connection;
+        return pool;
     }
 
 
     /**
-     * Chiude la connessione corrente al database.
+     * Chiude il pool e tutte le connessioni al database.
      *
      * Operazioni principali:
-     * - Verifica l'esistenza di una connessione aperta
-     * - Chiude la connessione in modo sicuro
+     * - Verifica l'esistenza di un pool attivo
+     * - Chiude le connessioni libere e quelle in uso alla loro restituzione
      * - Gestisce eventuali errori durante la chiusura
      *
-     * Best practice: chiamare sempre questo metodo al termine delle operazioni di database
+     * La chiusura è definitiva: le richieste successive a {@link #getConnection()},
+     * ad esempio di chiamate ancora in corso dopo l'arresto del server,
+     * falliscono invece di aprire un nuovo pool.
+     *
+     * Best practice: chiamare sempre questo metodo all'arresto del server
      */
-    public void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                connection = null;
-                System.out.println("Connessione al database chiusa con successo");
-            }
-        } catch (SQLException e) {
-            System.err.println("Errore durante la chiusura della connessione: " + e.getMessage());
+    public synchronized void closeConnection() {
+        if (chiuso) {
+            return;
+        }
+        chiuso = true;
+        if (pool != null) {
+            // il riferimento resta: il pool chiuso rifiuta i prestiti successivi
+            pool.close();
+            System.out.println("Connessione al database chiusa con successo");
         }
     }
 
@@ -193,8 +269,7 @@ public class DatabaseManager {
      * @return true se la connessione è riuscita, false altrimenti
      */
     public boolean testConnection() {
-        try {
-            Connection testConn = DriverManager.getConnection(dbUrl, dbUser, dbPassword);
+        try (Connection testConn = DriverManager.getConnection(dbUrl, dbUser, dbPassword)) {
             System.out.println("Test di connessione completato con successo");
             return true;
         } catch (SQLException e) {
@@ -0,0 +1,157 @@
+package com.climatemonitoring.server.util;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Aggiornamenti dello schema del database applicati all'avvio del server.
+ *
+ * Ogni istruzione è idempotente ({@code IF NOT EXISTS}), quindi può essere
+ * eseguita a ogni avvio su database nuovi o già aggiornati. Le istruzioni
+ * sono eseguite una per una: se una fallisce (ad esempio un indice su una
+ * tabella di cui il ruolo del server non è proprietario) l'errore viene
+ * segnalato e le successive vengono comunque applicate.
+ *
+ * Non tutte le istruzioni hanno lo stesso peso:
+ * - Senza gli indici le query funzionano, solo più lentamente
+ * - Senza la colonna delle versioni o il suo trigger i client ricevono
+ *   sempre l'elenco completo delle coordinate
+ * - Senza la colonna chiave_idempotenza con il suo indice univoco e le
+ *   tabelle ingestione_lotti e ingestione_checkpoint nessun inserimento di
+ *   rilevazioni può riuscire, o i duplicati non vengono più esclusi: in
+ *   questo caso {@link #applica} lancia un'eccezione e il server non parte
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public final class MigrazioniSchema {
+
+    /**
+     * Istruzioni da applicare, nell'ordine.
+     *
+     * Gli indici su (area, data, id) servono alla paginazione per cursore
+     * della serie storica: la pagina si legge con una scansione dell'indice
+     * che parte dal cursore, senza ordinare tutte le rilevazioni dell'area.
+     *
+     * La tabella ingestione_checkpoint registra l'ultima rilevazione
+     * riapplicata da ogni spool locale del server.
+     *
+     * La colonna chiave_idempotenza, con il suo indice univoco, e la tabella
+     * ingestione_lotti impediscono che un inserimento ripetuto dal client
+     * crei righe duplicate; le righe senza chiave restano ammesse.
+     *
+     * La colonna versione di coordinatemonitoraggio, assegnata da una
+     * sequenza all'inserimento e a ogni modifica, e la tabella
+     * coordinatemonitoraggio_eliminate permettono ai client di scaricare
+     * solo le coordinate cambiate dall'ultima sincronizzazione. Prima di
+     * prendere una versione il trigger acquisisce un advisory lock fino al
+     * termine della transazione: le transazioni che modificano l'elenco sono
+     * eseguite una alla volta, quindi le loro versioni seguono l'ordine di
+     * commit e una versione più bassa non può diventare visibile dopo una più
+     * alta. Trigger e funzione vengono ricreati a ogni avvio, così restano
+     * allineati a questa definizione.
+     */
+    private static final String[] ISTRUZIONI = {
+            "CREATE INDEX IF NOT EXISTS parametriclimatici_coordinata_data_idx " +
+                    "ON parametriclimatici (coordinate_monitoraggio_id, data_rilevazione DESC, id DESC)",
+            "CREATE INDEX IF NOT EXISTS parametriclimatici_area_data_idx " +
+                    "ON parametriclimatici (area_interesse_id, data_rilevazione DESC, id DESC)",
+            "CREATE TABLE IF NOT EXISTS ingestione_checkpoint (" +
+                    "sorgente text PRIMARY KEY, sequenza bigint NOT NULL)",
+            "ALTER TABLE parametriclimatici ADD COLUMN IF NOT EXISTS chiave_idempotenza uuid",
+            "CREATE UNIQUE INDEX IF NOT EXISTS parametriclimatici_chiave_idx " +
+                    "ON parametriclimatici (chiave_idempotenza)",
+            "CREATE TABLE IF NOT EXISTS ingestione_lotti (" +
+                    "chiave uuid PRIMARY KEY, rilevazioni integer NOT NULL, " +
+                    "data_inserimento timestamp NOT NULL DEFAULT now())",
+            "CREATE SEQUENCE IF NOT EXISTS coordinatemonitoraggio_versione_seq",
+            "ALTER TABLE coordinatemonitoraggio ADD COLUMN IF NOT EXISTS versione bigint NOT NULL " +
+                    "DEFAULT nextval('coordinatemonitoraggio_versione_seq')",
+            "CREATE INDEX IF NOT EXISTS coordinatemonitoraggio_versione_idx " +
+                    "ON coordinatemonitoraggio (versione)",
+            "CREATE TABLE IF NOT EXISTS coordinatemonitoraggio_eliminate (" +
+                    "id integer PRIMARY KEY, versione bigint NOT NULL)",
+            "CREATE OR REPLACE FUNCTION coordinatemonitoraggio_versiona() RETURNS trigger AS $$ " +
+                    "BEGIN " +
+                    "PERFORM pg_advisory_xact_lock('coordinatemonitoraggio_versione_seq'::regclass::oid::bigint); " +
+                    "IF TG_OP = 'DELETE' THEN " +
+                    "INSERT INTO coordinatemonitoraggio_eliminate (id, versione) " +
+                    "VALUES (OLD.id, nextval('coordinatemonitoraggio_versione_seq')) " +
+                    "ON CONFLICT (id) DO UPDATE SET versione = EXCLUDED.versione; " +
+                    "RETURN OLD; " +
+                    "END IF; " +
+                    "NEW.versione := nextval('coordinatemonitoraggio_versione_seq'); " +
+                    "RETURN NEW; " +
+                    "END $$ LANGUAGE plpgsql",
+            "DROP TRIGGER IF EXISTS coordinatemonitoraggio_versione_trg ON coordinatemonitoraggio",
+            "CREATE TRIGGER coordinatemonitoraggio_versione_trg BEFORE INSERT OR UPDATE OR DELETE " +
+                    "ON coordinatemonitoraggio FOR EACH ROW EXECUTE PROCEDURE coordinatemonitoraggio_versiona()"
+    };
+
+    private MigrazioniSchema() {
+    }
+
+    /**
+     * Verifica che esistano colonna, indice univoco e tabelle usati dagli
+     * inserimenti di rilevazioni; restituisce un valore per ciascuno.
+     */
+    private static final String VERIFICA_INGESTIONE = "SELECT " +
+            "EXISTS (SELECT 1 FROM information_schema.columns WHERE table_schema = current_schema() " +
+            "AND table_name = 'parametriclimatici' AND column_name = 'chiave_idempotenza'), " +
+            "to_regclass('parametriclimatici_chiave_idx') IS NOT NULL, " +
+            "to_regclass('ingestione_lotti') IS NOT NULL, " +
+            "to_regclass('ingestione_checkpoint') IS NOT NULL";
+
+    /** Oggetti controllati da {@link #VERIFICA_INGESTIONE}, nello stesso ordine. */
+    private static final String[] OGGETTI_INGESTIONE = {
+            "colonna parametriclimatici.chiave_idempotenza", "indice parametriclimatici_chiave_idx",
+            "tabella ingestione_lotti", "tabella ingestione_checkpoint"
+    };
+
+    /**
+     * Applica gli aggiornamenti dello schema.
+     *
+     * Se il database non è raggiungibile lo segnala e ritorna: lo schema
+     * sarà verificato al prossimo avvio.
+     *
+     * @param dbManager Gestore del database
+     * @throws IllegalStateException Se dopo gli aggiornamenti mancano gli oggetti richiesti dagli inserimenti
+     */
+    public static void applica(DatabaseManager dbManager) {
+        try (Connection conn = dbManager.getConnection()) {
+            // ogni istruzione nella propria transazione: un errore non annulla le altre
+            conn.setAutoCommit(true);
+            for (String istruzione : ISTRUZIONI) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute(istruzione);
+                } catch (SQLException e) {
+                    System.err.println("Aggiornamento dello schema non applicato: " + e.getMessage()
+                            + "\n  " + istruzione);
+                }
+            }
+            verificaIngestione(conn);
+        } catch (SQLException e) {
+            System.err.println("Impossibile aggiornare lo schema del database: " + e.getMessage());
+        }
+    }
+
+    private static void verificaIngestione(Connection conn) throws SQLException {
+        StringBuilder mancanti = new StringBuilder();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(VERIFICA_INGESTIONE)) {
+            rs.next();
+            for (int i = 0; i < OGGETTI_INGESTIONE.length; i++) {
+                if (!rs.getBoolean(i + 1)) {
+                    mancanti.append(mancanti.length() == 0 ? "" : ", ").append(OGGETTI_INGESTIONE[i]);
+                }
+            }
+        }
+        if (mancanti.length() > 0) {
+            throw new IllegalStateException("Schema del database incompleto, mancano: " + mancanti
+                    + ". Applicare gli aggiornamenti con un ruolo proprietario delle tabelle.");
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.climatemonitoring.server.util;
+
+/**
+ * Parametri di configurazione del pool di connessioni JDBC.
+ *
+ * Raccoglie in un unico oggetto i limiti di dimensionamento e le
+ * soglie temporali usate da {@link ConnectionPool}:
+ * - Numero minimo e massimo di connessioni fisiche
+ * - Tempo massimo di attesa per ottenere una connessione
+ * - Tempo di inattività oltre il quale una connessione viene chiusa
+ * - Soglia oltre la quale una connessione non restituita è segnalata come perdita
+ * - Registrazione facoltativa del punto di prestito, per la diagnosi delle perdite
+ * - Capacità della cache di statement preparate di ogni connessione
+ *
+ * I valori predefiniti scalano con il numero di core disponibili.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+public class PoolConfig {
+
+    /** Numero minimo di connessioni mantenute aperte. */
+    private int minConnessioni = 2;
+
+    /** Numero massimo di connessioni aperte contemporaneamente. */
+    private int maxConnessioni = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    /** Tempo massimo di attesa (ms) per ottenere una connessione dal pool. */
+    private long timeoutAcquisizioneMs = 5_000;
+
+    /** Tempo (ms) dopo il quale una connessione inattiva in eccesso viene chiusa. */
+    private long timeoutInattivitaMs = 60_000;
+
+    /** Tempo (ms) oltre il quale una connessione non restituita viene segnalata. */
+    private long sogliaPerditaMs = 30_000;
+
+    /**
+     * Registra lo stack del chiamante a ogni prestito, da stampare con la segnalazione di perdita.
+     * Costoso, quindi disattivato salvo la proprietà {@code climatemonitoring.pool.tracciaPrestiti}.
+     */
+    private boolean tracciaPrestiti = Boolean.getBoolean("climatemonitoring.pool.tracciaPrestiti");
+
+    /** Timeout (s) usato per la validazione della connessione al prestito. */
+    private int timeoutValidazioneSec = 2;
+
+    /** Numero massimo di PreparedStatement mantenute in cache per ciascuna connessione. */
+    private int dimensioneCacheStatement = 32;
+
+    /**
+     * Costruisce una configurazione con i valori predefiniti.
+     */
+    public PoolConfig() {
+    }
+
+    /**
+     * Costruisce una configurazione specificando il dimensionamento del pool.
+     *
+     * @param minConnessioni Numero minimo di connessioni
+     * @param maxConnessioni Numero massimo di connessioni
+     * @param timeoutAcquisizioneMs Tempo massimo di attesa in millisecondi
+     * @throws IllegalArgumentException Se i limiti non sono coerenti
+     */
+    public PoolConfig(int minConnessioni, int maxConnessioni, long timeoutAcquisizioneMs) {
+        setMinConnessioni(minConnessioni);
+        setMaxConnessioni(maxConnessioni);
+        setTimeoutAcquisizioneMs(timeoutAcquisizioneMs);
+    }
+
+    /**
+     * Verifica la coerenza complessiva dei parametri.
+     *
+     * @throws IllegalArgumentException Se il minimo supera il massimo
+     */
+    void valida() {
+        if (minConnessioni > maxConnessioni) {
+            throw new IllegalArgumentException("Il numero minimo di connessioni non può superare il massimo");
+        }
+    }
+
+    public int getMinConnessioni() {
+        return minConnessioni;
+    }
+
+    public void setMinConnessioni(int minConnessioni) {
+        if (minConnessioni < 0) {
+            throw new IllegalArgumentException("Il numero minimo di connessioni non può essere negativo");
+        }
+        this.minConnessioni = minConnessioni;
+    }
+
+    public int getMaxConnessioni() {
+        return maxConnessioni;
+    }
+
+    public void setMaxConnessioni(int maxConnessioni) {
+        if (maxConnessioni < 1) {
+            throw new IllegalArgumentException("Il numero massimo di connessioni deve essere almeno 1");
+        }
+        this.maxConnessioni = maxConnessioni;
+    }
+
+    public long getTimeoutAcquisizioneMs() {
+        return timeoutAcquisizioneMs;
+    }
+
+    public void setTimeoutAcquisizioneMs(long timeoutAcquisizioneMs) {
+        this.timeoutAcquisizioneMs = timeoutAcquisizioneMs;
+    }
+
+    public long getTimeoutInattivitaMs() {
+        return timeoutInattivitaMs;
+    }
+
+    public void setTimeoutInattivitaMs(long timeoutInattivitaMs) {
+        this.timeoutInattivitaMs = timeoutInattivitaMs;
+    }
+
+    public long getSogliaPerditaMs() {
+        return sogliaPerditaMs;
+    }
+
+    public void setSogliaPerditaMs(long sogliaPerditaMs) {
+        this.sogliaPerditaMs = sogliaPerditaMs;
+    }
+
+    public boolean isTracciaPrestiti() {
+        return tracciaPrestiti;
+    }
+
+    public void setTracciaPrestiti(boolean tracciaPrestiti) {
+        this.tracciaPrestiti = tracciaPrestiti;
+    }
+
+    public int getTimeoutValidazioneSec() {
+        return timeoutValidazioneSec;
+    }
+
+    public void setTimeoutValidazioneSec(int timeoutValidazioneSec) {
+        this.timeoutValidazioneSec = timeoutValidazioneSec;
+    }
+
+    public int getDimensioneCacheStatement() {
+        return dimensioneCacheStatement;
+    }
+
+    public void setDimensioneCacheStatement(int dimensioneCacheStatement) {
+        if (dimensioneCacheStatement < 0) {
+            throw new IllegalArgumentException("La dimensione della cache di statement non può essere negativa");
+        }
+        this.dimensioneCacheStatement = dimensioneCacheStatement;
+    }
+}
@@ -0,0 +1,244 @@
+package com.climatemonitoring.server.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Cache LRU delle {@link PreparedStatement} di una singola connessione fisica.
+ *
+ * Le statement sono indicizzate dal testo SQL (e dalla richiesta di chiavi generate),
+ * così che chiamate ripetute come {@code getUserById} riutilizzino il piano già
+ * preparato dal server invece di ripreparare la query a ogni invocazione.
+ *
+ * Regole di gestione:
+ * - La chiusura di una statement in cache ne azzera i parametri e chiude il ResultSet
+ *   corrente, senza chiuderla fisicamente
+ * - Se la stessa query è già in uso nello stesso prestito, viene creata una statement
+ *   non in cache che sarà chiusa fisicamente
+ * - Alla restituzione della connessione al pool tutte le statement e i ResultSet
+ *   rimasti aperti vengono rilasciati
+ * - Superata la capacità, vengono chiuse le statement non in uso a partire da quella
+ *   usata meno di recente; quelle in uso sono chiuse appena tornano disponibili
+ *
+ * Una connessione è usata da un solo thread alla volta, quindi la cache non è sincronizzata.
+ *
+ * @author Fusè Lorenzo 753168
+ * @author Ciminella Alessandro 753369
+ * @author Dragan Cosmin 754427
+ */
+class StatementCache {
+
+    /** Connessione fisica a cui appartengono le statement. */
+    private final Connection fisica;
+
+    /** Numero massimo di statement mantenute aperte. */
+    private final int capacita;
+
+    /** Statement in cache, ordinate per accesso (LRU). */
+    private final LinkedHashMap<String, Voce> voci = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Statement non in cache aperte durante il prestito corrente. */
+    private final List<PreparedStatement> nonInCache = new ArrayList<>();
+
+    /**
+     * Crea la cache per una connessione.
+     *
+     * @param fisica Connessione fisica
+     * @param capacita Numero massimo di statement mantenute aperte
+     */
+    StatementCache(Connection fisica, int capacita) {
+        this.fisica = fisica;
+        this.capacita = capacita;
+    }
+
+    /**
+     * Restituisce una statement per la query indicata, riutilizzandola se presente in cache.
+     *
+     * @param connessione Proxy della connessione restituito da {@code getConnection()}
+     * @param sql Testo SQL
+     * @param chiaviGenerate Valore di {@code autoGeneratedKeys}, o null se non specificato
+     * @return Proxy della statement
+     * @throws SQLException In caso di errori di preparazione
+     */
+    PreparedStatement prepara(Connection connessione, String sql, Integer chiaviGenerate) throws SQLException {
+        String chiave = chiaviGenerate == null ? sql : chiaviGenerate + "|" + sql;
+        Voce voce = voci.get(chiave);
+
+        if (voce != null && voce.inUso) {
+            PreparedStatement ps = crea(sql, chiaviGenerate);
+            nonInCache.add(ps);
+            return avvolgi(connessione, ps, null);
+        }
+
+        if (voce == null) {
+            voce = new Voce(crea(sql, chiaviGenerate));
+            voce.inUso = true;
+            voci.put(chiave, voce);
+            riduci();
+        }
+        voce.inUso = true;
+        return avvolgi(connessione, voce.statement, voce);
+    }
+
+    /**
+     * Rilascia tutte le risorse aperte durante il prestito corrente.
+     *
+     * Chiamato quando la connessione torna al pool.
+     */
+    void rilascia() {
+        for (Voce voce : new ArrayList<>(voci.values())) {
+            if (voce.inUso) {
+                azzera(voce);
+            }
+        }
+        for (PreparedStatement ps : nonInCache) {
+            chiudiSilenziosamente(ps);
+        }
+        nonInCache.clear();
+    }
+
+    /**
+     * Chiude fisicamente tutte le statement in cache.
+     */
+    void svuota() {
+        rilascia();
+        Iterator<Voce> it = voci.values().iterator();
+        while (it.hasNext()) {
+            chiudiSilenziosamente(it.next().statement);
+            it.remove();
+        }
+    }
+
+    /**
+     * Prepara una nuova statement sulla connessione fisica.
+     */
+    private PreparedStatement crea(String sql, Integer chiaviGenerate) throws SQLException {
+        return chiaviGenerate == null
+                ? fisica.prepareStatement(sql)
+                : fisica.prepareStatement(sql, chiaviGenerate);
+    }
+
+    /**
+     * Riporta una statement in cache allo stato iniziale e la rende di nuovo disponibile.
+     */
+    private void azzera(Voce voce) {
+        try {
+            ResultSet rs = voce.statement.getResultSet();
+            if (rs != null) {
+                rs.close();
+            }
+            voce.statement.clearParameters();
+            // un batch interrotto da un errore non deve essere rieseguito dal prossimo utilizzatore
+            voce.statement.clearBatch();
+        } catch (SQLException e) {
+            chiudiSilenziosamente(voce.statement);
+            voci.values().remove(voce);
+        }
+        voce.inUso = false;
+        riduci();
+    }
+
+    /**
+     * Chiude le statement non in uso, dalla meno usata di recente, finché la
+     * cache non rientra nella capacità.
+     */
+    private void riduci() {
+        Iterator<Voce> it = voci.values().iterator();
+        while (voci.size() > capacita && it.hasNext()) {
+            Voce voce = it.next();
+            if (!voce.inUso) {
+                chiudiSilenziosamente(voce.statement);
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Chiude una statement ignorando eventuali errori.
+     */
+    private static void chiudiSilenziosamente(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException e) {
+            System.err.println("Errore durante la chiusura della statement: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Crea il proxy consegnato al chiamante.
+     *
+     * @param connessione Proxy della connessione, restituito da {@code getConnection()}
+     * @param ps Statement reale
+     * @param voce Voce di cache, o null per una statement non in cache
+     */
+    private PreparedStatement avvolgi(Connection connessione, PreparedStatement ps, Voce voce) {
+        InvocationHandler gestore = new InvocationHandler() {
+            private boolean chiusa = false;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!chiusa) {
+                            chiusa = true;
+                            if (voce != null) {
+                                azzera(voce);
+                            } else {
+                                nonInCache.remove(ps);
+                                ps.close();
+                            }
+                        }
+                        return null;
+                    case "isClosed":
+                        return chiusa || ps.isClosed();
+                    case "getConnection":
+                        return connessione;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        break;
+                }
+                if (chiusa) {
+                    throw new SQLException("Statement già chiusa");
+                }
+                try {
+                    return method.invoke(ps, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        };
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                gestore);
+    }
+
+    /**
+     * Statement in cache con lo stato di utilizzo nel prestito corrente.
+     */
+    private static final class Voce {
+
+        /** Statement reale. */
+        private final PreparedStatement statement;
+
+        /** Indica se la statement è stata consegnata e non ancora chiusa. */
+        private boolean inUso;
+
+        private Voce(PreparedStatement statement) {
+            this.statement = statement;
+        }
+    }
+}
@@ -3,6 +3,7 @@ module climate.monitoring.server {
     requires javafx.fxml;
     requires java.sql;
     requires java.rmi;
+    requires java.management;
     requires climate.monitoring.common;
     requires org.postgresql.jdbc;
 
@@ -12,6 +13,7 @@ module climate.monitoring.server {
     exports com.climatemonitoring.server;
     exports com.climatemonitoring.server.controller;
     exports com.climatemonitoring.server.server to java.rmi;
+    exports com.climatemonitoring.server.ingestion to java.management;
 
     uses com.climatemonitoring.common.service.ClimateMonitoringService;
 }
\ No newline at end of file